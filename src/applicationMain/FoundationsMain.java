@@ -109,6 +109,17 @@ public class FoundationsMain extends Application {
 		
 		// With the JavaFX pages set up, this thread of the execution comes to an end.
 	}
+	
+	/*******
+	 * <p> Title: FoundationsMain stop method</p>
+	 * 
+	 * <p> Description: Called by JavaFX when the last window is closed.  Writes any post read
+	 * marks that are still queued so closing the window does not lose them.</p>
+	 */
+	@Override
+	public void stop() {
+		database.flushPostReads();
+	}
 
 	/*******
 	 * <p> Title: FoundationsMain main method that starts up JavaFX</p>
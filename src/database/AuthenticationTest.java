@@ -0,0 +1,124 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+import entityClasses.Role;
+import entityClasses.User;
+
+/**
+ * Tests for {@link Database#authenticate} and the stored passwords: a login returns the profile
+ * and roles, passwords are stored hashed, and legacy plaintext passwords are rehashed at login.
+ */
+public class AuthenticationTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that authenticate accepts the password or a one-time password, returns the roles as
+     * a bitmask, and rejects everything else without touching the session.
+     *
+     * @throws Exception if registering fails
+     */
+    @Test
+    public void testAuthenticateReturnsProfileAndRoles() throws Exception {
+        db.register(new User("gina", "Secret1!", "Gina", "", "Ray", "", "gina@example.com",
+                true, false, true), null);
+        UserSession session = new UserSession();
+        assertNull(db.authenticate("gina", "wrong", session));
+        assertNull(db.authenticate("nobody", "Secret1!", session));
+        assertNull(session.getUsername());
+
+        LoginResult login = db.authenticate("gina", "Secret1!", session);
+        assertNotNull(login);
+        assertFalse(login.isOneTimePassword());
+        assertEquals(Role.ADMIN.bit() | Role.STAFF.bit(), login.getRoles());
+        assertEquals(2, login.getNumberOfRoles());
+        assertEquals("Ray", login.getUser().getLastName());
+        assertEquals("gina", session.getUsername());
+
+        String otp = db.generateOneTimePasswordFor("gina");
+        login = db.authenticate("gina", otp, null);
+        assertNotNull(login);
+        assertTrue(login.isOneTimePassword());
+        assertNull(db.authenticate("gina", otp, null));
+    }
+
+    /**
+     * Tests that passwords are stored as hashes that every login path verifies, and that a
+     * legacy plaintext password is replaced by a hash on the first login with it.
+     *
+     * @throws Exception if registering or reading the rows fails
+     */
+    @Test
+    public void testPasswordsAreHashedAndLegacyRowsRehashedOnLogin() throws Exception {
+        User hana = new User("hana", "Secret1!", "Hana", "", "Lee", "", "hana@example.com",
+                false, true, false);
+        db.register(hana, null);
+        String stored = storedPassword("hana");
+        assertTrue(PasswordHasher.isHash(stored));
+        assertFalse(stored.contains("Secret1!"));
+        assertTrue(db.loginRole1(hana));
+        assertFalse(db.loginAdmin(hana));
+        hana.setPassword("Secret2!");
+        assertFalse(db.loginRole1(hana));
+
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO userDB (userName, password, firstName, lastName, "
+                    + "emailAddress, roles) VALUES ('ivan', 'Legacy1!', 'Ivan', 'Cho', "
+                    + "'ivan@example.com', " + Role.STUDENT.bit() + ")");
+        }
+        db.awaitPasswordHashCost();    // until calibration ends, a login leaves the rehash for later
+        assertNull(db.authenticate("ivan", "Legacy2!", null));
+        assertEquals("Legacy1!", storedPassword("ivan"));
+        LoginResult login = db.authenticate("ivan", "Legacy1!", null);
+        assertNotNull(login);
+        assertEquals("Legacy1!", login.getUser().getPassword());
+        stored = storedPassword("ivan");
+        assertTrue(PasswordHasher.isHash(stored));
+        assertNotNull(db.authenticate("ivan", "Legacy1!", null));
+        assertEquals(stored, storedPassword("ivan"));
+    }
+
+    /**
+     * Tests that a login whose row cannot be read is reported as LoginResult.BUSY, not as a wrong
+     * username or password, and succeeds once the row can be read again.
+     *
+     * @throws Exception if registering or renaming userDB fails
+     */
+    @Test
+    public void testUnreadableRowIsBusyNotInvalid() throws Exception {
+        db.register(new User("jill", "Secret1!", "Jill", "", "Roe", "", "jill@example.com",
+                false, true, false), null);
+        db.clearProfileCache();
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE userDB RENAME TO userDB_away");
+            assertSame(LoginResult.BUSY, db.authenticate("jill", "Secret1!", null));
+            assertSame(LoginResult.BUSY, db.authenticate("nobody", "Secret1!", null));
+            assertFalse(db.getUserAccountDetails("jill", new UserSession()));
+            statement.execute("ALTER TABLE userDB_away RENAME TO userDB");
+        }
+        LoginResult login = db.authenticate("jill", "Secret1!", null);
+        assertNotNull(login);
+        assertFalse(login.isBusy());
+    }
+
+    // The password column of a user's row, read past the profile cache
+    private String storedPassword(String userName) throws Exception {
+        try (Connection connection = connect();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT password FROM userDB WHERE userName = ?")) {
+            ps.setString(1, userName);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString(1);
+            }
+        }
+    }
+}
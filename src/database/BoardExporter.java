@@ -0,0 +1,266 @@
+package database;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/*******
+ * <p> Title: BoardExporter Class. </p>
+ *
+ * <p> Description: Writes the discussion board (Posts, Replies, and the read marks of both read
+ * models) to one file per table, in JSONL or CSV and optionally gzip-compressed, for archiving a
+ * semester.  Each table is read through a forward-only, read-only ResultSet with a fetch size and
+ * lazy query execution, and each row is encoded straight into a fixed-size buffer that is drained
+ * to a FileChannel, so the memory used does not depend on the size of the board.</p>
+ *
+ * <p> All the tables are read in one repeatable-read transaction, so the files agree with each
+ * other even while users keep posting.  The rows of each table are written in key order.</p>
+ *
+ */
+
+final class BoardExporter {
+
+	/** The rows the driver fetches at a time */
+	static final int FETCH_SIZE = 500;
+
+	// The size of the encode buffer drained to the file
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	// One exported table: its name, its columns as they are named in the files, and its key
+	private static final class Table {
+		final String name;
+		final String[] columns;
+		final String orderBy;
+
+		Table(String name, String orderBy, String... columns) {
+			this.name = name;
+			this.orderBy = orderBy;
+			this.columns = columns;
+		}
+	}
+
+	private static final Table[] TABLES = {
+		new Table("Posts", "id", "id", "authorUsername", "title", "body", "thread", "createdAt",
+				"updatedAt", "isDeleted", "replyCount"),
+		new Table("Replies", "id", "id", "postId", "authorUsername", "body", "createdAt", "updatedAt"),
+		new Table("PostReads", "userName, postId", "userName", "postId", "readAt"),
+		new Table("ReadWatermarks", "userName, thread", "userName", "thread", "upToPostId"),
+		new Table("ReadExceptions", "userName, postId", "userName", "postId", "isRead")
+	};
+
+	private final ConnectionPool pool;
+
+	/*******
+	 * <p> Method: BoardExporter </p>
+	 *
+	 * <p> Description: Create an exporter that reads through the given pool.</p>
+	 *
+	 * @param pool the pool the export borrows its connection from
+	 */
+
+	BoardExporter(ConnectionPool pool) {
+		this.pool = pool;
+	}
+
+	/*******
+	 * <p> Method: run </p>
+	 *
+	 * <p> Description: Export every board table into a directory, replacing files of the same
+	 * name.</p>
+	 *
+	 * @param directory where the files go; created if needed
+	 * @param format JSONL or CSV
+	 * @param gzip true to gzip each file
+	 *
+	 * @return the number of rows written, by table name, in the order written
+	 *
+	 * @throws IOException when a file cannot be written
+	 * @throws SQLException when a table cannot be read
+	 */
+
+	Map<String,Long> run(Path directory, DataFormat format, boolean gzip) throws IOException, SQLException {
+		Files.createDirectories(directory);
+		Map<String,Long> written = new LinkedHashMap<>();
+		try (Connection connection = pool.getConnection()) {
+			int isolation = connection.getTransactionIsolation();
+			connection.setAutoCommit(false);
+			connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+			try (Statement st = connection.createStatement()) {
+				// Without this H2 builds the whole result before returning its first row
+				st.execute("SET LAZY_QUERY_EXECUTION TRUE");
+				try {
+					for (Table table : TABLES) {
+						String file = table.name + (format == DataFormat.JSONL ? ".jsonl" : ".csv")
+								+ (gzip ? ".gz" : "");
+						written.put(table.name, export(connection, table, directory.resolve(file), format, gzip));
+					}
+					connection.commit();
+				} finally {
+					st.execute("SET LAZY_QUERY_EXECUTION FALSE");
+					connection.setTransactionIsolation(isolation);
+				}
+			}
+		}
+		return written;
+	}
+
+	private static long export(Connection connection, Table table, Path file, DataFormat format, boolean gzip)
+			throws IOException, SQLException {
+		String query = "SELECT " + String.join(", ", table.columns) + " FROM " + table.name
+				+ " ORDER BY " + table.orderBy;
+		long rows = 0;
+		try (ChannelWriter out = new ChannelWriter(file, gzip);
+			 PreparedStatement ps = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+					 ResultSet.CONCUR_READ_ONLY)) {
+			ps.setFetchSize(FETCH_SIZE);
+			try (ResultSet rs = ps.executeQuery()) {
+				int[] types = new int[table.columns.length];
+				for (int i = 0; i < types.length; i++) types[i] = rs.getMetaData().getColumnType(i + 1);
+				StringBuilder line = new StringBuilder(256);
+				if (format == DataFormat.CSV) {
+					line.append(String.join(",", table.columns)).append('\n');
+					out.write(line);
+				}
+				while (rs.next()) {
+					line.setLength(0);
+					if (format == DataFormat.JSONL) jsonRow(line, rs, table.columns, types);
+					else csvRow(line, rs, types);
+					out.write(line);
+					rows++;
+				}
+			}
+		}
+		return rows;
+	}
+
+	private static void jsonRow(StringBuilder line, ResultSet rs, String[] columns, int[] types) throws SQLException {
+		line.append('{');
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) line.append(", ");
+			jsonString(line, columns[i]);
+			line.append(": ");
+			Object value = value(rs, i + 1, types[i]);
+			if (value instanceof String) jsonString(line, (String) value);
+			else line.append(value);			// a number, a boolean, or null
+		}
+		line.append("}\n");
+	}
+
+	private static void csvRow(StringBuilder line, ResultSet rs, int[] types) throws SQLException {
+		for (int i = 0; i < types.length; i++) {
+			if (i > 0) line.append(',');
+			Object value = value(rs, i + 1, types[i]);
+			if (value == null) continue;
+			String text = value.toString();
+			if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+				line.append(text);
+			} else {
+				line.append('"').append(text.replace("\"", "\"\"")).append('"');
+			}
+		}
+		line.append('\n');
+	}
+
+	// A column's value: a String (timestamps in ISO-8601), a Number, a Boolean, or null
+	private static Object value(ResultSet rs, int column, int type) throws SQLException {
+		switch (type) {
+		case Types.TIMESTAMP:
+		case Types.TIMESTAMP_WITH_TIMEZONE:
+			Timestamp t = rs.getTimestamp(column);
+			return t == null ? null : t.toLocalDateTime().toString();
+		case Types.INTEGER:
+		case Types.BIGINT:
+		case Types.BOOLEAN:
+			return rs.getObject(column);
+		default:
+			return rs.getString(column);
+		}
+	}
+
+	private static void jsonString(StringBuilder line, String s) {
+		line.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"': line.append("\\\""); break;
+			case '\\': line.append("\\\\"); break;
+			case '\n': line.append("\\n"); break;
+			case '\r': line.append("\\r"); break;
+			case '\t': line.append("\\t"); break;
+			default:
+				if (c < 0x20) line.append(String.format("\\u%04x", (int) c));
+				else line.append(c);
+			}
+		}
+		line.append('"');
+	}
+
+	/*
+	 * Encodes text as UTF-8 into one reused buffer and writes the buffer to a FileChannel, through
+	 * a GZIPOutputStream when compressing, whenever it fills.
+	 */
+
+	private static final class ChannelWriter implements Closeable {
+		private final FileChannel channel;
+		private final GZIPOutputStream gzip;
+		private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_BYTES);
+		private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		ChannelWriter(Path file, boolean compress) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			gzip = compress ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES) : null;
+		}
+
+		void write(CharSequence text) throws IOException {
+			CharBuffer in = CharBuffer.wrap(text);
+			while (encoder.encode(in, bytes, false) == CoderResult.OVERFLOW) drain();
+		}
+
+		private void drain() throws IOException {
+			if (gzip != null) {
+				gzip.write(bytes.array(), 0, bytes.position());
+			} else {
+				bytes.flip();
+				while (bytes.hasRemaining()) channel.write(bytes);
+			}
+			bytes.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				CharBuffer empty = CharBuffer.allocate(0);
+				while (encoder.encode(empty, bytes, true) == CoderResult.OVERFLOW) drain();
+				while (encoder.flush(bytes) == CoderResult.OVERFLOW) drain();
+				drain();
+				if (gzip != null) gzip.finish();
+			} finally {
+				if (gzip != null) gzip.close();		// closes the channel too
+				else channel.close();
+			}
+		}
+	}
+}
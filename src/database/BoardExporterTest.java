@@ -0,0 +1,57 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for {@link BoardExporter}: every table is written as a gzipped JSONL file whose rows read
+ * back with their text intact.
+ */
+public class BoardExporterTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that exporting the board writes one gzipped JSONL file per table whose rows read back
+     * with their text intact.
+     *
+     * @throws Exception if the export fails
+     */
+    @Test
+    public void testExportBoardWritesEveryRowAsJsonLines() throws Exception {
+        for (int i = 0; i < 1200; i++) db.createPost("alice", "Post " + i, "Body " + i, "General");
+        db.createPost("alice", "Quoted", "She said \"hi\",\nthen left\\", "Exams");
+        int last = Post.getIntCI(db.fetchPosts(false, "bob", false, "Exams", null).get(0), "id");
+        db.createReply(last, "bob", "A reply");
+        assertTrue(db.markPostsRead("bob", new int[] { last }));
+
+        Path directory = Files.createTempDirectory("export");
+        Map<String,Long> written = db.exportBoard(directory, DataFormat.JSONL, true);
+        assertEquals(Long.valueOf(1201), written.get("Posts"));
+        assertEquals(Long.valueOf(1), written.get("Replies"));
+        assertEquals(Long.valueOf(1), written.get("PostReads"));
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(
+                        directory.resolve("Posts.jsonl.gz"))), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) lines.add(line);
+        }
+        assertEquals(1201, lines.size());
+        Map<String,String> quoted = UserImporter.parseJsonObject(lines.get(1200));
+        assertEquals(String.valueOf(last), quoted.get("id"));
+        assertEquals("She said \"hi\",\nthen left\\", quoted.get("body"));
+        assertEquals("false", quoted.get("isDeleted"));
+    }
+}
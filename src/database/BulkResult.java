@@ -0,0 +1,80 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*******
+ * <p> Title: BulkResult Class. </p>
+ *
+ * <p> Description: The outcome of a bulk operation that reads its input a row at a time, such as
+ * inviting a roster of students: what was created, and for every input row that was not used,
+ * the line it came from and why it was rejected.</p>
+ *
+ * @param <T> the type of the items created
+ *
+ */
+
+public class BulkResult<T> {
+
+	private final List<T> created = new ArrayList<>();
+	private final List<RowError> errors = new ArrayList<>();
+	private int rowsRead = 0;
+
+	/*******
+	 * <p> Title: RowError Class. </p>
+	 *
+	 * <p> Description: One rejected input row.</p>
+	 */
+
+	public static final class RowError {
+		private final int line;
+		private final String input;
+		private final String message;
+
+		RowError(int line, String input, String message) {
+			this.line = line;
+			this.input = input;
+			this.message = message;
+		}
+
+		/** @return the line of the input the row was read from, counting from 1 (0 for none) */
+		public int getLine() { return line; }
+
+		/** @return the rejected input */
+		public String getInput() { return input; }
+
+		/** @return why the row was rejected */
+		public String getMessage() { return message; }
+
+		@Override
+		public String toString() {
+			return "Line " + line + " (" + input + "): " + message;
+		}
+	}
+
+	void addCreated(T item) {
+		created.add(item);
+	}
+
+	void addError(int line, String input, String message) {
+		errors.add(new RowError(line, input, message));
+	}
+
+	void setRowsRead(int rowsRead) {
+		this.rowsRead = rowsRead;
+	}
+
+	void clearCreated() {
+		created.clear();
+	}
+
+	/** @return the number of data rows read from the input */
+	public int getRowsRead() { return rowsRead; }
+
+	/** @return the items created, in input order */
+	public List<T> getCreated() { return Collections.unmodifiableList(created); }
+
+	/** @return the rejected rows, in input order */
+	public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+}
@@ -0,0 +1,210 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******
+ * <p> Title: ConnectionPool Class. </p>
+ *
+ * <p> Description: A small bounded pool of JDBC connections.  At most maxConnections
+ * connections are handed out at once; further callers wait (up to a timeout) for one to be
+ * returned.  The connection a caller receives is a wrapper whose close() puts the underlying
+ * connection back into the pool instead of closing it, so callers simply use
+ * try-with-resources.</p>
+ *
+ * <p> Each physical connection keeps its prepared statements open in a StatementCache, so a
+ * query that runs often is parsed and planned once per connection rather than once per call.
+ * The hit and miss counts of all the caches are available from the pool.</p>
+ *
+ * <p> This plays the role of H2's JdbcConnectionPool.  The application module does not read the
+ * H2 jar (H2 is only reached through the JDBC driver), so the pool is built on java.sql alone.
+ * </p>
+ *
+ */
+
+final class ConnectionPool {
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final Semaphore available;
+	private final ConcurrentLinkedDeque<Pooled> idle = new ConcurrentLinkedDeque<>();
+	private final long timeoutMillis;
+	private final int statementCacheSize;
+	private final AtomicLong statementHits = new AtomicLong();
+	private final AtomicLong statementMisses = new AtomicLong();
+	private volatile boolean closed = false;
+
+	// A physical connection together with its statement cache
+	private static final class Pooled {
+		final Connection physical;
+		final StatementCache statements;
+
+		Pooled(Connection physical, StatementCache statements) {
+			this.physical = physical;
+			this.statements = statements;
+		}
+	}
+
+	/*******
+	 * <p> Method: ConnectionPool </p>
+	 *
+	 * <p> Description: Create an empty pool; connections are opened on first use.</p>
+	 *
+	 * @param url the JDBC URL of the database
+	 * @param user the database user
+	 * @param password the database password
+	 * @param maxConnections the most connections that may be in use at the same time
+	 * @param timeoutMillis how long a caller waits for a free connection before failing
+	 * @param statementCacheSize the most prepared statements kept open per connection
+	 */
+
+	ConnectionPool(String url, String user, String password, int maxConnections,
+			long timeoutMillis, int statementCacheSize) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.available = new Semaphore(maxConnections, true);
+		this.timeoutMillis = timeoutMillis;
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/*******
+	 * <p> Method: getConnection </p>
+	 *
+	 * <p> Description: Borrow a connection.  The caller must close it (normally with
+	 * try-with-resources) to return it to the pool.  The connection is in auto-commit mode.</p>
+	 *
+	 * @return a pooled connection
+	 *
+	 * @throws SQLException when the pool is closed, no connection frees up in time, or a new
+	 * 		connection cannot be opened
+	 */
+
+	Connection getConnection() throws SQLException {
+		if (closed) throw new SQLException("The connection pool has been closed");
+		try {
+			if (!available.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS))
+				throw new SQLException("Timed out waiting for a database connection");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection", e);
+		}
+		try {
+			Pooled pooled = idle.pollFirst();
+			if (pooled == null || pooled.physical.isClosed()) {
+				Connection physical = DriverManager.getConnection(url, user, password);
+				pooled = new Pooled(physical, new StatementCache(physical, statementCacheSize,
+						statementHits, statementMisses));
+			}
+			return wrap(pooled);
+		} catch (SQLException | RuntimeException e) {
+			available.release();
+			throw e;
+		}
+	}
+
+	/*******
+	 * <p> Method: close </p>
+	 *
+	 * <p> Description: Close every idle connection and refuse further requests.  Connections
+	 * still in use are closed when they are returned.</p>
+	 */
+
+	void close() {
+		closed = true;
+		Pooled c;
+		while ((c = idle.pollFirst()) != null) closePhysical(c);
+	}
+
+	/** @return how many prepared statements were served from a statement cache */
+	long getStatementCacheHits() {
+		return statementHits.get();
+	}
+
+	/** @return how many prepared statements had to be parsed because no cached one was free */
+	long getStatementCacheMisses() {
+		return statementMisses.get();
+	}
+
+	/*
+	 * Put a connection back into the pool once its borrower closes it.  Anything the borrower
+	 * left uncommitted is rolled back so the next borrower starts clean.
+	 */
+
+	private void release(Pooled pooled) {
+		Connection physical = pooled.physical;
+		try {
+			if (closed || physical.isClosed()) {
+				closePhysical(pooled);
+				return;
+			}
+			if (!physical.getAutoCommit()) {
+				physical.rollback();
+				physical.setAutoCommit(true);
+			}
+			idle.offerFirst(pooled);
+		} catch (SQLException e) {
+			closePhysical(pooled);
+		} finally {
+			available.release();
+		}
+	}
+
+	private static void closePhysical(Pooled c) {
+		c.statements.close();
+		try {
+			c.physical.close();
+		} catch (SQLException e) { e.printStackTrace(); }
+	}
+
+	/*
+	 * Wrap a physical connection so close() returns it to the pool (once), prepareStatement goes
+	 * through the statement cache, and every other call goes straight to the physical connection.
+	 */
+
+	private Connection wrap(Pooled pooled) {
+		Connection physical = pooled.physical;
+		InvocationHandler handler = new InvocationHandler() {
+			private boolean returned = false;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				switch (method.getName()) {
+				case "close":
+					if (!returned) {
+						returned = true;
+						release(pooled);
+					}
+					return null;
+				case "isClosed":
+					return returned || physical.isClosed();
+				default:
+					if (returned) throw new SQLException("Connection has been returned to the pool");
+					if (method.getName().equals("prepareStatement") && args.length <= 2
+							&& (args.length == 1 || args[1] instanceof Integer)) {
+						int keys = args.length == 1 ? Statement.NO_GENERATED_KEYS : (Integer) args[1];
+						return pooled.statements.prepare((String) args[0], keys);
+					}
+					try {
+						return method.invoke(physical, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}
+			}
+		};
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, handler);
+	}
+}
@@ -0,0 +1,17 @@
+package database;
+
+/*******
+ * <p> Title: DataFormat Enumeration. </p>
+ *
+ * <p> Description: The file formats Database can read and write a record at a time.</p>
+ *
+ */
+
+public enum DataFormat {
+
+	/** Comma-separated values with a header row naming the columns */
+	CSV,
+
+	/** JSON Lines: one flat JSON object per line */
+	JSONL
+}
@@ -1,12 +1,23 @@
 package database;
 
 import java.sql.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.IntConsumer;
 
+import entityClasses.Role;
 import entityClasses.User;
 
 /*******
@@ -43,39 +54,217 @@ public class Database {
 	
 	// Invitation code expiry in minutes - change this one number later if needed
 	public static final int INVITATION_TTL_MINUTES = 15;
+	
+	// Roster invitations go out to a whole class at once, so they stay valid for a week
+	public static final int ROSTER_INVITATION_TTL_MINUTES = 7 * 24 * 60;
+	
+	// inviteRoster reports its progress every this many rows, and retries code collisions this often
+	static final int ROSTER_PROGRESS_STEP = 100;
+	static final int INVITATION_CODE_ATTEMPTS = 3;
+	
+	// How long an admin-issued one-time password stays valid, and the most outstanding at once
+	public static final int OTP_TTL_MINUTES = 15;
+	static final int OTP_MAX_ACTIVE = 10_000;
+
+	// Default size of the connection pool and how long a caller waits for a free connection
+	public static final int DEFAULT_MAX_CONNECTIONS = 8;
+	static final long CONNECTION_TIMEOUT_MILLIS = 30_000;
+	
+	// The most prepared statements each pooled connection keeps open for reuse
+	static final int STATEMENT_CACHE_SIZE = 64;
+	
+	// Queued read marks are written once this many are pending, or after this long
+	static final int READ_MARK_FLUSH_SIZE = 100;
+	static final long READ_MARK_FLUSH_MILLIS = 5_000;
+	
+	// Posts read per query while filling a page of Read or Unread posts from the read state
+	static final int READ_FILTER_BATCH = 200;
+	
+	// Expired invitations are deleted this often, at most this many rows per transaction
+	static final long INVITATION_SWEEP_MILLIS = 5 * 60_000;
+	static final int INVITATION_SWEEP_CHUNK = 500;
+	
+	// The most user profiles getUserAccountDetails keeps in memory
+	static final int USER_PROFILE_CACHE_SIZE = 1000;
+
+	// How long hashing one password should take; the PBKDF2 cost is calibrated to it at startup
+	public static final long PASSWORD_HASH_TARGET_MILLIS = 50;
+
+	// The Settings row that records the ReadModel in use
+	static final String READ_MODEL_SETTING = "readModel";
+
+	// The Settings row that records the SearchMode in use
+	static final String SEARCH_MODE_SETTING = "searchMode";
+
+	// An unexpired invitation, and an account, with an email address in any case (migration step 8)
+	private static final String INVITED_EMAIL_QUERY =
+			"SELECT 1 FROM InvitationCodes WHERE emailKey = LOWER(?) AND expiresAt > CURRENT_TIMESTAMP";
+	private static final String REGISTERED_EMAIL_QUERY = "SELECT 1 FROM userDB WHERE emailKey = LOWER(?)";
 
 	//  Shared variables used within this class
-	private Connection connection = null;		// Singleton to access the database 
-	private Statement statement = null;			// The H2 Statement is used to construct queries
-	
-	// These are the easily accessible attributes of the currently logged-in user
-	// This is only useful for single user applications
-	private String currentUsername;
-	private String currentPassword;
-	private String currentFirstName;
-	private String currentMiddleName;
-	private String currentLastName;
-	private String currentPreferredFirstName;
-	private String currentEmailAddress;
-	private boolean currentAdminRole;
-	private boolean currentNewRole1;
-	private boolean currentNewRole2;
-	
-	/** Minimal DB rows used by Role1 UI */
-	public static class PostRow {
+	private final String dbUrl;					// The JDBC URL this instance connects to
+	private final int maxConnections;			// The bound on concurrently used connections
+	private final long hashTargetMillis;		// The time one password hash is calibrated to
+	private ConnectionPool pool = null;			// Every call borrows its own connection
+	private PasswordHasher hasher = null;		// Hashes and verifies passwords off the caller's thread
+	private ReadMarkBuffer readMarks = null;	// Read marks not yet written to the database
+	volatile ReadTracking reads = ReadTracking.PER_POST;	// How read marks are stored; tests may wrap it
+	private InvitationSweeper invitationSweeper = null;	// Deletes expired invitation codes
+	
+	// userName -> the posts that user has read, for the users whose read state is loaded
+	private final java.util.concurrent.ConcurrentHashMap<String,ReadBitmap> readState =
+			new java.util.concurrent.ConcurrentHashMap<>();
+	// userName -> the marks, as {postId, 1 if read}, made while that user's read state is loading
+	private final java.util.concurrent.ConcurrentHashMap<String,List<int[]>> loadingReadState =
+			new java.util.concurrent.ConcurrentHashMap<>();
+	private volatile boolean cacheReadState = true;
+	
+	// Recently loaded userDB rows; every method that writes a user's row invalidates its entry
+	private final UserProfileCache profiles = new UserProfileCache(USER_PROFILE_CACHE_SIZE);
+	
+	// The attributes of the user the single-window GUI is working with.  Concurrent callers
+	// keep their own UserSession and pass it to the methods that load or register users.
+	private final UserSession session = new UserSession();
+	
+	// The back end used by searchPosts; see setSearchMode
+	private volatile SearchMode searchMode = SearchMode.KEYWORD_INDEX;
+	
+	/** A Posts row (plus the per-user isRead flag of the post list), filled by column index */
+	public static class PostRow extends TypedRow {
+	    private static final Columns COLUMNS = new Columns("id", "authorUsername", "title", "body",
+	            "thread", "createdAt", "updatedAt", "isDeleted", "replyCount", "isRead");
+
 	    public int id;
+	    public String author;
 	    public String title;
 	    public String body;
-	    public String author;
+	    public String thread;
+	    public Timestamp createdAt;
+	    public Timestamp updatedAt;
 	    public boolean deleted;
+	    public int replyCount;
+	    public boolean read;
+
+	    /**
+	     * Returns the row itself if it already is a PostRow, otherwise a PostRow holding a copy
+	     * of its entries.
+	     *
+	     * @param row a post row as returned by the database
+	     * @return the row as a PostRow
+	     */
+	    public static PostRow from(Map<String,Object> row) {
+	        if (row instanceof PostRow) return (PostRow) row;
+	        PostRow copy = new PostRow();
+	        if (row != null) copy.putAll(row);
+	        return copy;
+	    }
+
+	    @Override
+	    Columns columns() { return COLUMNS; }
+
+	    @Override
+	    Object value(int ordinal) {
+	        switch (ordinal) {
+	        case 0: return id;
+	        case 1: return author;
+	        case 2: return title;
+	        case 3: return body;
+	        case 4: return thread;
+	        case 5: return createdAt;
+	        case 6: return updatedAt;
+	        case 7: return deleted;
+	        case 8: return replyCount;
+	        default: return read ? 1 : 0;
+	        }
+	    }
+
+	    @Override
+	    void assign(int ordinal, Object v) {
+	        switch (ordinal) {
+	        case 0: id = toInt(v); break;
+	        case 1: author = toStr(v); break;
+	        case 2: title = toStr(v); break;
+	        case 3: body = toStr(v); break;
+	        case 4: thread = toStr(v); break;
+	        case 5: createdAt = toTimestamp(v); break;
+	        case 6: updatedAt = toTimestamp(v); break;
+	        case 7: deleted = toBoolean(v); break;
+	        case 8: replyCount = toInt(v); break;
+	        default: read = toBoolean(v); break;
+	        }
+	    }
+
+	    @Override
+	    void read(int ordinal, ResultSet rs, int column) throws SQLException {
+	        switch (ordinal) {
+	        case 0: id = rs.getInt(column); break;
+	        case 1: author = rs.getString(column); break;
+	        case 2: title = rs.getString(column); break;
+	        case 3: body = rs.getString(column); break;
+	        case 4: thread = rs.getString(column); break;
+	        case 5: createdAt = rs.getTimestamp(column); break;
+	        case 6: updatedAt = rs.getTimestamp(column); break;
+	        case 7: deleted = rs.getBoolean(column); break;
+	        case 8: replyCount = rs.getInt(column); break;
+	        default: read = rs.getInt(column) != 0; break;
+	        }
+	    }
 	}
 
-	public static class ReplyRow {
+	/** A Replies row, filled by column index */
+	public static class ReplyRow extends TypedRow {
+	    private static final Columns COLUMNS = new Columns("id", "postId", "authorUsername", "body",
+	            "createdAt", "updatedAt", "isDeleted");
+
 	    public int id;
 	    public int postId;
 	    public String author;
 	    public String body;
+	    public Timestamp createdAt;
+	    public Timestamp updatedAt;
 	    public boolean deleted;
+
+	    @Override
+	    Columns columns() { return COLUMNS; }
+
+	    @Override
+	    Object value(int ordinal) {
+	        switch (ordinal) {
+	        case 0: return id;
+	        case 1: return postId;
+	        case 2: return author;
+	        case 3: return body;
+	        case 4: return createdAt;
+	        case 5: return updatedAt;
+	        default: return deleted;
+	        }
+	    }
+
+	    @Override
+	    void assign(int ordinal, Object v) {
+	        switch (ordinal) {
+	        case 0: id = toInt(v); break;
+	        case 1: postId = toInt(v); break;
+	        case 2: author = toStr(v); break;
+	        case 3: body = toStr(v); break;
+	        case 4: createdAt = toTimestamp(v); break;
+	        case 5: updatedAt = toTimestamp(v); break;
+	        default: deleted = toBoolean(v); break;
+	        }
+	    }
+
+	    @Override
+	    void read(int ordinal, ResultSet rs, int column) throws SQLException {
+	        switch (ordinal) {
+	        case 0: id = rs.getInt(column); break;
+	        case 1: postId = rs.getInt(column); break;
+	        case 2: author = rs.getString(column); break;
+	        case 3: body = rs.getString(column); break;
+	        case 4: createdAt = rs.getTimestamp(column); break;
+	        case 5: updatedAt = rs.getTimestamp(column); break;
+	        default: deleted = rs.getBoolean(column); break;
+	        }
+	    }
 	}
 	
 	/*******
@@ -86,45 +275,82 @@ public class Database {
 	 */
 	
 	public Database () {
-		
+		this(DB_URL, DEFAULT_MAX_CONNECTIONS);
+	}
+	
+	
+	/*******
+	 * <p> Method: Database(String dbUrl, int maxConnections) </p>
+	 * 
+	 * <p> Description: Establish a database object for a specific H2 database with a bounded
+	 * connection pool.  Every public method borrows its own connection from the pool for the
+	 * duration of the call, so one Database can serve several concurrent callers.</p>
+	 * 
+	 * @param dbUrl the JDBC URL of the H2 database
+	 * 
+	 * @param maxConnections the most connections that may be in use at the same time
+	 * 
+	 */
+	
+	public Database (String dbUrl, int maxConnections) {
+		this(dbUrl, maxConnections, PASSWORD_HASH_TARGET_MILLIS);
+	}
+
+
+	/*******
+	 * <p> Method: Database(String dbUrl, int maxConnections, long hashTargetMillis) </p>
+	 *
+	 * <p> Description: As Database(String, int), with the time one password hash should take.
+	 * Tests and benchmarks pass a small value to hash at the lowest cost PasswordHasher allows.</p>
+	 *
+	 * @param dbUrl the JDBC URL of the H2 database
+	 *
+	 * @param maxConnections the most connections that may be in use at the same time
+	 *
+	 * @param hashTargetMillis how long hashing one password should take on this machine
+	 *
+	 */
+
+	Database (String dbUrl, int maxConnections, long hashTargetMillis) {
+		this.dbUrl = dbUrl;
+		this.maxConnections = maxConnections;
+		this.hashTargetMillis = hashTargetMillis;
 	}
 	
 	
 	/*******
-	 * <p> Attribute: activeOtps </p>
+	 * <p> Attribute: otps </p>
 	 *
-	 * <p> Description: An in-memory map from <code>username</code> to the currently active
-	 * one-time password (OTP) for that user.  This is intentionally not persisted in SQL
-	 * to keep OTP handling simple and ephemeral. </p>
+	 * <p> Description: The one-time passwords (OTPs) admins have issued and that have not been
+	 * used or expired yet.  This is intentionally not persisted in SQL to keep OTP handling simple
+	 * and ephemeral. </p>
 	 */
 	
-	private java.util.Map<String, String> activeOtps = new java.util.HashMap<>();
+	private final OtpStore otps = new OtpStore(OTP_TTL_MINUTES, java.util.concurrent.TimeUnit.MINUTES,
+			OTP_MAX_ACTIVE);
 
 	/*******
 	 * <p> Method: generateOneTimePasswordFor </p>
-	 * <p> Create a 6-digit OTP for an existing user; store and return it. Null if user unknown. </p>
+	 * <p> Create a 6-digit OTP for an existing user; store and return it. Null if user unknown.
+	 * The OTP replaces any earlier one for the user and expires after OTP_TTL_MINUTES. </p>
 	 *
 	 * @param username the target account
 	 * @return 6-digit OTP or null
 	 */
 	
 	public String generateOneTimePasswordFor(String username) {
-	    // Ensure user exists first
-	    if (!getUserAccountDetails(username)) return null;
-
-	    // 6-digit numeric OTP (you can change the format if you want)
-	    String otp = String.format("%06d", new java.util.Random().nextInt(1_000_000));
-	    activeOtps.put(username, otp);
-	    return otp;
+	    // Ensure user exists first (without replacing the user loaded in the session)
+	    if (!doesUserExist(username)) return null;
+	    return otps.issue(username);
 	}
 
 	/*******
 	 * <p> Method: hasActiveOtp </p>
-	 * <p> True if an unconsumed OTP exists for the user. </p>
+	 * <p> True if an unconsumed, unexpired OTP exists for the user. </p>
 	 */
 	
 	public boolean hasActiveOtp(String username) {
-	    return activeOtps.containsKey(username);
+	    return otps.hasActive(username);
 	}
 
 	/*******
@@ -133,12 +359,8 @@ public class Database {
 	 */
 	
 	public boolean checkAndConsumeOtp(String username, String otp) {
-	    String stored = activeOtps.get(username);
-	    if (stored != null && stored.equals(otp)) {
-	        activeOtps.remove(username);  // single-use
-	        return true;
-	    }
-	    return false;
+	    // Only the first caller presenting the matching OTP consumes it
+	    return otps.consume(username, otp);
 	}
 
 	/*******
@@ -146,35 +368,38 @@ public class Database {
 	 * <p> Revoke any active OTP for the user (admin action). </p>
 	 */
 	
-	public void clearOtp(String username) { activeOtps.remove(username); }
+	public void clearOtp(String username) { otps.revoke(username); }
 
 	/*******
 	 * <p> Method: updatePassword </p>
-	 * <p> Persist the new password to userDB and refresh the cached currentPassword. </p>
+	 * <p> Persist a hash of the new password to userDB and refresh the password cached in the
+	 * session.  Hashing blocks for about PASSWORD_HASH_TARGET_MILLIS. </p>
 	 *
 	 * @param username the account to update
 	 * @param newPassword the new password
 	 */
-	
+
 	public void updatePassword(String username, String newPassword) {
-		String sql = "UPDATE userDB SET password = ? WHERE userName = ?"; 
+		String sql = "UPDATE userDB SET password = ? WHERE userName = ?";
 
-	    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-	        pstmt.setString(1, newPassword);
-	        pstmt.setString(2, username);
-	        int rows = pstmt.executeUpdate();
+	    try {
+	        // Hash before taking a connection, so the slow hash does not hold one from the pool
+	        String newHash = hashPassword(newPassword);
+	        int rows;
+	        try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+	            pstmt.setString(1, newHash);
+	            pstmt.setString(2, username);
+	            rows = pstmt.executeUpdate();
+	        }
+	        profiles.invalidate(username);
 
 	        if (rows == 0) {
 	            System.err.println("*** WARNING *** updatePassword: no rows updated for user '" + username + "'");
 	            return;
 	        }
 
-	        // keep cache in sync for this run (used by login flow)
-	        if (getUserAccountDetails(username)) {
-	            this.currentPassword = newPassword; // keep cache in sync for this run
-	        }
-
-	        System.out.println("** Password updated for user: " + username);
+	        // keep the session in sync for this run; like a loaded row, it holds the hash
+	        if (session.holds(username)) session.setPassword(newHash);
 	    } catch (SQLException e) {
 	        System.err.println("*** ERROR *** updatePassword failed for " + username + ": " + e.getMessage());
 	        e.printStackTrace();
@@ -196,12 +421,32 @@ public class Database {
 	public void connectToDatabase() throws SQLException {
 		try {
 			Class.forName(JDBC_DRIVER); // Load the JDBC driver
-			connection = DriverManager.getConnection(DB_URL, USER, PASS);
-			statement = connection.createStatement(); 
-			// You can use this command to clear the database and restart from fresh.
-			//statement.execute("DROP ALL OBJECTS");
-
-			createTables();  // Create the necessary tables if they don't exist
+			pool = new ConnectionPool(dbUrl, USER, PASS, maxConnections, CONNECTION_TIMEOUT_MILLIS,
+					STATEMENT_CACHE_SIZE);
+			readMarks = new ReadMarkBuffer(this::markPostsRead, READ_MARK_FLUSH_SIZE,
+					READ_MARK_FLUSH_MILLIS);
+			invitationSweeper = new InvitationSweeper(this::deleteExpiredInvitations,
+					INVITATION_SWEEP_CHUNK, INVITATION_SWEEP_MILLIS);
+			hasher = new PasswordHasher(hashTargetMillis);
+			try (Connection connection = pool.getConnection();
+				 Statement statement = connection.createStatement()) {
+				// You can use this command to clear the database and restart from fresh.
+				//statement.execute("DROP ALL OBJECTS");
+
+				createTables(connection, statement);  // Create the necessary tables if they don't exist
+				
+				String model = loadSetting(connection, READ_MODEL_SETTING);
+				reads = ReadTracking.of(model == null ? ReadModel.PER_POST : ReadModel.valueOf(model));
+				
+				if (SearchMode.FULL_TEXT.name().equals(loadSetting(connection, SEARCH_MODE_SETTING))) {
+					try {
+						FullTextSearch.enable(connection);
+						searchMode = SearchMode.FULL_TEXT;
+					} catch (SQLException e) {
+						System.err.println("*** WARNING *** Full-text search unavailable: " + e.getMessage());
+					}
+				}
+			}
 		} catch (ClassNotFoundException e) {
 			System.err.println("JDBC Driver not found: " + e.getMessage());
 		}
@@ -211,11 +456,12 @@ public class Database {
 	/*******
 	 * <p> Method: createTables </p>
 	 * 
-	 * <p> Description: Used to create new instances of the two database tables used by this class.</p>
+	 * <p> Description: Used to create new instances of the database tables used by this class and
+	 * then bring an existing database up to the current schema.</p>
 	 * 
 	 */
 	
-	private void createTables() throws SQLException {
+	private void createTables(Connection connection, Statement statement) throws SQLException {
 		// Create the user database
 		String userTable = "CREATE TABLE IF NOT EXISTS userDB ("
 				+ "id INT AUTO_INCREMENT PRIMARY KEY, "
@@ -238,11 +484,6 @@ public class Database {
 		        + "role VARCHAR(10), "
 		        + "expiresAt TIMESTAMP)";
 		statement.execute(invitationCodesTable);
-
-		// If the table already existed without the column, add it quietly
-		try {
-		    statement.execute("ALTER TABLE InvitationCodes ADD COLUMN expiresAt TIMESTAMP");
-		} catch (SQLException ignore) { /* column already exists - ok */ }
 		
 		// Posts table (ensure these columns exist)
 		String postsTable = "CREATE TABLE IF NOT EXISTS Posts ("
@@ -280,10 +521,12 @@ public class Database {
 		    + ")";
 		statement.execute(repliesTable);
 		
-		try {
-		    statement.execute(
-		        "ALTER TABLE Posts ADD COLUMN IF NOT EXISTS isDeleted BOOL DEFAULT FALSE");
-		} catch (SQLException ignore) { /* column already present – that's fine */ }
+		// Every later change to these tables (new columns, the reply count, indexes) is a
+		// numbered step in SchemaMigrations, applied once to each database in order
+		SchemaMigrations.migrate(connection);
+		
+		// Inverted keyword index used by searchPosts (back-filled the first time it is created)
+		SearchIndex.createTable(connection);
 	}
 
 	
@@ -298,8 +541,9 @@ public class Database {
 	
 	public boolean isDatabaseEmpty() {
 	    String query = "SELECT COUNT(*) AS count FROM userDB";
-	    try {
-	        ResultSet resultSet = statement.executeQuery(query);
+	    try (Connection connection = pool.getConnection();
+	    	 Statement statement = connection.createStatement();
+	    	 ResultSet resultSet = statement.executeQuery(query)) {
 	        if (resultSet.next()) {
 	            return resultSet.getInt("count") == 0;
 	        }
@@ -323,8 +567,9 @@ public class Database {
 	
 	public int getNumberOfUsers() {
 		String query = "SELECT COUNT(*) AS count FROM userDB";
-		try {
-			ResultSet resultSet = statement.executeQuery(query);
+		try (Connection connection = pool.getConnection();
+			 Statement statement = connection.createStatement();
+			 ResultSet resultSet = statement.executeQuery(query)) {
 			if (resultSet.next()) {
 				return resultSet.getInt("count");
 			}
@@ -337,7 +582,8 @@ public class Database {
 	/*******
 	 * <p> Method: register(User user) </p>
 	 * 
-	 * <p> Description: Creates a new row in the database using the user parameter. </p>
+	 * <p> Description: Creates a new row in the database using the user parameter and makes
+	 * that user the current user of the default session. </p>
 	 * 
 	 * @throws SQLException when there is an issue creating the SQL command or executing it.
 	 * 
@@ -346,45 +592,74 @@ public class Database {
 	 */
 	
 	public void register(User user) throws SQLException {
+		register(user, session);
+	}
+	
+	
+	/*******
+	 * <p> Method: register(User user, UserSession target) </p>
+	 * 
+	 * <p> Description: Creates a new row in the database using the user parameter and, when a
+	 * target session is given, makes the new user that session's current user.  The password is
+	 * stored as a PBKDF2 hash, which blocks for about PASSWORD_HASH_TARGET_MILLIS. </p>
+	 *
+	 * @throws SQLException when there is an issue creating the SQL command or executing it, or
+	 * 	the password cannot be hashed.
+	 * 
+	 * @param user specifies a user object to be added to the database.
+	 * 
+	 * @param target the session to update, or null to leave every session untouched.
+	 * 
+	 */
+	
+	public void register(User user, UserSession target) throws SQLException {
 		String insertUser = "INSERT INTO userDB (userName, password, firstName, middleName, "
-				+ "lastName, preferredFirstName, emailAddress, adminRole, newRole1, newRole2) "
-				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-		try (PreparedStatement pstmt = connection.prepareStatement(insertUser)) {
-			currentUsername = user.getUserName();
-			pstmt.setString(1, currentUsername);
-			
-			currentPassword = user.getPassword();
-			pstmt.setString(2, currentPassword);
-			
-			currentFirstName = user.getFirstName();
-			pstmt.setString(3, currentFirstName);
-			
-			currentMiddleName = user.getMiddleName();			
-			pstmt.setString(4, currentMiddleName);
-			
-			currentLastName = user.getLastName();
-			pstmt.setString(5, currentLastName);
-			
-			currentPreferredFirstName = user.getPreferredFirstName();
-			pstmt.setString(6, currentPreferredFirstName);
-			
-			currentEmailAddress = user.getEmailAddress();
-			pstmt.setString(7, currentEmailAddress);
-			
-			currentAdminRole = user.getAdminRole();
-			pstmt.setBoolean(8, currentAdminRole);
-			
-			currentNewRole1 = user.getNewRole1();
-			pstmt.setBoolean(9, currentNewRole1);
-			
-			currentNewRole2 = user.getNewRole2();
-			pstmt.setBoolean(10, currentNewRole2);
-			
+				+ "lastName, preferredFirstName, emailAddress, roles) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+		String hash = hashPassword(user.getPassword());
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(insertUser)) {
+			pstmt.setString(1, user.getUserName());
+			pstmt.setString(2, hash);
+			pstmt.setString(3, user.getFirstName());
+			pstmt.setString(4, user.getMiddleName());
+			pstmt.setString(5, user.getLastName());
+			pstmt.setString(6, user.getPreferredFirstName());
+			pstmt.setString(7, user.getEmailAddress());
+			pstmt.setInt(8, user.getRoles());
 			pstmt.executeUpdate();
 		}
-		
+		if (target != null) target.load(user);
 	}
-	
+
+
+	/*******
+	 * <p> Method: BulkResult&lt;String&gt; importUsers(Reader source, DataFormat format,
+	 * IntConsumer progress) </p>
+	 *
+	 * <p> Description: Create the user accounts listed in a CSV or JSONL file.  The file is
+	 * streamed in chunks of UserImporter.CHUNK_SIZE rows; each chunk is validated in parallel with
+	 * the checks the account pages use and inserted through one batched INSERT in its own
+	 * transaction.  Plaintext passwords are hashed at PasswordHasher.IMPORT_ITERATIONS and
+	 * replaced by a hash at the calibrated cost at each user's first login; that hashing still
+	 * dominates the time an import takes.  No session's current user changes.  Rows that fail
+	 * validation or whose usernames are taken are reported as row errors and skipped.  The
+	 * method blocks, so the GUI calls it away from the JavaFX Application Thread.</p>
+	 *
+	 * @param source the file contents
+	 *
+	 * @param format the format of the file
+	 *
+	 * @param progress told the number of rows handled after each chunk and at the end (may be
+	 * 	null)
+	 *
+	 * @return the usernames created and the rows rejected
+	 *
+	 */
+
+	public BulkResult<String> importUsers(Reader source, DataFormat format, IntConsumer progress) {
+		return new UserImporter(pool, hasher).run(source, format, progress);
+	}
+
 	/*******
 	 *  <p> Method: List getUserList() </p>
 	 *  
@@ -398,7 +673,7 @@ public class Database {
 		List<String> userList = new ArrayList<String>();
 		userList.add("<Select a User>");
 		String query = "SELECT userName FROM userDB";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			ResultSet rs = pstmt.executeQuery();
 			while (rs.next()) {
 				userList.add(rs.getString("userName"));
@@ -424,17 +699,7 @@ public class Database {
 	
 	public boolean loginAdmin(User user){
 		// Validates an admin user's login credentials so the user can login in as an Admin.
-		String query = "SELECT * FROM userDB WHERE userName = ? AND password = ? AND "
-				+ "adminRole = TRUE";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-			pstmt.setString(1, user.getUserName());
-			pstmt.setString(2, user.getPassword());
-			ResultSet rs = pstmt.executeQuery();
-			return rs.next();	// If a row is returned, rs.next() will return true		
-		} catch  (SQLException e) {
-	        e.printStackTrace();
-	    }
-		return false;
+		return loginWithRole(user, Role.ADMIN);
 	}
 	
 	
@@ -452,17 +717,7 @@ public class Database {
 	
 	public boolean loginRole1(User user) {
 		// Validates a student user's login credentials.
-		String query = "SELECT * FROM userDB WHERE userName = ? AND password = ? AND "
-				+ "newRole1 = TRUE";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-			pstmt.setString(1, user.getUserName());
-			pstmt.setString(2, user.getPassword());
-			ResultSet rs = pstmt.executeQuery();
-			return rs.next();
-		} catch  (SQLException e) {
-		       e.printStackTrace();
-		}
-		return false;
+		return loginWithRole(user, Role.STUDENT);
 	}
 
 	/*******
@@ -478,19 +733,40 @@ public class Database {
 	 */
 	// Validates a reviewer user's login credentials.
 	public boolean loginRole2(User user) {
-		String query = "SELECT * FROM userDB WHERE userName = ? AND password = ? AND "
-				+ "newRole2 = TRUE";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		return loginWithRole(user, Role.STAFF);
+	}
+
+
+	/*
+	 * Read the stored password of a user who plays the role and verify the user's
+	 * password against it.  False if there is no such user, the password does not match, or it
+	 * could not be checked.  The connection goes back to the pool before the slow hash, and a
+	 * missing user still costs one hash, so the time taken does not tell who exists.
+	 */
+
+	private boolean loginWithRole(User user, Role role) {
+		String query = "SELECT password FROM userDB WHERE userName = ? "
+				+ "AND BITAND(roles, CAST(? AS INT)) <> 0";
+		String stored = null;
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			pstmt.setString(1, user.getUserName());
-			pstmt.setString(2, user.getPassword());
-			ResultSet rs = pstmt.executeQuery();
-			return rs.next();
-		} catch  (SQLException e) {
-		       e.printStackTrace();
+			pstmt.setInt(2, role.bit());
+			try (ResultSet rs = pstmt.executeQuery()) {
+				if (rs.next()) stored = rs.getString(1);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return false;
+		}
+		try {
+			if (stored == null) return hasher.verifyNone(user.getPassword());
+			return hasher.verify(user.getPassword(), stored);
+		} catch (IllegalStateException e) {
+			e.printStackTrace();
+			return false;
 		}
-		return false;
 	}
-	
+
 	
 	/*******
 	 * <p> Method: boolean doesUserExist(User user) </p>
@@ -505,7 +781,7 @@ public class Database {
 	// Checks if a user already exists in the database based on their userName.
 	public boolean doesUserExist(String userName) {
 	    String query = "SELECT COUNT(*) FROM userDB WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+	    try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 	        
 	        pstmt.setString(1, userName);
 	        ResultSet rs = pstmt.executeQuery();
@@ -533,9 +809,10 @@ public class Database {
 	
 	public boolean removeUser(String username) {
 	    String query = "DELETE FROM userDB WHERE userName = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+	    try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 	        pstmt.setString(1, username);
 	        int rowsAffected = pstmt.executeUpdate();
+	        profiles.invalidate(username);
 	        return rowsAffected > 0; // true if at least one row was deleted
 	    } catch (SQLException e) {
 	        e.printStackTrace();
@@ -556,11 +833,7 @@ public class Database {
 	 */	
 	// Get the number of roles that this user plays
 	public int getNumberOfRoles (User user) {
-		int numberOfRoles = 0;
-		if (user.getAdminRole()) numberOfRoles++;
-		if (user.getNewRole1()) numberOfRoles++;
-		if (user.getNewRole2()) numberOfRoles++;
-		return numberOfRoles;
+		return Role.count(user.getRoles());
 	}	
 
 	
@@ -586,7 +859,7 @@ public class Database {
 		        new java.sql.Timestamp(System.currentTimeMillis() + INVITATION_TTL_MINUTES * 60L * 1000L);
 
 		    String query = "INSERT INTO InvitationCodes (code, emailaddress, role, expiresAt) VALUES (?, ?, ?, ?)";
-		    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		    try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 		        pstmt.setString(1, code);
 		        pstmt.setString(2, emailAddress);
 		        pstmt.setString(3, role);
@@ -595,6 +868,175 @@ public class Database {
 		    } catch (SQLException e) { e.printStackTrace(); }
 		    return code;
 		}
+		
+		
+		/*******
+		 * <p> Method: BulkResult&lt;Invitation&gt; inviteRoster(Reader roster, String role,
+		 * int ttlMinutes, IntConsumer progress) </p>
+		 * 
+		 * <p> Description: Issue an invitation code for every email address in a CSV roster.  The
+		 * email address is taken from the column headed "email" (any case), or from the first
+		 * column when the roster has no header row.  Each address is checked with
+		 * inputValidator.checkForValidEmail; invalid addresses, addresses repeated in the roster,
+		 * addresses that already hold an unexpired invitation, and addresses of existing accounts
+		 * are reported as row errors and skipped.  Addresses are compared without regard to
+		 * case.</p>
+		 * 
+		 * <p> The roster is read a line at a time and every code is inserted in one transaction
+		 * through a batched INSERT, so either the whole roster is invited or none of it is.  The
+		 * 6-character codes are taken from random UUIDs like those of generateInvitationCode; a
+		 * code that collides with an existing one is replaced before the insert, and if another
+		 * invitation takes one of the codes meanwhile the transaction is retried with new codes.
+		 * The method blocks, so the GUI calls it away from the JavaFX Application Thread.</p>
+		 * 
+		 * @param roster the CSV roster
+		 * 
+		 * @param role the role every invitation grants
+		 * 
+		 * @param ttlMinutes how long the invitations stay valid
+		 * 
+		 * @param progress told the number of roster rows handled so far, every
+		 * 	ROSTER_PROGRESS_STEP rows and at the end (may be null)
+		 * 
+		 * @return the invitations created and the rows rejected; if the invitations could not be
+		 * 	stored, none are created and a row error on line 0 says why
+		 * 
+		 */
+		
+		public BulkResult<Invitation> inviteRoster(Reader roster, String role, int ttlMinutes,
+				IntConsumer progress) {
+			BulkResult<Invitation> result = new BulkResult<>();
+			List<Invitation> pending = new ArrayList<>();
+			List<Integer> lines = new ArrayList<>();
+			Set<String> seen = new HashSet<>();
+			int emailColumn = 0;
+			int lineNumber = 0;
+			int rows = 0;
+			try (BufferedReader in = new BufferedReader(roster)) {
+				for (String line = in.readLine(); line != null; line = in.readLine()) {
+					lineNumber++;
+					if (line.isBlank()) continue;
+					String[] columns = line.split(",", -1);
+					if (rows == 0 && !line.contains("@") && line.toLowerCase().contains("email")) {
+						// A header row: find the email column
+						for (int i = 0; i < columns.length; i++)
+							if (unquote(columns[i]).toLowerCase().contains("email")) emailColumn = i;
+						continue;
+					}
+					rows++;
+					String email = emailColumn < columns.length ? unquote(columns[emailColumn]) : "";
+					String error = inputValidation.inputValidator.checkForValidEmail(email);
+					if (!error.isEmpty()) result.addError(lineNumber, email, error);
+					else if (!seen.add(email.toLowerCase())) result.addError(lineNumber, email,
+							"This email address appears earlier in the roster.");
+					else {
+						pending.add(new Invitation(email, role, null));
+						lines.add(lineNumber);
+					}
+					if (progress != null && rows % ROSTER_PROGRESS_STEP == 0) progress.accept(rows);
+				}
+			} catch (java.io.IOException e) {
+				e.printStackTrace();
+				result.addError(0, "", "The roster could not be read: " + e.getMessage());
+				return result;
+			}
+			result.setRowsRead(rows);
+			
+			for (int attempt = 1; ; attempt++) {
+				try {
+					insertRosterInvitations(pending, lines, ttlMinutes, result);
+					break;
+				} catch (SQLException e) {
+					result.clearCreated();
+					boolean collision = "23505".equals(e.getSQLState())
+							|| (e.getNextException() != null && "23505".equals(e.getNextException().getSQLState()));
+					if (!collision || attempt == INVITATION_CODE_ATTEMPTS) {
+						e.printStackTrace();
+						result.addError(0, "", "The invitations could not be stored: " + e.getMessage());
+						break;
+					}
+				}
+			}
+			if (progress != null) progress.accept(rows);
+			return result;
+		}
+		
+		/*
+		 * Insert the roster's invitations in one transaction, adding them to the result once they
+		 * are committed.  Addresses that already hold an unexpired invitation or belong to an
+		 * account become row errors; each is looked up on the emailKey index, like
+		 * emailaddressHasBeenUsed does, so the case of the address does not matter.
+		 */
+		
+		private void insertRosterInvitations(List<Invitation> pending, List<Integer> lines, int ttlMinutes,
+				BulkResult<Invitation> result) throws SQLException {
+			String taken = "SELECT 1 FROM InvitationCodes WHERE code = ?";
+			String insert = "INSERT INTO InvitationCodes (code, emailAddress, role, expiresAt) VALUES (?, ?, ?, ?)";
+			java.sql.Timestamp expiresAt =
+				new java.sql.Timestamp(System.currentTimeMillis() + ttlMinutes * 60L * 1000L);
+			List<Invitation> issued = new ArrayList<>();
+			List<BulkResult.RowError> skipped = new ArrayList<>();
+			try (Connection connection = pool.getConnection()) {
+				connection.setAutoCommit(false);
+				try (PreparedStatement isTaken = connection.prepareStatement(taken);
+					 PreparedStatement isInvited = connection.prepareStatement(INVITED_EMAIL_QUERY);
+					 PreparedStatement isRegistered = connection.prepareStatement(REGISTERED_EMAIL_QUERY);
+					 PreparedStatement ps = connection.prepareStatement(insert)) {
+					Set<String> codes = new HashSet<>();
+					for (int i = 0; i < pending.size(); i++) {
+						Invitation invitation = pending.get(i);
+						if (exists(isInvited, invitation.getEmailAddress())) {
+							skipped.add(new BulkResult.RowError(lines.get(i), invitation.getEmailAddress(),
+									"An invitation has already been sent to this email address."));
+							continue;
+						}
+						if (exists(isRegistered, invitation.getEmailAddress())) {
+							skipped.add(new BulkResult.RowError(lines.get(i), invitation.getEmailAddress(),
+									"This email address already belongs to an account."));
+							continue;
+						}
+						String code = newInvitationCode(isTaken, codes);
+						ps.setString(1, code);
+						ps.setString(2, invitation.getEmailAddress());
+						ps.setString(3, invitation.getRole());
+						ps.setTimestamp(4, expiresAt);
+						ps.addBatch();
+						issued.add(new Invitation(invitation.getEmailAddress(), invitation.getRole(), code));
+					}
+					ps.executeBatch();
+				}
+				connection.commit();
+			}	// the pool rolls back uncommitted work
+			for (Invitation invitation : issued) result.addCreated(invitation);
+			for (BulkResult.RowError e : skipped) result.addError(e.getLine(), e.getInput(), e.getMessage());
+		}
+		
+		// Whether a query with one parameter, the email address, returns a row
+		private static boolean exists(PreparedStatement ps, String emailAddress) throws SQLException {
+			ps.setString(1, emailAddress);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next();
+			}
+		}
+		
+		// A 6-character code that is neither stored nor already used in this batch
+		private static String newInvitationCode(PreparedStatement isTaken, Set<String> codes) throws SQLException {
+			while (true) {
+				String code = UUID.randomUUID().toString().substring(0, 6);
+				if (!codes.add(code)) continue;
+				isTaken.setString(1, code);
+				try (ResultSet rs = isTaken.executeQuery()) {
+					if (!rs.next()) return code;
+				}
+			}
+		}
+		
+		// A CSV field without surrounding spaces and quotes
+		private static String unquote(String field) {
+			String s = field.trim();
+			if (s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"")) s = s.substring(1, s.length() - 1).trim();
+			return s;
+		}
 
 	
 		/*******
@@ -608,8 +1050,9 @@ public class Database {
 		// Number of invitations in the database
 		public int getNumberOfInvitations() {
 			String query = "SELECT COUNT(*) AS count FROM InvitationCodes WHERE expiresAt > CURRENT_TIMESTAMP";
-			try {
-				ResultSet resultSet = statement.executeQuery(query);
+			try (Connection connection = pool.getConnection();
+				 Statement statement = connection.createStatement();
+				 ResultSet resultSet = statement.executeQuery(query)) {
 				if (resultSet.next()) {
 					return resultSet.getInt("count");
 				}
@@ -623,7 +1066,8 @@ public class Database {
 		/*******
 		 * <p> Method: boolean emailaddressHasBeenUsed(String emailAddress) </p>
 		 * 
-		 * <p> Description: Determine if an email address has been user to establish a user.</p>
+		 * <p> Description: Determine if an email address has been user to establish a user.  The
+		 * address matches an unexpired invitation in any case.</p>
 		 * 
 		 * @param emailAddress is a string that identifies a user in the table
 		 *  
@@ -632,12 +1076,8 @@ public class Database {
 		 */
 		// Check to see if an email address is already in the database
 		public boolean emailaddressHasBeenUsed(String emailAddress) {
-		    String query = "SELECT COUNT(*) AS count FROM InvitationCodes " +
-		                   "WHERE emailAddress = ? AND expiresAt > CURRENT_TIMESTAMP";
-		    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-		        pstmt.setString(1, emailAddress);
-		        ResultSet rs = pstmt.executeQuery();
-		        if (rs.next()) return rs.getInt("count") > 0;
+		    try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(INVITED_EMAIL_QUERY)) {
+		        return exists(pstmt, emailAddress);
 		    } catch (SQLException e) { e.printStackTrace(); }
 		    return false;
 		}
@@ -654,12 +1094,70 @@ public class Database {
 
 		public void purgeExpiredInvitationsForEmail(String emailAddress) {
 		    String sql = "DELETE FROM InvitationCodes " +
-		                 "WHERE emailAddress = ? AND expiresAt <= CURRENT_TIMESTAMP";
-		    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+		                 "WHERE emailKey = LOWER(?) AND expiresAt <= CURRENT_TIMESTAMP";
+		    try (Connection connection = pool.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
 		        ps.setString(1, emailAddress);
 		        ps.executeUpdate();
 		    } catch (SQLException e) { e.printStackTrace(); }
 		}
+		
+		
+		/*******
+		 * <p> Method: int sweepExpiredInvitations() </p>
+		 * 
+		 * <p> Description: Delete every expired invitation now rather than waiting for the next
+		 * scheduled sweep.  The rows are deleted in chunks of INVITATION_SWEEP_CHUNK.</p>
+		 * 
+		 * @return the number of invitations deleted
+		 * 
+		 */
+		
+		public int sweepExpiredInvitations() {
+			return invitationSweeper.sweep();
+		}
+		
+		
+		/*******
+		 * <p> Method: long getInvitationsPurged() </p>
+		 * 
+		 * <p> Description: The number of expired invitations the sweeper has deleted since the
+		 * database was connected.</p>
+		 * 
+		 * @return the number of rows purged
+		 * 
+		 */
+		
+		public long getInvitationsPurged() {
+			return invitationSweeper == null ? 0 : invitationSweeper.getRowsPurged();
+		}
+		
+		
+		/*******
+		 * <p> Method: long getInvitationSweeps() </p>
+		 * 
+		 * <p> Description: The number of sweeps for expired invitations run since the database was
+		 * connected.</p>
+		 * 
+		 * @return the number of sweeps
+		 * 
+		 */
+		
+		public long getInvitationSweeps() {
+			return invitationSweeper == null ? 0 : invitationSweeper.getSweeps();
+		}
+		
+		// Delete at most limit expired invitations in one transaction; -1 if the delete failed
+		private int deleteExpiredInvitations(int limit) {
+		    String sql = "DELETE FROM InvitationCodes WHERE expiresAt <= CURRENT_TIMESTAMP "
+		    		+ "FETCH FIRST ? ROWS ONLY";
+		    try (Connection connection = pool.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+		        ps.setInt(1, limit);
+		        return ps.executeUpdate();
+		    } catch (SQLException e) {
+		        e.printStackTrace();
+		        return -1;
+		    }
+		}
 	
 	
 		/*******
@@ -675,7 +1173,7 @@ public class Database {
 		// Obtain the roles associated with an invitation code.
 		public String getRoleGivenAnInvitationCode(String code) {
 			String query = "SELECT role, expiresAt FROM InvitationCodes WHERE code = ?";
-			try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+			try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			    pstmt.setString(1, code);
 			    ResultSet rs = pstmt.executeQuery();
 			    if (rs.next()) {
@@ -701,7 +1199,7 @@ public class Database {
 		// For a given invitation code, return the associated email address of an empty string
 		public String getEmailAddressUsingCode (String code ) {
 			String query = "SELECT emailAddress, expiresAt FROM InvitationCodes WHERE code = ?";
-			try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+			try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			    pstmt.setString(1, code);
 			    ResultSet rs = pstmt.executeQuery();
 			    if (rs.next()) {
@@ -725,7 +1223,7 @@ public class Database {
 	// Remove an invitation using an email address once the user account has been setup
 	public void removeInvitationAfterUse(String code) {
 	    String query = "SELECT COUNT(*) AS count FROM InvitationCodes WHERE code = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+	    try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 	        pstmt.setString(1, code);
 	        ResultSet rs = pstmt.executeQuery();
 	        if (rs.next()) {
@@ -761,7 +1259,7 @@ public class Database {
 	// Get the First Name
 	public String getFirstName(String username) {
 		String query = "SELECT firstName FROM userDB WHERE userName = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			pstmt.setString(1, username);
 	        ResultSet rs = pstmt.executeQuery();
 	        
@@ -789,15 +1287,7 @@ public class Database {
 	 */
 	// update the first name
 	public void updateFirstName(String username, String firstName) {
-	    String query = "UPDATE userDB SET firstName = ? WHERE username = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, firstName);
-	        pstmt.setString(2, username);
-	        pstmt.executeUpdate();
-	        currentFirstName = firstName;
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
+		updateProfile(username, Collections.singletonMap(ProfileField.FIRST_NAME, firstName));
 	}
 
 	
@@ -814,7 +1304,7 @@ public class Database {
 	// get the middle name
 	public String getMiddleName(String username) {
 		String query = "SELECT MiddleName FROM userDB WHERE userName = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			pstmt.setString(1, username);
 	        ResultSet rs = pstmt.executeQuery();
 	        
@@ -841,15 +1331,7 @@ public class Database {
 	 */
 	// update the middle name
 	public void updateMiddleName(String username, String middleName) {
-	    String query = "UPDATE userDB SET middleName = ? WHERE username = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, middleName);
-	        pstmt.setString(2, username);
-	        pstmt.executeUpdate();
-	        currentMiddleName = middleName;
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
+		updateProfile(username, Collections.singletonMap(ProfileField.MIDDLE_NAME, middleName));
 	}
 	
 	
@@ -866,7 +1348,7 @@ public class Database {
 	// get he last name
 	public String getLastName(String username) {
 		String query = "SELECT LastName FROM userDB WHERE userName = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			pstmt.setString(1, username);
 	        ResultSet rs = pstmt.executeQuery();
 	        
@@ -893,15 +1375,7 @@ public class Database {
 	 */
 	// update the last name
 	public void updateLastName(String username, String lastName) {
-	    String query = "UPDATE userDB SET lastName = ? WHERE username = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, lastName);
-	        pstmt.setString(2, username);
-	        pstmt.executeUpdate();
-	        currentLastName = lastName;
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
+		updateProfile(username, Collections.singletonMap(ProfileField.LAST_NAME, lastName));
 	}
 	
 	
@@ -918,7 +1392,7 @@ public class Database {
 	// get the preferred first name
 	public String getPreferredFirstName(String username) {
 		String query = "SELECT preferredFirstName FROM userDB WHERE userName = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			pstmt.setString(1, username);
 	        ResultSet rs = pstmt.executeQuery();
 	        
@@ -946,15 +1420,7 @@ public class Database {
 	 */
 	// update the preferred first name of the user
 	public void updatePreferredFirstName(String username, String preferredFirstName) {
-	    String query = "UPDATE userDB SET preferredFirstName = ? WHERE username = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, preferredFirstName);
-	        pstmt.setString(2, username);
-	        pstmt.executeUpdate();
-	        currentPreferredFirstName = preferredFirstName;
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
+		updateProfile(username, Collections.singletonMap(ProfileField.PREFERRED_FIRST_NAME, preferredFirstName));
 	}
 	
 	
@@ -971,7 +1437,7 @@ public class Database {
 	// get the email address
 	public String getEmailAddress(String username) {
 		String query = "SELECT emailAddress FROM userDB WHERE userName = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
 			pstmt.setString(1, username);
 	        ResultSet rs = pstmt.executeQuery();
 	        
@@ -999,77 +1465,488 @@ public class Database {
 	 */
 	// update the email address
 	public void updateEmailAddress(String username, String emailAddress) {
-	    String query = "UPDATE userDB SET emailAddress = ? WHERE username = ?";
-	    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-	        pstmt.setString(1, emailAddress);
-	        pstmt.setString(2, username);
-	        pstmt.executeUpdate();
-	        currentEmailAddress = emailAddress;
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	    }
-	}
-	
-	public void markPostRead(String userName, int postId) {
-	    // H2 upsert
-	    String sql = "MERGE INTO PostReads KEY(userName, postId) VALUES(?, ?, CURRENT_TIMESTAMP)";
-	    try (PreparedStatement ps = connection.prepareStatement(sql)) {
-	        ps.setString(1, userName);
-	        ps.setInt(2, postId);
-	        ps.executeUpdate();
-	    } catch (SQLException e) { e.printStackTrace(); }
-	}
-
-	public void markPostUnread(String userName, int postId) {
-	    String sql = "DELETE FROM PostReads WHERE userName = ? AND postId = ?";
-	    try (PreparedStatement ps = connection.prepareStatement(sql)) {
-	        ps.setString(1, userName);
-	        ps.setInt(2, postId);
-	        ps.executeUpdate();
-	    } catch (SQLException e) { e.printStackTrace(); }
+		updateProfile(username, Collections.singletonMap(ProfileField.EMAIL_ADDRESS, emailAddress));
 	}
 	
-	
 	/*******
-	 * <p> Method: boolean getUserAccountDetails(String username) </p>
+	 * <p> Method: boolean updateProfile(String username, Map&lt;ProfileField, String&gt; changes) </p>
 	 * 
-	 * <p> Description: Get all the attributes of a user given that user's username.</p>
+	 * <p> Description: Write the changed account attributes of a user with a single UPDATE of
+	 * only those columns.</p>
 	 * 
 	 * @param username is the username of the user
 	 * 
-	 * @return true of the get is successful, else false
+	 * @param changes the new value of each attribute that changed
+	 * 
+	 * @return true if the user exists and was updated, else false
 	 *  
 	 */
-	// get the attributes for a specified user
-	public boolean getUserAccountDetails(String username) {
-		String query = "SELECT * FROM userDB WHERE username = ?";
-		try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-			pstmt.setString(1, username);
-	        ResultSet rs = pstmt.executeQuery();			
-			rs.next();
-	    	currentUsername = rs.getString(2);
-	    	currentPassword = rs.getString(3);
-	    	currentFirstName = rs.getString(4);
-	    	currentMiddleName = rs.getString(5);
-	    	currentLastName = rs.getString(6);
-	    	currentPreferredFirstName = rs.getString(7);
-	    	currentEmailAddress = rs.getString(8);
-	    	currentAdminRole = rs.getBoolean(9);
-	    	currentNewRole1 = rs.getBoolean(10);
-	    	currentNewRole2 = rs.getBoolean(11);
-			return true;
-	    } catch (SQLException e) {
-			return false;
-	    }
+	
+	public boolean updateProfile(String username, Map<ProfileField, String> changes) {
+		return updateProfiles(Collections.singletonMap(username, changes)) == 1;
 	}
 	
 	
-		/*******
-		 * <p> Method: boolean updateUserRole(String username, String role, String value) </p>
-		 * 
-		 * <p> Description: Update a specified role for a specified user's and set and update all the
-		 * 		current user attributes.</p>
-		 * 
+	/*******
+	 * <p> Method: int updateProfiles(Map&lt;String, Map&lt;ProfileField, String&gt;&gt; changes) </p>
+	 * 
+	 * <p> Description: Write the changed account attributes of many users, for corrections made
+	 * by an admin, in one transaction: either every change is stored or none is.  Users whose
+	 * changes touch the same columns share one batched UPDATE, so a correction of the same
+	 * attributes across a whole class is a single batch.</p>
+	 * 
+	 * @param changes for each username, the new value of each attribute that changed
+	 * 
+	 * @return the number of users updated, or 0 if the changes could not be stored
+	 *  
+	 */
+	
+	public int updateProfiles(Map<String, Map<ProfileField, String>> changes) {
+		// The users to update, grouped by the columns they change.  EnumSet and EnumMap keep the
+		// columns in one order, so a group's statement text is the same from call to call.
+		Map<Set<ProfileField>, Map<String, EnumMap<ProfileField, String>>> groups = new HashMap<>();
+		for (Map.Entry<String, Map<ProfileField, String>> user : changes.entrySet()) {
+			if (user.getValue().isEmpty()) continue;
+			EnumMap<ProfileField, String> values = new EnumMap<>(ProfileField.class);
+			values.putAll(user.getValue());
+			groups.computeIfAbsent(EnumSet.copyOf(values.keySet()), k -> new HashMap<>())
+					.put(user.getKey(), values);
+		}
+		if (groups.isEmpty()) return 0;
+
+		int updated = 0;
+		try (Connection connection = pool.getConnection()) {
+			connection.setAutoCommit(false);
+			for (Map.Entry<Set<ProfileField>, Map<String, EnumMap<ProfileField, String>>> group : groups.entrySet()) {
+				List<String> columns = new ArrayList<>();
+				for (ProfileField field : group.getKey()) columns.add(field.column() + " = ?");
+				String query = "UPDATE userDB SET " + String.join(", ", columns) + " WHERE userName = ?";
+				try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+					for (Map.Entry<String, EnumMap<ProfileField, String>> user : group.getValue().entrySet()) {
+						int j = 1;
+						for (String value : user.getValue().values()) pstmt.setString(j++, value);
+						pstmt.setString(j, user.getKey());
+						pstmt.addBatch();
+					}
+					for (int rows : pstmt.executeBatch()) if (rows > 0) updated++;
+				}
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			e.printStackTrace();	// the pool rolls back uncommitted work
+			return 0;
+		}
+		for (Map<String, EnumMap<ProfileField, String>> group : groups.values()) {
+			for (Map.Entry<String, EnumMap<ProfileField, String>> user : group.entrySet()) {
+				profiles.invalidate(user.getKey());
+				if (session.holds(user.getKey())) session.update(user.getValue());
+			}
+		}
+		return updated;
+	}
+	
+	public void markPostRead(String userName, int postId) {
+	    markPostsRead(userName, new int[] { postId });
+	}
+
+	/*******
+	 * <p> Method: markPostsRead </p>
+	 * <p> Record in one transaction that a user has read each of the given posts. </p>
+	 *
+	 * @param userName the reader
+	 * @param postIds the posts read
+	 * @return true if the marks were stored, false if a database error occurred
+	 */
+	
+	public boolean markPostsRead(String userName, int[] postIds) {
+	    try (Connection connection = pool.getConnection()) {
+	        connection.setAutoCommit(false);
+	        reads.markRead(connection, userName, postIds);
+	        connection.commit();
+	        for (int postId : postIds) noteRead(userName, postId, true);
+	        return true;
+	    } catch (SQLException e) {
+	        e.printStackTrace();	// the pool rolls back uncommitted work
+	        return false;
+	    }
+	}
+	
+	/*******
+	 * <p> Method: queuePostRead </p>
+	 * <p> Record that a user has read a post without waiting for the database.  The mark is
+	 * written with others in a later batch, but post lists fetched for the user reflect it at once.
+	 * </p>
+	 *
+	 * @param userName the reader
+	 * @param postId the post read
+	 */
+	
+	public void queuePostRead(String userName, int postId) {
+	    readMarks.mark(userName, postId);		// queued first, so a load that flushes it misses neither
+	    noteRead(userName, postId, true);
+	}
+	
+	/*******
+	 * <p> Method: isPostRead </p>
+	 * <p> Tell whether a user has read a post, including marks not yet written to the database.
+	 * </p>
+	 *
+	 * @param userName the reader
+	 * @param postId the post
+	 * @return true if the user has read the post
+	 */
+	
+	public boolean isPostRead(String userName, int postId) {
+	    if (cacheReadState) return readStateFor(userName).contains(postId);
+	    if (readMarks.pendingFor(userName).contains(postId)) return true;
+	    try (Connection connection = pool.getConnection()) {
+	        return reads.isRead(connection, userName, postId);
+	    } catch (SQLException e) {
+	        e.printStackTrace();
+	        return false;
+	    }
+	}
+	
+	/*******
+	 * <p> Method: flushPostReads </p>
+	 * <p> Write every queued read mark now (for example at logout). </p>
+	 */
+	
+	public void flushPostReads() {
+	    if (readMarks != null) readMarks.flush();
+	}
+
+	public void markPostUnread(String userName, int postId) {
+	    readMarks.discard(userName, postId);		// a queued mark must not bring it back
+	    try (Connection connection = pool.getConnection()) {
+	        connection.setAutoCommit(false);
+	        reads.markUnread(connection, userName, postId);
+	        connection.commit();
+	        noteRead(userName, postId, false);
+	    } catch (SQLException e) { e.printStackTrace(); }	// the pool rolls back uncommitted work
+	}
+	
+	/*******
+	 * <p> Method: setReadModel </p>
+	 * <p> Choose how read marks are stored, converting every stored mark to the new model in one
+	 * transaction.  The choice is saved in the database and used again when it is next opened.
+	 * Switching models rewrites the read marks of every user, so it is a maintenance step, not
+	 * something to do while users are marking posts. </p>
+	 *
+	 * @param model the read model to use
+	 * @return true if the model is now in use, false if a database error occurred
+	 */
+	
+	public boolean setReadModel(ReadModel model) {
+	    ReadTracking target = ReadTracking.of(model);
+	    if (target == reads) return true;
+	    readMarks.flush();
+	    try (Connection connection = pool.getConnection()) {
+	        connection.setAutoCommit(false);
+	        target.convertFrom(connection);
+	        saveSetting(connection, READ_MODEL_SETTING, model.name());
+	        connection.commit();
+	        reads = target;
+	        return true;
+	    } catch (SQLException e) {
+	        e.printStackTrace();	// the pool rolls back uncommitted work
+	        return false;
+	    }
+	}
+	
+	/*******
+	 * <p> Method: getReadModel </p>
+	 * <p> The way read marks are currently stored. </p>
+	 *
+	 * @return the active read model
+	 */
+	
+	public ReadModel getReadModel() {
+	    return reads.model();
+	}
+	
+	/*
+	 * The number of rows the active read model stores for all users.
+	 */
+	
+	long readRowCount() {
+	    try (Connection connection = pool.getConnection()) {
+	        return reads.storedRows(connection);
+	    } catch (SQLException e) {
+	        e.printStackTrace();
+	        return -1;
+	    }
+	}
+	
+	// Store one named setting in the Settings table
+	private static void saveSetting(Connection connection, String name, String setting) throws SQLException {
+	    String sql = "MERGE INTO Settings KEY(name) VALUES(?, ?)";
+	    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+	        ps.setString(1, name);
+	        ps.setString(2, setting);
+	        ps.executeUpdate();
+	    }
+	}
+	
+	// A named setting from the Settings table, or null if it has never been stored
+	private static String loadSetting(Connection connection, String name) throws SQLException {
+	    try (PreparedStatement ps = connection.prepareStatement("SELECT setting FROM Settings WHERE name = ?")) {
+	        ps.setString(1, name);
+	        try (ResultSet rs = ps.executeQuery()) {
+	            return rs.next() ? rs.getString(1) : null;
+	        }
+	    }
+	}
+	
+	
+	/*******
+	 * <p> Method: boolean getUserAccountDetails(String username) </p>
+	 * 
+	 * <p> Description: Get all the attributes of a user given that user's username.</p>
+	 * 
+	 * @param username is the username of the user
+	 * 
+	 * @return true of the get is successful, else false
+	 *  
+	 */
+	// get the attributes for a specified user
+	public boolean getUserAccountDetails(String username) {
+		return getUserAccountDetails(username, session);
+	}
+	
+	
+	/*******
+	 * <p> Method: boolean getUserAccountDetails(String username, UserSession target) </p>
+	 * 
+	 * <p> Description: Load all the attributes of a user into the given session.  Concurrent
+	 * callers each pass their own session.</p>
+	 * 
+	 * @param username is the username of the user
+	 * 
+	 * @param target is the session that receives the user's attributes
+	 * 
+	 * @return true of the get is successful, else false
+	 *  
+	 */
+	
+	public boolean getUserAccountDetails(String username, UserSession target) {
+		User user;
+		try {
+			user = loadProfile(username);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return false;
+		}
+		if (user == null) return false;
+		target.load(user);
+		return true;
+	}
+	
+	
+	/*******
+	 * <p> Method: LoginResult authenticate(String username, String password) </p>
+	 * 
+	 * <p> Description: Check a login and, if it is valid, make the user the current user of the
+	 * default session.  See authenticate(String, String, UserSession).</p>
+	 * 
+	 * @param username the username typed
+	 * 
+	 * @param password the password, or a one-time password, typed
+	 * 
+	 * @return the user's profile and roles, null if the pair is not valid, or LoginResult.BUSY
+	 * 	if it could not be checked now
+	 *  
+	 */
+	
+	public LoginResult authenticate(String username, String password) {
+		return authenticate(username, password, session);
+	}
+	
+	
+	/*******
+	 * <p> Method: LoginResult authenticate(String username, String password, UserSession target) </p>
+	 * 
+	 * <p> Description: Check a login with one lookup of the user's row by its unique username
+	 * index (none when the profile is cached), and return everything the login page needs to
+	 * dispatch the user: the profile and the roles as a bitmask.  The password is verified
+	 * against the stored hash on the PasswordHasher pool, so the call blocks for about
+	 * PASSWORD_HASH_TARGET_MILLIS and the GUI makes it away from the JavaFX Application Thread.
+	 * When it does not match, it is tried as the user's one-time password, which is consumed if
+	 * it matches.  An unknown username costs one hash at the current cost that matches nothing,
+	 * so it fails in the same time as a wrong password and the time does not tell who exists.</p>
+	 *
+	 * <p> A legacy plaintext password, or a hash made at a lower cost than the calibrated one,
+	 * is replaced by a new hash once the user has logged in with it, at a later login if the
+	 * startup calibration has not finished yet, so no login waits for it.  The replacement only
+	 * happens if the row still holds the value that was verified, so it cannot undo a password
+	 * change made meanwhile.</p>
+	 * 
+	 * @param username the username typed
+	 * 
+	 * @param password the password, or a one-time password, typed
+	 * 
+	 * @param target the session that receives the user on success, or null to leave every
+	 * 	session untouched
+	 * 
+	 * @return the user's profile and roles; null if the pair is not valid, and the caller must
+	 * 	not say which half was wrong; or LoginResult.BUSY if the user's row could not be read
+	 * 	or the password hasher refused the work, and the user should try again.  The profile carries the password typed (empty
+	 * 	after a one-time password), not the stored hash.
+	 *
+	 */
+
+	public LoginResult authenticate(String username, String password, UserSession target) {
+		if (username == null || password == null) return null;
+		User user;
+		try {
+			user = loadProfile(username);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return LoginResult.BUSY;		// not a wrong password: the row could not be read
+		}
+		if (user == null) {
+			// Take as long as a wrong password would, so the time does not tell who exists, and
+			// be as busy as a real user would be, so neither does the answer
+			try {
+				hasher.verifyNone(password);
+			} catch (IllegalStateException e) {
+				e.printStackTrace();
+				return LoginResult.BUSY;
+			}
+			return null;
+		}
+		boolean oneTimePassword = false;
+		String stored = user.getPassword();
+		try {
+			if (hasher.verify(password, stored)) {
+				if (hasher.needsRehash(stored)) rehashPassword(username, password, stored);
+			} else {
+				if (!otps.consume(username, password)) return null;
+				oneTimePassword = true;
+			}
+		} catch (IllegalStateException e) {
+			e.printStackTrace();
+			return LoginResult.BUSY;
+		}
+		if (target != null) target.load(user);
+		// The cached row stays private to the cache; the caller gets its own copy
+		User copy = new User(user.getUserName(), oneTimePassword ? "" : password, user.getFirstName(),
+				user.getMiddleName(), user.getLastName(), user.getPreferredFirstName(),
+				user.getEmailAddress(), user.getRoles());
+		return new LoginResult(copy, user.getRoles(), oneTimePassword);
+	}
+
+
+	/*
+	 * Replace the stored password of a user who has just logged in with a hash at the current
+	 * cost, provided the row still holds the value that was verified.  A failure only leaves the
+	 * old value in place until the next login.
+	 */
+
+	private void rehashPassword(String username, String password, String stored) {
+		String sql = "UPDATE userDB SET password = ? WHERE userName = ? AND password = ?";
+		try {
+			String hash = hashPassword(password);
+			try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(sql)) {
+				pstmt.setString(1, hash);
+				pstmt.setString(2, username);
+				pstmt.setString(3, stored);
+				if (pstmt.executeUpdate() > 0) profiles.invalidate(username);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/*
+	 * Hash a password for storing in userDB.  A hasher that refuses the work (its queue is full,
+	 * or the database is closing) is reported as SQLException, like any other failed write.
+	 */
+
+	String hashPassword(String password) throws SQLException {
+		try {
+			return hasher.hash(password);
+		} catch (IllegalStateException e) {
+			throw new SQLException(e.getMessage(), e);
+		}
+	}
+
+
+	/*
+	 * Wait until the password hashing cost has been calibrated and return it, in PBKDF2
+	 * iterations.  Used by PasswordHashBenchmark.
+	 */
+
+	int awaitPasswordHashCost() throws InterruptedException {
+		return hasher.awaitCalibration();
+	}
+	
+	
+	/*
+	 * A user's row, from the profile cache or else read from userDB and cached.  Null if there is
+	 * no such user; a row that could not be read is reported as SQLException, so a login does not
+	 * take it for a wrong username.
+	 */
+	
+	private User loadProfile(String username) throws SQLException {
+		User cached = profiles.get(username);
+		if (cached != null) return cached;
+		long stamp = profiles.stamp();
+		String query = "SELECT * FROM userDB WHERE username = ?";
+		try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
+			pstmt.setString(1, username);
+	        try (ResultSet rs = pstmt.executeQuery()) {
+	        	if (!rs.next()) return null;
+	        	User user = new User(rs.getString("userName"), rs.getString("password"),
+	        			rs.getString("firstName"), rs.getString("middleName"), rs.getString("lastName"),
+	        			rs.getString("preferredFirstName"), rs.getString("emailAddress"), rs.getInt("roles"));
+	        	profiles.put(username, user, stamp);
+	        	return user;
+	        }
+	    }
+	}
+	
+	
+	/*******
+	 * <p> Method: double getProfileCacheHitRatio() </p>
+	 * 
+	 * <p> Description: The share of getUserAccountDetails calls answered from the profile cache
+	 * without reading userDB.</p>
+	 * 
+	 * @return the hits divided by all lookups so far, or 0 before the
+	 * 	first lookup
+	 *  
+	 */
+	
+	public double getProfileCacheHitRatio() {
+		long hits = profiles.getHits();
+		long lookups = hits + profiles.getMisses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+	
+	// Drop every cached profile (for the benchmarks, which measure cold lookups)
+	void clearProfileCache() {
+		profiles.clear();
+	}
+	
+	/** @return the number of getUserAccountDetails calls answered from the profile cache */
+	public long getProfileCacheHits() {
+		return profiles.getHits();
+	}
+	
+	/** @return the number of getUserAccountDetails calls that had to read userDB */
+	public long getProfileCacheMisses() {
+		return profiles.getMisses();
+	}
+	
+	
+		/*******
+		 * <p> Method: boolean updateUserRole(String username, String role, String value) </p>
+		 * 
+		 * <p> Description: Update a specified role for a specified user's and set and update all the
+		 * 		current user attributes.</p>
+		 * 
 		 * @param username is the username of the user
 		 *  
 		 * @param role is string that specifies the role to update
@@ -1081,52 +1958,40 @@ public class Database {
 		 */
 		// Update a users role
 		public boolean updateUserRole(String username, String role, String value) {
-			if (role.compareTo("Admin") == 0) {
-				String query = "UPDATE userDB SET adminRole = ? WHERE username = ?";
-				try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-					pstmt.setString(1, value);
-					pstmt.setString(2, username);
-					pstmt.executeUpdate();
-					if (value.compareTo("true") == 0)
-						currentAdminRole = true;
-					else
-						currentAdminRole = false;
-					return true;
-				} catch (SQLException e) {
-					return false;
-				}
-			}
-			if (role.compareTo("Student") == 0) {
-				String query = "UPDATE userDB SET newRole1 = ? WHERE username = ?";
-				try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-					pstmt.setString(1, value);
-					pstmt.setString(2, username);
-					pstmt.executeUpdate();
-					if (value.compareTo("true") == 0)
-						currentNewRole1 = true;
-					else
-						currentNewRole1 = false;
-					return true;
-				} catch (SQLException e) {
-					return false;
-				}
-			}
-			if (role.compareTo("Staff") == 0) {
-				String query = "UPDATE userDB SET newRole2 = ? WHERE username = ?";
-				try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-					pstmt.setString(1, value);
-					pstmt.setString(2, username);
-					pstmt.executeUpdate();
-					if (value.compareTo("true") == 0)
-						currentNewRole2 = true;
-					else
-						currentNewRole2 = false;
-					return true;
-				} catch (SQLException e) {
-					return false;
-				}
+			Role r = Role.fromLabel(role);
+			return r != null && updateUserRole(username, r, Boolean.parseBoolean(value));
+		}
+	
+	
+		/*******
+		 * <p> Method: boolean updateUserRole(String username, Role role, boolean plays) </p>
+		 * 
+		 * <p> Description: Add a role to, or remove it from, a user's roles bitmask, and update
+		 * 		the current user attributes if they belong to that user.</p>
+		 * 
+		 * @param username is the username of the user
+		 *  
+		 * @param role is the role to add or remove
+		 * 
+		 * @param plays is true to add the role and false to remove it
+		 * 
+		 * @return true if the update was successful, else false
+		 *  
+		 */
+		public boolean updateUserRole(String username, Role role, boolean plays) {
+			String query = plays
+					? "UPDATE userDB SET roles = BITOR(roles, CAST(? AS INT)) WHERE username = ?"
+					: "UPDATE userDB SET roles = BITAND(roles, CAST(? AS INT)) WHERE username = ?";
+			try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
+				pstmt.setInt(1, plays ? role.bit() : ~role.bit());
+				pstmt.setString(2, username);
+				pstmt.executeUpdate();
+				profiles.invalidate(username);
+				if (session.holds(username)) session.setRole(role, plays);
+				return true;
+			} catch (SQLException e) {
+				return false;
 			}
-			return false;
 		}
 	
 	
@@ -1139,7 +2004,7 @@ public class Database {
 	 *  
 	 */
 	 // Attribute getters for the current user
-	public String getCurrentUsername() { return currentUsername;};
+	public String getCurrentUsername() { return session.getUsername();};
 
 	
 	/*******
@@ -1151,7 +2016,7 @@ public class Database {
 	 *  
 	 */
 	
-	public String getCurrentPassword() { return currentPassword;};
+	public String getCurrentPassword() { return session.getPassword();};
 
 	
 	/*******
@@ -1163,7 +2028,7 @@ public class Database {
 	 *  
 	 */
 	
-	public String getCurrentFirstName() { return currentFirstName;};
+	public String getCurrentFirstName() { return session.getFirstName();};
 
 	
 	/*******
@@ -1175,7 +2040,7 @@ public class Database {
 	 *  
 	 */
 	
-	public String getCurrentMiddleName() { return currentMiddleName;};
+	public String getCurrentMiddleName() { return session.getMiddleName();};
 
 	
 	/*******
@@ -1187,7 +2052,7 @@ public class Database {
 	 *  
 	 */
 	
-	public String getCurrentLastName() { return currentLastName;};
+	public String getCurrentLastName() { return session.getLastName();};
 
 	
 	/*******
@@ -1199,7 +2064,7 @@ public class Database {
 	 *  
 	 */
 	
-	public String getCurrentPreferredFirstName() { return currentPreferredFirstName;};
+	public String getCurrentPreferredFirstName() { return session.getPreferredFirstName();};
 
 	
 	/*******
@@ -1211,7 +2076,7 @@ public class Database {
 	 *  
 	 */
 	
-	public String getCurrentEmailAddress() { return currentEmailAddress;};
+	public String getCurrentEmailAddress() { return session.getEmailAddress();};
 
 	
 	/*******
@@ -1223,7 +2088,7 @@ public class Database {
 	 *  
 	 */
 	
-	public boolean getCurrentAdminRole() { return currentAdminRole;};
+	public boolean getCurrentAdminRole() { return session.getAdminRole();};
 
 	
 	/*******
@@ -1235,7 +2100,7 @@ public class Database {
 	 *  
 	 */
 	
-	public boolean getCurrentNewRole1() { return currentNewRole1;};
+	public boolean getCurrentNewRole1() { return session.getNewRole1();};
 
 	
 	/*******
@@ -1247,7 +2112,19 @@ public class Database {
 	 *  
 	 */
 	
-	public boolean getCurrentNewRole2() { return currentNewRole2;};
+	public boolean getCurrentNewRole2() { return session.getNewRole2();};
+
+	
+	/*******
+	 * <p> Method: int getCurrentRoles() </p>
+	 * 
+	 * <p> Description: Get the roles the current user plays.</p>
+	 * 
+	 * @return the Role bitmask of the current user
+	 *  
+	 */
+	
+	public int getCurrentRoles() { return session.getRoles();};
 
 	
 	/*******
@@ -1261,7 +2138,9 @@ public class Database {
 	// Dumps the database.
 	public void dump() throws SQLException {
 		String query = "SELECT * FROM userDB";
-		ResultSet resultSet = statement.executeQuery(query);
+		try (Connection connection = pool.getConnection();
+			 Statement statement = connection.createStatement();
+			 ResultSet resultSet = statement.executeQuery(query)) {
 		ResultSetMetaData meta = resultSet.getMetaData();
 		while (resultSet.next()) {
 		for (int i = 0; i < meta.getColumnCount(); i++) {
@@ -1271,73 +2150,271 @@ public class Database {
 		}
 		System.out.println();
 		}
-		resultSet.close();
+		}
+	}
+
+
+	/*******
+	 * <p> Method: Map&lt;String, Long&gt; exportBoard(Path directory, DataFormat format,
+	 * boolean gzip) </p>
+	 *
+	 * <p> Description: Archive the discussion board: Posts, Replies, PostReads, ReadWatermarks,
+	 * and ReadExceptions are each written to a file named after the table (for example
+	 * Posts.jsonl.gz) in the given directory.  The rows are streamed from the database to the
+	 * files, so memory use stays the same however large the board is, and all the tables are read
+	 * as of one moment.  The method blocks, so the GUI calls it away from the JavaFX Application
+	 * Thread.</p>
+	 *
+	 * @param directory where the files are written; created if needed
+	 *
+	 * @param format JSONL (one JSON object per row) or CSV (with a header row)
+	 *
+	 * @param gzip true to gzip-compress each file
+	 *
+	 * @return the number of rows written, by table name
+	 *
+	 * @throws IOException when a file cannot be written
+	 *
+	 * @throws SQLException when a table cannot be read
+	 *
+	 */
+
+	public Map<String, Long> exportBoard(Path directory, DataFormat format, boolean gzip)
+			throws IOException, SQLException {
+		return new BoardExporter(pool).run(directory, format, gzip);
 	}
 
 
 	/*******
 	 * <p> Method: void closeConnection()</p>
 	 * 
-	 * <p> Description: Closes the database statement and connection.</p>
+	 * <p> Description: Closes the connection pool and every idle connection in it.</p>
 	 * 
 	 */
-	// Closes the database statement and connection.
+	// Closes every pooled database connection.
 	public void closeConnection() {
-		try{ 
-			if(statement!=null) statement.close(); 
-		} catch(SQLException se2) { 
-			se2.printStackTrace();
-		} 
-		try { 
-			if(connection!=null) connection.close(); 
-		} catch(SQLException se){ 
-			se.printStackTrace(); 
-		} 
+		if (invitationSweeper != null) invitationSweeper.close();
+		if (readMarks != null) readMarks.close();
+		if (hasher != null) hasher.close();
+		readState.clear();
+		profiles.clear();
+		if (pool != null) pool.close();
+	}
+	
+	/*******
+	 * <p> Method: getStatementCacheHits </p>
+	 * 
+	 * <p> Description: The number of prepared statements that were reused from the per-connection
+	 * statement cache, skipping H2's parse and plan work.</p>
+	 * 
+	 * @return the cache hit count since the database was connected
+	 */
+	
+	public long getStatementCacheHits() {
+		return pool == null ? 0 : pool.getStatementCacheHits();
+	}
+	
+	/*******
+	 * <p> Method: getStatementCacheMisses </p>
+	 * 
+	 * <p> Description: The number of prepared statements that had to be parsed because no cached
+	 * statement for their SQL was free.</p>
+	 * 
+	 * @return the cache miss count since the database was connected
+	 */
+	
+	public long getStatementCacheMisses() {
+		return pool == null ? 0 : pool.getStatementCacheMisses();
 	}
 	
 	//This method retrieves all users from the database and their related information, then sets them as user objects in a list
     public List<User> getAllUsers() {
         List<User> users = new ArrayList<>();
-        String query = "SELECT userName, firstName, middleName, lastName, emailAddress, adminRole, newRole1, newRole2 FROM userDB";
-        try (Statement stmt = connection.createStatement();
+        String query = "SELECT " + USER_LIST_COLUMNS + " FROM userDB";
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
-            while (rs.next()) {
-                String userName = rs.getString("userName");
-                String firstName = rs.getString("firstName");
-                String middleName = rs.getString("middleName");
-                String lastName = rs.getString("lastName");
-                String emailAddress = rs.getString("emailAddress");
-                boolean adminRole = rs.getBoolean("adminRole");
-                boolean newRole1 = rs.getBoolean("newRole1");
-                boolean newRole2 = rs.getBoolean("newRole2");
-
-
-                // This is a way to put all the roles down into a single string
-                List<String> roles = new ArrayList<>();
-                if (adminRole) roles.add("Admin");
-                if (newRole1) roles.add("Student");
-                if (newRole2) roles.add("Staff");
-                String rolesString = String.join(", ", roles);
-
-
-                // This will set the user attributes to the values obtained from the database
-                User user = new User();
-                user.setUserName(userName);
-                user.setFirstName(firstName);
-                user.setMiddleName(middleName);
-                user.setLastName(lastName);
-                user.setEmailAddress(emailAddress);
-                user.setRolesString(rolesString);
-
-
-                users.add(user);
-            }
+            while (rs.next()) users.add(userListRow(rs));
             //Error handling case
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return users;
     }
+
+    /*****
+     * Retrieves one page of the user list, using keyset pagination.
+     * <p>
+     * Users are ordered by the sort column and then by username.  The first page is requested
+     * with a null {@code afterUserName}; each following page is requested with the cursor of the
+     * page before it ({@link UserPage#getLastSortValue()} and {@link UserPage#getLastUserName()}).
+     * Each order is read from its own index, so every page costs the same to fetch however deep
+     * into the list it is.
+     * </p>
+     *
+     * @param sort          The column to order by.
+     * @param descending    True for Z to A.
+     * @param filter        Text the username, first name, last name, or email address must
+     *                      contain (any case), or null or empty for every user.
+     * @param afterSortValue The sort column value of the last user already shown.
+     * @param afterUserName The username of the last user already shown, or null for page one.
+     * @param pageSize      The most users to return.
+     * @return The page of users and the cursor for the next page.
+     */
+
+    public UserPage getUsers(UserSort sort, boolean descending, String filter,
+            String afterSortValue, String afterUserName, int pageSize) {
+        return selectUsers(sort, descending, filter, afterSortValue, afterUserName, 0, pageSize);
+    }
+
+    /*****
+     * Retrieves one page of the user list by position, for jumping straight to page n.  Paging
+     * forward from a page already shown should use the keyset form of getUsers, which does not
+     * have to skip over the rows before the page.
+     *
+     * @param sort       The column to order by.
+     * @param descending True for Z to A.
+     * @param filter     Text the username, names, or email address must contain, or null.
+     * @param offset     The number of users to skip.
+     * @param pageSize   The most users to return.
+     * @return The page of users and the cursor for the page after it.
+     */
+
+    public UserPage getUsers(UserSort sort, boolean descending, String filter, int offset, int pageSize) {
+        return selectUsers(sort, descending, filter, null, null, offset, pageSize);
+    }
+
+    /*****
+     * Retrieves the users who play a role, such as every Staff member, ordered by username.
+     *
+     * @param role The role.
+     * @return The users, in the form of the user list.
+     */
+
+    public List<User> getUsersWithRole(Role role) {
+        return selectUsersByRoles(roles -> role.in(roles));
+    }
+
+    /*****
+     * Retrieves the users who play at least a number of roles, such as every user with more than
+     * one role (minRoles 2), ordered by username.
+     *
+     * @param minRoles The fewest roles a user must play.
+     * @return The users, in the form of the user list.
+     */
+
+    public List<User> getUsersWithRoleCount(int minRoles) {
+        return selectUsersByRoles(roles -> Role.count(roles) >= minRoles);
+    }
+
+    /*
+     * The users whose roles bitmask passes the test.  There are only 2^n masks for n roles, so
+     * the test is applied to every mask here and the query asks for the passing ones by value,
+     * which H2 answers with lookups on idx_users_roles instead of testing the bits of every row.
+     */
+
+    private List<User> selectUsersByRoles(java.util.function.IntPredicate wanted) {
+        List<Integer> masks = new ArrayList<>();
+        for (int roles = 0; roles <= Role.allRoles(); roles++) {
+            if (wanted.test(roles)) masks.add(roles);
+        }
+        List<User> users = new ArrayList<>();
+        if (masks.isEmpty()) return users;
+        String query = "SELECT " + USER_LIST_COLUMNS + " FROM userDB WHERE roles IN ("
+                + String.join(", ", Collections.nCopies(masks.size(), "?")) + ") ORDER BY userName";
+        try (Connection connection = pool.getConnection(); PreparedStatement pstmt = connection.prepareStatement(query)) {
+            for (int i = 0; i < masks.size(); i++) pstmt.setInt(i + 1, masks.get(i));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) users.add(userListRow(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return users;
+    }
+
+    /*
+     * The shared query behind both getUsers.  H2 sorts nulls first, so ascending, a null sort
+     * value is followed by the rest of the nulls and then every non-null value; descending, the
+     * nulls come last.
+     */
+
+    private UserPage selectUsers(UserSort sort, boolean descending, String filter,
+            String afterSortValue, String afterUserName, int offset, int pageSize) {
+        String column = sort.column();
+        boolean byName = sort == UserSort.USER_NAME;
+        String after = descending ? "<" : ">";
+        String direction = descending ? " DESC" : "";
+        boolean filtered = filter != null && !filter.isBlank();
+
+        String whereAfter = "1=1";
+        if (afterUserName != null) {
+            if (byName) whereAfter = "userName " + after + " ?";
+            else if (afterSortValue == null) whereAfter = descending
+                    ? "(" + column + " IS NULL AND userName < ?)"
+                    : "((" + column + " IS NULL AND userName > ?) OR " + column + " IS NOT NULL)";
+            else whereAfter = "(" + column + " " + after + " ? OR (" + column + " = ? AND userName "
+                    + after + " ?)" + (descending ? " OR " + column + " IS NULL)" : ")");
+        }
+        String whereFilter = filtered ? "(LOWER(userName) LIKE ? OR LOWER(firstName) LIKE ? "
+                + "OR LOWER(lastName) LIKE ? OR LOWER(emailAddress) LIKE ?)" : "1=1";
+
+        String sql = "SELECT " + USER_LIST_COLUMNS + " FROM userDB WHERE " + whereAfter + " AND "
+                + whereFilter + " ORDER BY " + (byName ? "" : column + direction + ", ")
+                + "userName" + direction + " LIMIT ? OFFSET ?";
+
+        List<User> users = new ArrayList<>();
+        String lastSortValue = null;
+        try (Connection connection = pool.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
+            int j = 1;
+            if (afterUserName != null) {
+                if (!byName && afterSortValue != null) {
+                    ps.setString(j++, afterSortValue);
+                    ps.setString(j++, afterSortValue);
+                }
+                ps.setString(j++, afterUserName);
+            }
+            if (filtered) {
+                String pattern = "%" + filter.trim().toLowerCase().replace("\\", "\\\\")
+                        .replace("%", "\\%").replace("_", "\\_") + "%";
+                for (int i = 0; i < 4; i++) ps.setString(j++, pattern);
+            }
+            // Ask for one extra row to learn whether another page follows
+            ps.setInt(j++, pageSize + 1);
+            ps.setInt(j++, Math.max(offset, 0));
+            try (ResultSet rs = ps.executeQuery()) {
+                int rows = 0;
+                while (rs.next() && ++rows <= pageSize) {
+                    users.add(userListRow(rs));
+                    lastSortValue = rs.getString(column);
+                }
+                boolean hasMore = rows > pageSize;
+                String lastUserName = users.isEmpty() ? null : users.get(users.size() - 1).getUserName();
+                return new UserPage(users, lastSortValue, lastUserName, hasMore);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new UserPage(users, null, null, false);
+        }
+    }
+
+    // The columns the user list shows
+    private static final String USER_LIST_COLUMNS =
+            "userName, firstName, middleName, lastName, emailAddress, roles";
+
+    // Build a user list entry, its roles in a single string, from the current row
+    private static User userListRow(ResultSet rs) throws SQLException {
+        // This will set the user attributes to the values obtained from the database
+        User user = new User();
+        user.setUserName(rs.getString("userName"));
+        user.setFirstName(rs.getString("firstName"));
+        user.setMiddleName(rs.getString("middleName"));
+        user.setLastName(rs.getString("lastName"));
+        user.setEmailAddress(rs.getString("emailAddress"));
+        user.setRoles(rs.getInt("roles"));
+        user.setRolesString(String.join(", ", Role.labels(user.getRoles())));
+        return user;
+    }
     
     
  // ====== POSTS ======
@@ -1360,13 +2437,20 @@ public class Database {
     public void createPost(String authorUsername, String title, String body, String thread) {
         String sql = "INSERT INTO Posts (authorUsername, title, body, thread, createdAt, updatedAt, isDeleted)"
                    + " VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, FALSE)";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, authorUsername);
-            ps.setString(2, title);
-            ps.setString(3, body);
-            ps.setString(4, thread);
-            ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, authorUsername);
+                ps.setString(2, title);
+                ps.setString(3, body);
+                ps.setString(4, thread);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) SearchIndex.index(connection, keys.getInt(1), 0, title + " " + body);
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) { e.printStackTrace(); }	// the pool rolls back uncommitted work
     }
 
     /*****
@@ -1390,29 +2474,153 @@ public class Database {
             boolean includeDeleted,
             String threadFilter,
 	            String readFilter) {
+		return queryPosts(mineOnly, username, includeDeleted, threadFilter, readFilter, null, 0, 0);
+	}
+
+    /*****
+     * Retrieves one page of posts for display, using keyset pagination.
+     * <p>
+     * Posts are ordered by (updatedAt, id), newest first.  The first page is requested with a
+     * null {@code afterUpdatedAt}; each following page is requested with the cursor of the page
+     * before it ({@link PostPage#getLastUpdatedAt()} and {@link PostPage#getLastId()}).  Because
+     * the cursor is a position in the index order rather than a row offset, every page costs the
+     * same to fetch no matter how deep into the list it is.
+     * </p>
+     *
+     * @param mineOnly       True to return only the current user's posts; false to return all.
+     * @param username       The username used when filtering by author and read status.
+     * @param includeDeleted True to include soft-deleted posts; false to exclude them.
+     * @param threadFilter   The thread type to filter by ("All Threads" shows all threads).
+     * @param readFilter     "Read" or "Unread" to filter by read status, or null for both.
+     * @param afterUpdatedAt The updatedAt of the last post already shown, or null for page one.
+     * @param afterId        The id of the last post already shown (ignored for page one).
+     * @param pageSize       The most posts to return.
+     * @return The page of posts and the cursor for the next page.
+     */
+
+    public PostPage fetchPostsPage(boolean mineOnly,
+            String username,
+            boolean includeDeleted,
+            String threadFilter,
+            String readFilter,
+            Timestamp afterUpdatedAt,
+            int afterId,
+            int pageSize) {
+		// Ask for one extra row to learn whether another page follows
+		List<Map<String,Object>> rows = queryPosts(mineOnly, username, includeDeleted,
+				threadFilter, readFilter, afterUpdatedAt, afterId, pageSize + 1);
+		boolean hasMore = rows.size() > pageSize;
+		if (hasMore) rows.remove(rows.size() - 1);
+		if (rows.isEmpty()) return new PostPage(rows, null, 0, false);
+
+		PostRow last = (PostRow) rows.get(rows.size() - 1);
+		return new PostPage(rows, last.updatedAt, last.id, hasMore);
+	}
+
+    /*
+     * The shared query behind fetchPosts and fetchPostsPage.  A null afterUpdatedAt starts at
+     * the newest post; a limit of 0 or less returns every matching post.
+     *
+     * With the read-state cache on, the read flag and the Read/Unread filters are answered from
+     * the user's ReadBitmap and the query does not touch the read model's tables.  A filtered
+     * page is filled by reading further batches of posts until enough of them pass the filter.
+     */
+
+    private List<Map<String,Object>> queryPosts(boolean mineOnly,
+            String username,
+            boolean includeDeleted,
+            String threadFilter,
+            String readFilter,
+            Timestamp afterUpdatedAt,
+            int afterId,
+            int limit) {
+		boolean filtersOnRead = "Read".equals(readFilter) || "Unread".equals(readFilter);
+		List<Map<String,Object>> out = new ArrayList<>();
+		if (!cacheReadState) {
+			selectPosts(mineOnly, username, includeDeleted, threadFilter, readFilter,
+					afterUpdatedAt, afterId, limit, out);
+			return out;
+		}
+
+		ReadBitmap read = readStateFor(username);
+		boolean wantRead = "Read".equals(readFilter);
+		int batch = (limit <= 0) ? 0 : filtersOnRead ? Math.max(limit, READ_FILTER_BATCH) : limit;
+		List<Map<String,Object>> rows = new ArrayList<>();
+		while (true) {
+			rows.clear();
+			if (!selectPosts(mineOnly, username, includeDeleted, threadFilter, null,
+					afterUpdatedAt, afterId, batch, rows)) break;
+			for (Map<String,Object> row : rows) {
+				PostRow post = (PostRow) row;
+				post.put("isRead", read.contains(post.id) ? 1 : 0);
+				if (filtersOnRead && post.read != wantRead) continue;
+				out.add(post);
+				if (limit > 0 && out.size() == limit) return out;
+			}
+			if (batch <= 0 || rows.size() < batch) break;		// no more posts to read
+			PostRow last = (PostRow) rows.get(rows.size() - 1);
+			afterUpdatedAt = last.updatedAt;
+			afterId = last.id;
+		}
+		return out;
+	}
+
+    /*
+     * Run one post query and add its rows to out.  A non-null readFilter is evaluated by the
+     * database through a join with the read model's tables, in which case the isRead column is
+     * filled too.  Returns false if the query failed.
+     */
+
+    private boolean selectPosts(boolean mineOnly,
+            String username,
+            boolean includeDeleted,
+            String threadFilter,
+            String readFilter,
+            Timestamp afterUpdatedAt,
+            int afterId,
+            int limit,
+            List<Map<String,Object>> out) {
 		String whereMine   = mineOnly ? "p.authorUsername = ?" : "1=1";
 		String whereDel    = includeDeleted ? "1=1" : "p.isDeleted = FALSE";
 		String whereThread = (threadFilter != null && !"All Threads".equals(threadFilter))
 		? "p.thread = ?" : "1=1";
+		String whereAfter  = afterUpdatedAt != null
+		? "(p.updatedAt < ? OR (p.updatedAt = ? AND p.id < ?))" : "1=1";
 		
+		// The filtered column is constant within the result, so leading the order with it changes
+		// nothing except letting the database read the rows in order from the matching index
+		String orderPrefix = (threadFilter != null && !"All Threads".equals(threadFilter))
+		? "p.thread, " : (mineOnly ? "p.authorUsername, " : "");
+		
+		// Without the read-state cache the read flag comes from the read model's tables, so the
+		// user's queued marks are stored before a read filter runs, and otherwise applied to the
+		// rows read below
+		boolean joinReads = !cacheReadState;
+		boolean filtersOnRead = "Read".equals(readFilter) || "Unread".equals(readFilter);
+		if (joinReads && filtersOnRead) readMarks.flush(username);
+		Set<Integer> queued = (joinReads && !filtersOnRead) ? readMarks.pendingFor(username) : Set.of();
+		
+		ReadTracking tracking = reads;
 		String whereRead = "1=1";
-		if ("Read".equals(readFilter))   whereRead = "pr.userName IS NOT NULL";
-		if ("Unread".equals(readFilter)) whereRead = "pr.userName IS NULL";
+		if ("Read".equals(readFilter))   whereRead = tracking.readCondition();
+		if ("Unread".equals(readFilter)) whereRead = "NOT " + tracking.readCondition();
 
 		String sql =
-		"SELECT p.*, " +
-		"       CASE WHEN pr.userName IS NULL THEN 0 ELSE 1 END AS isRead, " +
-		"       (SELECT COUNT(*) FROM Replies r WHERE r.postId = p.id) AS replyCount " +
+		"SELECT p.*" +
+		(joinReads ? ", CASE WHEN " + tracking.readCondition() + " THEN 1 ELSE 0 END AS isRead " : " ") +
 		"FROM Posts p " +
-		"LEFT JOIN PostReads pr ON pr.postId = p.id AND pr.userName = ? " +
-		"WHERE " + whereMine + " AND " + whereDel + " AND " + whereThread + " AND " + whereRead + " " +
-		"ORDER BY p.updatedAt DESC";
+		(joinReads ? tracking.join() + " " : "") +
+		"WHERE " + whereMine + " AND " + whereDel + " AND " + whereThread + " AND " + whereRead +
+		" AND " + whereAfter + " " +
+		"ORDER BY " + orderPrefix + "p.updatedAt DESC, p.id DESC" +
+		(limit > 0 ? " LIMIT " + limit : "");
 		
-		List<Map<String,Object>> out = new ArrayList<>();
-		try (PreparedStatement ps = connection.prepareStatement(sql)) {
+		try (Connection connection = pool.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
 		int j = 1;
-		// join parameter (for pr.userName)
-		ps.setString(j++, username);
+		// join parameters (the reader of the read model's tables)
+		if (joinReads) {
+		for (int i = 0; i < tracking.joinParameters(); i++) ps.setString(j++, username);
+		}
 		
 		if (mineOnly) {
 		ps.setString(j++, username);
@@ -1420,25 +2628,118 @@ public class Database {
 		if (threadFilter != null && !"All Threads".equals(threadFilter)) {
 		ps.setString(j++, threadFilter);
 		}
+		if (afterUpdatedAt != null) {
+		ps.setTimestamp(j++, afterUpdatedAt);
+		ps.setTimestamp(j++, afterUpdatedAt);
+		ps.setInt(j++, afterId);
+		}
+			int first = out.size();
 			try (ResultSet rs = ps.executeQuery()) {
-				ResultSetMetaData md = rs.getMetaData();
-				int n = md.getColumnCount();
-				while (rs.next()) {
-				Map<String,Object> row = new HashMap<>();
-					for (int i = 1; i <= n; i++) {
-						row.put(md.getColumnName(i), rs.getObject(i));
-					}
-					out.add(row);
+				TypedRow.readAll(rs, PostRow::new, out);
+			}
+			if (!queued.isEmpty()) {
+				for (int i = first; i < out.size(); i++) {
+					PostRow post = (PostRow) out.get(i);
+					if (queued.contains(post.id)) post.read = true;
 				}
 			}
+			return true;
 		} catch (SQLException e) {
 			e.printStackTrace();
+			return false;
 		}
-		return out;
 	}
 
+    // ====== READ STATE CACHE ======
+
+    /*****
+     * Loads the set of posts a user has read into memory unless it is already held.
+     * <p>
+     * Called at login so the user's first post list is answered from memory.  Post lists for a
+     * user whose read state is not loaded load it on first use.  A copy already held is kept:
+     * every mark updates it, so it is never older than a fresh read of the database.  Marks made
+     * while a copy is being read are recorded and applied to it before it is cached, so a mark
+     * that the read missed is not lost.
+     * </p>
+     *
+     * @param userName The user whose read state to load.
+     */
+
+    public void loadReadState(String userName) {
+        if (!cacheReadState || userName == null) return;
+        readStateFor(userName);
+    }
+
+    /*****
+     * Drops a user's in-memory read state (at logout).  Queued read marks are not affected.
+     *
+     * @param userName The user whose read state to drop.
+     */
+
+    public void releaseReadState(String userName) {
+        if (userName != null) readState.remove(userName);
+    }
+
+    /*****
+     * Chooses whether the read flag and the Read/Unread filters are answered from the in-memory
+     * read state (the default) or by joining the read model's tables in every post query.
+     *
+     * @param enabled true to use the in-memory read state.
+     */
+
+    public void setReadStateCaching(boolean enabled) {
+        cacheReadState = enabled;
+        if (!enabled) readState.clear();
+    }
+
+    // The cached read state of a user, loaded on first use.  Marks made during the load are
+    // recorded by noteRead and applied before the bitmap is cached; from then on noteRead finds it.
+    private ReadBitmap readStateFor(String userName) {
+        String key = userName == null ? "" : userName;
+        ReadBitmap bitmap = readState.get(key);
+        if (bitmap != null) return bitmap;
+        List<int[]> marks = loadingReadState.computeIfAbsent(key, k -> new ArrayList<>());
+        bitmap = readReadState(key);
+        synchronized (marks) {
+            loadingReadState.remove(key, marks);
+            if (bitmap == null) return new ReadBitmap();		// not cached, so the next call retries
+            for (int[] mark : marks) {
+                if (mark[1] == 1) bitmap.add(mark[0]);
+                else bitmap.remove(mark[0]);
+            }
+            ReadBitmap raced = readState.putIfAbsent(key, bitmap);
+            return raced != null ? raced : bitmap;
+        }
+    }
+
+    // Build a user's read state from the read model, after storing the user's queued marks
+    private ReadBitmap readReadState(String userName) {
+        readMarks.flush(userName);
+        ReadBitmap bitmap = new ReadBitmap();
+        try (Connection connection = pool.getConnection()) {
+            reads.loadRead(connection, userName, bitmap);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return bitmap;
+    }
+
+    // Keep a user's cached read state, and any load of it under way, in step with a read or
+    // unread mark
+    private void noteRead(String userName, int postId, boolean read) {
+        List<int[]> marks = loadingReadState.get(userName);
+        if (marks != null) {
+            synchronized (marks) {
+                marks.add(new int[] {postId, read ? 1 : 0});
+            }
+        }
+        ReadBitmap bitmap = readState.get(userName);
+        if (bitmap == null) return;
+        if (read) bitmap.add(postId);
+        else bitmap.remove(postId);
+    }
 
-    
     /*****
      * Updates the title and body of an existing post.
      * <p>
@@ -1455,12 +2756,16 @@ public class Database {
     
     public void updatePost(int id, String title, String body) {
         String sql = "UPDATE Posts SET title=?, body=?, updatedAt=CURRENT_TIMESTAMP WHERE id=?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, title);
-            ps.setString(2, body);
-            ps.setInt(3, id);
-            ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, title);
+                ps.setString(2, body);
+                ps.setInt(3, id);
+                if (ps.executeUpdate() > 0) SearchIndex.index(connection, id, 0, title + " " + body);
+            }
+            connection.commit();
+        } catch (SQLException e) { e.printStackTrace(); }	// the pool rolls back uncommitted work
     }
     
     /*****
@@ -1477,7 +2782,7 @@ public class Database {
     
     public void softDeletePost(int id) {
         String sql = "UPDATE Posts SET isDeleted=TRUE, updatedAt=CURRENT_TIMESTAMP WHERE id=?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, id);
             ps.executeUpdate();
         } catch (SQLException e) { e.printStackTrace(); }
@@ -1498,16 +2803,13 @@ public class Database {
     
     public Map<String,Object> getPost(int id) {
         String sql = "SELECT * FROM Posts WHERE id=?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, id);
+            List<PostRow> rows = new ArrayList<>(1);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Map<String,Object> row = new HashMap<>();
-                    ResultSetMetaData md = rs.getMetaData();
-                    for (int i=1;i<=md.getColumnCount();i++) row.put(md.getColumnName(i), rs.getObject(i));
-                    return row;
-                }
+                TypedRow.readAll(rs, PostRow::new, rows);
             }
+            return rows.isEmpty() ? null : rows.get(0);
         } catch (SQLException e) { e.printStackTrace(); }
         return null;
     }
@@ -1530,12 +2832,20 @@ public class Database {
     public void createReply(int postId, String authorUsername, String body) {
         String sql = "INSERT INTO Replies (postId, authorUsername, body, createdAt, updatedAt)"
                    + " VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setInt(1, postId);
-            ps.setString(2, authorUsername);
-            ps.setString(3, body);
-            ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, postId);
+                ps.setString(2, authorUsername);
+                ps.setString(3, body);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) SearchIndex.index(connection, postId, keys.getInt(1), body);
+                }
+            }
+            adjustReplyCount(connection, postId, 1);
+            connection.commit();
+        } catch (SQLException e) { e.printStackTrace(); }	// the pool rolls back uncommitted work
     }
 
     /*****
@@ -1553,16 +2863,10 @@ public class Database {
     public List<Map<String,Object>> getRepliesForPost(int postId) {
         String sql = "SELECT * FROM Replies WHERE postId=? ORDER BY createdAt ASC";
         List<Map<String,Object>> out = new ArrayList<>();
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, postId);
             try (ResultSet rs = ps.executeQuery()) {
-                ResultSetMetaData md = rs.getMetaData();
-                int n = md.getColumnCount();
-                while (rs.next()) {
-                    Map<String,Object> row = new HashMap<>();
-                    for (int i=1;i<=n;i++) row.put(md.getColumnName(i), rs.getObject(i));
-                    out.add(row);
-                }
+                TypedRow.readAll(rs, ReplyRow::new, out);
             }
         } catch (SQLException e) { e.printStackTrace(); }
         return out;
@@ -1578,16 +2882,13 @@ public class Database {
     
     public Map<String,Object> getReply(int replyId) {
         String sql = "SELECT * FROM Replies WHERE id=?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.getConnection(); PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, replyId);
+            List<ReplyRow> rows = new ArrayList<>(1);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Map<String,Object> row = new HashMap<>();
-                    ResultSetMetaData md = rs.getMetaData();
-                    for (int i=1;i<=md.getColumnCount();i++) row.put(md.getColumnName(i), rs.getObject(i));
-                    return row;
-                }
+                TypedRow.readAll(rs, ReplyRow::new, rows);
             }
+            return rows.isEmpty() ? null : rows.get(0);
         } catch (SQLException e) { e.printStackTrace(); }
         return null;
     }
@@ -1606,11 +2907,16 @@ public class Database {
     
     public void updateReply(int replyId, String body) {
         String sql = "UPDATE Replies SET body=?, updatedAt=CURRENT_TIMESTAMP WHERE id=?";
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, body);
-            ps.setInt(2, replyId);
-            ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            int postId = getReplyPostId(connection, replyId);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, body);
+                ps.setInt(2, replyId);
+                if (ps.executeUpdate() > 0) SearchIndex.index(connection, postId, replyId, body);
+            }
+            connection.commit();
+        } catch (SQLException e) { e.printStackTrace(); }	// the pool rolls back uncommitted work
     }
 
     /*****
@@ -1627,10 +2933,126 @@ public class Database {
     
     public void deleteReply(int replyId) {
         String sql = "DELETE FROM Replies WHERE id=?";
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            int postId = getReplyPostId(connection, replyId);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setInt(1, replyId);
+                if (ps.executeUpdate() > 0) {
+                    SearchIndex.remove(connection, postId, replyId);
+                    adjustReplyCount(connection, postId, -1);
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) { e.printStackTrace(); }	// the pool rolls back uncommitted work
+    }
+    
+    /*****
+     * Looks up the post a reply belongs to.
+     *
+     * @param connection The connection of the caller's transaction.
+     * @param replyId    The unique identifier of the reply.
+     * @return The identifier of the parent post, or -1 if the reply does not exist.
+     * @throws SQLException If a database error occurs while reading the reply.
+     */
+    
+    private static int getReplyPostId(Connection connection, int replyId) throws SQLException {
+        String sql = "SELECT postId FROM Replies WHERE id=?";
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, replyId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+    
+    /*****
+     * Adds to the stored reply count of a post, as part of the caller's transaction.
+     *
+     * @param connection The connection of the caller's transaction.
+     * @param postId     The identifier of the post whose replies changed.
+     * @param delta      The number of replies added (negative when replies are removed).
+     * @throws SQLException If a database error occurs while updating the post.
+     */
+    
+    private static void adjustReplyCount(Connection connection, int postId, int delta)
+            throws SQLException {
+        String sql = "UPDATE Posts SET replyCount = replyCount + ? WHERE id=?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, delta);
+            ps.setInt(2, postId);
             ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
+        }
+    }
+    
+    // ====== SEARCH ======
+    
+    /*****
+     * Searches post titles, post bodies, and reply bodies for a keyword.
+     * <p>
+     * In {@link SearchMode#KEYWORD_INDEX} mode the lookup goes through the SearchTerms inverted
+     * index and every word of the keyword must match the start of a word in the post (title and
+     * body) or in one of its replies.  In {@link SearchMode#FULL_TEXT} mode H2's full-text
+     * indexes are used, whole words must match, and results are ranked by score.  Either way the
+     * cost depends on the number of matches rather than on the number of posts and replies.
+     * Deleted posts are included, matching the reader's behavior of showing them as deleted.
+     * </p>
+     *
+     * @param keyword      The raw keyword text typed by the user.
+     * @param threadFilter The thread type to filter by ("All Threads" shows all threads).
+     * @return One row map per matching post, with "matchType" ("post" or "reply") and
+     *         "matchText" (the matched text) added to the post columns.
+     */
+    
+    public List<Map<String,Object>> searchPosts(String keyword, String threadFilter) {
+        try (Connection connection = pool.getConnection()) {
+            if (searchMode == SearchMode.FULL_TEXT) {
+                return FullTextSearch.search(connection, keyword, threadFilter);
+            }
+            return SearchIndex.search(connection, keyword, threadFilter);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+    
+    /*****
+     * Selects the back end used by {@link #searchPosts(String, String)}.
+     * <p>
+     * Switching to {@link SearchMode#FULL_TEXT} creates the H2 full-text indexes over the post
+     * and reply text the first time it is used.  If they cannot be created, the keyword index
+     * stays in use.  The choice is saved in the database and used again when it is next opened.
+     * </p>
+     *
+     * @param mode The search back end to use.
+     * @return True if the requested mode is now active.
+     */
+    
+    public boolean setSearchMode(SearchMode mode) {
+        try (Connection connection = pool.getConnection()) {
+            if (mode == SearchMode.FULL_TEXT) {
+                try {
+                    FullTextSearch.enable(connection);
+                } catch (SQLException e) {
+                    System.err.println("*** WARNING *** Full-text search unavailable: " + e.getMessage());
+                    return false;
+                }
+            }
+            saveSetting(connection, SEARCH_MODE_SETTING, mode.name());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+        searchMode = mode;
+        return true;
     }
     
+    /*****
+     * Returns the back end currently used by {@link #searchPosts(String, String)}.
+     *
+     * @return The active search mode.
+     */
+    
+    public SearchMode getSearchMode() { return searchMode; }
+    
 }
@@ -0,0 +1,91 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import entityClasses.Post;
+import entityClasses.User;
+
+/**
+ * Concurrency stress test for {@link Database}.
+ * 
+ * Several sessions, each on its own thread and with its own {@link UserSession}, register a user,
+ * create posts, and reply to them at the same time through one Database whose connection pool
+ * is smaller than the number of sessions.  Afterwards every row must be present exactly once,
+ * attributed to the right author, and every session must still hold its own user.
+ */
+public class DatabaseConcurrencyTest extends InMemoryDatabaseTest {
+
+    private static final int SESSIONS = 8;
+    private static final int POSTS_PER_SESSION = 25;
+
+    /**
+     * Tests that parallel sessions creating posts and replies neither lose nor mix up rows.
+     * 
+     * @throws Exception if a session fails
+     */
+    @Test
+    public void testParallelSessionsCreatePostsAndReplies() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(SESSIONS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UserSession>> sessions = new ArrayList<>();
+
+        for (int i = 0; i < SESSIONS; i++) {
+            final int n = i;
+            sessions.add(workers.submit(() -> {
+                String name = "user" + n;
+                UserSession mine = new UserSession();
+                start.await();
+
+                db.register(new User(name, "pw" + n, "First" + n, "Middle", "Last" + n,
+                        "Pref" + n, name + "@example.com", false, true, false), mine);
+                for (int j = 0; j < POSTS_PER_SESSION; j++) {
+                    db.createPost(name, "Title " + j, "Body token" + n + " number " + j, "General");
+                }
+                for (Map<String,Object> row : db.fetchPosts(true, name, false, "All Threads", null)) {
+                    db.createReply(Post.getIntCI(row, "id"), name, "Reply from " + name);
+                }
+                assertTrue(db.getUserAccountDetails(name, mine));
+                return mine;
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < SESSIONS; i++) {
+            UserSession s = sessions.get(i).get();
+            assertEquals("user" + i, s.getUsername());
+            assertEquals("First" + i, s.getFirstName());
+            assertEquals("user" + i + "@example.com", s.getEmailAddress());
+        }
+        workers.shutdown();
+
+        assertEquals(SESSIONS, db.getNumberOfUsers());
+
+        List<Map<String,Object>> all = db.fetchPosts(false, "", true, "All Threads", null);
+        assertEquals(SESSIONS * POSTS_PER_SESSION, all.size());
+        for (Map<String,Object> row : all) {
+            String author = Post.getStringCI(row, "authorUsername");
+            assertEquals(1, Post.getIntCI(row, "replyCount"));
+            List<Map<String,Object>> replies = db.getRepliesForPost(Post.getIntCI(row, "id"));
+            assertEquals(1, replies.size());
+            assertEquals(author, Post.getStringCI(replies.get(0), "authorUsername"));
+        }
+
+        for (int i = 0; i < SESSIONS; i++) {
+            List<Map<String,Object>> found = db.searchPosts("token" + i, "All Threads");
+            assertEquals(POSTS_PER_SESSION, found.size());
+            for (Map<String,Object> row : found) {
+                assertEquals("user" + i, Post.getStringCI(row, "authorUsername"));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*******
+ * <p> Title: FullTextSearch Class. </p>
+ *
+ * <p> Description: Post and reply search backed by H2's native full-text search
+ * (org.h2.fulltext.FullText).  Full-text indexes are created over Posts.title, Posts.body, and
+ * Replies.body; H2 keeps them current with its own triggers.  A search is a single query that
+ * joins the FT_SEARCH_DATA table function back to Posts and Replies, so the ranked matches, the
+ * post columns, and the matched text all come back in one round trip.</p>
+ *
+ * <p> The H2 classes are only referenced by name from SQL, so this class does not need the H2
+ * jar at compile time.</p>
+ *
+ */
+
+public final class FullTextSearch {
+
+	// no instances
+	private FullTextSearch() {}
+
+	/*******
+	 * <p> Method: enable </p>
+	 *
+	 * <p> Description: Register the H2 full-text functions and create the full-text indexes over
+	 * the post and reply text columns if they do not exist yet.  Creating an index also indexes
+	 * the rows that are already in the table.</p>
+	 *
+	 * @param connection the connection used to run the statements
+	 *
+	 * @throws SQLException when the full-text functions or indexes cannot be created
+	 */
+
+	static void enable(Connection connection) throws SQLException {
+		try (Statement st = connection.createStatement()) {
+			st.execute("CREATE ALIAS IF NOT EXISTS FT_INIT FOR 'org.h2.fulltext.FullText.init'");
+			st.execute("CALL FT_INIT()");
+		}
+		createIndexIfMissing(connection, "POSTS", "TITLE,BODY");
+		createIndexIfMissing(connection, "REPLIES", "BODY");
+	}
+
+	/*******
+	 * <p> Method: search </p>
+	 *
+	 * <p> Description: Find the posts whose title and body, or one of whose replies, contain
+	 * every word of the keyword.  Results are ranked by full-text score, then post matches ahead
+	 * of reply matches, then most recently updated.  At most one row is returned per post (its
+	 * best match).  Each row holds the Posts columns plus "matchType" ("post" or "reply") and
+	 * "matchText" (the text that matched).</p>
+	 *
+	 * @param connection the connection used to run the query
+	 * @param keyword the raw keyword text typed by the user
+	 * @param threadFilter the thread to restrict to, or "All Threads" / null for every thread
+	 *
+	 * @return the matching posts, best match first
+	 *
+	 * @throws SQLException when the query fails
+	 */
+
+	static List<Map<String,Object>> search(Connection connection, String keyword,
+			String threadFilter) throws SQLException {
+		List<Map<String,Object>> out = new ArrayList<>();
+		if (SearchIndex.tokenize(keyword).isEmpty()) return out;
+		boolean byThread = threadFilter != null && !"All Threads".equals(threadFilter);
+
+		String sql =
+			"SELECT p.*, ft.\"TABLE\" AS matchTable, r.body AS matchReplyBody " +
+			"FROM FT_SEARCH_DATA(?, 0, 0) ft " +
+			"LEFT JOIN Replies r ON ft.\"TABLE\" = 'REPLIES' AND r.id = CAST(ft.KEYS[1] AS INT) " +
+			"JOIN Posts p ON p.id = CASE WHEN ft.\"TABLE\" = 'POSTS' " +
+			"                            THEN CAST(ft.KEYS[1] AS INT) ELSE r.postId END " +
+			"WHERE " + (byThread ? "p.thread = ?" : "1=1") + " " +
+			"ORDER BY ft.SCORE DESC, CASE WHEN ft.\"TABLE\" = 'POSTS' THEN 0 ELSE 1 END, " +
+			"         p.updatedAt DESC, p.id DESC";
+
+		try (PreparedStatement ps = connection.prepareStatement(sql)) {
+			ps.setString(1, keyword);
+			if (byThread) ps.setString(2, threadFilter);
+
+			try (ResultSet rs = ps.executeQuery()) {
+				ResultSetMetaData md = rs.getMetaData();
+				int n = md.getColumnCount();
+				Set<Integer> seen = new HashSet<>();
+				while (rs.next()) {
+					if (!seen.add(rs.getInt("id"))) continue;	// keep only the best match
+
+					Map<String,Object> row = new HashMap<>();
+					for (int i = 1; i <= n; i++) {
+						String col = md.getColumnLabel(i);
+						if (col.equalsIgnoreCase("matchTable")
+								|| col.equalsIgnoreCase("matchReplyBody")) continue;
+						row.put(col, rs.getObject(i));
+					}
+					if ("POSTS".equals(rs.getString("matchTable"))) {
+						row.put("matchType", "post");
+						row.put("matchText", rs.getString("title") + "\n" + rs.getString("body"));
+					} else {
+						row.put("matchType", "reply");
+						row.put("matchText", rs.getString("matchReplyBody"));
+					}
+					out.add(row);
+				}
+			}
+		}
+		return out;
+	}
+
+	/*
+	 * Create a full-text index on the given columns unless the table already has one.
+	 */
+
+	private static void createIndexIfMissing(Connection connection, String table, String columns)
+			throws SQLException {
+		String exists = "SELECT COUNT(*) FROM FT.INDEXES WHERE \"SCHEMA\" = 'PUBLIC' AND \"TABLE\" = ?";
+		try (PreparedStatement ps = connection.prepareStatement(exists)) {
+			ps.setString(1, table);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (rs.next() && rs.getInt(1) > 0) return;
+			}
+		}
+		try (PreparedStatement ps = connection.prepareStatement("CALL FT_CREATE_INDEX('PUBLIC', ?, ?)")) {
+			ps.setString(1, table);
+			ps.setString(2, columns);
+			ps.execute();
+		}
+	}
+}
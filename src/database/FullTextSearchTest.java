@@ -0,0 +1,129 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for {@link SearchMode#FULL_TEXT}: for whole-word keywords it finds the same posts as the
+ * keyword index, through titles, bodies, and replies, and the choice of back end outlives the
+ * Database instance that made it.
+ */
+public class FullTextSearchTest {
+
+    private String url;
+    private Database db;
+    private int garden, homework, chatter, snow;
+
+    /**
+     * Opens a fresh in-memory database and writes a few posts and replies.
+     *
+     * @throws Exception if the database cannot be created
+     */
+    @Before
+    public void setUp() throws Exception {
+        url = "jdbc:h2:mem:fulltext" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        db = new Database(url, 2, 1);
+        db.connectToDatabase();
+        db.createPost("ann", "Garden tools", "Which rake and shovel should I buy?", "General");
+        db.createPost("bob", "Homework help", "The garden assignment is due Friday", "Questions");
+        db.createPost("cat", "Weekend", "Nothing planned yet", "General");
+        db.createPost("dan", "Shovel", "Clearing snow before class", "Questions");
+        garden = idOf("Garden tools");
+        homework = idOf("Homework help");
+        chatter = idOf("Weekend");
+        snow = idOf("Shovel");
+        db.createReply(chatter, "eve", "I will be planting my garden");
+        db.createReply(snow, "ann", "Salt works better than a rake");
+    }
+
+    /**
+     * Closes the pooled connections after each test.
+     */
+    @After
+    public void tearDown() {
+        db.closeConnection();
+    }
+
+    private int idOf(String title) {
+        for (Map<String,Object> row : db.fetchPosts(false, "", true, "All Threads", null)) {
+            if (title.equals(Post.getStringCI(row, "title"))) return Post.getIntCI(row, "id");
+        }
+        throw new AssertionError("no post titled " + title);
+    }
+
+    private Set<Integer> ids(String keyword, String thread) {
+        Set<Integer> ids = new TreeSet<>();
+        for (Map<String,Object> row : db.searchPosts(keyword, thread)) ids.add(Post.getIntCI(row, "id"));
+        return ids;
+    }
+
+    private static Set<Integer> setOf(Integer... ids) {
+        return new TreeSet<>(Arrays.asList(ids));
+    }
+
+    /**
+     * Tests that both back ends find the same posts for title, body, and reply matches, for
+     * several words at once, with a thread filter, and after an edit removes a word.
+     */
+    @Test
+    public void testFullTextFindsTheSamePostsAsTheIndex() {
+        String[][] searches = {
+            { "garden", "All Threads" },        // a title, a body, and a reply
+            { "shovel", "All Threads" },        // a body and a title
+            { "rake", "All Threads" },          // a body and a reply
+            { "planting", "All Threads" },      // a reply only
+            { "rake shovel", "All Threads" },   // both words in one post
+            { "garden", "Questions" },
+            { "missing", "All Threads" },
+        };
+        List<Set<Integer>> expected = Arrays.asList(
+            setOf(garden, homework, chatter), setOf(garden, snow), setOf(garden, snow),
+            setOf(chatter), setOf(garden), setOf(homework), setOf());
+
+        assertEquals(SearchMode.KEYWORD_INDEX, db.getSearchMode());
+        for (int i = 0; i < searches.length; i++) {
+            assertEquals(searches[i][0], expected.get(i), ids(searches[i][0], searches[i][1]));
+        }
+        assertTrue(db.setSearchMode(SearchMode.FULL_TEXT));
+        for (int i = 0; i < searches.length; i++) {
+            assertEquals(searches[i][0], expected.get(i), ids(searches[i][0], searches[i][1]));
+        }
+
+        db.updatePost(homework, "Homework help", "The essay is due Friday");
+        assertEquals(setOf(garden, chatter), ids("garden", "All Threads"));
+        assertTrue(db.setSearchMode(SearchMode.KEYWORD_INDEX));
+        assertEquals(setOf(garden, chatter), ids("garden", "All Threads"));
+    }
+
+    /**
+     * Tests that the back end chosen is saved in the database and used when it is next opened.
+     *
+     * @throws Exception if the database cannot be reopened
+     */
+    @Test
+    public void testSearchModeIsKeptAcrossRestarts() throws Exception {
+        assertTrue(db.setSearchMode(SearchMode.FULL_TEXT));
+        db.closeConnection();
+        db = new Database(url, 2, 1);
+        db.connectToDatabase();
+        assertEquals(SearchMode.FULL_TEXT, db.getSearchMode());
+        assertEquals(setOf(chatter), ids("planting", "All Threads"));
+
+        assertTrue(db.setSearchMode(SearchMode.KEYWORD_INDEX));
+        db.closeConnection();
+        db = new Database(url, 2, 1);
+        db.connectToDatabase();
+        assertEquals(SearchMode.KEYWORD_INDEX, db.getSearchMode());
+    }
+}
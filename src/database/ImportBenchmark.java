@@ -0,0 +1,77 @@
+package database;
+
+import java.io.StringReader;
+
+/*******
+ * <p> Title: ImportBenchmark Class. </p>
+ *
+ * <p> Description: A stand-alone program that measures how fast Database.importUsers creates
+ * accounts.  It builds a private in-memory database through Database, generates a CSV file of
+ * students whose passwords are already hashed, as an export from another installation would be,
+ * and imports it; then it generates a smaller file of plaintext passwords, which the import
+ * hashes at PasswordHasher.IMPORT_ITERATIONS, and imports that.  The two figures differ by the
+ * cost of hashing, which bounds an import of plaintext passwords.</p>
+ *
+ * <p> Run it with the same class path as the application:
+ * <code>java database.ImportBenchmark [hashedUsers] [plaintextUsers]</code>.  It prints, for each
+ * file, the accounts created, the seconds taken, and the accounts created per second.</p>
+ *
+ */
+
+public class ImportBenchmark {
+
+	private static final String URL = "jdbc:h2:mem:import;DB_CLOSE_DELAY=-1";
+
+	/*******
+	 * <p> Method: main </p>
+	 *
+	 * <p> Description: Build the test database, then import both files and print the rates.</p>
+	 *
+	 * @param args optionally, the number of users with hashed passwords (default 100000) and
+	 * 	with plaintext passwords (default 5000)
+	 *
+	 * @throws Exception when the test database cannot be built
+	 */
+
+	public static void main(String[] args) throws Exception {
+		int hashed = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		int plaintext = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+		Database database = new Database(URL, 4);
+		database.connectToDatabase();
+		try {
+			database.awaitPasswordHashCost();
+			// Every exported student has the same hash, so building the file does not hash
+			String hash = database.hashPassword("Password1!");
+			importFile(database, "students", 5000, "Password1!");		// warm up the JIT
+			System.out.printf("Processors: %d%n", Runtime.getRuntime().availableProcessors());
+			System.out.printf("%-22s %10s %10s %12s%n", "file", "created", "seconds", "per second");
+			report("hashed passwords", importFile(database, "exported", hashed, hash), hashed);
+			report("plaintext passwords", importFile(database, "typed", plaintext, "Password1!"),
+					plaintext);
+		} finally {
+			database.closeConnection();
+		}
+	}
+
+	// Import a generated file; returns the elapsed time in nanoseconds
+	private static long importFile(Database database, String prefix, int users, String password) {
+		StringBuilder csv = new StringBuilder("userName,password,firstName,middleName,lastName,"
+				+ "preferredFirstName,emailAddress,newRole1\n");
+		for (int i = 0; i < users; i++) {
+			csv.append(prefix).append(i).append(',').append(password).append(",Ann,Lee,Smith,Ann,")
+					.append(prefix).append(i).append("@example.edu,true\n");
+		}
+		long start = System.nanoTime();
+		BulkResult<String> result = database.importUsers(new StringReader(csv.toString()),
+				DataFormat.CSV, null);
+		long elapsed = System.nanoTime() - start;
+		if (result.getCreated().size() != users)
+			throw new IllegalStateException(result.getErrors().size() + " rows of " + prefix + " failed");
+		return elapsed;
+	}
+
+	private static void report(String file, long nanos, int users) {
+		System.out.printf("%-22s %10d %10.1f %12.0f%n", file, users, nanos / 1e9, users / (nanos / 1e9));
+	}
+}
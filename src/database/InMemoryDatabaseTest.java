@@ -0,0 +1,47 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+
+/**
+ * The setup the {@link Database} tests share: each test gets a fresh in-memory database, hashing
+ * passwords at the lowest cost, that is closed after it.  Tests that check rows past Database and
+ * its caches open their own connection with {@link #connect()}.
+ */
+public abstract class InMemoryDatabaseTest {
+
+    /** The connection pool size; smaller than the number of threads the stress tests run */
+    protected static final int POOL_SIZE = 4;
+
+    protected String url;
+    protected Database db;
+
+    /**
+     * Opens a fresh in-memory database for each test.
+     *
+     * @throws Exception if the database cannot be created
+     */
+    @Before
+    public void setUp() throws Exception {
+        url = "jdbc:h2:mem:" + getClass().getSimpleName() + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        db = new Database(url, POOL_SIZE, 1);
+        db.connectToDatabase();
+    }
+
+    /**
+     * Closes the pooled connections after each test.
+     */
+    @After
+    public void tearDown() {
+        db.closeConnection();
+    }
+
+    // A connection of the test's own to its database, outside the pool
+    protected Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+}
@@ -0,0 +1,40 @@
+package database;
+
+/*******
+ * <p> Title: Invitation Class. </p>
+ *
+ * <p> Description: An invitation code issued for an email address and the role it grants.</p>
+ *
+ */
+
+public class Invitation {
+
+	private final String emailAddress;
+	private final String role;
+	private final String code;
+
+	/*******
+	 * <p> Method: Invitation </p>
+	 *
+	 * <p> Description: Create an invitation.</p>
+	 *
+	 * @param emailAddress the email address invited
+	 * @param role the role the invitation grants
+	 * @param code the 6-character invitation code
+	 */
+
+	public Invitation(String emailAddress, String role, String code) {
+		this.emailAddress = emailAddress;
+		this.role = role;
+		this.code = code;
+	}
+
+	/** @return the email address invited */
+	public String getEmailAddress() { return emailAddress; }
+
+	/** @return the role the invitation grants */
+	public String getRole() { return role; }
+
+	/** @return the invitation code */
+	public String getCode() { return code; }
+}
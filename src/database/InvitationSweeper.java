@@ -0,0 +1,112 @@
+package database;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******
+ * <p> Title: InvitationSweeper Class. </p>
+ *
+ * <p> Description: A background task that deletes expired invitation codes.  Every few minutes it
+ * removes the expired rows in chunks of a bounded size, each chunk in its own short transaction,
+ * so a large backlog of expired codes never holds a long lock on InvitationCodes or a pooled
+ * connection for long.  It runs on its own daemon thread, never on the JavaFX Application
+ * Thread.</p>
+ *
+ * <p> The counters record how many rows have been purged and how many sweeps have run since the
+ * database was connected.</p>
+ *
+ */
+
+final class InvitationSweeper {
+
+	/*
+	 * Deletes at most limit expired invitations.  Returns the number deleted, or -1 if the delete
+	 * failed.
+	 */
+
+	@FunctionalInterface
+	interface Purge {
+		int deleteExpired(int limit);
+	}
+
+	// How long close() waits for a sweep in progress
+	private static final long CLOSE_WAIT_MILLIS = 5_000;
+
+	private final Purge purge;
+	private final int chunkSize;
+	private final ScheduledExecutorService timer;
+	private final AtomicLong rowsPurged = new AtomicLong();
+	private final AtomicLong sweeps = new AtomicLong();
+
+	/*******
+	 * <p> Method: InvitationSweeper </p>
+	 *
+	 * <p> Description: Create the sweeper and schedule its sweeps.</p>
+	 *
+	 * @param purge deletes one chunk of expired invitations
+	 * @param chunkSize the most rows deleted per transaction
+	 * @param periodMillis the time between sweeps; the first sweep runs after one period
+	 */
+
+	InvitationSweeper(Purge purge, int chunkSize, long periodMillis) {
+		this.purge = purge;
+		this.chunkSize = chunkSize;
+		this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "invitation-sweeper");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.scheduleWithFixedDelay(this::sweep, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/*******
+	 * <p> Method: sweep </p>
+	 *
+	 * <p> Description: Delete every expired invitation, one chunk at a time.  Stops early if a
+	 * chunk fails; the next sweep picks up where it left off.</p>
+	 *
+	 * @return the number of rows deleted by this sweep
+	 */
+
+	synchronized int sweep() {
+		int total = 0;
+		while (true) {
+			int deleted = purge.deleteExpired(chunkSize);
+			if (deleted > 0) {
+				total += deleted;
+				rowsPurged.addAndGet(deleted);
+			}
+			if (deleted < chunkSize || timer.isShutdown()) break;	// the last chunk, or closing
+		}
+		sweeps.incrementAndGet();
+		return total;
+	}
+
+	/** @return the number of expired invitations deleted since the sweeper started */
+	long getRowsPurged() {
+		return rowsPurged.get();
+	}
+
+	/** @return the number of sweeps run since the sweeper started */
+	long getSweeps() {
+		return sweeps.get();
+	}
+
+	/*******
+	 * <p> Method: close </p>
+	 *
+	 * <p> Description: Stop the sweeps.  A sweep in progress stops after its current chunk, which
+	 * is waited for so the caller can then close the connection pool.</p>
+	 */
+
+	void close() {
+		timer.shutdown();
+		try {
+			timer.awaitTermination(CLOSE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link InvitationSweeper}: a sweep deletes the expired invitation codes in chunks and
+ * leaves the live ones.
+ */
+public class InvitationSweeperTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that a sweep deletes every expired invitation, in chunks, and leaves the live ones.
+     *
+     * @throws Exception if the expired invitations cannot be inserted
+     */
+    @Test
+    public void testSweepPurgesExpiredInvitationsInChunks() throws Exception {
+        int expired = Database.INVITATION_SWEEP_CHUNK * 2 + 7;
+        try (Connection connection = connect();
+             Statement st = connection.createStatement()) {
+            st.executeUpdate("INSERT INTO InvitationCodes (code, emailAddress, role, expiresAt) "
+                    + "SELECT 'x' || X, 'old' || X || '@example.com', 'Student', "
+                    + "DATEADD(MINUTE, -1, CURRENT_TIMESTAMP) FROM SYSTEM_RANGE(1, " + expired + ")");
+        }
+        db.generateInvitationCode("new@example.com", "Student");
+
+        assertEquals(expired, db.sweepExpiredInvitations());
+        assertEquals(expired, db.getInvitationsPurged());
+        assertEquals(1, db.getInvitationSweeps());
+        assertEquals(1, db.getNumberOfInvitations());
+        assertTrue(db.emailaddressHasBeenUsed("new@example.com"));
+        assertEquals(0, db.sweepExpiredInvitations());
+    }
+}
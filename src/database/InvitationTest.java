@@ -0,0 +1,95 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import entityClasses.User;
+
+/**
+ * Tests for invitations: an address matches an invitation in any case, and a roster invites each
+ * valid, new address once and reports every other row with its line.
+ */
+public class InvitationTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that a roster invites each valid, new address once and reports every other row,
+     * matching repeated, invited, and registered addresses in any case.
+     *
+     * @throws Exception if the existing account cannot be registered
+     */
+    @Test
+    public void testInviteRosterSkipsInvalidAndRepeatedAddresses() throws Exception {
+        db.generateInvitationCode("taken@example.edu", "Student");
+        db.register(new User("member", "pw", "A", "", "Member", "", "member@example.edu",
+                false, true, false), new UserSession());
+        StringBuilder roster = new StringBuilder("Name,Email\n");
+        for (int i = 0; i < 300; i++) roster.append("Student ").append(i).append(",s").append(i).append("@example.edu\n");
+        roster.append("Bad,not-an-email\n");
+        roster.append("Again,S7@example.edu\n");
+        roster.append("Taken,Taken@Example.EDU\n");
+        roster.append("Member,MEMBER@example.edu\n");
+
+        List<Integer> progress = new ArrayList<>();
+        BulkResult<Invitation> result = db.inviteRoster(new StringReader(roster.toString()),
+                "Student", Database.ROSTER_INVITATION_TTL_MINUTES, progress::add);
+
+        assertEquals(304, result.getRowsRead());
+        assertEquals(300, result.getCreated().size());
+        assertEquals(4, result.getErrors().size());
+        assertEquals(302, result.getErrors().get(0).getLine());
+        assertEquals("An invitation has already been sent to this email address.",
+                result.getErrors().get(2).getMessage());
+        assertEquals("This email address already belongs to an account.",
+                result.getErrors().get(3).getMessage());
+        assertEquals(Integer.valueOf(304), progress.get(progress.size() - 1));
+        assertEquals(301, db.getNumberOfInvitations());
+        Set<String> codes = new TreeSet<>();
+        for (Invitation invitation : result.getCreated()) {
+            codes.add(invitation.getCode());
+            assertEquals(invitation.getEmailAddress(), db.getEmailAddressUsingCode(invitation.getCode()));
+        }
+        assertEquals(300, codes.size());
+    }
+
+    /**
+     * Tests that an invited address is found in any case, through the lower-case email index,
+     * and stops being found once the invitation has expired and been purged.
+     *
+     * @throws Exception if the invitation cannot be expired or the plan read
+     */
+    @Test
+    public void testInvitedAddressMatchesInAnyCase() throws Exception {
+        db.generateInvitationCode("Mixed.Case@Example.edu", "Student");
+        assertTrue(db.emailaddressHasBeenUsed("mixed.case@example.edu"));
+        assertTrue(db.emailaddressHasBeenUsed("MIXED.CASE@EXAMPLE.EDU"));
+        assertFalse(db.emailaddressHasBeenUsed("other@example.edu"));
+
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("EXPLAIN SELECT 1 FROM InvitationCodes "
+                    + "WHERE emailKey = LOWER('A@b.edu') AND expiresAt > CURRENT_TIMESTAMP")) {
+                assertTrue(rs.next());
+                assertTrue(rs.getString(1).toUpperCase().contains("IDX_INVITATIONS_EMAIL_KEY"));
+            }
+            statement.executeUpdate("UPDATE InvitationCodes SET expiresAt = DATEADD(MINUTE, -1, CURRENT_TIMESTAMP)");
+        }
+        assertFalse(db.emailaddressHasBeenUsed("mixed.case@example.edu"));
+        db.purgeExpiredInvitationsForEmail("MIXED.case@example.edu");
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM InvitationCodes")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+}
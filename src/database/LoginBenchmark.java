@@ -0,0 +1,142 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import entityClasses.Role;
+import entityClasses.User;
+
+/*******
+ * <p> Title: LoginBenchmark Class. </p>
+ *
+ * <p> Description: A stand-alone program that measures login throughput when many sessions sign
+ * in at once, as at the start of an exam.  It builds a private in-memory database through
+ * Database, fills it with generated students, and has a number of threads, each with its own
+ * UserSession, log in distinct users as fast as they can, first along the old path
+ * (getUserAccountDetails, then loginRole1, which reads the row again to verify the password)
+ * and then through authenticate.  Every user logs in once per pass, so most lookups miss the
+ * profile cache, which is cleared between the passes.  Passwords are hashed at the lowest cost
+ * PasswordHasher allows; PasswordHashBenchmark measures logins at the calibrated cost.</p>
+ *
+ * <p> Run it with the same class path as the application:
+ * <code>java database.LoginBenchmark [users] [sessions]</code>.  It prints the logins per second
+ * and the median and 99th percentile latency of each path, in microseconds.</p>
+ *
+ */
+
+public class LoginBenchmark {
+
+	private static final String URL = "jdbc:h2:mem:login;DB_CLOSE_DELAY=-1";
+	private static final String PASSWORD = "Password1!";
+
+	// One way of logging in; returns true if the login succeeded
+	private interface Login {
+		boolean run(Database database, String username, String password, UserSession session);
+	}
+
+	/*******
+	 * <p> Method: main </p>
+	 *
+	 * <p> Description: Build the test database, then print the throughput and latency of both
+	 * login paths.</p>
+	 *
+	 * @param args optionally, the number of users (default 5000) and of concurrent sessions
+	 * 	(default 16)
+	 *
+	 * @throws Exception when the test database cannot be built or a login thread fails
+	 */
+
+	public static void main(String[] args) throws Exception {
+		int users = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+		Database database = new Database(URL, sessions, 1);
+		database.connectToDatabase();
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+			populate(connection, users, database.hashPassword(PASSWORD));
+			System.out.println("Users: " + users + ", concurrent sessions: " + sessions);
+
+			Login old = (db, username, password, session) -> {
+				if (!db.getUserAccountDetails(username, session)) return false;
+				return db.loginRole1(new User(username, password, session.getFirstName(),
+						session.getMiddleName(), session.getLastName(), session.getPreferredFirstName(),
+						session.getEmailAddress(), session.getAdminRole(), session.getNewRole1(),
+						session.getNewRole2()));
+			};
+			Login authenticate = (db, username, password, session) -> {
+				LoginResult login = db.authenticate(username, password, session);
+				return login != null && !login.isBusy();
+			};
+
+			run(database, users, sessions, old);				// warm up the JIT
+			run(database, users, sessions, authenticate);
+			System.out.printf("%-28s %12s %12s %12s%n", "", "logins/s", "median us", "p99 us");
+			report("getUserAccountDetails+login", run(database, users, sessions, old));
+			report("authenticate", run(database, users, sessions, authenticate));
+		} finally {
+			database.closeConnection();
+		}
+	}
+
+	/*
+	 * Log every user in once, spread over the sessions, all starting together.  Returns the
+	 * elapsed time in nanoseconds followed by every login's latency in nanoseconds.
+	 */
+
+	private static long[] run(Database database, int users, int sessions, Login login) throws Exception {
+		database.clearProfileCache();
+		long[] latencies = new long[users + 1];
+		ExecutorService workers = Executors.newFixedThreadPool(sessions);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> done = new ArrayList<>();
+		for (int s = 0; s < sessions; s++) {
+			int first = s;
+			done.add(workers.submit(() -> {
+				UserSession session = new UserSession();
+				start.await();
+				for (int i = first; i < users; i += sessions) {
+					long t = System.nanoTime();
+					if (!login.run(database, "student" + i, PASSWORD, session))
+						throw new IllegalStateException("Login failed for student" + i);
+					latencies[i + 1] = System.nanoTime() - t;
+				}
+				return null;
+			}));
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Future<?> f : done) f.get();
+		latencies[0] = System.nanoTime() - begin;
+		workers.shutdown();
+		return latencies;
+	}
+
+	private static void report(String name, long[] run) {
+		long[] latencies = Arrays.copyOfRange(run, 1, run.length);
+		Arrays.sort(latencies);
+		System.out.printf("%-28s %12d %12d %12d%n", name,
+				Math.round(latencies.length / (run[0] / 1e9)),
+				latencies[latencies.length / 2] / 1000,
+				latencies[(int) (latencies.length * 0.99)] / 1000);
+	}
+
+	// Every student gets the same hash, so building the database does not hash once per user
+	private static void populate(Connection connection, int users, String hash) throws SQLException {
+		try (Statement st = connection.createStatement()) {
+			st.executeUpdate("INSERT INTO userDB (userName, password, firstName, middleName, lastName, "
+					+ "preferredFirstName, emailAddress, roles) "
+					+ "SELECT 'student' || X, '" + hash + "', 'First', 'M', 'Last', 'First', "
+					+ "'s' || X || '@example.edu', " + Role.STUDENT.bit() + " FROM SYSTEM_RANGE(0, "
+					+ (users - 1) + ")");
+		}
+	}
+}
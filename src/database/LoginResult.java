@@ -0,0 +1,66 @@
+package database;
+
+import entityClasses.Role;
+import entityClasses.User;
+
+/*******
+ * <p> Title: LoginResult Class. </p>
+ *
+ * <p> Description: A successful Database.authenticate: the user's profile, the roles the user
+ * plays as a bitmask, and whether the user signed in with the account password or with a
+ * one-time password issued by an admin (in which case the password must be reset before the
+ * user goes on).</p>
+ *
+ * <p> The one other result is BUSY: the login could not be checked because the user's row could
+ * not be read, or the password hasher was refusing work (too many logins at once, or the
+ * database closing).  It says nothing about
+ * whether the username or password was right, so the page asks the user to try again.</p>
+ *
+ */
+
+public class LoginResult {
+
+	/** The login could not be checked now; the user should try again */
+	public static final LoginResult BUSY = new LoginResult(null, 0, false);
+
+	private final User user;
+	private final int roles;
+	private final boolean oneTimePassword;
+
+	/*******
+	 * <p> Method: LoginResult </p>
+	 *
+	 * <p> Description: Create a result.</p>
+	 *
+	 * @param user the user's profile
+	 * @param roles the user's roles, as a Role bitmask
+	 * @param oneTimePassword true if the user signed in with a one-time password
+	 */
+
+	LoginResult(User user, int roles, boolean oneTimePassword) {
+		this.user = user;
+		this.roles = roles;
+		this.oneTimePassword = oneTimePassword;
+	}
+
+	/** @return true if the login could not be checked and should be tried again */
+	public boolean isBusy() { return this == BUSY; }
+
+	/** @return the user's profile, or null if the result is BUSY */
+	public User getUser() { return user; }
+
+	/** @return the roles the user plays, as a Role bitmask */
+	public int getRoles() { return roles; }
+
+	/** @return the number of roles the user plays */
+	public int getNumberOfRoles() { return Role.count(roles); }
+
+	/**
+	 * @param role a role
+	 * @return true if the user plays the role
+	 */
+	public boolean hasRole(Role role) { return role.in(roles); }
+
+	/** @return true if the user signed in with a one-time password rather than the password */
+	public boolean isOneTimePassword() { return oneTimePassword; }
+}
@@ -0,0 +1,180 @@
+package database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/*******
+ * <p> Title: OtpStore Class. </p>
+ *
+ * <p> Description: The one-time passwords that admins have issued and that have not yet been
+ * used.  Each OTP is valid for a fixed time to live and can be used once.  The store holds at
+ * most a fixed number of OTPs; issuing one more drops the oldest outstanding OTP.</p>
+ *
+ * <p> Checking and consuming an OTP never lock.  The OTPs are kept in a ConcurrentHashMap
+ * keyed by username, and every issued OTP is an entry object of its own, so consuming one is a
+ * single remove(username, entry): of several threads presenting the same OTP at once exactly one
+ * succeeds, and an OTP that an admin has just replaced can no longer be consumed.</p>
+ *
+ * <p> Every issued entry also waits in a DelayQueue ordered by expiry.  Issuing an OTP takes the
+ * expired entries off it and drops them from the map, so the store needs no timer thread; an
+ * expired OTP that has not been dropped yet is refused all the same.  A consumed entry stays in
+ * the queue until it expires or is evicted, when dropping it again does nothing.</p>
+ *
+ */
+
+final class OtpStore {
+
+	// One generator for every issue; SecureRandom is safe to share between threads
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final long ttlNanos;
+	private final int maxActive;
+	private final ConcurrentHashMap<String,Entry> active = new ConcurrentHashMap<>();
+	private final DelayQueue<Entry> expiries = new DelayQueue<>();
+
+	/*
+	 * One issued OTP.  Entries compare by identity, so remove(username, entry) only removes this
+	 * issue of the user's OTP.
+	 */
+
+	private static final class Entry implements Delayed {
+		final String username;
+		final String otp;
+		final long expiresAt;			// System.nanoTime() at which the OTP stops being valid
+
+		Entry(String username, String otp, long expiresAt) {
+			this.username = username;
+			this.otp = otp;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean expired(long now) {
+			return now - expiresAt >= 0;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(expiresAt, ((Entry) other).expiresAt);
+		}
+	}
+
+	/*******
+	 * <p> Method: OtpStore </p>
+	 *
+	 * <p> Description: Create an empty store.</p>
+	 *
+	 * @param ttl how long an OTP stays valid
+	 * @param unit the unit of ttl
+	 * @param maxActive the most OTPs outstanding at once
+	 */
+
+	OtpStore(long ttl, TimeUnit unit, int maxActive) {
+		this.ttlNanos = unit.toNanos(ttl);
+		this.maxActive = maxActive;
+	}
+
+	/*******
+	 * <p> Method: issue </p>
+	 *
+	 * <p> Description: Create a new 6-digit OTP for a user, replacing any OTP the user already
+	 * has.</p>
+	 *
+	 * @param username the user the OTP is for
+	 *
+	 * @return the OTP
+	 */
+
+	String issue(String username) {
+		dropExpired();
+		Entry entry = new Entry(username, String.format("%06d", RANDOM.nextInt(1_000_000)),
+				System.nanoTime() + ttlNanos);
+		Entry replaced = active.put(username, entry);
+		if (replaced != null) expiries.remove(replaced);
+		expiries.add(entry);
+		// Every held OTP is in the queue, so bounding the queue bounds the store.  The entry
+		// nearest to expiry is the oldest one, since every OTP lives as long.
+		while (expiries.size() > maxActive) {
+			Entry oldest = expiries.peek();
+			if (oldest == null || oldest == entry) break;
+			if (expiries.remove(oldest)) active.remove(oldest.username, oldest);
+		}
+		return entry.otp;
+	}
+
+	/*******
+	 * <p> Method: consume </p>
+	 *
+	 * <p> Description: Use a user's OTP.  Succeeds once for an OTP that matches and has not
+	 * expired; the OTP is then gone.</p>
+	 *
+	 * @param username the user presenting the OTP
+	 * @param otp the OTP presented
+	 *
+	 * @return true if the OTP was valid and has now been used
+	 */
+
+	boolean consume(String username, String otp) {
+		if (username == null || otp == null) return false;
+		Entry entry = active.get(username);
+		if (entry == null) return false;
+		if (entry.expired(System.nanoTime())) {
+			drop(entry);
+			return false;
+		}
+		if (!MessageDigest.isEqual(entry.otp.getBytes(StandardCharsets.UTF_8),
+				otp.getBytes(StandardCharsets.UTF_8))) return false;
+		return active.remove(username, entry);		// false if another caller used it first
+	}
+
+	/*******
+	 * <p> Method: hasActive </p>
+	 *
+	 * <p> Description: Tell whether a user has an OTP that can still be used.</p>
+	 *
+	 * @param username the user
+	 *
+	 * @return true if the user has an unexpired, unused OTP
+	 */
+
+	boolean hasActive(String username) {
+		Entry entry = username == null ? null : active.get(username);
+		return entry != null && !entry.expired(System.nanoTime());
+	}
+
+	/*******
+	 * <p> Method: revoke </p>
+	 *
+	 * <p> Description: Drop a user's OTP, if any.</p>
+	 *
+	 * @param username the user
+	 */
+
+	void revoke(String username) {
+		Entry entry = username == null ? null : active.remove(username);
+		if (entry != null) expiries.remove(entry);
+	}
+
+	/** @return the number of OTPs held, including expired ones not yet dropped */
+	int size() {
+		return active.size();
+	}
+
+	// Take every expired entry off the queue and out of the map
+	private void dropExpired() {
+		for (Entry e = expiries.poll(); e != null; e = expiries.poll()) active.remove(e.username, e);
+	}
+
+	private void drop(Entry entry) {
+		active.remove(entry.username, entry);
+	}
+}
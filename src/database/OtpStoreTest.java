@@ -0,0 +1,64 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import entityClasses.User;
+
+/**
+ * Tests for {@link OtpStore}: a one-time password is consumed by one login only, however many
+ * present it at once, and passwords expire and are bounded in number.
+ */
+public class OtpStoreTest extends InMemoryDatabaseTest {
+
+    private static final int THREADS = 8;
+
+    /**
+     * Tests that of many sessions presenting the same one-time password at once exactly one
+     * consumes it, and that OTPs expire and are bounded in number.
+     *
+     * @throws Exception if a session fails
+     */
+    @Test
+    public void testOneTimePasswordIsConsumedOnceAndExpires() throws Exception {
+        db.register(new User("admin", "pw", "A", "", "Admin", "", "admin@example.com",
+                true, false, false), new UserSession());
+        String otp = db.generateOneTimePasswordFor("admin");
+        assertTrue(db.hasActiveOtp("admin"));
+        assertFalse(db.checkAndConsumeOtp("admin", otp.equals("000000") ? "000001" : "000000"));
+
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            attempts.add(workers.submit(() -> {
+                start.await();
+                return db.checkAndConsumeOtp("admin", otp);
+            }));
+        }
+        start.countDown();
+        int consumed = 0;
+        for (Future<Boolean> attempt : attempts) if (attempt.get()) consumed++;
+        workers.shutdown();
+        assertEquals(1, consumed);
+        assertFalse(db.hasActiveOtp("admin"));
+
+        OtpStore shortLived = new OtpStore(20, TimeUnit.MILLISECONDS, 3);
+        String expiring = shortLived.issue("u0");
+        Thread.sleep(40);
+        assertFalse(shortLived.consume("u0", expiring));
+        for (int i = 1; i <= 5; i++) shortLived.issue("u" + i);
+        assertEquals(3, shortLived.size());
+        assertFalse(shortLived.hasActive("u1"));
+        assertTrue(shortLived.hasActive("u5"));
+    }
+}
@@ -0,0 +1,149 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import entityClasses.Role;
+
+/*******
+ * <p> Title: PasswordHashBenchmark Class. </p>
+ *
+ * <p> Description: A stand-alone program that measures how many logins per second, and per
+ * processor, this machine sustains with passwords hashed at the calibrated cost.  It builds a
+ * private in-memory database through Database, whose PasswordHasher calibrates one hash to
+ * Database.PASSWORD_HASH_TARGET_MILLIS, gives a set of generated students a hashed password, and
+ * logs them in for a while so the JIT and the calibration settle.  It then gives the students a
+ * hash at the settled cost and has first one thread and then more threads than there are
+ * processors call authenticate in a loop for a fixed time.  The profiles are cached by then, so
+ * the figures are those of the hashing, which is what bounds logins once the database lookups
+ * are cheap.</p>
+ *
+ * <p> Run it with the same class path as the application:
+ * <code>java database.PasswordHashBenchmark [seconds] [users]</code>.  It prints the cost
+ * chosen, then for each thread count the logins per second, the logins per second per processor,
+ * and the median and 99th percentile latency in milliseconds.</p>
+ *
+ */
+
+public class PasswordHashBenchmark {
+
+	private static final String URL = "jdbc:h2:mem:hashing;DB_CLOSE_DELAY=-1";
+	private static final String PASSWORD = "Password1!";
+
+	/*******
+	 * <p> Method: main </p>
+	 *
+	 * <p> Description: Build the test database, then print the sustained login rate with one
+	 * thread and with twice as many threads as processors.</p>
+	 *
+	 * @param args optionally, the seconds each run lasts (default 5) and the number of users
+	 * 	(default 200)
+	 *
+	 * @throws Exception when the test database cannot be built or a login thread fails
+	 */
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int users = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int processors = Runtime.getRuntime().availableProcessors();
+
+		Database database = new Database(URL, 2 * processors);
+		database.connectToDatabase();
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+			database.awaitPasswordHashCost();
+			populate(connection, users, database.hashPassword(PASSWORD));
+			run(database, users, 1, seconds);				// warm up the JIT and the cache
+
+			// The warm-up may have raised the cost; measure logins at the settled one
+			int iterations = database.awaitPasswordHashCost();
+			setPasswords(connection, database.hashPassword(PASSWORD));
+			database.clearProfileCache();
+			run(database, users, 1, 1);
+			System.out.printf("Processors: %d, users: %d, PBKDF2 iterations: %d (target %d ms)%n",
+					processors, users, iterations, Database.PASSWORD_HASH_TARGET_MILLIS);
+			System.out.printf("%-10s %12s %14s %12s %12s%n", "threads", "logins/s", "per processor",
+					"median ms", "p99 ms");
+			for (int threads : new int[] { 1, 2 * processors }) {
+				report(threads, processors, run(database, users, threads, seconds));
+			}
+		} finally {
+			database.closeConnection();
+		}
+	}
+
+	/*
+	 * Have the threads log users in, round robin, for the given time.  Returns the elapsed time
+	 * in nanoseconds followed by every login's latency in nanoseconds.
+	 */
+
+	private static long[] run(Database database, int users, int threads, int seconds) throws Exception {
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<long[]>> done = new ArrayList<>();
+		for (int s = 0; s < threads; s++) {
+			int first = s;
+			done.add(workers.submit(() -> {
+				long[] latencies = new long[1024];
+				int n = 0;
+				start.await();
+				long end = System.nanoTime() + seconds * 1_000_000_000L;
+				for (int i = first; System.nanoTime() < end; i += threads) {
+					long t = System.nanoTime();
+					LoginResult login = database.authenticate("student" + (i % users), PASSWORD, null);
+					if (login == null || login.isBusy())
+						throw new IllegalStateException("Login failed for student" + (i % users));
+					if (n == latencies.length) latencies = Arrays.copyOf(latencies, 2 * n);
+					latencies[n++] = System.nanoTime() - t;
+				}
+				return Arrays.copyOf(latencies, n);
+			}));
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		long[] all = { 0 };
+		for (Future<long[]> f : done) {
+			long[] latencies = f.get();
+			int n = all.length;
+			all = Arrays.copyOf(all, n + latencies.length);
+			System.arraycopy(latencies, 0, all, n, latencies.length);
+		}
+		all[0] = System.nanoTime() - begin;
+		workers.shutdown();
+		return all;
+	}
+
+	private static void report(int threads, int processors, long[] run) {
+		long[] latencies = Arrays.copyOfRange(run, 1, run.length);
+		Arrays.sort(latencies);
+		double perSecond = latencies.length / (run[0] / 1e9);
+		System.out.printf("%-10d %12.1f %14.1f %12.1f %12.1f%n", threads, perSecond,
+				perSecond / processors, latencies[latencies.length / 2] / 1e6,
+				latencies[(int) (latencies.length * 0.99)] / 1e6);
+	}
+
+	// Every student gets the same hash, so building the database does not hash once per user
+	private static void populate(Connection connection, int users, String hash) throws SQLException {
+		try (Statement st = connection.createStatement()) {
+			st.executeUpdate("INSERT INTO userDB (userName, password, firstName, middleName, lastName, "
+					+ "preferredFirstName, emailAddress, roles) "
+					+ "SELECT 'student' || X, '" + hash + "', 'First', 'M', 'Last', 'First', "
+					+ "'s' || X || '@example.edu', " + Role.STUDENT.bit() + " FROM SYSTEM_RANGE(0, "
+					+ (users - 1) + ")");
+		}
+	}
+
+	private static void setPasswords(Connection connection, String hash) throws SQLException {
+		try (Statement st = connection.createStatement()) {
+			st.executeUpdate("UPDATE userDB SET password = '" + hash + "'");
+		}
+	}
+}
@@ -0,0 +1,392 @@
+package database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/*******
+ * <p> Title: PasswordHasher Class. </p>
+ *
+ * <p> Description: Hashes and verifies passwords with PBKDF2 (HMAC-SHA256) and a random salt per
+ * password.  A stored hash reads <code>pbkdf2-sha256$iterations$salt$hash</code>, with the salt
+ * and hash in Base64, so every hash carries the cost it was made with and is verified at that
+ * cost.  Anything else in the password column is a legacy plaintext password, which is still
+ * accepted (compared in constant time) until the user's next login replaces it with a hash.</p>
+ *
+ * <p> The iteration count is calibrated to the target time on this machine.  Every hash the
+ * hasher computes is timed, and the count is chosen from the fastest time per iteration seen so
+ * far.  The first hashes run before the JIT has compiled the HMAC code and can be ten times
+ * slower than later ones, so the estimate only ever improves: the count starts at
+ * MIN_ITERATIONS and is raised whenever the hashes get fast enough to afford at least a tenth
+ * more.  When the hasher is created, a background thread times probe hashes until the fastest
+ * one has not improved for CALIBRATION_ROUNDS times the target, or for CALIBRATION_MILLIS at
+ * most, so a slow JIT on a machine with few processors delays the first stored hash by a second
+ * or two and no more.  No hash is stored until calibration has finished, so passwords stored
+ * during warm-up are not left at a low cost, but logging in does not wait for it: verify uses
+ * the cost in the stored hash, verifyNone the current count, and needsRehash answers false
+ * until calibration is done, leaving the rehash to a later login.  A hash whose cost is below
+ * REHASH_FRACTION of the current count reports needsRehash and is replaced at the user's next
+ * login; the small raises that follow calibration, and the differences between one start of the
+ * application and the next, do not send every user through a second hash.</p>
+ *
+ * <p> Hashing is deliberately slow, so it runs on a bounded pool with one daemon thread per
+ * processor and a bounded queue.  A burst of logins therefore queues for the processors instead
+ * of starving everything else, and a burst larger than the queue is refused rather than
+ * building an unbounded backlog.  Callers block until their hash is done, so the GUI calls the
+ * methods that hash away from the JavaFX Application Thread.  A bulk import instead hands its
+ * passwords to hashAll, which keeps no more of them in flight than there are threads, so the
+ * import waits for the pool rather than being refused and logins still get their turn.</p>
+ *
+ */
+
+final class PasswordHasher {
+
+	/** The prefix of every hash this class makes */
+	static final String PREFIX = "pbkdf2-sha256$";
+
+	/** The fewest iterations calibration will choose, however slow the machine */
+	static final int MIN_ITERATIONS = 10_000;
+
+	/** The cost of the hashes hashAll makes for imported passwords */
+	static final int IMPORT_ITERATIONS = MIN_ITERATIONS;
+
+	/** A stored hash is replaced once its cost is below this fraction of the current count */
+	static final double REHASH_FRACTION = 0.5;
+
+	private static final int MAX_ITERATIONS = 10_000_000;
+	private static final int PROBE_ITERATIONS = 10_000;
+	private static final int CALIBRATION_ROUNDS = 20;
+	private static final long CALIBRATION_MILLIS = 1_500;
+	private static final int SALT_BYTES = 16;
+	private static final int KEY_BITS = 256;
+	private static final int QUEUE_SIZE = 1024;
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final long targetNanos;
+	private volatile int iterations = MIN_ITERATIONS;
+	private double fastestPerIteration = Double.MAX_VALUE;	// nanoseconds, guarded by this
+	private final CountDownLatch calibrated = new CountDownLatch(1);
+	private final ThreadPoolExecutor workers;
+
+	/*******
+	 * <p> Method: PasswordHasher </p>
+	 *
+	 * <p> Description: Start the worker threads and the calibration of the cost.</p>
+	 *
+	 * @param targetMillis how long one hash should take on this machine
+	 */
+
+	PasswordHasher(long targetMillis) {
+		this.targetNanos = targetMillis * 1_000_000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		AtomicInteger count = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+					Thread t = new Thread(r, "password-hasher-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		Thread calibration = new Thread(() -> {
+			try {
+				calibrate();
+			} finally {
+				calibrated.countDown();
+			}
+		}, "password-hasher-calibration");
+		calibration.setDaemon(true);
+		calibration.start();
+	}
+
+	/*******
+	 * <p> Method: hash </p>
+	 *
+	 * <p> Description: Hash a password with a new salt at the current cost, once the startup
+	 * calibration has finished.</p>
+	 *
+	 * @param password the password
+	 *
+	 * @return the hash, ready to store
+	 *
+	 * @throws IllegalStateException when the pool is full or closed, or the caller is interrupted
+	 */
+
+	String hash(String password) {
+		int cost = calibratedIterations();
+		return run(() -> encode(password, cost));
+	}
+
+	/*******
+	 * <p> Method: hashAll </p>
+	 *
+	 * <p> Description: Hash many passwords at an explicit cost, such as IMPORT_ITERATIONS for a
+	 * bulk import.  At most one password per worker thread is queued at a time; when the queue is
+	 * full of other work, the caller waits and tries again instead of failing.  Passwords hashed
+	 * below REHASH_FRACTION of the calibrated cost are replaced at the user's first login.</p>
+	 *
+	 * @param passwords the passwords
+	 * @param cost the number of PBKDF2 iterations
+	 *
+	 * @return the hashes, in the same order
+	 *
+	 * @throws IllegalStateException when the pool is closed or the caller is interrupted
+	 */
+
+	String[] hashAll(List<String> passwords, int cost) {
+		String[] hashes = new String[passwords.size()];
+		Semaphore slots = new Semaphore(workers.getMaximumPoolSize());
+		List<Future<?>> pending = new ArrayList<>(hashes.length);
+		try {
+			for (int i = 0; i < hashes.length; i++) {
+				int n = i;
+				slots.acquire();
+				Runnable task = () -> {
+					try {
+						hashes[n] = encode(passwords.get(n), cost);
+					} finally {
+						slots.release();
+					}
+				};
+				while (true) {
+					try {
+						pending.add(workers.submit(task));
+						break;
+					} catch (RejectedExecutionException e) {
+						if (workers.isShutdown()) throw new IllegalStateException("The password hasher is closed", e);
+						Thread.sleep(1);		// the queue is full of logins; let them drain
+					}
+				}
+			}
+			for (Future<?> f : pending) f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while hashing passwords", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Password hashing failed", e.getCause());
+		}
+		return hashes;
+	}
+
+	/*******
+	 * <p> Method: verify </p>
+	 *
+	 * <p> Description: Tell whether a password matches what is stored for it.</p>
+	 *
+	 * @param password the password typed
+	 * @param stored the hash, or legacy plaintext password, from userDB
+	 *
+	 * @return true if they match
+	 *
+	 * @throws IllegalStateException when the pool is full or closed, or the caller is interrupted
+	 */
+
+	boolean verify(String password, String stored) {
+		if (password == null || stored == null) return false;
+		if (!isHash(stored)) {
+			return MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8),
+					password.getBytes(StandardCharsets.UTF_8));
+		}
+		String[] parts = stored.substring(PREFIX.length()).split("\\$");
+		if (parts.length != 3) return false;
+		int cost;
+		byte[] salt, expected;
+		try {
+			cost = Integer.parseInt(parts[0]);
+			salt = Base64.getDecoder().decode(parts[1]);
+			expected = Base64.getDecoder().decode(parts[2]);
+		} catch (IllegalArgumentException e) {
+			return false;		// a damaged hash matches nothing
+		}
+		if (cost < 1 || cost > MAX_ITERATIONS) return false;
+		return run(() -> MessageDigest.isEqual(expected, pbkdf2(password, salt, cost)));
+	}
+
+	/*******
+	 * <p> Method: verifyNone </p>
+	 *
+	 * <p> Description: Spend the time a verify takes at the current cost, without waiting for
+	 * calibration, and match nothing.  A login for a username that does not exist calls this, so it takes
+	 * as long to fail as a login with a wrong password and the time does not tell whether the
+	 * username exists.</p>
+	 *
+	 * @param password the password typed
+	 *
+	 * @return false, always
+	 *
+	 * @throws IllegalStateException when the pool is full or closed, or the caller is interrupted
+	 */
+
+	boolean verifyNone(String password) {
+		int cost = iterations;
+		byte[] salt = new byte[SALT_BYTES];
+		RANDOM.nextBytes(salt);
+		run(() -> pbkdf2(password == null ? "" : password, salt, cost));
+		return false;
+	}
+
+	/*******
+	 * <p> Method: needsRehash </p>
+	 *
+	 * <p> Description: Tell whether a stored password should be replaced by a new hash once the
+	 * user has logged in with it: it is plaintext, or was hashed at less than REHASH_FRACTION of
+	 * the calibrated cost.  Until calibration has finished the answer is false, so a login
+	 * never waits for it; the rehash happens at a later login.</p>
+	 *
+	 * @param stored the hash, or legacy plaintext password, from userDB
+	 *
+	 * @return true if it should be rehashed
+	 */
+
+	boolean needsRehash(String stored) {
+		if (calibrated.getCount() > 0) return false;
+		if (!isHash(stored)) return true;
+		int end = stored.indexOf('$', PREFIX.length());
+		try {
+			return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end))
+					< iterations * REHASH_FRACTION;
+		} catch (NumberFormatException e) {
+			return true;
+		}
+	}
+
+	/*******
+	 * <p> Method: isHash </p>
+	 *
+	 * <p> Description: Tell a hash made by this class from a plaintext password.</p>
+	 *
+	 * @param stored the value of the password column
+	 *
+	 * @return true if it is a hash
+	 */
+
+	static boolean isHash(String stored) {
+		return stored != null && stored.startsWith(PREFIX);
+	}
+
+	/** @return the number of PBKDF2 iterations new hashes use */
+	int getIterations() {
+		return iterations;
+	}
+
+	/*******
+	 * <p> Method: awaitCalibration </p>
+	 *
+	 * <p> Description: Wait until the startup calibration has finished.  Later hashes may still
+	 * raise the cost.</p>
+	 *
+	 * @return the number of PBKDF2 iterations new hashes use
+	 *
+	 * @throws InterruptedException if the caller is interrupted while waiting
+	 */
+
+	int awaitCalibration() throws InterruptedException {
+		calibrated.await();
+		return iterations;
+	}
+
+	// The current cost, once calibration has finished
+	private int calibratedIterations() {
+		try {
+			calibrated.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while calibrating the password hash", e);
+		}
+		return iterations;
+	}
+
+	/** Stop the worker threads; hashes already queued still finish */
+	void close() {
+		workers.shutdown();
+	}
+
+	// Time probe hashes until the fastest has stood for CALIBRATION_ROUNDS times the target, or
+	// for CALIBRATION_MILLIS in all
+	private void calibrate() {
+		byte[] salt = new byte[SALT_BYTES];
+		long window = Math.max(1_000_000, targetNanos) * CALIBRATION_ROUNDS;
+		long now = System.nanoTime();
+		long giveUp = now + CALIBRATION_MILLIS * 1_000_000;
+		long end = now + window;
+		long best = Long.MAX_VALUE;
+		while (now < end && now < giveUp && !workers.isShutdown()) {
+			pbkdf2("calibration", salt, PROBE_ITERATIONS);
+			long elapsed = System.nanoTime() - now;
+			now += elapsed;
+			if (elapsed < best * 0.95) end = Math.max(end, now + window);	// still getting faster
+			best = Math.min(best, elapsed);
+		}
+	}
+
+	// Hash a password with a new salt at the given cost, in the stored form
+	private String encode(String password, int cost) {
+		byte[] salt = new byte[SALT_BYTES];
+		RANDOM.nextBytes(salt);
+		byte[] key = pbkdf2(password, salt, cost);
+		Base64.Encoder b64 = Base64.getEncoder();
+		return PREFIX + cost + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(key);
+	}
+
+	// Compute one PBKDF2 key and let its time refine the iteration count
+	private byte[] pbkdf2(String password, byte[] salt, int cost) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, cost, KEY_BITS);
+		try {
+			long start = System.nanoTime();
+			byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+			observe(System.nanoTime() - start, cost);
+			return key;
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+			throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+
+	// Raise the iteration count if the fastest hash so far affords a tenth more than it
+	private synchronized void observe(long nanos, int cost) {
+		double perIteration = (double) nanos / cost;
+		if (perIteration >= fastestPerIteration) return;
+		fastestPerIteration = perIteration;
+		long wanted = Math.round(targetNanos / perIteration / 1000) * 1000;
+		int current = iterations;
+		if (wanted > current + current / 10) iterations = (int) Math.min(MAX_ITERATIONS, wanted);
+	}
+
+	// Run a task on the pool and wait for it; a refused or failed task is reported as
+	// IllegalStateException
+	private <T> T run(Callable<T> task) {
+		Future<T> future;
+		try {
+			future = workers.submit(task);
+		} catch (RejectedExecutionException e) {
+			throw new IllegalStateException(workers.isShutdown() ? "The password hasher is closed"
+					: "Too many passwords are waiting to be hashed", e);
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while hashing a password", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Password hashing failed", e.getCause());
+		}
+	}
+}
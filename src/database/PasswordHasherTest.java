@@ -0,0 +1,137 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PasswordHasher}: hashes verify only their own password, a missing user
+ * matches nothing, only a hash well below the calibrated cost is replaced at login, and a login
+ * does not wait for calibration.
+ */
+public class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    /**
+     * Starts a hasher that calibrates to the lowest cost.
+     */
+    @Before
+    public void setUp() {
+        hasher = new PasswordHasher(1);
+    }
+
+    /**
+     * Stops the hasher's threads.
+     */
+    @After
+    public void tearDown() {
+        hasher.close();
+    }
+
+    /**
+     * Tests that a hash is made at the calibrated cost and verifies its own password only.
+     *
+     * @throws Exception if waiting for calibration is interrupted
+     */
+    @Test
+    public void testHashVerifiesOnlyItsPassword() throws Exception {
+        String stored = hasher.hash("Secret1!");
+        int cost = hasher.awaitCalibration();
+        assertTrue(stored.startsWith(PasswordHasher.PREFIX));
+        assertTrue(Integer.parseInt(stored.split("\\$")[1]) >= PasswordHasher.MIN_ITERATIONS);
+        assertTrue(Integer.parseInt(stored.split("\\$")[1]) <= cost);
+        assertTrue(hasher.verify("Secret1!", stored));
+        assertFalse(hasher.verify("Secret2!", stored));
+        assertFalse(hasher.verify("Secret1!", PasswordHasher.PREFIX + "12$not base64!$x"));
+        assertTrue(hasher.verify("Legacy1!", "Legacy1!"));
+        assertFalse(hasher.verifyNone("Secret1!"));
+        assertFalse(hasher.verifyNone(null));
+    }
+
+    /**
+     * Tests that plaintext and hashes well below the calibrated cost are replaced at login, and
+     * that hashes within REHASH_FRACTION of it are left alone.
+     *
+     * @throws Exception if waiting for calibration is interrupted
+     */
+    @Test
+    public void testOnlyClearlyCheaperHashesNeedRehash() throws Exception {
+        int cost = hasher.awaitCalibration();
+        int cheapest = (int) Math.ceil(cost * PasswordHasher.REHASH_FRACTION);
+        assertTrue(hasher.needsRehash("Legacy1!"));
+        assertTrue(hasher.needsRehash(PasswordHasher.PREFIX + "oops$AAAA$AAAA"));
+        assertTrue(hasher.needsRehash(PasswordHasher.PREFIX + (cheapest - 1) + "$AAAA$AAAA"));
+        assertFalse(hasher.needsRehash(PasswordHasher.PREFIX + cheapest + "$AAAA$AAAA"));
+        assertFalse(hasher.needsRehash(PasswordHasher.PREFIX + (cost - 1) + "$AAAA$AAAA"));
+        assertFalse(hasher.needsRehash(hasher.hash("Secret1!")));
+    }
+
+    /**
+     * Tests that a login made while a slow target is still calibrating does not wait for it:
+     * needsRehash defers the rehash and verifyNone hashes at the current cost, and calibration
+     * itself ends within a couple of seconds.
+     *
+     * @throws Exception if waiting for calibration is interrupted
+     */
+    @Test
+    public void testLoginDoesNotWaitForCalibration() throws Exception {
+        PasswordHasher slow = new PasswordHasher(50);
+        try {
+            long start = System.nanoTime();
+            assertFalse(slow.needsRehash(PasswordHasher.PREFIX + "1$AAAA$AAAA"));
+            assertFalse(slow.needsRehash("Legacy1!"));
+            assertFalse(slow.verifyNone("Secret1!"));
+            assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+            slow.awaitCalibration();
+            assertTrue(System.nanoTime() - start < 3_000_000_000L);
+            assertTrue(slow.needsRehash(PasswordHasher.PREFIX + "1$AAAA$AAAA"));
+            assertTrue(slow.needsRehash("Legacy1!"));
+        } finally {
+            slow.close();
+        }
+    }
+
+    /**
+     * Tests that hashAll hashes every password, in order, at the cost it is given.
+     */
+    @Test
+    public void testHashAllHashesInOrderAtTheGivenCost() {
+        java.util.List<String> passwords = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++) passwords.add("Secret" + i + "!");
+        String[] hashes = hasher.hashAll(passwords, 1000);
+        assertEquals(passwords.size(), hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+            assertTrue(hashes[i].startsWith(PasswordHasher.PREFIX + "1000$"));
+            assertTrue(hasher.verify(passwords.get(i), hashes[i]));
+        }
+        assertEquals(0, hasher.hashAll(new java.util.ArrayList<>(), 1000).length);
+    }
+
+    /**
+     * Tests that a hasher that refuses work says so with IllegalStateException, which
+     * Database.authenticate reports as LoginResult.BUSY rather than as a wrong password.
+     *
+     * @throws Exception if waiting for calibration is interrupted
+     */
+    @Test
+    public void testClosedHasherRefusesWork() throws Exception {
+        String stored = hasher.hash("Secret1!");
+        hasher.close();
+        try {
+            hasher.verify("Secret1!", stored);
+            fail("a closed hasher verified a password");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains("closed"));
+        }
+        try {
+            hasher.verifyNone("Secret1!");
+            fail("a closed hasher checked a missing user");
+        } catch (IllegalStateException expected) {
+            // refused like a real user's login, so the answer does not tell who exists
+        }
+    }
+}
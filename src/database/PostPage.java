@@ -0,0 +1,54 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/*******
+ * <p> Title: PostPage Class. </p>
+ *
+ * <p> Description: One page of posts returned by Database.fetchPostsPage, together with the
+ * keyset cursor, (updatedAt, id) of the last row, needed to ask for the page that follows.
+ * Posts are ordered newest first, so the next page holds the posts that sort after the cursor.
+ * </p>
+ *
+ */
+
+public class PostPage {
+
+	private final List<Map<String,Object>> rows;
+	private final Timestamp lastUpdatedAt;
+	private final int lastId;
+	private final boolean hasMore;
+
+	/*******
+	 * <p> Method: PostPage </p>
+	 *
+	 * <p> Description: Create a page.</p>
+	 *
+	 * @param rows the posts on this page
+	 * @param lastUpdatedAt the updatedAt of the last post on this page, or null if it is empty
+	 * @param lastId the id of the last post on this page, or 0 if it is empty
+	 * @param hasMore true if at least one more post follows this page
+	 */
+
+	public PostPage(List<Map<String,Object>> rows, Timestamp lastUpdatedAt, int lastId,
+			boolean hasMore) {
+		this.rows = rows;
+		this.lastUpdatedAt = lastUpdatedAt;
+		this.lastId = lastId;
+		this.hasMore = hasMore;
+	}
+
+	/** @return the posts on this page, as row maps */
+	public List<Map<String,Object>> getRows() { return rows; }
+
+	/** @return the updatedAt half of the cursor for the next page (null if this page is empty) */
+	public Timestamp getLastUpdatedAt() { return lastUpdatedAt; }
+
+	/** @return the id half of the cursor for the next page */
+	public int getLastId() { return lastId; }
+
+	/** @return true if at least one more post follows this page */
+	public boolean hasMore() { return hasMore; }
+}
@@ -0,0 +1,128 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for {@link Database#fetchPostsPage}: walking the pages with each page's cursor returns
+ * every post exactly once, in the order of the unpaged list, even when many posts share one
+ * updatedAt and a page boundary falls inside such a run.
+ */
+public class PostPageTest {
+
+    private static final int POSTS = 40;
+
+    private String url;
+    private Database db;
+
+    /**
+     * Opens a fresh in-memory database and writes posts in two threads whose updatedAt values
+     * come in runs of equal times.
+     *
+     * @throws Exception if the database cannot be created
+     */
+    @Before
+    public void setUp() throws Exception {
+        url = "jdbc:h2:mem:postpage" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        db = new Database(url, 2, 1);
+        db.connectToDatabase();
+        for (int i = 0; i < POSTS; i++) {
+            db.createPost(i % 4 == 0 ? "ann" : "bob", "Post " + i, "Body " + i,
+                    i % 2 == 0 ? "General" : "Questions");
+        }
+        // Seven posts to each updatedAt, so most page sizes split a run of equal times
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement st = connection.createStatement()) {
+            st.executeUpdate("UPDATE Posts SET updatedAt = DATEADD(MINUTE, id / 7, TIMESTAMP '2025-01-01 00:00:00')");
+        }
+    }
+
+    /**
+     * Closes the pooled connections after each test.
+     */
+    @After
+    public void tearDown() {
+        db.closeConnection();
+    }
+
+    private static List<Integer> ids(List<Map<String,Object>> rows) {
+        List<Integer> ids = new ArrayList<>();
+        for (Map<String,Object> row : rows) ids.add(Post.getIntCI(row, "id"));
+        return ids;
+    }
+
+    // Every post the pages hold, following each page's cursor to the next
+    private List<Integer> walk(boolean mineOnly, String thread, String readFilter, int pageSize) {
+        List<Integer> ids = new ArrayList<>();
+        PostPage page = db.fetchPostsPage(mineOnly, "ann", false, thread, readFilter, null, 0, pageSize);
+        while (true) {
+            assertTrue(page.getRows().size() <= pageSize);
+            ids.addAll(ids(page.getRows()));
+            if (!page.hasMore()) return ids;
+            assertEquals(pageSize, page.getRows().size());
+            page = db.fetchPostsPage(mineOnly, "ann", false, thread, readFilter,
+                    page.getLastUpdatedAt(), page.getLastId(), pageSize);
+        }
+    }
+
+    private void assertPagesMatchList(boolean mineOnly, String thread, String readFilter) {
+        List<Integer> expected = ids(db.fetchPosts(mineOnly, "ann", false, thread, readFilter));
+        assertFalse(expected.isEmpty());
+        for (int pageSize = 1; pageSize <= 9; pageSize++) {
+            List<Integer> paged = walk(mineOnly, thread, readFilter, pageSize);
+            Set<Integer> distinct = new HashSet<>(paged);
+            assertEquals("page size " + pageSize + " repeated a post", paged.size(), distinct.size());
+            assertEquals("page size " + pageSize, expected, paged);
+        }
+    }
+
+    /**
+     * Tests that the pages of every post, of one thread, and of one author neither skip nor
+     * repeat a post across runs of equal updatedAt values.
+     */
+    @Test
+    public void testPagesNeitherSkipNorRepeatPostsWithEqualTimes() {
+        assertEquals(POSTS, ids(db.fetchPosts(false, "ann", false, "All Threads", null)).size());
+        assertPagesMatchList(false, "All Threads", null);
+        assertPagesMatchList(false, "Questions", null);
+        assertPagesMatchList(true, "All Threads", null);
+    }
+
+    /**
+     * Tests paging a Read or Unread list, whose pages are filled from further batches of posts
+     * when some of a batch are filtered out.
+     */
+    @Test
+    public void testFilteredPagesNeitherSkipNorRepeatPosts() {
+        for (int id : ids(db.fetchPosts(false, "ann", false, "All Threads", null))) {
+            if (id % 3 != 0) db.markPostRead("ann", id);
+        }
+        assertPagesMatchList(false, "All Threads", "Unread");
+        assertPagesMatchList(false, "All Threads", "Read");
+    }
+
+    /**
+     * Tests that an empty list is a single empty page with no cursor.
+     */
+    @Test
+    public void testEmptyListIsOneEmptyPage() {
+        PostPage page = db.fetchPostsPage(false, "ann", false, "No Such Thread", null, null, 0, 5);
+        assertTrue(page.getRows().isEmpty());
+        assertFalse(page.hasMore());
+        assertNull(page.getLastUpdatedAt());
+    }
+}
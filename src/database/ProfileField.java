@@ -0,0 +1,38 @@
+package database;
+
+/*******
+ * <p> Title: ProfileField Enumeration. </p>
+ *
+ * <p> Description: The account attributes a user can change on the account-update page, which
+ * Database.updateProfile and Database.updateProfiles write.</p>
+ *
+ */
+
+public enum ProfileField {
+
+	/** The first name */
+	FIRST_NAME("firstName"),
+
+	/** The middle name */
+	MIDDLE_NAME("middleName"),
+
+	/** The last name */
+	LAST_NAME("lastName"),
+
+	/** The first name the user prefers to be called by */
+	PREFERRED_FIRST_NAME("preferredFirstName"),
+
+	/** The email address */
+	EMAIL_ADDRESS("emailAddress");
+
+	private final String column;
+
+	ProfileField(String column) {
+		this.column = column;
+	}
+
+	// The userDB column holding this attribute
+	String column() {
+		return column;
+	}
+}
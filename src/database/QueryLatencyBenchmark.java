@@ -0,0 +1,155 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/*******
+ * <p> Title: QueryLatencyBenchmark Class. </p>
+ *
+ * <p> Description: A stand-alone program that measures how long the most frequent list queries
+ * take with and without the indexes added by schema version 3.  It builds a private in-memory
+ * database through Database (so the schema is exactly what the application uses), fills it with
+ * generated posts, replies, and invitations, times the queries, then drops the version 3 indexes
+ * and times the same queries again.</p>
+ *
+ * <p> Run it with the same class path as the application:
+ * <code>java database.QueryLatencyBenchmark [posts]</code>.  The timings are the median of
+ * repeated calls after a warm-up, in microseconds.</p>
+ *
+ */
+
+public class QueryLatencyBenchmark {
+
+	private static final String URL = "jdbc:h2:mem:querylatency;DB_CLOSE_DELAY=-1";
+	private static final String[] THREADS = { "General", "Homework", "Lectures", "Exams", "Projects" };
+	private static final int REPLIES_PER_POST = 3;
+	private static final int WARMUP = 50;
+	private static final int RUNS = 200;
+
+	// The indexes created by SchemaMigrations version 3
+	private static final String[] INDEXES = { "idx_posts_thread_updated", "idx_posts_updated",
+			"idx_posts_author", "idx_replies_post_created", "idx_invitations_email_expires" };
+
+	/*******
+	 * <p> Method: main </p>
+	 *
+	 * <p> Description: Build the test database, then print the latency of each query with and
+	 * without the indexes.</p>
+	 *
+	 * @param args optionally, the number of posts to generate (default 20000)
+	 *
+	 * @throws SQLException when the test database cannot be built
+	 */
+
+	public static void main(String[] args) throws SQLException {
+		int posts = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+		Database database = new Database(URL, 2);
+		database.connectToDatabase();
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+			populate(connection, posts);
+
+			System.out.println("Posts: " + posts + ", replies: " + posts * REPLIES_PER_POST
+					+ ", invitations: " + posts);
+			System.out.printf("%-40s %12s %12s%n", "query (median us)", "indexed", "no index");
+
+			measureAll(database, posts);		// warm up the JIT before either timed pass
+			long[] indexed = measureAll(database, posts);
+			try (Statement st = connection.createStatement()) {
+				for (String index : INDEXES) st.execute("DROP INDEX IF EXISTS " + index);
+			}
+			long[] plain = measureAll(database, posts);
+
+			String[] names = { "fetchPostsPage (one thread, 50 rows)", "fetchPostsPage (my posts)",
+					"getRepliesForPost", "emailaddressHasBeenUsed" };
+			for (int i = 0; i < names.length; i++)
+				System.out.printf("%-40s %12d %12d%n", names[i], indexed[i], plain[i]);
+		} finally {
+			database.closeConnection();
+		}
+	}
+
+	/*
+	 * Time each of the measured queries, returning their median latencies in microseconds.
+	 */
+
+	private static long[] measureAll(Database database, int posts) {
+		return new long[] {
+			median(i -> database.fetchPostsPage(false, "user0", false, THREADS[i % THREADS.length],
+					null, null, 0, 50)),
+			median(i -> database.fetchPostsPage(true, "user" + (i % 100), false, "All Threads",
+					null, null, 0, 50)),
+			median(i -> database.getRepliesForPost(1 + (i * 7919) % posts)),
+			median(i -> database.emailaddressHasBeenUsed("student" + (i * 7919) % posts + "@example.edu"))
+		};
+	}
+
+	private interface Query {
+		void run(int i);
+	}
+
+	private static long median(Query query) {
+		for (int i = 0; i < WARMUP; i++) query.run(i);
+		long[] micros = new long[RUNS];
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			query.run(i);
+			micros[i] = (System.nanoTime() - start) / 1000;
+		}
+		Arrays.sort(micros);
+		return micros[RUNS / 2];
+	}
+
+	/*
+	 * Insert the generated posts, replies, and invitations in batches.
+	 */
+
+	private static void populate(Connection connection, int posts) throws SQLException {
+		connection.setAutoCommit(false);
+		String post = "INSERT INTO Posts (authorUsername, title, body, thread, createdAt, updatedAt, "
+				+ "replyCount) VALUES (?, ?, ?, ?, DATEADD(SECOND, ?, TIMESTAMP '2025-01-01 00:00:00'), "
+				+ "DATEADD(SECOND, ?, TIMESTAMP '2025-01-01 00:00:00'), ?)";
+		String reply = "INSERT INTO Replies (postId, authorUsername, body, createdAt, updatedAt) "
+				+ "VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
+		String invitation = "INSERT INTO InvitationCodes (code, emailAddress, role, expiresAt) "
+				+ "VALUES (?, ?, 'Student', DATEADD(DAY, 7, CURRENT_TIMESTAMP))";
+		try (PreparedStatement ps = connection.prepareStatement(post);
+			 PreparedStatement rs = connection.prepareStatement(reply);
+			 PreparedStatement is = connection.prepareStatement(invitation)) {
+			for (int i = 0; i < posts; i++) {
+				ps.setString(1, "user" + (i % 100));
+				ps.setString(2, "Post " + i);
+				ps.setString(3, "Body of generated post " + i);
+				ps.setString(4, THREADS[i % THREADS.length]);
+				ps.setInt(5, i);
+				ps.setInt(6, i);
+				ps.setInt(7, REPLIES_PER_POST);
+				ps.addBatch();
+				for (int r = 0; r < REPLIES_PER_POST; r++) {
+					rs.setInt(1, i + 1);
+					rs.setString(2, "user" + ((i + r) % 100));
+					rs.setString(3, "Reply " + r + " to post " + i);
+					rs.addBatch();
+				}
+				is.setString(1, Integer.toString(i, 36));
+				is.setString(2, "student" + i + "@example.edu");
+				is.addBatch();
+				if (i % 1000 == 999) {
+					ps.executeBatch();
+					rs.executeBatch();
+					is.executeBatch();
+				}
+			}
+			ps.executeBatch();
+			rs.executeBatch();
+			is.executeBatch();
+			connection.commit();
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+}
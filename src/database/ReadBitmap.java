@@ -0,0 +1,223 @@
+package database;
+
+import java.util.Arrays;
+
+/*******
+ * <p> Title: ReadBitmap Class. </p>
+ *
+ * <p> Description: A compressed set of post ids: the posts one user has read.  It follows the
+ * layout of a Roaring bitmap.  The ids are split into chunks of 65536 by their upper 16 bits,
+ * and each chunk that holds any ids is stored in the smaller of two forms:</p>
+ * <ul>
+ *   <li> a sorted array of the lower 16 bits (2 bytes per id) while it holds at most 4096 ids,
+ *   which suits a user who has read a few scattered posts;</li>
+ *   <li> a plain bitmap of 65536 bits (8 KB) once it holds more, which suits a user who has read
+ *   most posts of a range.</li>
+ * </ul>
+ *
+ * <p> A chunk switches form as ids are added and removed.  Lookups are a binary search over the
+ * chunk keys followed by a binary search or a bit test, so contains() does not allocate.</p>
+ *
+ * <p> The methods are synchronized so one user's bitmap can be updated by a read mark while a
+ * post list for that user is being filtered.</p>
+ *
+ */
+
+final class ReadBitmap {
+
+	// A chunk switches between the array and bitmap forms at this many ids
+	private static final int ARRAY_MAX = 4096;
+
+	private int[] keys = new int[0];					// upper 16 bits of each chunk, ascending
+	private Chunk[] chunks = new Chunk[0];				// the chunk for each key
+	private int cardinality = 0;
+
+	/*
+	 * The lower 16 bits of the ids in one chunk.
+	 */
+
+	private abstract static class Chunk {
+		abstract boolean contains(int low);
+		abstract boolean add(int low);
+		abstract boolean remove(int low);
+		abstract int size();
+		abstract int bytes();
+	}
+
+	private static final class ArrayChunk extends Chunk {
+		char[] values = new char[4];		// ascending lower bits; char is an unsigned 16-bit value
+		int size = 0;
+
+		@Override boolean contains(int low) {
+			return Arrays.binarySearch(values, 0, size, (char) low) >= 0;
+		}
+
+		@Override boolean add(int low) {
+			int at = Arrays.binarySearch(values, 0, size, (char) low);
+			if (at >= 0) return false;
+			at = -at - 1;
+			if (size == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX + 1, size * 2));
+			System.arraycopy(values, at, values, at + 1, size - at);
+			values[at] = (char) low;
+			size++;
+			return true;
+		}
+
+		@Override boolean remove(int low) {
+			int at = Arrays.binarySearch(values, 0, size, (char) low);
+			if (at < 0) return false;
+			System.arraycopy(values, at + 1, values, at, size - at - 1);
+			size--;
+			return true;
+		}
+
+		@Override int size() { return size; }
+		@Override int bytes() { return values.length * 2; }
+	}
+
+	private static final class BitmapChunk extends Chunk {
+		final long[] words = new long[1024];
+		int size = 0;
+
+		@Override boolean contains(int low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override boolean add(int low) {
+			long before = words[low >>> 6];
+			words[low >>> 6] = before | (1L << low);
+			if (before == words[low >>> 6]) return false;
+			size++;
+			return true;
+		}
+
+		@Override boolean remove(int low) {
+			long before = words[low >>> 6];
+			words[low >>> 6] = before & ~(1L << low);
+			if (before == words[low >>> 6]) return false;
+			size--;
+			return true;
+		}
+
+		@Override int size() { return size; }
+		@Override int bytes() { return words.length * 8; }
+	}
+
+	/*******
+	 * <p> Method: add </p>
+	 *
+	 * <p> Description: Add a post id.</p>
+	 *
+	 * @param id the post id (not negative)
+	 *
+	 * @return true if the id was not already present
+	 */
+
+	synchronized boolean add(int id) {
+		int key = id >>> 16;
+		int at = Arrays.binarySearch(keys, key);
+		if (at < 0) {
+			at = -at - 1;
+			keys = insert(keys, at, key);
+			Chunk[] grown = new Chunk[chunks.length + 1];
+			System.arraycopy(chunks, 0, grown, 0, at);
+			System.arraycopy(chunks, at, grown, at + 1, chunks.length - at);
+			grown[at] = new ArrayChunk();
+			chunks = grown;
+		}
+		Chunk chunk = chunks[at];
+		if (!chunk.add(id & 0xFFFF)) return false;
+		cardinality++;
+		if (chunk instanceof ArrayChunk && chunk.size() > ARRAY_MAX) chunks[at] = toBitmap((ArrayChunk) chunk);
+		return true;
+	}
+
+	/*******
+	 * <p> Method: remove </p>
+	 *
+	 * <p> Description: Remove a post id.</p>
+	 *
+	 * @param id the post id
+	 *
+	 * @return true if the id was present
+	 */
+
+	synchronized boolean remove(int id) {
+		int at = Arrays.binarySearch(keys, id >>> 16);
+		if (at < 0) return false;
+		Chunk chunk = chunks[at];
+		if (!chunk.remove(id & 0xFFFF)) return false;
+		cardinality--;
+		if (chunk.size() == 0) {
+			keys = delete(keys, at);
+			Chunk[] shrunk = new Chunk[chunks.length - 1];
+			System.arraycopy(chunks, 0, shrunk, 0, at);
+			System.arraycopy(chunks, at + 1, shrunk, at, chunks.length - at - 1);
+			chunks = shrunk;
+		} else if (chunk instanceof BitmapChunk && chunk.size() <= ARRAY_MAX) {
+			chunks[at] = toArray((BitmapChunk) chunk);
+		}
+		return true;
+	}
+
+	/*******
+	 * <p> Method: contains </p>
+	 *
+	 * <p> Description: Tell whether a post id is present.</p>
+	 *
+	 * @param id the post id
+	 *
+	 * @return true if the id is present
+	 */
+
+	synchronized boolean contains(int id) {
+		int at = Arrays.binarySearch(keys, id >>> 16);
+		return at >= 0 && chunks[at].contains(id & 0xFFFF);
+	}
+
+	/** @return the number of ids present */
+	synchronized int cardinality() {
+		return cardinality;
+	}
+
+	/** @return the approximate memory used by the ids, in bytes */
+	synchronized long sizeInBytes() {
+		long bytes = keys.length * 4L;
+		for (Chunk c : chunks) bytes += c.bytes();
+		return bytes;
+	}
+
+	private static BitmapChunk toBitmap(ArrayChunk array) {
+		BitmapChunk bitmap = new BitmapChunk();
+		for (int i = 0; i < array.size; i++) bitmap.add(array.values[i]);
+		return bitmap;
+	}
+
+	private static ArrayChunk toArray(BitmapChunk bitmap) {
+		ArrayChunk array = new ArrayChunk();
+		array.values = new char[Math.max(4, bitmap.size)];
+		for (int w = 0; w < bitmap.words.length; w++) {
+			long word = bitmap.words[w];
+			while (word != 0) {
+				array.values[array.size++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return array;
+	}
+
+	private static int[] insert(int[] a, int at, int value) {
+		int[] b = new int[a.length + 1];
+		System.arraycopy(a, 0, b, 0, at);
+		b[at] = value;
+		System.arraycopy(a, at, b, at + 1, a.length - at);
+		return b;
+	}
+
+	private static int[] delete(int[] a, int at) {
+		int[] b = new int[a.length - 1];
+		System.arraycopy(a, 0, b, 0, at);
+		System.arraycopy(a, at + 1, b, at, a.length - at - 1);
+		return b;
+	}
+}
@@ -0,0 +1,191 @@
+package database;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*******
+ * <p> Title: ReadMarkBuffer Class. </p>
+ *
+ * <p> Description: A write-behind buffer for "user has read post" marks.  Opening a post only
+ * records the mark in memory; the buffer writes the marks it has collected as one batch per user
+ * when it holds maxPending marks, every flushMillis milliseconds, and whenever it is flushed
+ * explicitly (at logout and when the database is closed).  Marking the same post twice before a
+ * flush costs nothing extra.</p>
+ *
+ * <p> Readers must see their own marks at once.  The Database does that by asking the buffer
+ * which marks are still pending for a user, or by flushing that user's marks before a query
+ * that filters on read state.  A flush holds the flush lock while it writes, so a reader that
+ * flushes can never run its query while another thread's write of its marks is still in
+ * progress.</p>
+ *
+ */
+
+final class ReadMarkBuffer {
+
+	/*
+	 * Where flushed marks are written: one call per user per flush.  Returns false if the marks
+	 * could not be written, in which case they are kept for the next flush.
+	 */
+
+	@FunctionalInterface
+	interface Sink {
+		boolean write(String userName, int[] postIds);
+	}
+
+	private final Sink sink;
+	private final int maxPending;
+	private final ScheduledExecutorService timer;
+	private final Object flushLock = new Object();		// held for the whole of a flush
+
+	// userName -> ids of the posts marked read since the last flush; guarded by this
+	private Map<String,Set<Integer>> pending = new HashMap<>();
+	private int pendingCount = 0;
+
+	/*******
+	 * <p> Method: ReadMarkBuffer </p>
+	 *
+	 * <p> Description: Create an empty buffer and start its flush timer.</p>
+	 *
+	 * @param sink writes a batch of marks for one user
+	 * @param maxPending the number of pending marks that triggers a flush
+	 * @param flushMillis how often pending marks are flushed regardless of their number
+	 */
+
+	ReadMarkBuffer(Sink sink, int maxPending, long flushMillis) {
+		this.sink = sink;
+		this.maxPending = maxPending;
+		this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "read-mark-flush");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/*******
+	 * <p> Method: mark </p>
+	 *
+	 * <p> Description: Record that a user has read a post.</p>
+	 *
+	 * @param userName the reader
+	 * @param postId the post read
+	 */
+
+	void mark(String userName, int postId) {
+		boolean full;
+		synchronized (this) {
+			if (pending.computeIfAbsent(userName, u -> new HashSet<>()).add(postId)) pendingCount++;
+			full = pendingCount >= maxPending;
+		}
+		if (full && !timer.isShutdown()) timer.execute(this::flush);
+	}
+
+	/*******
+	 * <p> Method: discard </p>
+	 *
+	 * <p> Description: Drop a pending mark, so a post marked unread is not marked read again by a
+	 * later flush.  Waits for a flush in progress, which may already be writing the mark.</p>
+	 *
+	 * @param userName the reader
+	 * @param postId the post
+	 */
+
+	void discard(String userName, int postId) {
+		synchronized (flushLock) {
+			synchronized (this) {
+				Set<Integer> ids = pending.get(userName);
+				if (ids != null && ids.remove(postId)) pendingCount--;
+			}
+		}
+	}
+
+	/*******
+	 * <p> Method: pendingFor </p>
+	 *
+	 * <p> Description: The posts a user has read that are not yet written to the database.  Waits
+	 * for a flush in progress, so every mark is either in the result or already stored.</p>
+	 *
+	 * @param userName the reader
+	 *
+	 * @return a copy of the pending post ids (empty if there are none)
+	 */
+
+	Set<Integer> pendingFor(String userName) {
+		synchronized (flushLock) {
+			synchronized (this) {
+				Set<Integer> ids = pending.get(userName);
+				return ids == null || ids.isEmpty() ? Collections.emptySet() : new HashSet<>(ids);
+			}
+		}
+	}
+
+	/*******
+	 * <p> Method: flush </p>
+	 *
+	 * <p> Description: Write every pending mark.</p>
+	 */
+
+	void flush() {
+		synchronized (flushLock) {
+			Map<String,Set<Integer>> batch;
+			synchronized (this) {
+				if (pendingCount == 0) return;
+				batch = pending;
+				pending = new HashMap<>();
+				pendingCount = 0;
+			}
+			for (Map.Entry<String,Set<Integer>> e : batch.entrySet()) write(e.getKey(), e.getValue());
+		}
+	}
+
+	/*******
+	 * <p> Method: flush </p>
+	 *
+	 * <p> Description: Write the pending marks of one user, and wait for any flush in progress.
+	 * </p>
+	 *
+	 * @param userName the reader
+	 */
+
+	void flush(String userName) {
+		synchronized (flushLock) {
+			Set<Integer> ids;
+			synchronized (this) {
+				ids = pending.remove(userName);
+				if (ids != null) pendingCount -= ids.size();
+			}
+			if (ids != null) write(userName, ids);
+		}
+	}
+
+	/*******
+	 * <p> Method: close </p>
+	 *
+	 * <p> Description: Stop the flush timer and write every pending mark.</p>
+	 */
+
+	void close() {
+		timer.shutdown();
+		flush();
+	}
+
+	private void write(String userName, Set<Integer> ids) {
+		if (ids.isEmpty()) return;
+		int[] postIds = new int[ids.size()];
+		int i = 0;
+		for (int id : ids) postIds[i++] = id;
+		if (sink.write(userName, postIds)) return;
+
+		// Not written: put the marks back so the next flush tries again
+		synchronized (this) {
+			Set<Integer> now = pending.computeIfAbsent(userName, u -> new HashSet<>());
+			for (int id : ids) if (now.add(id)) pendingCount++;
+		}
+	}
+}
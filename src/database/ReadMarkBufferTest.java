@@ -0,0 +1,49 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for {@link ReadMarkBuffer}: read marks queued for a later batch show in the reader's post
+ * lists at once, and marking a post unread drops its queued mark.
+ */
+public class ReadMarkBufferTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that queued read marks show in the reader's post lists before and after they are
+     * flushed, and that marking a post unread drops its queued mark.
+     */
+    @Test
+    public void testQueuedReadMarksAreVisibleAtOnce() {
+        for (int i = 0; i < 3; i++) db.createPost("alice", "Post " + i, "Body " + i, "General");
+        List<Map<String,Object>> posts = db.fetchPosts(false, "bob", false, "All Threads", null);
+        int first = Post.getIntCI(posts.get(0), "id");
+        int second = Post.getIntCI(posts.get(1), "id");
+
+        db.queuePostRead("bob", first);
+        db.queuePostRead("bob", second);
+        db.markPostUnread("bob", second);
+
+        // Unfiltered lists overlay the queued marks; filtered lists flush them first
+        for (Map<String,Object> row : db.fetchPosts(false, "bob", false, "All Threads", null)) {
+            int expected = Post.getIntCI(row, "id") == first ? 1 : 0;
+            assertEquals(expected, Post.getIntCI(row, "isRead"));
+        }
+        assertEquals(2, db.fetchPosts(false, "bob", false, "All Threads", "Unread").size());
+        List<Map<String,Object>> read = db.fetchPosts(false, "bob", false, "All Threads", "Read");
+        assertEquals(1, read.size());
+        assertEquals(first, Post.getIntCI(read.get(0), "id"));
+
+        // Other users are unaffected
+        assertEquals(3, db.fetchPosts(false, "carol", false, "All Threads", "Unread").size());
+
+        assertTrue(db.markPostsRead("carol", new int[] { first, second }));
+        assertEquals(2, db.fetchPosts(false, "carol", false, "All Threads", "Read").size());
+    }
+}
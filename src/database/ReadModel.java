@@ -0,0 +1,22 @@
+package database;
+
+/*******
+ * <p> Title: ReadModel Enumeration. </p>
+ *
+ * <p> Description: The ways Database can store which posts each user has read.  Both answer the
+ * same markPostRead/markPostUnread/isPostRead calls and Read/Unread filters; they differ in how
+ * much they store.</p>
+ *
+ */
+
+public enum ReadModel {
+
+	/** One PostReads row per user and post read, so storage grows with users times posts */
+	PER_POST,
+
+	/**
+	 * Per user and thread, the id up to which every post of the thread has been read
+	 * (ReadWatermarks), plus the posts read above or unread below that point (ReadExceptions)
+	 */
+	WATERMARK
+}
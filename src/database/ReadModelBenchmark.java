@@ -0,0 +1,149 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/*******
+ * <p> Title: ReadModelBenchmark Class. </p>
+ *
+ * <p> Description: A stand-alone program that compares the two read models.  It builds a private
+ * in-memory database through Database, fills it with generated posts and PostReads rows, and
+ * times the Unread post list (the first page of 50, for the whole board and for one thread) with
+ * the per-post model.  It then converts the marks to the watermark model, reporting how long the
+ * conversion took and how many rows each model stores, and times the same lists again.</p>
+ *
+ * <p> Each generated user has read the oldest posts of every thread up to a point that differs
+ * from user to user, plus a few scattered newer posts, which is how a class board is usually
+ * read.  The in-memory read-state cache is turned off so that both passes measure the SQL.</p>
+ *
+ * <p> Run it with the same class path as the application:
+ * <code>java database.ReadModelBenchmark [users] [posts]</code>.  The timings are the median of
+ * repeated calls after a warm-up, in microseconds.</p>
+ *
+ */
+
+public class ReadModelBenchmark {
+
+	private static final String URL = "jdbc:h2:mem:readmodel;DB_CLOSE_DELAY=-1";
+	private static final String[] THREADS = { "General", "Homework", "Lectures", "Exams", "Projects" };
+	private static final int MAX_PREFIX = 50;		// most posts per thread a user has read in order
+	private static final int SCATTERED = 5;			// newer posts each user has read out of order
+	private static final int WARMUP = 50;
+	private static final int RUNS = 200;
+
+	/*******
+	 * <p> Method: main </p>
+	 *
+	 * <p> Description: Build the test database, then print the latency of the Unread lists and
+	 * the storage used under each read model.</p>
+	 *
+	 * @param args optionally, the number of users (default 10000) and of posts (default 50000)
+	 *
+	 * @throws SQLException when the test database cannot be built
+	 */
+
+	public static void main(String[] args) throws SQLException {
+		int users = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int posts = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+
+		Database database = new Database(URL, 2);
+		database.connectToDatabase();
+		database.setReadStateCaching(false);
+		try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+			populate(connection, users, posts);
+			System.out.println("Users: " + users + ", posts: " + posts);
+
+			measureAll(database, users);		// warm up the JIT before either timed pass
+			long perPostRows = database.readRowCount();
+			long[] perPost = measureAll(database, users);
+
+			long start = System.nanoTime();
+			database.setReadModel(ReadModel.WATERMARK);
+			long convertMillis = (System.nanoTime() - start) / 1_000_000;
+			long watermarkRows = database.readRowCount();
+			long[] watermark = measureAll(database, users);
+
+			System.out.printf("%-40s %12s %12s%n", "", "per post", "watermark");
+			System.out.printf("%-40s %12d %12d%n", "rows stored", perPostRows, watermarkRows);
+			String[] names = { "Unread page, all threads (median us)", "Unread page, one thread (median us)" };
+			for (int i = 0; i < names.length; i++)
+				System.out.printf("%-40s %12d %12d%n", names[i], perPost[i], watermark[i]);
+			System.out.println("Conversion to the watermark model took " + convertMillis + " ms");
+		} finally {
+			database.closeConnection();
+		}
+	}
+
+	/*
+	 * Time each of the measured lists, returning their median latencies in microseconds.
+	 */
+
+	private static long[] measureAll(Database database, int users) {
+		return new long[] {
+			median(i -> database.fetchPostsPage(false, "user" + (i * 7919) % users, false, "All Threads",
+					"Unread", null, 0, 50)),
+			median(i -> database.fetchPostsPage(false, "user" + (i * 7919) % users, false,
+					THREADS[i % THREADS.length], "Unread", null, 0, 50))
+		};
+	}
+
+	private interface Query {
+		void run(int i);
+	}
+
+	private static long median(Query query) {
+		for (int i = 0; i < WARMUP; i++) query.run(i);
+		long[] micros = new long[RUNS];
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			query.run(i);
+			micros[i] = (System.nanoTime() - start) / 1000;
+		}
+		Arrays.sort(micros);
+		return micros[RUNS / 2];
+	}
+
+	/*
+	 * Insert the generated posts in batches, then the read marks with set-based inserts.
+	 */
+
+	private static void populate(Connection connection, int users, int posts) throws SQLException {
+		connection.setAutoCommit(false);
+		String post = "INSERT INTO Posts (authorUsername, title, body, thread, createdAt, updatedAt) "
+				+ "VALUES (?, ?, ?, ?, DATEADD(SECOND, ?, TIMESTAMP '2025-01-01 00:00:00'), "
+				+ "DATEADD(SECOND, ?, TIMESTAMP '2025-01-01 00:00:00'))";
+		try (PreparedStatement ps = connection.prepareStatement(post);
+			 Statement st = connection.createStatement()) {
+			for (int i = 0; i < posts; i++) {
+				ps.setString(1, "user" + (i % users));
+				ps.setString(2, "Post " + i);
+				ps.setString(3, "Body of generated post " + i);
+				ps.setString(4, THREADS[i % THREADS.length]);
+				ps.setInt(5, i);
+				ps.setInt(6, i);
+				ps.addBatch();
+				if (i % 1000 == 999) ps.executeBatch();
+			}
+			ps.executeBatch();
+			connection.commit();
+
+			// Post i + 1 is in thread i % 5, so the oldest n posts of every thread are ids 1..5n
+			int prefixIds = THREADS.length * MAX_PREFIX;
+			st.executeUpdate("INSERT INTO PostReads (userName, postId) "
+					+ "SELECT 'user' || u.X, p.id FROM SYSTEM_RANGE(0, " + (users - 1) + ") u "
+					+ "JOIN Posts p ON p.id <= " + THREADS.length + " * MOD(u.X, " + (MAX_PREFIX + 1) + ")");
+			connection.commit();
+			st.executeUpdate("MERGE INTO PostReads (userName, postId) KEY(userName, postId) "
+					+ "SELECT 'user' || u.X, " + (prefixIds + 1) + " + MOD(u.X * 7919 + k.X * 104729, "
+					+ (posts - prefixIds) + ") FROM SYSTEM_RANGE(0, " + (users - 1) + ") u, "
+					+ "SYSTEM_RANGE(1, " + SCATTERED + ") k");
+			connection.commit();
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+}
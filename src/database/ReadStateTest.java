@@ -0,0 +1,170 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for the in-memory read state of each user: its Read and Unread pages match the database
+ * join, and loading it while marks are being made neither loses a mark nor brings back an older
+ * copy.
+ */
+public class ReadStateTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that Read and Unread pages answered from the in-memory read state match the ones the
+     * database join returns, including pages that need more than one batch of posts to fill.
+     */
+    @Test
+    public void testReadStateCacheMatchesDatabaseJoin() {
+        int posts = Database.READ_FILTER_BATCH * 2 + 50;
+        for (int i = 0; i < posts; i++) db.createPost("alice", "Post " + i, "Body " + i, "General");
+        List<Map<String,Object>> all = db.fetchPosts(false, "bob", false, "All Threads", null);
+        int[] marked = new int[posts / 10];
+        for (int i = 0; i < marked.length; i++) marked[i] = Post.getIntCI(all.get(i * 10), "id");
+        db.loadReadState("bob");
+        assertTrue(db.markPostsRead("bob", marked));
+        db.markPostUnread("bob", marked[0]);
+        assertFalse(db.isPostRead("bob", marked[0]));
+        assertTrue(db.isPostRead("bob", marked[1]));
+
+        List<List<Integer>> cached = readPages();
+        db.setReadStateCaching(false);
+        assertEquals(readPages(), cached);
+        assertEquals(marked.length - 1, cached.get(0).size());
+    }
+
+    /**
+     * Tests that loading a user's read state while marks are being made never replaces the
+     * cached state with an older copy, so the cache ends up agreeing with the database.
+     *
+     * @throws Exception if the marking or loading thread fails
+     */
+    @Test
+    public void testLoadReadStateKeepsNewerMarks() throws Exception {
+        for (int i = 0; i < 50; i++) db.createPost("alice", "Post " + i, "Body " + i, "General");
+        List<Integer> ids = new ArrayList<>();
+        for (Map<String,Object> row : db.fetchPosts(false, "bob", false, "All Threads", null)) {
+            ids.add(Post.getIntCI(row, "id"));
+        }
+        db.loadReadState("bob");
+
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?> marker = workers.submit(() -> {
+            start.await();
+            for (int round = 0; round < 4; round++) {
+                for (int i = 0; i < ids.size(); i++) {
+                    if ((i + round) % 3 == 0) db.markPostUnread("bob", ids.get(i));
+                    else db.markPostRead("bob", ids.get(i));
+                }
+            }
+            return null;
+        });
+        Future<?> loader = workers.submit(() -> {
+            start.await();
+            while (!marker.isDone()) db.loadReadState("bob");
+            return null;
+        });
+        start.countDown();
+        marker.get();
+        loader.get();
+        workers.shutdown();
+
+        List<Boolean> cached = new ArrayList<>();
+        for (int id : ids) cached.add(db.isPostRead("bob", id));
+        db.setReadStateCaching(false);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals("post " + ids.get(i), db.isPostRead("bob", ids.get(i)), cached.get(i));
+        }
+    }
+
+    // The per-post tracking, with an action run after the first loadRead has read the database
+    private static final class InterruptedLoad extends ReadTracking {
+        private final ReadTracking real = ReadTracking.PER_POST;
+        private Runnable duringLoad;
+
+        InterruptedLoad(Runnable duringLoad) { this.duringLoad = duringLoad; }
+
+        @Override ReadModel model() { return real.model(); }
+        @Override String join() { return real.join(); }
+        @Override int joinParameters() { return real.joinParameters(); }
+        @Override String readCondition() { return real.readCondition(); }
+        @Override long storedRows(Connection connection) throws SQLException { return real.storedRows(connection); }
+        @Override void convertFrom(Connection connection) throws SQLException { real.convertFrom(connection); }
+
+        @Override void markRead(Connection connection, String userName, int[] postIds) throws SQLException {
+            real.markRead(connection, userName, postIds);
+        }
+
+        @Override void markUnread(Connection connection, String userName, int postId) throws SQLException {
+            real.markUnread(connection, userName, postId);
+        }
+
+        @Override void loadRead(Connection connection, String userName, ReadBitmap into) throws SQLException {
+            real.loadRead(connection, userName, into);
+            Runnable action = duringLoad;
+            duringLoad = null;
+            if (action != null) action.run();
+        }
+    }
+
+    /**
+     * Tests that read and unread marks made after the first load of a user's read state has
+     * read the database, but before the state is cached, are in the cached state.
+     */
+    @Test
+    public void testMarksMadeDuringTheFirstLoadAreKept() {
+        for (int i = 0; i < 4; i++) db.createPost("alice", "Post " + i, "Body " + i, "General");
+        List<Integer> ids = new ArrayList<>();
+        for (Map<String,Object> row : db.fetchPosts(false, "alice", false, "All Threads", null)) {
+            ids.add(Post.getIntCI(row, "id"));
+        }
+        db.markPostRead("bob", ids.get(0));
+        db.markPostRead("bob", ids.get(1));
+        db.reads = new InterruptedLoad(() -> {
+            db.markPostRead("bob", ids.get(2));
+            db.queuePostRead("bob", ids.get(3));
+            db.markPostUnread("bob", ids.get(0));
+        });
+
+        db.loadReadState("bob");
+
+        assertFalse(db.isPostRead("bob", ids.get(0)));
+        assertTrue(db.isPostRead("bob", ids.get(1)));
+        assertTrue(db.isPostRead("bob", ids.get(2)));
+        assertTrue(db.isPostRead("bob", ids.get(3)));
+    }
+
+    // The ids of the first page of Read posts, then of every page of Unread posts
+    private List<List<Integer>> readPages() {
+        List<List<Integer>> pages = new ArrayList<>();
+        pages.add(ids(db.fetchPostsPage(false, "bob", false, "All Threads", "Read", null, 0, 100)));
+        PostPage page = db.fetchPostsPage(false, "bob", false, "All Threads", "Unread", null, 0, 50);
+        pages.add(ids(page));
+        while (page.hasMore()) {
+            page = db.fetchPostsPage(false, "bob", false, "All Threads", "Unread",
+                    page.getLastUpdatedAt(), page.getLastId(), 50);
+            pages.add(ids(page));
+        }
+        return pages;
+    }
+
+    private static List<Integer> ids(PostPage page) {
+        List<Integer> ids = new ArrayList<>();
+        for (Map<String,Object> row : page.getRows()) ids.add(Post.getIntCI(row, "id"));
+        return ids;
+    }
+}
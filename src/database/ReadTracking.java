@@ -0,0 +1,402 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*******
+ * <p> Title: ReadTracking Class. </p>
+ *
+ * <p> Description: The storage behind the read marks of one ReadModel.  Database runs every read
+ * mark, read check, and Read/Unread post filter through the ReadTracking of the active model, so
+ * the models can be swapped without changing its public methods.</p>
+ *
+ * <p> The write methods run on the caller's connection and inside the caller's transaction.  The
+ * post-list query joins the tables of the model through join(), whose user parameters are bound
+ * first, and tests readCondition() on each post row p.</p>
+ *
+ * <p> The watermark model stores, per user and thread, the highest post id U such that every
+ * post of the thread with an id up to U has been read.  Posts are numbered in the order they are
+ * created, so a reader who works through a thread from oldest to newest is described by a single
+ * row however many posts they read.  The exceptions hold the posts read above U and the posts
+ * marked unread again below it; a post's exception, when there is one, overrides the watermark.
+ * Each read mark advances U past every post that is now read and drops the exceptions it
+ * covers.</p>
+ *
+ */
+
+abstract class ReadTracking {
+
+	/** The tracking for each model */
+	static final ReadTracking PER_POST = new PerPost();
+	static final ReadTracking WATERMARK = new Watermark();
+
+	/*******
+	 * <p> Method: of </p>
+	 *
+	 * <p> Description: The tracking that stores a model.</p>
+	 *
+	 * @param model the read model
+	 *
+	 * @return its tracking
+	 */
+
+	static ReadTracking of(ReadModel model) {
+		return model == ReadModel.WATERMARK ? WATERMARK : PER_POST;
+	}
+
+	/** @return the model this tracking stores */
+	abstract ReadModel model();
+
+	/** @return the joins that give readCondition() its columns, each taking the user name */
+	abstract String join();
+
+	/** @return the number of user name parameters in join() */
+	abstract int joinParameters();
+
+	/** @return an SQL condition that is true when the user has read post p */
+	abstract String readCondition();
+
+	/*
+	 * Record that a user has read the posts.
+	 */
+
+	abstract void markRead(Connection connection, String userName, int[] postIds) throws SQLException;
+
+	/*
+	 * Record that a user has not read a post.
+	 */
+
+	abstract void markUnread(Connection connection, String userName, int postId) throws SQLException;
+
+	/*
+	 * Add to the bitmap every post the user has read.
+	 */
+
+	abstract void loadRead(Connection connection, String userName, ReadBitmap into) throws SQLException;
+
+	/*
+	 * Fill this model's tables from the other model's, and empty the other model's.
+	 */
+
+	abstract void convertFrom(Connection connection) throws SQLException;
+
+	/*******
+	 * <p> Method: isRead </p>
+	 *
+	 * <p> Description: Tell whether a user has read a post.</p>
+	 *
+	 * @param connection the connection to use
+	 * @param userName the reader
+	 * @param postId the post
+	 *
+	 * @return true if the post exists and the user has read it
+	 *
+	 * @throws SQLException when the query fails
+	 */
+
+	boolean isRead(Connection connection, String userName, int postId) throws SQLException {
+		String sql = "SELECT 1 FROM Posts p " + join() + " WHERE p.id = ? AND " + readCondition();
+		try (PreparedStatement ps = connection.prepareStatement(sql)) {
+			int j = 1;
+			for (int i = 0; i < joinParameters(); i++) ps.setString(j++, userName);
+			ps.setInt(j, postId);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	/*******
+	 * <p> Method: storedRows </p>
+	 *
+	 * <p> Description: The number of rows this model stores for all users.</p>
+	 *
+	 * @param connection the connection to use
+	 *
+	 * @return the row count of the model's tables
+	 *
+	 * @throws SQLException when the count fails
+	 */
+
+	abstract long storedRows(Connection connection) throws SQLException;
+
+	static long count(Connection connection, String table) throws SQLException {
+		try (Statement st = connection.createStatement();
+			 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+			return rs.next() ? rs.getLong(1) : 0;
+		}
+	}
+
+
+	/*
+	 * One PostReads row per user and post read.
+	 */
+
+	private static final class PerPost extends ReadTracking {
+
+		@Override ReadModel model() { return ReadModel.PER_POST; }
+
+		@Override String join() {
+			return "LEFT JOIN PostReads pr ON pr.postId = p.id AND pr.userName = ?";
+		}
+
+		@Override int joinParameters() { return 1; }
+
+		@Override String readCondition() { return "pr.userName IS NOT NULL"; }
+
+		@Override
+		void markRead(Connection connection, String userName, int[] postIds) throws SQLException {
+			String sql = "MERGE INTO PostReads KEY(userName, postId) VALUES(?, ?, CURRENT_TIMESTAMP)";
+			try (PreparedStatement ps = connection.prepareStatement(sql)) {
+				for (int postId : postIds) {
+					ps.setString(1, userName);
+					ps.setInt(2, postId);
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+		}
+
+		@Override
+		void markUnread(Connection connection, String userName, int postId) throws SQLException {
+			String sql = "DELETE FROM PostReads WHERE userName = ? AND postId = ?";
+			try (PreparedStatement ps = connection.prepareStatement(sql)) {
+				ps.setString(1, userName);
+				ps.setInt(2, postId);
+				ps.executeUpdate();
+			}
+		}
+
+		@Override
+		void loadRead(Connection connection, String userName, ReadBitmap into) throws SQLException {
+			String sql = "SELECT postId FROM PostReads WHERE userName = ?";
+			try (PreparedStatement ps = connection.prepareStatement(sql)) {
+				ps.setString(1, userName);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) into.add(rs.getInt(1));
+				}
+			}
+		}
+
+		@Override
+		void convertFrom(Connection connection) throws SQLException {
+			try (Statement st = connection.createStatement()) {
+				// Every post at or below the watermark that is not marked unread, then the
+				// posts read above it
+				st.executeUpdate("INSERT INTO PostReads (userName, postId) "
+						+ "SELECT w.userName, p.id FROM ReadWatermarks w "
+						+ "JOIN Posts p ON p.thread = w.thread AND p.id <= w.upToPostId "
+						+ "WHERE NOT EXISTS (SELECT 1 FROM ReadExceptions e "
+						+ "WHERE e.userName = w.userName AND e.postId = p.id AND NOT e.isRead)");
+				st.executeUpdate("INSERT INTO PostReads (userName, postId) "
+						+ "SELECT e.userName, e.postId FROM ReadExceptions e WHERE e.isRead");
+				st.executeUpdate("DELETE FROM ReadExceptions");
+				st.executeUpdate("DELETE FROM ReadWatermarks");
+			}
+		}
+
+		@Override
+		long storedRows(Connection connection) throws SQLException {
+			return count(connection, "PostReads");
+		}
+	}
+
+
+	/*
+	 * A "read up to" watermark per user and thread, plus the exceptions to it.
+	 */
+
+	private static final class Watermark extends ReadTracking {
+
+		@Override ReadModel model() { return ReadModel.WATERMARK; }
+
+		@Override String join() {
+			return "LEFT JOIN ReadWatermarks rw ON rw.userName = ? AND rw.thread = p.thread "
+					+ "LEFT JOIN ReadExceptions re ON re.userName = ? AND re.postId = p.id";
+		}
+
+		@Override int joinParameters() { return 2; }
+
+		@Override String readCondition() {
+			return "COALESCE(re.isRead, p.id <= COALESCE(rw.upToPostId, 0))";
+		}
+
+		@Override
+		void markRead(Connection connection, String userName, int[] postIds) throws SQLException {
+			String clear = "DELETE FROM ReadExceptions WHERE userName = ? AND postId = ?";
+			String except = "MERGE INTO ReadExceptions KEY(userName, postId) VALUES(?, ?, TRUE)";
+			for (Map.Entry<String,List<Integer>> e : byThread(connection, postIds).entrySet()) {
+				String thread = e.getKey();
+				int upTo = watermark(connection, userName, thread);
+				try (PreparedStatement below = connection.prepareStatement(clear);
+					 PreparedStatement above = connection.prepareStatement(except)) {
+					for (int postId : e.getValue()) {
+						// At or below the watermark a post is read unless it has an exception
+						PreparedStatement ps = postId <= upTo ? below : above;
+						ps.setString(1, userName);
+						ps.setInt(2, postId);
+						ps.addBatch();
+					}
+					below.executeBatch();
+					above.executeBatch();
+				}
+				advance(connection, userName, thread, upTo);
+			}
+		}
+
+		@Override
+		void markUnread(Connection connection, String userName, int postId) throws SQLException {
+			String thread = threadOf(connection, postId);
+			if (thread == null) return;
+			if (postId <= watermark(connection, userName, thread)) {
+				String sql = "MERGE INTO ReadExceptions KEY(userName, postId) VALUES(?, ?, FALSE)";
+				try (PreparedStatement ps = connection.prepareStatement(sql)) {
+					ps.setString(1, userName);
+					ps.setInt(2, postId);
+					ps.executeUpdate();
+				}
+			} else {
+				String sql = "DELETE FROM ReadExceptions WHERE userName = ? AND postId = ?";
+				try (PreparedStatement ps = connection.prepareStatement(sql)) {
+					ps.setString(1, userName);
+					ps.setInt(2, postId);
+					ps.executeUpdate();
+				}
+			}
+		}
+
+		@Override
+		void loadRead(Connection connection, String userName, ReadBitmap into) throws SQLException {
+			String covered = "SELECT p.id FROM ReadWatermarks w "
+					+ "JOIN Posts p ON p.thread = w.thread AND p.id <= w.upToPostId WHERE w.userName = ?";
+			String exceptions = "SELECT postId, isRead FROM ReadExceptions WHERE userName = ?";
+			try (PreparedStatement ps = connection.prepareStatement(covered)) {
+				ps.setString(1, userName);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) into.add(rs.getInt(1));
+				}
+			}
+			try (PreparedStatement ps = connection.prepareStatement(exceptions)) {
+				ps.setString(1, userName);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						if (rs.getBoolean(2)) into.add(rs.getInt(1));
+						else into.remove(rs.getInt(1));
+					}
+				}
+			}
+		}
+
+		@Override
+		void convertFrom(Connection connection) throws SQLException {
+			try (Statement st = connection.createStatement()) {
+				// A read is part of the unbroken run of read posts at the start of its thread when
+				// it is as many posts into the thread as it is into the user's reads of the thread.
+				// The watermark is the end of that run; every other read is an exception.
+				String ranked = "(SELECT r.userName, t.thread, r.postId, t.pos, "
+						+ "ROW_NUMBER() OVER (PARTITION BY r.userName, t.thread ORDER BY r.postId) AS k "
+						+ "FROM PostReads r JOIN (SELECT id, thread, "
+						+ "ROW_NUMBER() OVER (PARTITION BY thread ORDER BY id) AS pos FROM Posts) t "
+						+ "ON t.id = r.postId) ranked";
+				st.executeUpdate("INSERT INTO ReadWatermarks (userName, thread, upToPostId) "
+						+ "SELECT userName, thread, MAX(postId) FROM " + ranked
+						+ " WHERE pos = k GROUP BY userName, thread");
+				st.executeUpdate("INSERT INTO ReadExceptions (userName, postId, isRead) "
+						+ "SELECT userName, postId, TRUE FROM " + ranked + " WHERE pos <> k");
+				st.executeUpdate("DELETE FROM PostReads");
+			}
+		}
+
+		@Override
+		long storedRows(Connection connection) throws SQLException {
+			return count(connection, "ReadWatermarks") + count(connection, "ReadExceptions");
+		}
+
+		/*
+		 * Move a thread's watermark up to just below the user's oldest unread post above it, and
+		 * drop the read exceptions it now covers.
+		 */
+
+		private static void advance(Connection connection, String userName, String thread, int upTo)
+				throws SQLException {
+			String nextUnread = "SELECT p.id FROM Posts p WHERE p.thread = ? AND p.id > ? "
+					+ "AND NOT EXISTS (SELECT 1 FROM ReadExceptions e "
+					+ "WHERE e.userName = ? AND e.postId = p.id AND e.isRead) ORDER BY p.id LIMIT 1";
+			String newest = "SELECT COALESCE(MAX(id), 0) FROM Posts WHERE thread = ?";
+			int next;
+			try (PreparedStatement ps = connection.prepareStatement(nextUnread)) {
+				ps.setString(1, thread);
+				ps.setInt(2, upTo);
+				ps.setString(3, userName);
+				try (ResultSet rs = ps.executeQuery()) {
+					next = rs.next() ? rs.getInt(1) - 1 : -1;
+				}
+			}
+			if (next < 0) {
+				try (PreparedStatement ps = connection.prepareStatement(newest)) {
+					ps.setString(1, thread);
+					try (ResultSet rs = ps.executeQuery()) {
+						next = rs.next() ? rs.getInt(1) : 0;
+					}
+				}
+			}
+			if (next <= upTo) return;
+
+			String mark = "MERGE INTO ReadWatermarks KEY(userName, thread) VALUES(?, ?, ?)";
+			String covered = "DELETE FROM ReadExceptions WHERE userName = ? AND postId > ? AND postId <= ? "
+					+ "AND postId IN (SELECT id FROM Posts WHERE thread = ?)";
+			try (PreparedStatement ps = connection.prepareStatement(mark)) {
+				ps.setString(1, userName);
+				ps.setString(2, thread);
+				ps.setInt(3, next);
+				ps.executeUpdate();
+			}
+			try (PreparedStatement ps = connection.prepareStatement(covered)) {
+				ps.setString(1, userName);
+				ps.setInt(2, upTo);
+				ps.setInt(3, next);
+				ps.setString(4, thread);
+				ps.executeUpdate();
+			}
+		}
+
+		private static int watermark(Connection connection, String userName, String thread)
+				throws SQLException {
+			String sql = "SELECT upToPostId FROM ReadWatermarks WHERE userName = ? AND thread = ?";
+			try (PreparedStatement ps = connection.prepareStatement(sql)) {
+				ps.setString(1, userName);
+				ps.setString(2, thread);
+				try (ResultSet rs = ps.executeQuery()) {
+					return rs.next() ? rs.getInt(1) : 0;
+				}
+			}
+		}
+
+		private static String threadOf(Connection connection, int postId) throws SQLException {
+			try (PreparedStatement ps = connection.prepareStatement("SELECT thread FROM Posts WHERE id = ?")) {
+				ps.setInt(1, postId);
+				try (ResultSet rs = ps.executeQuery()) {
+					return rs.next() ? rs.getString(1) : null;
+				}
+			}
+		}
+
+		// The posts grouped by their thread; ids of posts that do not exist are dropped
+		private static Map<String,List<Integer>> byThread(Connection connection, int[] postIds)
+				throws SQLException {
+			Map<String,List<Integer>> threads = new LinkedHashMap<>();
+			for (int postId : postIds) {
+				String thread = threadOf(connection, postId);
+				if (thread != null) threads.computeIfAbsent(thread, t -> new ArrayList<>()).add(postId);
+			}
+			return threads;
+		}
+	}
+}
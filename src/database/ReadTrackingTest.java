@@ -0,0 +1,79 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for {@link ReadTracking}: the watermark read model answers exactly as the per-post model
+ * does, for converted marks and for marks made while it is active.
+ */
+public class ReadTrackingTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that the watermark read model answers exactly as the per-post model does, both for
+     * marks converted from PostReads and for marks made while it is active.
+     */
+    @Test
+    public void testWatermarkReadModelMatchesPerPostModel() {
+        String[] threads = { "General", "Homework" };
+        for (int i = 0; i < 40; i++) db.createPost("alice", "Post " + i, "Body " + i, threads[i % 2]);
+        List<Integer> ids = new ArrayList<>();
+        for (Map<String,Object> row : db.fetchPosts(false, "bob", false, "All Threads", null))
+            ids.add(Post.getIntCI(row, "id"));
+        ids.sort(null);
+        db.setReadStateCaching(false);
+
+        // Read the oldest posts in order, a few newer ones, and take one of the old ones back
+        Set<Integer> read = new TreeSet<>();
+        for (int i = 0; i < 15; i++) read.add(ids.get(i));
+        read.add(ids.get(30));
+        read.add(ids.get(33));
+        for (int id : read) db.markPostRead("bob", id);
+        db.markPostUnread("bob", ids.get(4));
+        read.remove(ids.get(4));
+        assertReadExactly(read, ids);
+
+        assertTrue(db.setReadModel(ReadModel.WATERMARK));
+        assertEquals(ReadModel.WATERMARK, db.getReadModel());
+        assertReadExactly(read, ids);
+        assertTrue(db.readRowCount() < read.size());
+
+        // Fill the gap, take back a post above the watermark, and read across both threads
+        int[] more = { ids.get(4), ids.get(15), ids.get(16), ids.get(17), ids.get(31) };
+        assertTrue(db.markPostsRead("bob", more));
+        for (int id : more) read.add(id);
+        db.markPostUnread("bob", ids.get(33));
+        db.markPostUnread("bob", ids.get(2));
+        read.remove(ids.get(33));
+        read.remove(ids.get(2));
+        assertReadExactly(read, ids);
+        db.setReadStateCaching(true);
+        assertReadExactly(read, ids);
+        db.setReadStateCaching(false);
+
+        assertTrue(db.setReadModel(ReadModel.PER_POST));
+        assertReadExactly(read, ids);
+        assertEquals(read.size(), db.readRowCount());
+    }
+
+    // Check isPostRead and the Read and Unread filters against the expected read posts
+    private void assertReadExactly(Set<Integer> read, List<Integer> ids) {
+        for (int id : ids) assertEquals("post " + id, read.contains(id), db.isPostRead("bob", id));
+        List<Integer> readIds = new ArrayList<>();
+        for (Map<String,Object> row : db.fetchPosts(false, "bob", false, "All Threads", "Read"))
+            readIds.add(Post.getIntCI(row, "id"));
+        readIds.sort(null);
+        assertEquals(new ArrayList<>(read), readIds);
+        assertEquals(ids.size() - read.size(),
+                db.fetchPosts(false, "bob", false, "All Threads", "Unread").size());
+    }
+}
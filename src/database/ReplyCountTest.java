@@ -0,0 +1,135 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for the replyCount column of Posts: it equals the number of Replies rows of its post
+ * after replies are created and deleted, and after the migration that adds it back-fills a
+ * database written before it existed.
+ */
+public class ReplyCountTest {
+
+    private String url;
+    private Database db;
+
+    /**
+     * Picks a fresh in-memory database for each test; each test opens it.
+     */
+    @Before
+    public void setUp() {
+        url = "jdbc:h2:mem:replycount" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        db = new Database(url, 2, 1);
+    }
+
+    /**
+     * Closes the pooled connections after each test.
+     */
+    @After
+    public void tearDown() {
+        db.closeConnection();
+    }
+
+    // Check every post's replyCount, as the post list reports it, against COUNT(*) of its replies
+    private void assertCountsMatchReplies(int posts) throws Exception {
+        int checked = 0;
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM Replies WHERE postId = ?")) {
+            for (Map<String,Object> row : db.fetchPosts(false, "", true, "All Threads", null)) {
+                int id = Post.getIntCI(row, "id");
+                ps.setInt(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    assertEquals("post " + id, rs.getInt(1), Post.getIntCI(row, "replyCount"));
+                    assertEquals("post " + id, rs.getInt(1), Post.getIntCI(db.getPost(id), "replyCount"));
+                }
+                checked++;
+            }
+        }
+        assertEquals(posts, checked);
+    }
+
+    /**
+     * Tests that creating and deleting replies, including deleting a reply twice and deleting
+     * the post's last reply, keeps each count equal to the rows.
+     *
+     * @throws Exception if the database cannot be opened or read
+     */
+    @Test
+    public void testCountFollowsCreateAndDelete() throws Exception {
+        db.connectToDatabase();
+        for (int i = 0; i < 5; i++) db.createPost("ann", "Post " + i, "Body", "General");
+        assertCountsMatchReplies(5);
+
+        for (Map<String,Object> row : db.fetchPosts(false, "", true, "All Threads", null)) {
+            int id = Post.getIntCI(row, "id");
+            for (int r = 0; r < id % 4; r++) db.createReply(id, "bob", "Reply " + r);
+        }
+        assertCountsMatchReplies(5);
+
+        for (Map<String,Object> row : db.fetchPosts(false, "", true, "All Threads", null)) {
+            int id = Post.getIntCI(row, "id");
+            for (Map<String,Object> reply : db.getRepliesForPost(id)) {
+                int replyId = Post.getIntCI(reply, "id");
+                if (replyId % 2 == 0) {
+                    db.deleteReply(replyId);
+                    db.deleteReply(replyId);    // already gone: no change
+                }
+            }
+        }
+        assertCountsMatchReplies(5);
+
+        // A soft-deleted post keeps its replies and its count
+        int first = Post.getIntCI(db.fetchPosts(false, "", true, "All Threads", null).get(0), "id");
+        db.softDeletePost(first);
+        db.createReply(first, "bob", "Late reply");
+        assertCountsMatchReplies(5);
+    }
+
+    /**
+     * Tests that a database whose Posts table predates replyCount gets every count back-filled
+     * from its replies when it is opened.
+     *
+     * @throws Exception if the old database cannot be written or the new one read
+     */
+    @Test
+    public void testMigrationBackfillsCounts() throws Exception {
+        // The Posts and Replies tables as the first release created them, with replies in them
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE Posts (id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "authorUsername VARCHAR(255) NOT NULL, title VARCHAR(120) NOT NULL, "
+                    + "body VARCHAR(5000) NOT NULL, thread VARCHAR(50) NOT NULL DEFAULT 'General', "
+                    + "createdAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + "updatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            st.execute("CREATE TABLE Replies (id INT AUTO_INCREMENT PRIMARY KEY, postId INT NOT NULL, "
+                    + "authorUsername VARCHAR(255) NOT NULL, body VARCHAR(3000) NOT NULL, "
+                    + "createdAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + "updatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + "CONSTRAINT fk_reply_post FOREIGN KEY (postId) REFERENCES Posts(id))");
+            for (int i = 1; i <= 6; i++) {
+                st.execute("INSERT INTO Posts (authorUsername, title, body) VALUES ('ann', 'Post " + i + "', 'Body')");
+                for (int r = 0; r < (i * 5) % 7; r++) {
+                    st.execute("INSERT INTO Replies (postId, authorUsername, body) VALUES (" + i + ", 'bob', 'Reply')");
+                }
+            }
+        }
+
+        db.connectToDatabase();
+        assertCountsMatchReplies(6);
+        assertEquals(5, Post.getIntCI(db.getPost(1), "replyCount"));
+        assertEquals(2, Post.getIntCI(db.getPost(6), "replyCount"));
+    }
+}
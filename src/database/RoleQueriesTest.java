@@ -0,0 +1,67 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import entityClasses.Role;
+import entityClasses.User;
+
+/**
+ * Tests for the roles bitmask: the role updates, the role queries, and the user list agree on it,
+ * and the role queries use the roles index.
+ */
+public class RoleQueriesTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that roles are kept as one bitmask that the role updates, the role queries, and the
+     * user list agree on, and that the role queries are answered from the roles index.
+     *
+     * @throws Exception if registering or reading the plan fails
+     */
+    @Test
+    public void testRoleQueriesReadTheRolesBitmask() throws Exception {
+        db.register(new User("amy", "pw", "Amy", "", "Ng", "", "amy@example.com",
+                true, false, true), null);
+        db.register(new User("ben", "pw", "Ben", "", "Ode", "", "ben@example.com",
+                false, true, false), null);
+        db.register(new User("cat", "pw", "Cat", "", "Pye", "", "cat@example.com",
+                false, false, true), null);
+        assertTrue(db.updateUserRole("ben", "Staff", "true"));
+        assertTrue(db.updateUserRole("cat", Role.STAFF, false));
+        assertFalse(db.updateUserRole("cat", "Reviewer", "true"));
+
+        assertEquals(Arrays.asList("amy", "ben"), userNames(db.getUsersWithRole(Role.STAFF)));
+        assertEquals(Arrays.asList("amy", "ben"), userNames(db.getUsersWithRoleCount(2)));
+        assertEquals(Arrays.asList("amy"), userNames(db.getUsersWithRole(Role.ADMIN)));
+        assertEquals(3, db.getUsersWithRoleCount(0).size());
+        for (User user : db.getAllUsers()) {
+            if (user.getUserName().equals("ben")) assertEquals("Student, Staff", user.getRolesString());
+            if (user.getUserName().equals("cat")) assertEquals("", user.getRolesString());
+        }
+        UserSession session = new UserSession();
+        assertTrue(db.getUserAccountDetails("ben", session));
+        assertEquals(Role.STUDENT.bit() | Role.STAFF.bit(), session.getRoles());
+
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "EXPLAIN SELECT userName FROM userDB WHERE roles IN (4, 5, 6, 7)")) {
+            assertTrue(rs.next());
+            assertTrue(rs.getString(1).toUpperCase().contains("IDX_USERS_ROLES"));
+        }
+    }
+
+    private static List<String> userNames(List<User> users) {
+        List<String> names = new ArrayList<>();
+        for (User user : users) names.add(user.getUserName());
+        return names;
+    }
+}
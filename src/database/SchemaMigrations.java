@@ -0,0 +1,218 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/*******
+ * <p> Title: SchemaMigrations Class. </p>
+ *
+ * <p> Description: Brings an existing database up to the current schema one numbered step at a
+ * time.  The schema_version table records every step that has been applied, so each step is
+ * applied to a database once, in order, the first time a newer version of the application opens
+ * it.  Database.createTables creates the original tables; every change to the schema after that
+ * is added to the end of STEPS with the next version number and is never edited once
+ * released.</p>
+ *
+ * <p> H2 commits each DDL statement as it runs, so a step that fails part way leaves its earlier
+ * statements applied and is run again, from the start, the next time the database is opened.
+ * Every step must therefore be safe to re-run: IF NOT EXISTS and IF EXISTS on its DDL, and any
+ * data change guarded by a check of the schema it expects.  The same style lets databases which
+ * picked up the early changes before this class existed (when createTables applied them
+ * directly) migrate cleanly.</p>
+ *
+ */
+
+final class SchemaMigrations {
+
+	/*
+	 * One schema change.  apply() receives a statement on the migrating connection.
+	 */
+
+	@FunctionalInterface
+	private interface Change {
+		void apply(Statement statement) throws SQLException;
+	}
+
+	private static final class Step {
+		final int version;
+		final String description;
+		final Change change;
+
+		Step(int version, String description, Change change) {
+			this.version = version;
+			this.description = description;
+			this.change = change;
+		}
+	}
+
+	// Every schema change, in the order it must be applied.  Only ever append to this list.
+	private static final List<Step> STEPS = List.of(
+		new Step(1, "Add InvitationCodes.expiresAt and Posts.isDeleted", st -> {
+			st.execute("ALTER TABLE InvitationCodes ADD COLUMN IF NOT EXISTS expiresAt TIMESTAMP");
+			st.execute("ALTER TABLE Posts ADD COLUMN IF NOT EXISTS isDeleted BOOL DEFAULT FALSE");
+		}),
+		new Step(2, "Keep a reply count on each post", st -> {
+			st.execute("ALTER TABLE Posts ADD COLUMN IF NOT EXISTS replyCount INT NOT NULL DEFAULT 0");
+			st.execute("UPDATE Posts p SET replyCount = "
+					+ "(SELECT COUNT(*) FROM Replies r WHERE r.postId = p.id)");
+		}),
+		new Step(3, "Index the columns the post, reply, and invitation queries filter on", st -> {
+			// The post indexes end with the list order so a page is read straight off the index
+			st.execute("CREATE INDEX IF NOT EXISTS idx_posts_thread_updated "
+					+ "ON Posts(thread, updatedAt DESC, id DESC)");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_posts_updated ON Posts(updatedAt DESC, id DESC)");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_posts_author "
+					+ "ON Posts(authorUsername, updatedAt DESC, id DESC)");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_replies_post_created "
+					+ "ON Replies(postId, createdAt)");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_invitations_email_expires "
+					+ "ON InvitationCodes(emailAddress, expiresAt)");
+		}),
+		new Step(4, "Add the watermark read-tracking tables and the Settings table", st -> {
+			st.execute("CREATE TABLE IF NOT EXISTS ReadWatermarks ("
+					+ "userName VARCHAR(255) NOT NULL, "
+					+ "thread VARCHAR(50) NOT NULL, "
+					+ "upToPostId INT NOT NULL, "
+					+ "PRIMARY KEY(userName, thread))");
+			st.execute("CREATE TABLE IF NOT EXISTS ReadExceptions ("
+					+ "userName VARCHAR(255) NOT NULL, "
+					+ "postId INT NOT NULL, "
+					+ "isRead BOOL NOT NULL, "
+					+ "PRIMARY KEY(userName, postId), "
+					+ "CONSTRAINT fk_readexceptions_post FOREIGN KEY (postId) REFERENCES Posts(id))");
+			// Finding a user's oldest unread post of a thread walks the thread's posts by id
+			st.execute("CREATE INDEX IF NOT EXISTS idx_posts_thread_id ON Posts(thread, id)");
+			st.execute("CREATE TABLE IF NOT EXISTS Settings ("
+					+ "name VARCHAR(64) PRIMARY KEY, "
+					+ "setting VARCHAR(255) NOT NULL)");
+		}),
+		new Step(5, "Index invitation expiry times for the expired-invitation sweeper", st -> {
+			st.execute("CREATE INDEX IF NOT EXISTS idx_invitations_expires ON InvitationCodes(expiresAt)");
+		}),
+		new Step(6, "Index the user list's sort columns", st -> {
+			st.execute("CREATE INDEX IF NOT EXISTS idx_users_first ON userDB(firstName, userName)");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_users_middle ON userDB(middleName, userName)");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_users_last ON userDB(lastName, userName)");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_users_email ON userDB(emailAddress, userName)");
+		}),
+		new Step(7, "Replace the three role columns of userDB with an indexed roles bitmask", st -> {
+			// The bits are those of entityClasses.Role: Admin 1, Student 2, Staff 4
+			st.execute("ALTER TABLE userDB ADD COLUMN IF NOT EXISTS roles INT NOT NULL DEFAULT 0");
+			// The drops follow the back-fill, so once any old column is gone the roles are set
+			if (hasColumn(st, "USERDB", "ADMINROLE") && hasColumn(st, "USERDB", "NEWROLE1")
+					&& hasColumn(st, "USERDB", "NEWROLE2")) {
+				st.execute("UPDATE userDB SET roles = CASE WHEN adminRole THEN 1 ELSE 0 END "
+						+ "+ CASE WHEN newRole1 THEN 2 ELSE 0 END + CASE WHEN newRole2 THEN 4 ELSE 0 END");
+			}
+			st.execute("ALTER TABLE userDB DROP COLUMN IF EXISTS adminRole");
+			st.execute("ALTER TABLE userDB DROP COLUMN IF EXISTS newRole1");
+			st.execute("ALTER TABLE userDB DROP COLUMN IF EXISTS newRole2");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_users_roles ON userDB(roles, userName)");
+		}),
+		new Step(8, "Index email addresses in lower case, for lookups that ignore case", st -> {
+			// H2 cannot index an expression, so each table keeps LOWER(emailAddress) in a column
+			st.execute("ALTER TABLE InvitationCodes ADD COLUMN IF NOT EXISTS emailKey VARCHAR(255) "
+					+ "GENERATED ALWAYS AS (LOWER(emailAddress))");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_invitations_email_key "
+					+ "ON InvitationCodes(emailKey, expiresAt)");
+			st.execute("ALTER TABLE userDB ADD COLUMN IF NOT EXISTS emailKey VARCHAR(255) "
+					+ "GENERATED ALWAYS AS (LOWER(emailAddress))");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_users_email_key ON userDB(emailKey)");
+		})
+	);
+
+	// no instances
+	private SchemaMigrations() {}
+
+	/*
+	 * True if the table has the column; both names are given as H2 stores them, in upper case.
+	 */
+
+	private static boolean hasColumn(Statement st, String table, String column) throws SQLException {
+		try (ResultSet rs = st.executeQuery("SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS "
+				+ "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = '" + table + "' AND COLUMN_NAME = '" + column + "'")) {
+			return rs.next();
+		}
+	}
+
+	/*******
+	 * <p> Method: latestVersion </p>
+	 *
+	 * <p> Description: The schema version a fully migrated database is at.</p>
+	 *
+	 * @return the version of the last migration step
+	 */
+
+	static int latestVersion() {
+		return STEPS.get(STEPS.size() - 1).version;
+	}
+
+	/*******
+	 * <p> Method: currentVersion </p>
+	 *
+	 * <p> Description: The highest migration step recorded as applied to a database.</p>
+	 *
+	 * @param connection a connection to the database
+	 *
+	 * @return the schema version, or 0 if no step has been applied
+	 *
+	 * @throws SQLException when the schema_version table cannot be read
+	 */
+
+	static int currentVersion(Connection connection) throws SQLException {
+		try (Statement st = connection.createStatement()) {
+			st.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+					+ "version INT PRIMARY KEY, "
+					+ "description VARCHAR(255) NOT NULL, "
+					+ "appliedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+			try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+				return rs.next() ? rs.getInt(1) : 0;
+			}
+		}
+	}
+
+	/*******
+	 * <p> Method: migrate </p>
+	 *
+	 * <p> Description: Apply, in order, every step newer than the database's current version,
+	 * recording each in schema_version once it has run.  A failed step stops the migration and
+	 * is run again the next time the database is opened.  Only a step's data changes are rolled
+	 * back with it; its DDL has already been committed by H2, which is why every step must be
+	 * safe to re-run.</p>
+	 *
+	 * @param connection a connection to the database, in auto-commit mode
+	 *
+	 * @return the number of steps applied
+	 *
+	 * @throws SQLException when a step fails
+	 */
+
+	static int migrate(Connection connection) throws SQLException {
+		int current = currentVersion(connection);
+		int applied = 0;
+		String record = "INSERT INTO schema_version (version, description) VALUES (?, ?)";
+		for (Step step : STEPS) {
+			if (step.version <= current) continue;
+			connection.setAutoCommit(false);
+			try (Statement st = connection.createStatement();
+				 PreparedStatement ps = connection.prepareStatement(record)) {
+				step.change.apply(st);
+				ps.setInt(1, step.version);
+				ps.setString(2, step.description);
+				ps.executeUpdate();
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+			applied++;
+		}
+		return applied;
+	}
+}
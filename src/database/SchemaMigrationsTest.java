@@ -0,0 +1,155 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SchemaMigrations}: a new database records every step once in schema_version,
+ * and running the migrations again, directly or by reopening the database, applies nothing and
+ * records nothing.
+ */
+public class SchemaMigrationsTest {
+
+    private String url;
+    private Database db;
+
+    /**
+     * Opens a fresh in-memory database for each test.
+     *
+     * @throws Exception if the database cannot be created
+     */
+    @Before
+    public void setUp() throws Exception {
+        url = "jdbc:h2:mem:migrations" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        db = new Database(url, 2, 1);
+        db.connectToDatabase();
+    }
+
+    /**
+     * Closes the pooled connections after each test.
+     */
+    @After
+    public void tearDown() {
+        db.closeConnection();
+    }
+
+    // Every schema_version row as "version description appliedAt", in version order
+    private List<String> recordedSteps() throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, description, appliedAt FROM schema_version ORDER BY version")) {
+            while (rs.next()) rows.add(rs.getInt(1) + " " + rs.getString(2) + " " + rs.getTimestamp(3));
+        }
+        return rows;
+    }
+
+    /**
+     * Tests that a new database records each step from 1 to the latest once, with its
+     * description.
+     *
+     * @throws Exception if schema_version cannot be read
+     */
+    @Test
+    public void testNewDatabaseRecordsEveryStep() throws Exception {
+        List<String> steps = recordedSteps();
+        assertEquals(SchemaMigrations.latestVersion(), steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            assertTrue(steps.get(i), steps.get(i).startsWith((i + 1) + " "));
+        }
+        assertTrue(steps.get(1).startsWith("2 Keep a reply count on each post "));
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(SchemaMigrations.latestVersion(), SchemaMigrations.currentVersion(connection));
+        }
+    }
+
+    /**
+     * Tests that migrating a migrated database, directly and by opening it again, applies no
+     * step and leaves schema_version and the data as they were.
+     *
+     * @throws Exception if the database cannot be migrated or reopened
+     */
+    @Test
+    public void testMigratingAgainChangesNothing() throws Exception {
+        db.createPost("ann", "Kept", "Through every reopen", "General");
+        List<String> before = recordedSteps();
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(0, SchemaMigrations.migrate(connection));
+            assertEquals(0, SchemaMigrations.migrate(connection));
+        }
+        db.closeConnection();
+        db = new Database(url, 2, 1);
+        db.connectToDatabase();
+
+        assertEquals(before, recordedSteps());
+        assertEquals(1, db.fetchPosts(false, "", true, "All Threads", null).size());
+    }
+
+    // Put userDB back as a step 7 that stopped part way would leave it, and forget step 7 and
+    // every step after it
+    private void undoStep7(String oldColumns, String roleValues) throws Exception {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement st = connection.createStatement()) {
+            st.execute("INSERT INTO userDB (userName, password, roles) VALUES ('ann', 'pw', 5)");
+            for (String column : oldColumns.split(",")) {
+                st.execute("ALTER TABLE userDB ADD COLUMN " + column + " BOOL DEFAULT FALSE");
+            }
+            st.execute("UPDATE userDB SET " + roleValues);
+            st.execute("DELETE FROM schema_version WHERE version >= 7");
+        }
+    }
+
+    private int rolesOf(String userName) throws Exception {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT roles FROM userDB WHERE userName = '" + userName + "'")) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Tests that step 7 can be run again after it stopped between dropping the old role columns,
+     * keeping the roles it had already back-filled, and after it stopped before the back-fill.
+     *
+     * @throws Exception if the database cannot be changed or migrated
+     */
+    @Test
+    public void testRolesStepCanBeRetried() throws Exception {
+        // Stopped after dropping adminRole: the roles are set and must not be recomputed
+        undoStep7("newRole1,newRole2", "newRole1 = FALSE, newRole2 = FALSE");
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(SchemaMigrations.latestVersion() - 6, SchemaMigrations.migrate(connection));
+            assertEquals(SchemaMigrations.latestVersion(), SchemaMigrations.currentVersion(connection));
+        }
+        assertEquals(5, rolesOf("ann"));
+
+        // Stopped before the back-fill: the roles come from the old columns
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement st = connection.createStatement()) {
+            st.execute("DELETE FROM userDB");
+        }
+        undoStep7("adminRole,newRole1,newRole2", "roles = 0, adminRole = TRUE, newRole2 = TRUE");
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(SchemaMigrations.latestVersion() - 6, SchemaMigrations.migrate(connection));
+        }
+        assertEquals(5, rolesOf("ann"));
+
+        // and the database opens as usual
+        db.closeConnection();
+        db = new Database(url, 2, 1);
+        db.connectToDatabase();
+        assertEquals(5, db.getUserAccountDetails("ann") ? db.getCurrentRoles() : -1);
+    }
+}
@@ -0,0 +1,268 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*******
+ * <p> Title: SearchIndex Class. </p>
+ *
+ * <p> Description: A persistent inverted keyword index over post titles, post bodies, and reply
+ * bodies.  Each distinct lower-case word of a document is stored as one row of the SearchTerms
+ * table, keyed by (term, postId, replyId), where a replyId of 0 identifies the post itself.
+ * The primary key doubles as the term index, so a keyword lookup is a range scan over the
+ * matching terms instead of a scan of every post and reply.</p>
+ *
+ * <p> The Database class keeps the index current as posts and replies are created, updated, and
+ * deleted, so the index never has to be rebuilt during normal operation.</p>
+ *
+ */
+
+public final class SearchIndex {
+
+	/** The longest term that is stored; longer words are truncated to this length */
+	static final int MAX_TERM_LENGTH = 64;
+
+	// no instances
+	private SearchIndex() {}
+
+	/*******
+	 * <p> Method: tokenize </p>
+	 *
+	 * <p> Description: Split a piece of text into its distinct lower-case words.  A word is a run
+	 * of letters and digits; everything else is a separator.</p>
+	 *
+	 * @param text the text to split (may be null)
+	 *
+	 * @return the distinct words in the order they first appear
+	 */
+
+	public static Set<String> tokenize(String text) {
+		Set<String> terms = new LinkedHashSet<>();
+		if (text == null) return terms;
+		int n = text.length();
+		int start = -1;
+		for (int i = 0; i <= n; i++) {
+			boolean wordChar = i < n && Character.isLetterOrDigit(text.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				int end = Math.min(i, start + MAX_TERM_LENGTH);
+				terms.add(text.substring(start, end).toLowerCase());
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	/*******
+	 * <p> Method: createTable </p>
+	 *
+	 * <p> Description: Create the SearchTerms table and its secondary index if they do not exist,
+	 * and populate it from the existing posts and replies the first time it is created.</p>
+	 *
+	 * @param connection the connection used to run the statements
+	 *
+	 * @throws SQLException when the table cannot be created or populated
+	 */
+
+	static void createTable(Connection connection) throws SQLException {
+		try (Statement st = connection.createStatement()) {
+			st.execute("CREATE TABLE IF NOT EXISTS SearchTerms ("
+					+ "term VARCHAR(" + MAX_TERM_LENGTH + ") NOT NULL, "
+					+ "postId INT NOT NULL, "
+					+ "replyId INT NOT NULL DEFAULT 0, "
+					+ "PRIMARY KEY(term, postId, replyId))");
+			st.execute("CREATE INDEX IF NOT EXISTS idx_searchterms_doc ON SearchTerms(postId, replyId)");
+
+			// The first time the index exists on a database that already has posts, back-fill it
+			boolean indexEmpty;
+			try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM SearchTerms")) {
+				indexEmpty = rs.next() && rs.getInt(1) == 0;
+			}
+			if (indexEmpty) rebuild(connection);
+		}
+	}
+
+	/*******
+	 * <p> Method: rebuild </p>
+	 *
+	 * <p> Description: Discard the index and rebuild it from every post and reply.</p>
+	 *
+	 * @param connection the connection used to run the statements
+	 *
+	 * @throws SQLException when the posts or replies cannot be read or the index written
+	 */
+
+	static void rebuild(Connection connection) throws SQLException {
+		try (Statement st = connection.createStatement()) {
+			st.execute("DELETE FROM SearchTerms");
+		}
+		String insert = "INSERT INTO SearchTerms (term, postId, replyId) VALUES (?, ?, ?)";
+		try (PreparedStatement ps = connection.prepareStatement(insert);
+			 Statement st = connection.createStatement()) {
+			try (ResultSet rs = st.executeQuery("SELECT id, title, body FROM Posts")) {
+				while (rs.next()) {
+					addTerms(ps, rs.getInt(1), 0, rs.getString(2) + " " + rs.getString(3));
+				}
+			}
+			try (ResultSet rs = st.executeQuery("SELECT postId, id, body FROM Replies")) {
+				while (rs.next()) {
+					addTerms(ps, rs.getInt(1), rs.getInt(2), rs.getString(3));
+				}
+			}
+			ps.executeBatch();
+		}
+	}
+
+	/*******
+	 * <p> Method: index </p>
+	 *
+	 * <p> Description: Replace the terms stored for one document (a post when replyId is 0,
+	 * otherwise a reply) with the terms of its current text.</p>
+	 *
+	 * @param connection the connection used to run the statements
+	 * @param postId the post the document belongs to
+	 * @param replyId the reply id, or 0 for the post itself
+	 * @param text the current text of the document
+	 *
+	 * @throws SQLException when the index cannot be updated
+	 */
+
+	static void index(Connection connection, int postId, int replyId, String text)
+			throws SQLException {
+		remove(connection, postId, replyId);
+		String insert = "INSERT INTO SearchTerms (term, postId, replyId) VALUES (?, ?, ?)";
+		try (PreparedStatement ps = connection.prepareStatement(insert)) {
+			addTerms(ps, postId, replyId, text);
+			ps.executeBatch();
+		}
+	}
+
+	/*******
+	 * <p> Method: remove </p>
+	 *
+	 * <p> Description: Remove every term stored for one document.</p>
+	 *
+	 * @param connection the connection used to run the statement
+	 * @param postId the post the document belongs to
+	 * @param replyId the reply id, or 0 for the post itself
+	 *
+	 * @throws SQLException when the index cannot be updated
+	 */
+
+	static void remove(Connection connection, int postId, int replyId) throws SQLException {
+		String sql = "DELETE FROM SearchTerms WHERE postId = ? AND replyId = ?";
+		try (PreparedStatement ps = connection.prepareStatement(sql)) {
+			ps.setInt(1, postId);
+			ps.setInt(2, replyId);
+			ps.executeUpdate();
+		}
+	}
+
+	/*******
+	 * <p> Method: search </p>
+	 *
+	 * <p> Description: Find the posts that match every word of a keyword query.  A query word
+	 * matches any indexed term that starts with it, so partially typed words still find results.
+	 * A post matches if its title and body contain every word, or if one of its replies does.
+	 * At most one row is returned per post: the post itself when it matches, otherwise its
+	 * earliest matching reply.  Each row holds the Posts columns plus "matchType" ("post" or
+	 * "reply") and "matchText" (the text that matched).</p>
+	 *
+	 * @param connection the connection used to run the query
+	 * @param keyword the raw keyword text typed by the user
+	 * @param threadFilter the thread to restrict to, or "All Threads" / null for every thread
+	 *
+	 * @return the matching posts, most recently updated first
+	 *
+	 * @throws SQLException when the query fails
+	 */
+
+	static List<Map<String,Object>> search(Connection connection, String keyword,
+			String threadFilter) throws SQLException {
+		List<Map<String,Object>> out = new ArrayList<>();
+		List<String> terms = new ArrayList<>(tokenize(keyword));
+		if (terms.isEmpty()) return out;
+
+		// One set of matching documents per word; a document must appear in all of them
+		StringBuilder docs = new StringBuilder();
+		for (int i = 0; i < terms.size(); i++) {
+			if (i > 0) docs.append(" INTERSECT ");
+			docs.append("SELECT postId, replyId FROM SearchTerms WHERE term LIKE ? ESCAPE '\\'");
+		}
+		boolean byThread = threadFilter != null && !"All Threads".equals(threadFilter);
+
+		String sql =
+			"SELECT p.*, m.replyId AS matchReplyId, r.body AS matchReplyBody " +
+			"FROM (" + docs + ") m " +
+			"JOIN Posts p ON p.id = m.postId " +
+			"LEFT JOIN Replies r ON r.id = m.replyId " +
+			"WHERE " + (byThread ? "p.thread = ?" : "1=1") + " " +
+			"ORDER BY p.updatedAt DESC, p.id DESC, m.replyId ASC";
+
+		try (PreparedStatement ps = connection.prepareStatement(sql)) {
+			int j = 1;
+			for (String t : terms) ps.setString(j++, escapeLike(t) + "%");
+			if (byThread) ps.setString(j++, threadFilter);
+
+			try (ResultSet rs = ps.executeQuery()) {
+				java.sql.ResultSetMetaData md = rs.getMetaData();
+				int n = md.getColumnCount();
+				int lastPostId = Integer.MIN_VALUE;
+				while (rs.next()) {
+					int postId = rs.getInt("id");
+					if (postId == lastPostId) continue;	// the best match for this post is kept
+					lastPostId = postId;
+
+					Map<String,Object> row = new HashMap<>();
+					for (int i = 1; i <= n; i++) {
+						String col = md.getColumnLabel(i);
+						if (col.equalsIgnoreCase("matchReplyId")
+								|| col.equalsIgnoreCase("matchReplyBody")) continue;
+						row.put(col, rs.getObject(i));
+					}
+					if (rs.getInt("matchReplyId") == 0) {
+						row.put("matchType", "post");
+						row.put("matchText", rs.getString("title") + "\n" + rs.getString("body"));
+					} else {
+						row.put("matchType", "reply");
+						row.put("matchText", rs.getString("matchReplyBody"));
+					}
+					out.add(row);
+				}
+			}
+		}
+		return out;
+	}
+
+	/*
+	 * Queue one insert per distinct term of the text onto the batch of the given statement.
+	 */
+
+	private static void addTerms(PreparedStatement ps, int postId, int replyId, String text)
+			throws SQLException {
+		for (String term : tokenize(text)) {
+			ps.setString(1, term);
+			ps.setInt(2, postId);
+			ps.setInt(3, replyId);
+			ps.addBatch();
+		}
+	}
+
+	/*
+	 * Escape the LIKE wildcards so a query word is only ever used as a literal prefix.
+	 */
+
+	private static String escapeLike(String s) {
+		return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+}
@@ -0,0 +1,174 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for {@link SearchIndex}: how text is split into terms, how query words match the start
+ * of a term, and that the SearchTerms rows Database keeps through edits and deletes are the ones
+ * a rebuild from the posts and replies would write.
+ */
+public class SearchIndexTest {
+
+    private String url;
+    private Database db;
+
+    /**
+     * Opens a fresh in-memory database for each test.
+     *
+     * @throws Exception if the database cannot be created
+     */
+    @Before
+    public void setUp() throws Exception {
+        url = "jdbc:h2:mem:searchindex" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        db = new Database(url, 2, 1);
+        db.connectToDatabase();
+    }
+
+    /**
+     * Closes the pooled connections after each test.
+     */
+    @After
+    public void tearDown() {
+        db.closeConnection();
+    }
+
+    private int idOf(String title) {
+        for (Map<String,Object> row : db.fetchPosts(false, "", true, "All Threads", null)) {
+            if (title.equals(Post.getStringCI(row, "title"))) return Post.getIntCI(row, "id");
+        }
+        throw new AssertionError("no post titled " + title);
+    }
+
+    private int replyIdOf(int postId, String body) {
+        for (Map<String,Object> row : db.getRepliesForPost(postId)) {
+            if (body.equals(Post.getStringCI(row, "body"))) return Post.getIntCI(row, "id");
+        }
+        throw new AssertionError("no reply " + body);
+    }
+
+    private Set<Integer> ids(String keyword) {
+        Set<Integer> ids = new TreeSet<>();
+        for (Map<String,Object> row : db.searchPosts(keyword, "All Threads")) ids.add(Post.getIntCI(row, "id"));
+        return ids;
+    }
+
+    private static Set<Integer> setOf(Integer... ids) {
+        return new TreeSet<>(Arrays.asList(ids));
+    }
+
+    // Every SearchTerms row as "term postId replyId", in key order
+    private List<String> storedTerms() throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT term, postId, replyId FROM SearchTerms ORDER BY 1, 2, 3")) {
+            while (rs.next()) rows.add(rs.getString(1) + " " + rs.getInt(2) + " " + rs.getInt(3));
+        }
+        return rows;
+    }
+
+    /**
+     * Tests that text is split on anything but letters and digits into distinct lower-case
+     * words, in the order they first appear, with long words cut to MAX_TERM_LENGTH.
+     */
+    @Test
+    public void testTokenize() {
+        assertEquals(Arrays.asList("the", "rake", "s", "handle", "snapped", "2x"),
+                new ArrayList<>(SearchIndex.tokenize("The rake's handle -- SNAPPED, 2x! the RAKE")));
+        assertEquals(Arrays.asList("café", "naïve", "x1"), new ArrayList<>(SearchIndex.tokenize("Café/naïve_x1")));
+        assertTrue(SearchIndex.tokenize(null).isEmpty());
+        assertTrue(SearchIndex.tokenize("").isEmpty());
+        assertTrue(SearchIndex.tokenize(" %_-!? ").isEmpty());
+
+        StringBuilder longWord = new StringBuilder();
+        for (int i = 0; i < SearchIndex.MAX_TERM_LENGTH + 10; i++) longWord.append('a');
+        Set<String> terms = SearchIndex.tokenize("x " + longWord + " y");
+        assertEquals(3, terms.size());
+        assertTrue(terms.contains(longWord.substring(0, SearchIndex.MAX_TERM_LENGTH)));
+    }
+
+    /**
+     * Tests that a query word matches the start of a word but not its middle, that every word
+     * must be in the same post or the same reply, and that LIKE wildcards match only themselves.
+     */
+    @Test
+    public void testQueryWordsMatchWordPrefixes() {
+        db.createPost("ann", "Garden tools", "Which rake and shovel?", "General");
+        db.createPost("bob", "Weekend", "Nothing planned", "General");
+        db.createPost("cat", "Percent", "Grades out of 100_percent", "General");
+        int garden = idOf("Garden tools"), weekend = idOf("Weekend");
+        db.createReply(weekend, "dan", "Planting my garden");
+        db.createReply(weekend, "eve", "Buying a shovel");
+
+        assertEquals(setOf(garden, weekend), ids("gard"));
+        assertEquals(setOf(garden, weekend), ids("GARDEN"));
+        assertEquals(setOf(), ids("arden"));
+        assertEquals(setOf(), ids("gardening"));
+        assertEquals(setOf(garden), ids("gar sho"));      // both words in one post
+        assertEquals(setOf(), ids("planting shovel"));    // in two different replies
+        assertEquals(setOf(weekend), ids("plant my"));
+        assertEquals(setOf(), ids("%"));
+        assertEquals(setOf(), ids("r_ke"));               // r and ke, not a wildcard
+
+        Map<String,Object> reply = db.searchPosts("planting", "All Threads").get(0);
+        assertEquals("reply", reply.get("matchType"));
+        assertEquals("Planting my garden", reply.get("matchText"));
+        Map<String,Object> post = db.searchPosts("rake", "All Threads").get(0);
+        assertEquals("post", post.get("matchType"));
+    }
+
+    /**
+     * Tests that a word removed by updatePost or updateReply stops matching, a word added starts
+     * matching, a deleted reply's words stop matching, and the rows left are exactly those a
+     * rebuild writes.
+     *
+     * @throws Exception if the index cannot be read or rebuilt
+     */
+    @Test
+    public void testIndexFollowsEditsAndDeletes() throws Exception {
+        db.createPost("ann", "Garden tools", "Which rake and shovel?", "General");
+        db.createPost("bob", "Weekend", "Nothing planned", "General");
+        int garden = idOf("Garden tools"), weekend = idOf("Weekend");
+        db.createReply(weekend, "dan", "Planting tulips");
+        db.createReply(weekend, "eve", "Buying compost");
+        int tulips = replyIdOf(weekend, "Planting tulips"), compost = replyIdOf(weekend, "Buying compost");
+        assertEquals(setOf(garden), ids("rake"));
+
+        db.updatePost(garden, "Garden tools", "Which hoe and shovel?");
+        assertEquals(setOf(), ids("rake"));
+        assertEquals(setOf(garden), ids("hoe"));
+        assertEquals(setOf(garden), ids("shovel"));
+
+        db.updateReply(tulips, "Planting roses");
+        assertEquals(setOf(), ids("tulips"));
+        assertEquals(setOf(weekend), ids("roses"));
+        assertEquals(setOf(weekend), ids("planting"));
+
+        db.deleteReply(compost);
+        assertEquals(setOf(), ids("compost"));
+        assertEquals(setOf(weekend), ids("roses"));
+
+        List<String> maintained = storedTerms();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            SearchIndex.rebuild(connection);
+        }
+        assertEquals(maintained, storedTerms());
+    }
+}
@@ -0,0 +1,18 @@
+package database;
+
+/*******
+ * <p> Title: SearchMode Enumeration. </p>
+ *
+ * <p> Description: The back ends that Database.searchPosts can use to answer a keyword search.
+ * </p>
+ *
+ */
+
+public enum SearchMode {
+
+	/** Word-prefix matching through the SearchTerms inverted index maintained by Database */
+	KEYWORD_INDEX,
+
+	/** Whole-word matching through H2's built-in full-text indexes, ranked by score */
+	FULL_TEXT
+}
@@ -0,0 +1,187 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******
+ * <p> Title: StatementCache Class. </p>
+ *
+ * <p> Description: The prepared statements of one physical connection, kept open between uses
+ * and keyed by their SQL text, so running the same query again skips H2's parse and plan work.
+ * The cache holds at most a fixed number of statements and closes the least recently used one
+ * when it is full.</p>
+ *
+ * <p> A statement handed out by the cache is a wrapper whose close() clears its parameters and
+ * returns it to the cache instead of closing it, so callers keep using try-with-resources.  If
+ * the cached statement for some SQL is still in use (the same query prepared twice on one
+ * connection), the second caller gets an ordinary, uncached statement.</p>
+ *
+ * <p> A connection is only ever used by one borrower at a time, so a StatementCache is not
+ * shared between threads; only the hit and miss counters, which the pool shares between all its
+ * caches, are updated concurrently.</p>
+ *
+ */
+
+final class StatementCache {
+
+	private final Connection physical;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final Map<String,Entry> statements;
+
+	// A cached statement and whether a caller currently holds it
+	private static final class Entry {
+		final PreparedStatement statement;
+		boolean inUse = false;
+		boolean evicted = false;
+
+		Entry(PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
+
+	/*******
+	 * <p> Method: StatementCache </p>
+	 *
+	 * <p> Description: Create an empty cache for one physical connection.</p>
+	 *
+	 * @param physical the connection the statements are prepared on
+	 * @param capacity the most statements kept open
+	 * @param hits counts the prepares served from a cache
+	 * @param misses counts the prepares that had to be parsed
+	 */
+
+	StatementCache(Connection physical, int capacity, AtomicLong hits, AtomicLong misses) {
+		this.physical = physical;
+		this.hits = hits;
+		this.misses = misses;
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest) {
+				if (size() <= capacity) return false;
+				Entry e = eldest.getValue();
+				e.evicted = true;
+				if (!e.inUse) closeQuietly(e.statement);	// otherwise closed when it is returned
+				return true;
+			}
+		};
+	}
+
+	/*******
+	 * <p> Method: prepare </p>
+	 *
+	 * <p> Description: Return a prepared statement for the SQL, reusing the cached one when it is
+	 * free.</p>
+	 *
+	 * @param sql the SQL text of the statement
+	 * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+	 *
+	 * @return a statement whose close() returns it to the cache
+	 *
+	 * @throws SQLException when the statement cannot be prepared
+	 */
+
+	PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+		String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+		Entry e = statements.get(key);
+		if (e != null && !e.inUse && !e.statement.isClosed()) {
+			hits.incrementAndGet();
+		} else if (e != null && e.inUse) {
+			// Already held by this connection's borrower; give out a plain statement
+			misses.incrementAndGet();
+			return physical.prepareStatement(sql, autoGeneratedKeys);
+		} else {
+			misses.incrementAndGet();
+			e = new Entry(physical.prepareStatement(sql, autoGeneratedKeys));
+			statements.put(key, e);
+		}
+		e.inUse = true;
+		return wrap(e);
+	}
+
+	/*******
+	 * <p> Method: close </p>
+	 *
+	 * <p> Description: Close every cached statement.</p>
+	 */
+
+	void close() {
+		for (Iterator<Entry> it = statements.values().iterator(); it.hasNext(); ) {
+			closeQuietly(it.next().statement);
+			it.remove();
+		}
+	}
+
+	/*
+	 * Give the statement back to the cache once the caller closes it.
+	 */
+
+	private void release(Entry e) {
+		e.inUse = false;
+		if (e.evicted) {
+			closeQuietly(e.statement);
+			return;
+		}
+		try {
+			e.statement.clearParameters();
+			e.statement.clearBatch();
+		} catch (SQLException ex) {
+			// A statement that cannot be reset is not reused
+			e.evicted = true;
+			statements.values().remove(e);
+			closeQuietly(e.statement);
+		}
+	}
+
+	private static void closeQuietly(Statement s) {
+		try {
+			s.close();
+		} catch (SQLException e) { e.printStackTrace(); }
+	}
+
+	/*
+	 * Wrap a cached statement so close() returns it (once) and every other call goes straight to
+	 * the statement.
+	 */
+
+	private PreparedStatement wrap(Entry e) {
+		InvocationHandler handler = new InvocationHandler() {
+			private boolean returned = false;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				switch (method.getName()) {
+				case "close":
+					if (!returned) {
+						returned = true;
+						release(e);
+					}
+					return null;
+				case "isClosed":
+					return returned || e.statement.isClosed();
+				default:
+					if (returned) throw new SQLException("Statement has been closed");
+					try {
+						return method.invoke(e.statement, args);
+					} catch (InvocationTargetException ex) {
+						throw ex.getCause();
+					}
+				}
+			}
+		};
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, handler);
+	}
+}
@@ -0,0 +1,35 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import entityClasses.Post;
+
+/**
+ * Tests for {@link StatementCache}: the queries Database runs again and again are prepared once
+ * per connection and then found in the cache.
+ */
+public class StatementCacheTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that running the same queries again reuses the cached prepared statements.
+     */
+    @Test
+    public void testRepeatedQueriesReuseCachedStatements() {
+        db.createPost("alice", "Cached", "Statement cache check", "General");
+        int postId = Post.getIntCI(db.fetchPosts(false, "alice", false, "All Threads", null).get(0), "id");
+
+        db.markPostRead("alice", postId);
+        db.getRepliesForPost(postId);
+        long misses = db.getStatementCacheMisses();
+        long hits = db.getStatementCacheHits();
+
+        for (int i = 0; i < 10; i++) {
+            db.markPostRead("alice", postId);
+            db.getRepliesForPost(postId);
+        }
+        assertEquals(misses, db.getStatementCacheMisses());
+        assertEquals(hits + 20, db.getStatementCacheHits());
+    }
+}
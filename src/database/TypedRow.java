@@ -0,0 +1,257 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/*******
+ * <p> Title: TypedRow Class. </p>
+ *
+ * <p> Description: The base of the typed row classes (Database.PostRow and Database.ReplyRow).
+ * A subclass keeps each column of its table in a typed field and is filled from a result set by
+ * column index, so building a row does no hashing and reading a field is a field access.</p>
+ *
+ * <p> For the GUI code written against the Map&lt;String,Object&gt; rows the database used to
+ * return, a TypedRow is also a Map.  Keys are the column names, matched without regard to case
+ * through a table built once per row class, and values are the boxed field values.  Putting a
+ * column name updates the field; any other key is kept in a small side map.  Only the columns
+ * the query actually returned are present in the map.</p>
+ *
+ */
+
+public abstract class TypedRow extends AbstractMap<String,Object> {
+
+	private int present;					// bit i is set when column i holds a value
+	private Map<String,Object> extras;		// keys that are not columns of this row type
+
+	/*******
+	 * <p> Title: Columns Class. </p>
+	 *
+	 * <p> Description: The column names of one row type and the case-insensitive lookup from a
+	 * name to its ordinal.  The names are given in the camel case the GUI code uses; the lookup
+	 * also holds their upper-case (as H2 reports them) and lower-case spellings so the usual
+	 * keys are found without converting case.</p>
+	 */
+
+	static final class Columns {
+		final String[] names;						// upper-case names, by ordinal
+		private final Map<String,Integer> ordinals = new HashMap<>();
+
+		Columns(String... camelCaseNames) {
+			if (camelCaseNames.length > Integer.SIZE)
+				throw new IllegalArgumentException("Too many columns for a TypedRow");
+			names = new String[camelCaseNames.length];
+			for (int i = 0; i < camelCaseNames.length; i++) {
+				String name = camelCaseNames[i];
+				names[i] = name.toUpperCase(Locale.ROOT);
+				ordinals.put(name, i);
+				ordinals.put(names[i], i);
+				ordinals.put(name.toLowerCase(Locale.ROOT), i);
+			}
+		}
+
+		/*
+		 * The ordinal of the named column, or -1 if this row type has no such column.
+		 */
+
+		int ordinal(Object key) {
+			if (!(key instanceof String)) return -1;
+			Integer i = ordinals.get(key);
+			if (i == null) i = ordinals.get(((String) key).toUpperCase(Locale.ROOT));
+			return i == null ? -1 : i;
+		}
+	}
+
+	/** @return the columns of this row type */
+	abstract Columns columns();
+
+	/*
+	 * The boxed value of a column, for the Map view.
+	 */
+
+	abstract Object value(int ordinal);
+
+	/*
+	 * Set a column from a boxed value put through the Map view.
+	 */
+
+	abstract void assign(int ordinal, Object value);
+
+	/*
+	 * Set a column from the given column of the current result set row.
+	 */
+
+	abstract void read(int ordinal, ResultSet rs, int column) throws SQLException;
+
+	/*******
+	 * <p> Method: readAll </p>
+	 *
+	 * <p> Description: Read every remaining row of a result set into new typed rows.  The result
+	 * set's columns are matched to the row type's columns once, before the first row.</p>
+	 *
+	 * @param <R> the row type
+	 * @param rs the result set to read
+	 * @param newRow creates an empty row
+	 * @param out the list the rows are added to
+	 *
+	 * @throws SQLException when the result set cannot be read
+	 */
+
+	static <R extends TypedRow> void readAll(ResultSet rs, Supplier<R> newRow, List<? super R> out)
+			throws SQLException {
+		int[] ordinals = null;
+		String[] labels = null;
+		while (rs.next()) {
+			R row = newRow.get();
+			if (ordinals == null) {
+				ResultSetMetaData md = rs.getMetaData();
+				int n = md.getColumnCount();
+				ordinals = new int[n];
+				labels = new String[n];
+				for (int i = 0; i < n; i++) {
+					labels[i] = md.getColumnLabel(i + 1);
+					ordinals[i] = row.columns().ordinal(labels[i]);
+				}
+			}
+			TypedRow typed = row;
+			for (int i = 0; i < ordinals.length; i++) {
+				if (ordinals[i] >= 0) {
+					typed.read(ordinals[i], rs, i + 1);
+					typed.present |= 1 << ordinals[i];
+				} else {
+					typed.extras().put(labels[i], rs.getObject(i + 1));
+				}
+			}
+			out.add(row);
+		}
+	}
+
+	private Map<String,Object> extras() {
+		if (extras == null) extras = new HashMap<>(4);
+		return extras;
+	}
+
+	private boolean isPresent(int ordinal) {
+		return (present & (1 << ordinal)) != 0;
+	}
+
+	// ---- Map view ----
+
+	@Override
+	public Object get(Object key) {
+		int i = columns().ordinal(key);
+		if (i >= 0) return isPresent(i) ? value(i) : null;
+		return extras == null ? null : extras.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int i = columns().ordinal(key);
+		if (i >= 0) return isPresent(i);
+		return extras != null && extras.containsKey(key);
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		int i = columns().ordinal(key);
+		if (i < 0) return extras().put(key, value);
+		Object old = isPresent(i) ? value(i) : null;
+		assign(i, value);
+		present |= 1 << i;
+		return old;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		int i = columns().ordinal(key);
+		if (i < 0) return extras == null ? null : extras.remove(key);
+		Object old = isPresent(i) ? value(i) : null;
+		present &= ~(1 << i);
+		return old;
+	}
+
+	@Override
+	public int size() {
+		return Integer.bitCount(present) + (extras == null ? 0 : extras.size());
+	}
+
+	@Override
+	public Set<Map.Entry<String,Object>> entrySet() {
+		return new AbstractSet<>() {
+			@Override
+			public int size() {
+				return TypedRow.this.size();
+			}
+
+			@Override
+			public Iterator<Map.Entry<String,Object>> iterator() {
+				return new Iterator<>() {
+					private int next = nextPresent(0);
+					private final Iterator<Map.Entry<String,Object>> rest =
+							extras == null ? null : extras.entrySet().iterator();
+
+					@Override
+					public boolean hasNext() {
+						return next >= 0 || (rest != null && rest.hasNext());
+					}
+
+					@Override
+					public Map.Entry<String,Object> next() {
+						if (next >= 0) {
+							int i = next;
+							next = nextPresent(i + 1);
+							return new AbstractMap.SimpleImmutableEntry<>(columns().names[i], value(i));
+						}
+						if (rest == null) throw new NoSuchElementException();
+						return rest.next();
+					}
+				};
+			}
+		};
+	}
+
+	private int nextPresent(int from) {
+		for (int i = from; i < columns().names.length; i++)
+			if (isPresent(i)) return i;
+		return -1;
+	}
+
+	// ---- Conversions used by the subclasses' assign() ----
+
+	static int toInt(Object v) {
+		if (v instanceof Number) return ((Number) v).intValue();
+		if (v instanceof Boolean) return (Boolean) v ? 1 : 0;
+		try {
+			return Integer.parseInt(String.valueOf(v));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	static boolean toBoolean(Object v) {
+		if (v instanceof Boolean) return (Boolean) v;
+		if (v instanceof Number) return ((Number) v).intValue() != 0;
+		return v != null && Boolean.parseBoolean(v.toString());
+	}
+
+	static String toStr(Object v) {
+		return v == null ? null : v.toString();
+	}
+
+	static Timestamp toTimestamp(Object v) {
+		if (v instanceof Timestamp) return (Timestamp) v;
+		if (v instanceof java.time.LocalDateTime) return Timestamp.valueOf((java.time.LocalDateTime) v);
+		return v == null ? null : Timestamp.valueOf(v.toString());
+	}
+}
@@ -0,0 +1,111 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import database.Database.PostRow;
+import database.Database.ReplyRow;
+import entityClasses.Post;
+
+/**
+ * Tests for {@link TypedRow}: the rows the post and reply queries return hold each column in
+ * its field, and their Map view finds columns in any case, holds only the columns present, and
+ * keeps other keys beside them.
+ */
+public class TypedRowTest {
+
+    private Database db;
+
+    /**
+     * Opens a fresh in-memory database for each test.
+     *
+     * @throws Exception if the database cannot be created
+     */
+    @Before
+    public void setUp() throws Exception {
+        db = new Database("jdbc:h2:mem:typedrow" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", 2, 1);
+        db.connectToDatabase();
+    }
+
+    /**
+     * Closes the pooled connections after each test.
+     */
+    @After
+    public void tearDown() {
+        db.closeConnection();
+    }
+
+    /**
+     * Tests that queried rows hold the columns in their fields and the same values through the
+     * Map view, whatever the case of the key.
+     */
+    @Test
+    public void testQueriedRowsAreTyped() {
+        db.createPost("ann", "Title", "Body", "Questions");
+        Map<String,Object> row = db.fetchPosts(false, "ann", true, "All Threads", null).get(0);
+        assertTrue(row instanceof PostRow);
+        PostRow post = (PostRow) row;
+        db.createReply(post.id, "bob", "Reply");
+
+        assertEquals("ann", post.author);
+        assertEquals("Questions", post.thread);
+        assertEquals(0, post.replyCount);
+        assertFalse(post.deleted);
+        assertNotNull(post.updatedAt);
+        assertEquals(post.id, row.get("id"));
+        assertEquals("ann", row.get("authorUsername"));
+        assertEquals("ann", row.get("AUTHORUSERNAME"));
+        assertEquals("ann", row.get("authorusername"));
+        assertEquals("ann", Post.getStringCI(row, "AuthorUserName"));
+        assertEquals(post.updatedAt, row.get("updatedAt"));
+
+        Map<String,Object> reply = db.getRepliesForPost(post.id).get(0);
+        assertTrue(reply instanceof ReplyRow);
+        assertEquals(post.id, ((ReplyRow) reply).postId);
+        assertEquals("Reply", reply.get("BODY"));
+        assertEquals(1, Post.getIntCI(db.getPost(post.id), "replyCount"));
+    }
+
+    /**
+     * Tests that the Map view holds only columns that were read or put, converts values put
+     * into a column to its type, keeps other keys in the side map, and equals a HashMap with the
+     * same entries.
+     */
+    @Test
+    public void testMapViewOfColumnsAndExtras() {
+        PostRow row = new PostRow();
+        assertEquals(0, row.size());
+        assertFalse(row.containsKey("title"));
+        assertNull(row.get("title"));
+
+        row.put("TITLE", "Hello");
+        row.put("replyCount", "3");
+        row.put("isDeleted", 1);
+        row.put("matchType", "post");
+        assertEquals("Hello", row.title);
+        assertEquals(3, row.replyCount);
+        assertTrue(row.deleted);
+        assertEquals("post", row.get("matchType"));
+        assertNull(row.get("MATCHTYPE"));           // extra keys keep their case
+        assertEquals(4, row.size());
+
+        Map<String,Object> expected = new HashMap<>();
+        expected.put("TITLE", "Hello");
+        expected.put("ISDELETED", true);
+        expected.put("REPLYCOUNT", 3);
+        expected.put("matchType", "post");
+        assertEquals(expected, new HashMap<>(row));
+
+        assertEquals("Hello", row.remove("title"));
+        assertFalse(row.containsKey("title"));
+        assertEquals(3, row.size());
+        assertSame(row, PostRow.from(row));
+        assertEquals(new HashMap<>(row), new HashMap<>(PostRow.from(new HashMap<>(row))));
+    }
+}
@@ -0,0 +1,450 @@
+package database;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import entityClasses.Role;
+import inputValidation.inputValidator;
+import userNameRecognizerTestbed.UserNameRecognizer;
+
+/*******
+ * <p> Title: UserImporter Class. </p>
+ *
+ * <p> Description: Loads a file of user accounts into userDB.  The file is read a line at a time
+ * and handled in chunks of CHUNK_SIZE rows, so memory use does not grow with the file.  The rows
+ * of a chunk are validated in parallel, with the same checks the account pages use
+ * (UserNameRecognizer for the username and inputValidator.validateAllFields for the names and
+ * email address), and the valid ones are inserted through one batched INSERT in one transaction
+ * per chunk.  Unlike Database.register, importing users does not change any session's current
+ * user.</p>
+ *
+ * <p> Passwords are stored as PasswordHasher hashes.  A password that is already such a hash (an
+ * export from another installation) is stored as given.  The plaintext passwords of a chunk's
+ * new users are hashed together through PasswordHasher.hashAll at IMPORT_ITERATIONS, well below
+ * the calibrated cost, which replaces them at each user's first login: even so, hashing is most
+ * of the time an import of plaintext passwords takes (a few milliseconds per row per
+ * processor), while a file of hashes imports in seconds.  hashAll waits for the hasher's pool
+ * rather than being refused, and no connection is held while it runs.</p>
+ *
+ * <p> A CSV file starts with a header row naming its columns; a JSONL file holds one flat JSON
+ * object per line.  The column names (any case) are userName, password, firstName, middleName,
+ * lastName, preferredFirstName, emailAddress, and the role flags adminRole, newRole1, and
+ * newRole2 (true/false, yes/no, or 1/0; missing means false), which are combined into the roles
+ * bitmask of userDB.</p>
+ *
+ * <p> Every row that is not imported is reported with its line number: rows that cannot be
+ * parsed, rows that fail validation, and usernames that already exist or appear earlier in the
+ * file.  Should a chunk's batch still fail (a user registered meanwhile), that chunk is inserted
+ * again a row at a time so only the offending rows are lost.</p>
+ *
+ */
+
+final class UserImporter {
+
+	/** The number of rows validated and inserted together */
+	static final int CHUNK_SIZE = 2000;
+
+	// The columns of the file: the userDB columns, in the order of the INSERT below, then the
+	// role flags, which go into the roles column
+	private static final String[] COLUMNS = { "userName", "password", "firstName", "middleName",
+			"lastName", "preferredFirstName", "emailAddress", "adminRole", "newRole1", "newRole2" };
+	private static final int FIRST_ROLE = 7;
+
+	// The role each flag column, from FIRST_ROLE on, stands for
+	private static final Role[] FLAG_ROLES = { Role.ADMIN, Role.STUDENT, Role.STAFF };
+
+	private static final String INSERT = "INSERT INTO userDB (userName, password, firstName, "
+			+ "middleName, lastName, preferredFirstName, emailAddress, roles) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private final ConnectionPool pool;
+	private final PasswordHasher hasher;
+
+	// One input row: its line number and its values in COLUMNS order
+	private static final class Row {
+		final int line;
+		final String[] values;
+		String error;
+
+		Row(int line, String[] values) {
+			this.line = line;
+			this.values = values;
+		}
+
+		String userName() {
+			return values[0] == null ? "" : values[0];
+		}
+	}
+
+	/*******
+	 * <p> Method: UserImporter </p>
+	 *
+	 * <p> Description: Create an importer that writes through the given pool.</p>
+	 *
+	 * @param pool the pool the inserts borrow their connections from
+	 * @param hasher hashes the plaintext passwords in the file
+	 */
+
+	UserImporter(ConnectionPool pool, PasswordHasher hasher) {
+		this.pool = pool;
+		this.hasher = hasher;
+	}
+
+	/*******
+	 * <p> Method: run </p>
+	 *
+	 * <p> Description: Import every user in a file.</p>
+	 *
+	 * @param source the file contents
+	 * @param format CSV or JSONL
+	 * @param progress told the number of rows handled after each chunk (may be null)
+	 *
+	 * @return the usernames imported and the rows rejected
+	 */
+
+	BulkResult<String> run(Reader source, DataFormat format, IntConsumer progress) {
+		BulkResult<String> result = new BulkResult<>();
+		List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+		int[] columnOf = null;			// CSV field index of each of COLUMNS, -1 if absent
+		int lineNumber = 0;
+		int rows = 0;
+		try (BufferedReader in = new BufferedReader(source)) {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				lineNumber++;
+				if (line.isBlank()) continue;
+				if (format == DataFormat.CSV && columnOf == null) {
+					columnOf = headerColumns(splitCsv(line));
+					continue;
+				}
+				rows++;
+				try {
+					chunk.add(new Row(lineNumber, format == DataFormat.CSV
+							? csvValues(splitCsv(line), columnOf) : jsonValues(line)));
+				} catch (IllegalArgumentException e) {
+					result.addError(lineNumber, abbreviate(line), e.getMessage());
+				}
+				if (chunk.size() == CHUNK_SIZE) {
+					importChunk(chunk, result);
+					chunk.clear();
+					if (progress != null) progress.accept(rows);
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			result.addError(lineNumber, "", "The file could not be read: " + e.getMessage());
+		}
+		importChunk(chunk, result);
+		result.setRowsRead(rows);
+		if (progress != null) progress.accept(rows);
+		return result;
+	}
+
+	/*
+	 * Validate the rows of a chunk in parallel, hash the plaintext passwords of the new users,
+	 * then insert them.
+	 */
+
+	private void importChunk(List<Row> chunk, BulkResult<String> result) {
+		if (chunk.isEmpty()) return;
+		IntStream.range(0, chunk.size()).parallel().forEach(i -> chunk.get(i).error = validate(chunk.get(i)));
+
+		List<Row> valid = new ArrayList<>(chunk.size());
+		for (Row row : chunk) {
+			if (row.error == null) valid.add(row);
+			else result.addError(row.line, row.userName(), row.error);
+		}
+		List<Row> fresh;
+		try (Connection connection = pool.getConnection()) {
+			fresh = dropExisting(connection, valid, result);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			for (Row row : valid) result.addError(row.line, row.userName(), "Not stored: " + e.getMessage());
+			return;
+		}
+		if (!hashPasswords(fresh, result)) return;
+
+		// A user registered while the passwords were hashed makes the batch fail; the rows are
+		// then inserted one at a time
+		try (Connection connection = pool.getConnection()) {
+			connection.setAutoCommit(false);
+			try {
+				insertBatch(connection, fresh);
+				connection.commit();
+				for (Row row : fresh) result.addCreated(row.userName());
+			} catch (BatchUpdateException e) {
+				connection.rollback();
+				insertOneByOne(connection, fresh, result);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();	// the pool rolls back uncommitted work
+			for (Row row : fresh) result.addError(row.line, row.userName(), "Not stored: " + e.getMessage());
+		}
+	}
+
+	// Replace the plaintext passwords of the rows by hashes; false, with every row reported, if
+	// the hasher could not do it
+	private boolean hashPasswords(List<Row> rows, BulkResult<String> result) {
+		List<Row> plain = new ArrayList<>();
+		List<String> passwords = new ArrayList<>();
+		for (Row row : rows) {
+			if (PasswordHasher.isHash(row.values[1])) continue;
+			plain.add(row);
+			passwords.add(row.values[1]);
+		}
+		try {
+			String[] hashes = hasher.hashAll(passwords, PasswordHasher.IMPORT_ITERATIONS);
+			for (int i = 0; i < hashes.length; i++) plain.get(i).values[1] = hashes[i];
+			return true;
+		} catch (IllegalStateException e) {
+			e.printStackTrace();
+			for (Row row : rows) result.addError(row.line, row.userName(), "Not stored: " + e.getMessage());
+			return false;
+		}
+	}
+
+	// Validate one row; null if it is fine, otherwise why it is not
+	private String validate(Row row) {
+		UserNameRecognizer.Result userNameCheck = UserNameRecognizer.recognize(row.userName());
+		if (!userNameCheck.isValid()) return userNameCheck.getMessage();
+		if (row.values[1] == null || row.values[1].isEmpty()) return "Password cannot be empty.";
+		String error = inputValidator.validateAllFields(row.values[2], row.values[3], row.values[4],
+				row.values[5], row.values[6]);
+		if (!error.isEmpty()) return error.replace('\n', ' ').trim();
+		return null;
+	}
+
+	/*
+	 * The rows whose usernames are neither in userDB nor earlier in the chunk.  The rest are
+	 * reported.  Earlier chunks are already stored, so this also finds repeats across chunks.
+	 */
+
+	private static List<Row> dropExisting(Connection connection, List<Row> rows, BulkResult<String> result)
+			throws SQLException {
+		List<Row> fresh = new ArrayList<>(rows.size());
+		Set<String> seen = new HashSet<>();
+		try (PreparedStatement ps = connection.prepareStatement("SELECT 1 FROM userDB WHERE userName = ?")) {
+			for (Row row : rows) {
+				if (!seen.add(row.userName())) {
+					result.addError(row.line, row.userName(), "This username appears earlier in the file.");
+					continue;
+				}
+				ps.setString(1, row.userName());
+				try (ResultSet rs = ps.executeQuery()) {
+					if (rs.next()) result.addError(row.line, row.userName(), "This username is already in use.");
+					else fresh.add(row);
+				}
+			}
+		}
+		return fresh;
+	}
+
+	private static void insertBatch(Connection connection, List<Row> rows) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+			for (Row row : rows) {
+				bind(ps, row);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	// Insert the rows of a chunk whose batch failed one at a time, reporting each failure
+	private static void insertOneByOne(Connection connection, List<Row> rows, BulkResult<String> result)
+			throws SQLException {
+		connection.setAutoCommit(true);
+		try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+			for (Row row : rows) {
+				try {
+					bind(ps, row);
+					ps.executeUpdate();
+					result.addCreated(row.userName());
+				} catch (SQLException e) {
+					result.addError(row.line, row.userName(), "Not stored: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	private static void bind(PreparedStatement ps, Row row) throws SQLException {
+		for (int i = 0; i < FIRST_ROLE; i++) ps.setString(i + 1, row.values[i]);
+		int roles = 0;
+		for (int i = FIRST_ROLE; i < COLUMNS.length; i++)
+			roles = FLAG_ROLES[i - FIRST_ROLE].set(roles, isTrue(row.values[i]));
+		ps.setInt(FIRST_ROLE + 1, roles);
+	}
+
+	private static boolean isTrue(String value) {
+		if (value == null) return false;
+		switch (value.trim().toLowerCase(Locale.ROOT)) {
+		case "true": case "yes": case "y": case "1":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	// ---- Parsing ----
+
+	// The index of each of COLUMNS among the header's fields, -1 if it is not there
+	private static int[] headerColumns(List<String> header) {
+		int[] columnOf = new int[COLUMNS.length];
+		for (int c = 0; c < COLUMNS.length; c++) {
+			columnOf[c] = -1;
+			for (int i = 0; i < header.size(); i++)
+				if (header.get(i).trim().equalsIgnoreCase(COLUMNS[c])) columnOf[c] = i;
+		}
+		return columnOf;
+	}
+
+	private static String[] csvValues(List<String> fields, int[] columnOf) {
+		String[] values = new String[COLUMNS.length];
+		for (int c = 0; c < COLUMNS.length; c++)
+			if (columnOf[c] >= 0 && columnOf[c] < fields.size()) values[c] = fields.get(columnOf[c]).trim();
+		return values;
+	}
+
+	/*
+	 * Split one CSV line into its fields.  A field may be quoted, in which case it may hold commas
+	 * and doubled quotes.
+	 */
+
+	static List<String> splitCsv(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') field.append(c);
+				else if (i + 1 < line.length() && line.charAt(i + 1) == '"') field.append(line.charAt(++i));
+				else quoted = false;
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) throw new IllegalArgumentException("A quoted field is not closed.");
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static String[] jsonValues(String line) {
+		Map<String,String> object = parseJsonObject(line);
+		Map<String,String> byName = new HashMap<>();
+		for (Map.Entry<String,String> e : object.entrySet())
+			byName.put(e.getKey().toLowerCase(Locale.ROOT), e.getValue());
+		String[] values = new String[COLUMNS.length];
+		for (int c = 0; c < COLUMNS.length; c++) {
+			String v = byName.get(COLUMNS[c].toLowerCase(Locale.ROOT));
+			values[c] = v == null ? null : v.trim();
+		}
+		return values;
+	}
+
+	/*
+	 * Parse a flat JSON object: string keys with string, number, boolean, or null values, each
+	 * returned as its text (null for null).
+	 */
+
+	static Map<String,String> parseJsonObject(String text) {
+		Map<String,String> object = new HashMap<>();
+		int[] at = { skipSpace(text, 0) };
+		expect(text, at, '{');
+		if (peek(text, at) == '}') {
+			at[0]++;
+		} else {
+			while (true) {
+				String key = parseString(text, at);
+				expect(text, at, ':');
+				object.put(key, parseValue(text, at));
+				char c = peek(text, at);
+				at[0]++;
+				if (c == '}') break;
+				if (c != ',') throw new IllegalArgumentException("Expected , or } at column " + at[0] + ".");
+			}
+		}
+		if (skipSpace(text, at[0]) != text.length())
+			throw new IllegalArgumentException("Unexpected text after the object.");
+		return object;
+	}
+
+	private static String parseValue(String text, int[] at) {
+		char c = peek(text, at);
+		if (c == '"') return parseString(text, at);
+		if (c == '{' || c == '[') throw new IllegalArgumentException("Nested values are not supported.");
+		int start = at[0];
+		while (at[0] < text.length() && ",} \t".indexOf(text.charAt(at[0])) < 0) at[0]++;
+		String token = text.substring(start, at[0]);
+		if (token.isEmpty()) throw new IllegalArgumentException("Missing value at column " + (start + 1) + ".");
+		return token.equals("null") ? null : token;
+	}
+
+	private static String parseString(String text, int[] at) {
+		expect(text, at, '"');
+		StringBuilder s = new StringBuilder();
+		while (at[0] < text.length()) {
+			char c = text.charAt(at[0]++);
+			if (c == '"') return s.toString();
+			if (c != '\\') {
+				s.append(c);
+				continue;
+			}
+			if (at[0] >= text.length()) break;
+			char e = text.charAt(at[0]++);
+			switch (e) {
+			case 'n': s.append('\n'); break;
+			case 't': s.append('\t'); break;
+			case 'r': s.append('\r'); break;
+			case 'b': s.append('\b'); break;
+			case 'f': s.append('\f'); break;
+			case 'u':
+				if (at[0] + 4 > text.length()) throw new IllegalArgumentException("Bad \\u escape.");
+				s.append((char) Integer.parseInt(text.substring(at[0], at[0] + 4), 16));
+				at[0] += 4;
+				break;
+			default: s.append(e);		// \" \\ \/
+			}
+		}
+		throw new IllegalArgumentException("A string is not closed.");
+	}
+
+	private static void expect(String text, int[] at, char wanted) {
+		if (peek(text, at) != wanted)
+			throw new IllegalArgumentException("Expected " + wanted + " at column " + (at[0] + 1) + ".");
+		at[0]++;
+	}
+
+	// The next non-space character (moving past the spaces), or 0 at the end of the text
+	private static char peek(String text, int[] at) {
+		at[0] = skipSpace(text, at[0]);
+		return at[0] < text.length() ? text.charAt(at[0]) : 0;
+	}
+
+	private static int skipSpace(String text, int i) {
+		while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+		return i;
+	}
+
+	private static String abbreviate(String line) {
+		return line.length() <= 60 ? line : line.substring(0, 57) + "...";
+	}
+}
@@ -0,0 +1,69 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import entityClasses.User;
+
+/**
+ * Tests for {@link UserImporter}: a CSV or JSONL file is streamed in chunks, every valid row becomes
+ * a user, and every other row is reported with its line.
+ */
+public class UserImporterTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that importing users streams a file across several chunks, creates every valid row,
+     * reports the invalid and repeated ones, and reads JSONL as well as CSV.
+     *
+     * @throws Exception if the import fails
+     */
+    @Test
+    public void testImportUsersReportsRowErrorsAcrossChunks() throws Exception {
+        db.register(new User("taken", "pw", "A", "", "Taken", "", "taken@example.com",
+                false, true, false), new UserSession());
+        int rows = UserImporter.CHUNK_SIZE + 500;
+        StringBuilder csv = new StringBuilder("userName,password,firstName,middleName,lastName,"
+                + "preferredFirstName,emailAddress,newRole1\n");
+        for (int i = 0; i < rows; i++) {
+            String letters = Integer.toString(i, 26).chars()
+                    .mapToObj(c -> String.valueOf((char) ('a' + Character.digit(c, 26))))
+                    .reduce("", String::concat);
+            csv.append("student").append(i).append(",pw").append(i).append(",\"Ann ").append(letters)
+                    .append("\",Lee,Smith,Ann,s").append(i).append("@example.edu,true\n");
+        }
+        csv.append("taken,pw,Tim,Lee,Smith,Tim,t@example.edu,false\n");
+        csv.append("student7,pw,Tim,Lee,Smith,Tim,t@example.edu,false\n");
+        csv.append("9bad,pw,Tim,Lee,Smith,Tim,t@example.edu,false\n");
+        csv.append("goodname,pw,Tim2,Lee,Smith,Tim,t@example.edu,false\n");
+
+        List<Integer> progress = new ArrayList<>();
+        BulkResult<String> result = db.importUsers(new StringReader(csv.toString()),
+                DataFormat.CSV, progress::add);
+        assertEquals(rows + 4, result.getRowsRead());
+        assertEquals(rows, result.getCreated().size());
+        assertEquals(4, result.getErrors().size());
+        Set<Integer> errorLines = new TreeSet<>();
+        for (BulkResult.RowError error : result.getErrors()) errorLines.add(error.getLine());
+        assertEquals(new TreeSet<>(Arrays.asList(rows + 2, rows + 3, rows + 4, rows + 5)), errorLines);
+        assertEquals(Integer.valueOf(rows + 4), progress.get(progress.size() - 1));
+        assertEquals(rows + 1, db.getNumberOfUsers());
+        assertEquals("s42@example.edu", db.getEmailAddress("student42"));
+
+        String jsonl = "{\"userName\": \"jsonuser\", \"password\": \"pw\", \"firstName\": \"Jo\", "
+                + "\"middleName\": \"Q\", \"lastName\": \"Doe\", \"preferredFirstName\": \"Jo\", "
+                + "\"emailAddress\": \"jo@example.edu\", \"adminRole\": false, \"newRole2\": true}\n"
+                + "{\"userName\": \"broken\"\n";
+        result = db.importUsers(new StringReader(jsonl), DataFormat.JSONL, null);
+        assertEquals(Arrays.asList("jsonuser"), result.getCreated());
+        assertEquals(2, result.getErrors().get(0).getLine());
+        assertEquals("jo@example.edu", db.getEmailAddress("jsonuser"));
+    }
+}
@@ -0,0 +1,49 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import entityClasses.User;
+
+/**
+ * Tests for the paged user list: the keyset cursor visits every user once, in sort order, and the
+ * filter matches any case.
+ */
+public class UserListTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that paging the user list with the keyset cursor visits every user once, in order,
+     * in both directions and across null sort values, and that the filter matches any case.
+     */
+    @Test
+    public void testUserListPagesEveryUserInSortOrder() throws Exception {
+        for (int i = 0; i < 45; i++) {
+            db.register(new User(String.format("user%02d", i), "pw", "First", i % 3 == 0 ? null : "M" + (i % 4),
+                    "Last", "", "u" + i + "@example.edu", false, true, false), null);
+        }
+        for (boolean descending : new boolean[] { false, true }) {
+            List<String> paged = new ArrayList<>();
+            UserPage page = db.getUsers(UserSort.MIDDLE_NAME, descending, null, null, null, 7);
+            while (true) {
+                for (User user : page.getUsers()) paged.add(user.getMiddleName() + "/" + user.getUserName());
+                if (!page.hasMore()) break;
+                page = db.getUsers(UserSort.MIDDLE_NAME, descending, null, page.getLastSortValue(),
+                        page.getLastUserName(), 7);
+            }
+            List<String> all = new ArrayList<>();
+            for (User user : db.getUsers(UserSort.MIDDLE_NAME, descending, null, 0, 100).getUsers())
+                all.add(user.getMiddleName() + "/" + user.getUserName());
+            assertEquals(45, all.size());
+            assertEquals(all, paged);
+            assertEquals(descending ? "M3/user43" : "null/user00", paged.get(0));
+        }
+        UserPage filtered = db.getUsers(UserSort.USER_NAME, true, "USER1", null, null, 50);
+        assertEquals(10, filtered.getUsers().size());
+        assertEquals("user19", filtered.getUsers().get(0).getUserName());
+        assertFalse(filtered.hasMore());
+    }
+}
@@ -0,0 +1,52 @@
+package database;
+
+import java.util.List;
+
+import entityClasses.User;
+
+/*******
+ * <p> Title: UserPage Class. </p>
+ *
+ * <p> Description: One page of the user list returned by Database.getUsers, together with the
+ * keyset cursor, (sort column value, userName) of the last user, needed to ask for the page that
+ * follows.</p>
+ *
+ */
+
+public class UserPage {
+
+	private final List<User> users;
+	private final String lastSortValue;
+	private final String lastUserName;
+	private final boolean hasMore;
+
+	/*******
+	 * <p> Method: UserPage </p>
+	 *
+	 * <p> Description: Create a page.</p>
+	 *
+	 * @param users the users on this page
+	 * @param lastSortValue the sort column value of the last user on this page (may be null)
+	 * @param lastUserName the username of the last user on this page, or null if it is empty
+	 * @param hasMore true if at least one more user follows this page
+	 */
+
+	public UserPage(List<User> users, String lastSortValue, String lastUserName, boolean hasMore) {
+		this.users = users;
+		this.lastSortValue = lastSortValue;
+		this.lastUserName = lastUserName;
+		this.hasMore = hasMore;
+	}
+
+	/** @return the users on this page */
+	public List<User> getUsers() { return users; }
+
+	/** @return the sort-column half of the cursor for the next page */
+	public String getLastSortValue() { return lastSortValue; }
+
+	/** @return the username half of the cursor for the next page (null if this page is empty) */
+	public String getLastUserName() { return lastUserName; }
+
+	/** @return true if at least one more user follows this page */
+	public boolean hasMore() { return hasMore; }
+}
@@ -0,0 +1,124 @@
+package database;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import entityClasses.User;
+
+/*******
+ * <p> Title: UserProfileCache Class. </p>
+ *
+ * <p> Description: The userDB rows of recently loaded users, keyed by username, so that showing
+ * a home page again does not read the user's row again.  The cache holds at most a fixed number
+ * of users and drops the least recently used one to make room.  Every Database method that
+ * changes or deletes a user invalidates that user's entry after its write, so the next load reads
+ * the new row.</p>
+ *
+ * <p> A load that read the database before an invalidation must not put the row it read into
+ * the cache afterwards, or the cache would hold the old row until it was evicted.  Every
+ * invalidation therefore advances a counter: a loader takes stamp() before its query and put()
+ * ignores the row if the counter has moved since.</p>
+ *
+ * <p> The cached User objects never leave this class; callers receive copies of their
+ * attributes through UserSession.load.</p>
+ *
+ */
+
+final class UserProfileCache {
+
+	private final LinkedHashMap<String,User> entries;
+	private long invalidations = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	/*******
+	 * <p> Method: UserProfileCache </p>
+	 *
+	 * <p> Description: Create an empty cache.</p>
+	 *
+	 * @param maxEntries the most users held at once
+	 */
+
+	UserProfileCache(int maxEntries) {
+		// Access order, so the eldest entry is the least recently used one
+		entries = new LinkedHashMap<String,User>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,User> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/*******
+	 * <p> Method: get </p>
+	 *
+	 * <p> Description: Look up a user, counting the hit or miss.</p>
+	 *
+	 * @param username the user
+	 *
+	 * @return the cached row, or null if the user is not cached
+	 */
+
+	synchronized User get(String username) {
+		User user = entries.get(username);
+		if (user == null) misses++;
+		else hits++;
+		return user;
+	}
+
+	/** @return the invalidation count a loader passes to put() once its query has run */
+	synchronized long stamp() {
+		return invalidations;
+	}
+
+	/*******
+	 * <p> Method: put </p>
+	 *
+	 * <p> Description: Cache a row read from the database, unless a user was invalidated after
+	 * the row was read.</p>
+	 *
+	 * @param username the user
+	 * @param user the row
+	 * @param stamp the value of stamp() taken before the row was read
+	 */
+
+	synchronized void put(String username, User user, long stamp) {
+		if (stamp == invalidations) entries.put(username, user);
+	}
+
+	/*******
+	 * <p> Method: invalidate </p>
+	 *
+	 * <p> Description: Drop a user whose row has just been changed or deleted.</p>
+	 *
+	 * @param username the user
+	 */
+
+	synchronized void invalidate(String username) {
+		invalidations++;
+		entries.remove(username);
+	}
+
+	/** Drop every user */
+	synchronized void clear() {
+		invalidations++;
+		entries.clear();
+	}
+
+	/** @return the number of users cached */
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/** @return the number of lookups that found the user */
+	synchronized long getHits() {
+		return hits;
+	}
+
+	/** @return the number of lookups that did not find the user */
+	synchronized long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,82 @@
+package database;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import entityClasses.User;
+
+/**
+ * Tests for {@link UserProfileCache} and the profile updates: repeated loads are answered from the
+ * cache, every write to a user's row is seen by the next load, and updates write only the columns
+ * that changed.
+ */
+public class UserProfileCacheTest extends InMemoryDatabaseTest {
+
+    /**
+     * Tests that repeated profile loads are answered from the cache and that every write to a
+     * user's row is seen by the next load.
+     *
+     * @throws Exception if registering fails
+     */
+    @Test
+    public void testProfileCacheIsInvalidatedByEveryWrite() throws Exception {
+        db.register(new User("carol", "pw", "Carol", "", "King", "", "carol@example.com",
+                false, true, false), null);
+        UserSession session = new UserSession();
+        assertTrue(db.getUserAccountDetails("carol", session));
+        assertTrue(db.getUserAccountDetails("carol", session));
+        assertEquals(1, db.getProfileCacheHits());
+        assertEquals(0.5, db.getProfileCacheHitRatio(), 1e-9);
+
+        db.updateFirstName("carol", "Caroline");
+        db.updateEmailAddress("carol", "ck@example.com");
+        db.updatePassword("carol", "newpw");
+        assertTrue(db.updateUserRole("carol", "Staff", "true"));
+        assertTrue(db.getUserAccountDetails("carol", session));
+        assertEquals("Caroline", session.getFirstName());
+        assertEquals("ck@example.com", session.getEmailAddress());
+        assertNotNull(db.authenticate("carol", "newpw", null));
+        assertTrue(session.getNewRole2());
+
+        assertTrue(db.removeUser("carol"));
+        assertFalse(db.getUserAccountDetails("carol", new UserSession()));
+    }
+
+    /**
+     * Tests that profile updates write only the changed columns, that a bulk update counts only
+     * the users it found, and that the cached profiles see the changes.
+     *
+     * @throws Exception if registering fails
+     */
+    @Test
+    public void testUpdateProfilesWritesOnlyChangedColumns() throws Exception {
+        for (String name : new String[] { "dave", "erin", "fred" })
+            db.register(new User(name, "pw", "Old", "M", "Name", "", name + "@example.com",
+                    false, true, false), null);
+        UserSession session = new UserSession();
+        assertTrue(db.getUserAccountDetails("erin", session));
+
+        Map<String, Map<ProfileField, String>> changes = new HashMap<>();
+        changes.put("dave", Map.of(ProfileField.FIRST_NAME, "David", ProfileField.LAST_NAME, "Jones"));
+        changes.put("erin", Map.of(ProfileField.LAST_NAME, "Smith", ProfileField.FIRST_NAME, "Erin"));
+        changes.put("fred", Map.of(ProfileField.EMAIL_ADDRESS, "f@example.com"));
+        changes.put("nobody", Map.of(ProfileField.EMAIL_ADDRESS, "n@example.com"));
+        assertEquals(3, db.updateProfiles(changes));
+
+        assertTrue(db.getUserAccountDetails("erin", session));
+        assertEquals("Erin", session.getFirstName());
+        assertEquals("Smith", session.getLastName());
+        assertEquals("erin@example.com", session.getEmailAddress());
+        assertEquals("f@example.com", db.getEmailAddress("fred"));
+        assertEquals("Old", db.getFirstName("fred"));
+
+        assertTrue(db.updateProfile("dave", Map.of(ProfileField.MIDDLE_NAME, "Q")));
+        assertFalse(db.updateProfile("nobody", Map.of(ProfileField.MIDDLE_NAME, "Q")));
+        assertEquals("Q", db.getMiddleName("dave"));
+        assertEquals("David", db.getFirstName("dave"));
+    }
+}
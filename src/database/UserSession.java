@@ -0,0 +1,114 @@
+package database;
+
+import entityClasses.Role;
+
+/*******
+ * <p> Title: UserSession Class. </p>
+ *
+ * <p> Description: The attributes of the user a caller is currently working with (the logged-in
+ * user, or the user an admin has selected).  These used to be fields of Database, which meant a
+ * Database could only ever serve one caller.  Each concurrent caller now keeps its own
+ * UserSession and passes it to the Database methods that load or register a user; the
+ * single-window GUI keeps using the Database's own default session through the
+ * getCurrent...() methods.</p>
+ *
+ * <p> A load replaces every attribute at once, so a reader never sees a mix of two users.</p>
+ *
+ */
+
+public class UserSession {
+
+	private String username;
+	private String password;
+	private String firstName;
+	private String middleName;
+	private String lastName;
+	private String preferredFirstName;
+	private String emailAddress;
+	private int roles;			// A Role bitmask
+
+	/*******
+	 * <p> Method: UserSession </p>
+	 *
+	 * <p> Description: Create an empty session with no user loaded.</p>
+	 */
+
+	public UserSession() {
+
+	}
+
+	/*
+	 * Replace every attribute with the values of a user, registered or read from userDB.
+	 */
+
+	synchronized void load(entityClasses.User user) {
+		username = user.getUserName();
+		password = user.getPassword();
+		firstName = user.getFirstName();
+		middleName = user.getMiddleName();
+		lastName = user.getLastName();
+		preferredFirstName = user.getPreferredFirstName();
+		emailAddress = user.getEmailAddress();
+		roles = user.getRoles();
+	}
+
+	/*
+	 * True if this session currently holds the given user.
+	 */
+
+	synchronized boolean holds(String user) {
+		return username != null && username.equals(user);
+	}
+
+	/*
+	 * Apply changed profile attributes, all at once.
+	 */
+
+	synchronized void update(java.util.Map<ProfileField,String> changes) {
+		for (java.util.Map.Entry<ProfileField,String> change : changes.entrySet()) {
+			switch (change.getKey()) {
+			case FIRST_NAME: firstName = change.getValue(); break;
+			case MIDDLE_NAME: middleName = change.getValue(); break;
+			case LAST_NAME: lastName = change.getValue(); break;
+			case PREFERRED_FIRST_NAME: preferredFirstName = change.getValue(); break;
+			case EMAIL_ADDRESS: emailAddress = change.getValue(); break;
+			}
+		}
+	}
+
+	synchronized void setPassword(String s) { password = s; }
+	synchronized void setRole(Role role, boolean plays) { roles = role.set(roles, plays); }
+
+	/** @return the username of the loaded user */
+	public synchronized String getUsername() { return username; }
+
+	/** @return the password of the loaded user */
+	public synchronized String getPassword() { return password; }
+
+	/** @return the first name of the loaded user */
+	public synchronized String getFirstName() { return firstName; }
+
+	/** @return the middle name of the loaded user */
+	public synchronized String getMiddleName() { return middleName; }
+
+	/** @return the last name of the loaded user */
+	public synchronized String getLastName() { return lastName; }
+
+	/** @return the preferred first name of the loaded user */
+	public synchronized String getPreferredFirstName() { return preferredFirstName; }
+
+	/** @return the email address of the loaded user */
+	public synchronized String getEmailAddress() { return emailAddress; }
+
+	/** @return the roles the loaded user plays, as a Role bitmask */
+	public synchronized int getRoles() { return roles; }
+
+	/** @return true if the loaded user plays the Admin role */
+	public synchronized boolean getAdminRole() { return Role.ADMIN.in(roles); }
+
+	/** @return true if the loaded user plays the Student role */
+	public synchronized boolean getNewRole1() { return Role.STUDENT.in(roles); }
+
+	/** @return true if the loaded user plays the Staff role */
+	public synchronized boolean getNewRole2() { return Role.STAFF.in(roles); }
+}
@@ -0,0 +1,39 @@
+package database;
+
+/*******
+ * <p> Title: UserSort Enumeration. </p>
+ *
+ * <p> Description: The columns Database.getUsers can order the user list by.  Users with the
+ * same value are ordered by username, which is unique, so every order is total and can be paged
+ * with a keyset cursor.</p>
+ *
+ */
+
+public enum UserSort {
+
+	/** By username */
+	USER_NAME("userName"),
+
+	/** By first name, then username */
+	FIRST_NAME("firstName"),
+
+	/** By middle name, then username */
+	MIDDLE_NAME("middleName"),
+
+	/** By last name, then username */
+	LAST_NAME("lastName"),
+
+	/** By email address, then username */
+	EMAIL_ADDRESS("emailAddress");
+
+	private final String column;
+
+	UserSort(String column) {
+		this.column = column;
+	}
+
+	// The userDB column this order sorts on
+	String column() {
+		return column;
+	}
+}
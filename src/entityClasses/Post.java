@@ -1,6 +1,7 @@
 package entityClasses;
 
 import database.Database;
+import database.TypedRow;
 import inputValidation.PostReplyValidator;
 
 import java.util.List;
@@ -92,6 +93,17 @@ public final class Post {
 
 
 
+    /**
+     * Search posts and their replies for a keyword through the inverted keyword index.
+     *
+     * @param keyword      raw keyword text from the UI
+     * @param threadFilter thread category to search ("All Threads" searches all)
+     * @return one row map per matching post, including "matchType" and "matchText"
+     */
+    public static List<Map<String,Object>> searchPosts(String keyword, String threadFilter) {
+        return db().searchPosts(keyword, threadFilter);
+    }
+
     /**
      * Fetch a single post row by id (even if it's soft-deleted).
      *
@@ -269,6 +281,11 @@ public final class Post {
      */
     public static String getStringCI(Map<String,Object> row, String keyWanted) {
         if (row == null) return "";
+        if (row instanceof TypedRow) {
+            // typed rows look their columns up case-insensitively without a scan
+            Object v = row.get(keyWanted);
+            return v == null ? "" : v.toString();
+        }
         for (String k : row.keySet()) {
             if (k.equalsIgnoreCase(keyWanted)) {
                 Object v = row.get(k);
@@ -288,6 +305,16 @@ public final class Post {
      */
     public static int getIntCI(Map<String,Object> row, String keyWanted) {
         if (row == null) return -1;
+        if (row instanceof TypedRow) {
+            Object v = row.get(keyWanted);
+            if (v instanceof Number) return ((Number)v).intValue();
+            if (v == null) return -1;
+            try {
+                return Integer.parseInt(v.toString());
+            } catch (Exception ignore) {
+                return -1;
+            }
+        }
         for (String k : row.keySet()) {
             if (k.equalsIgnoreCase(keyWanted)) {
                 Object v = row.get(k);
@@ -312,6 +339,13 @@ public final class Post {
      */
     public static boolean getBoolCI(Map<String,Object> row, String keyWanted) {
         if (row == null) return false;
+        if (row instanceof TypedRow && row.containsKey(keyWanted)) {
+            Object v = row.get(keyWanted);
+            if (v instanceof Boolean) return (Boolean) v;
+            if (v instanceof Number)  return ((Number) v).intValue() != 0;
+            if (v instanceof String)  return Boolean.parseBoolean((String) v);
+            return false;
+        }
 
         // normalise the key we want: lower-case, no underscores
         String want = keyWanted.replace("_", "").toLowerCase();
@@ -0,0 +1,112 @@
+package entityClasses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*******
+ * <p> Title: Role Enumeration </p>
+ *
+ * <p> Description: The roles a user can play.  The roles a user plays are kept as a bitmask in
+ *  which each role owns the bit 1 &lt;&lt; ordinal(); the database stores that mask in the roles
+ *  column of userDB.  Adding a role therefore only means adding a constant here, at the end of
+ *  the list: moving or removing a constant would change the meaning of the stored masks. </p>
+ *
+ */
+
+public enum Role {
+
+	/** The Admin role (formerly the adminRole column) */
+	ADMIN("Admin"),
+
+	/** The Student role (formerly the newRole1 column) */
+	STUDENT("Student"),
+
+	/** The Staff role (formerly the newRole2 column) */
+	STAFF("Staff");
+
+	private final String label;
+
+	Role(String label) {
+		this.label = label;
+	}
+
+	/** @return the name of the role as the pages and invitation codes show it */
+	public String getLabel() { return label; }
+
+	/** @return the bit of this role in a roles mask */
+	public int bit() { return 1 << ordinal(); }
+
+	/**
+	 * @param roles a roles mask
+	 * @return true if the mask includes this role
+	 */
+	public boolean in(int roles) { return (roles & bit()) != 0; }
+
+	/**
+	 * @param roles a roles mask
+	 * @param plays whether the user should play this role
+	 * @return the mask with this role's bit set or cleared
+	 */
+	public int set(int roles, boolean plays) { return plays ? roles | bit() : roles & ~bit(); }
+
+
+	/*****
+	 * <p> Method: Role fromLabel(String label) </p>
+	 *
+	 * <p> Description: Find the role a label names. </p>
+	 *
+	 * @param label a label such as "Admin" or "Student"
+	 *
+	 * @return the role, or null if no role has that label
+	 */
+	public static Role fromLabel(String label) {
+		for (Role role : values()) {
+			if (role.label.equals(label)) return role;
+		}
+		return null;
+	}
+
+
+	/*****
+	 * <p> Method: List&lt;String&gt; labels(int roles) </p>
+	 *
+	 * <p> Description: The labels of the roles in a mask, in declaration order. </p>
+	 *
+	 * @param roles a roles mask
+	 *
+	 * @return the labels, such as ["Admin", "Staff"]
+	 */
+	public static List<String> labels(int roles) {
+		List<String> labels = new ArrayList<>();
+		for (Role role : values()) {
+			if (role.in(roles)) labels.add(role.label);
+		}
+		return labels;
+	}
+
+
+	/*****
+	 * <p> Method: int count(int roles) </p>
+	 *
+	 * <p> Description: The number of roles in a mask. </p>
+	 *
+	 * @param roles a roles mask
+	 *
+	 * @return the number of roles
+	 */
+	public static int count(int roles) {
+		return Integer.bitCount(roles);
+	}
+
+
+	/*****
+	 * <p> Method: int allRoles() </p>
+	 *
+	 * <p> Description: The mask that includes every role. </p>
+	 *
+	 * @return the mask with every role's bit set
+	 */
+	public static int allRoles() {
+		return (1 << values().length) - 1;
+	}
+}
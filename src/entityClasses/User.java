@@ -25,9 +25,7 @@ public class User {
     private String lastName;
     private String preferredFirstName;
     private String emailAddress;
-    private boolean adminRole;
-    private boolean role1;
-    private boolean role2;
+    private int roles;			// The roles this user plays, as a Role bitmask
     private String rolesString;
     //Used to display roles in a readable format in the user list for Userlist
     public String getRolesString() { return rolesString; }
@@ -71,9 +69,28 @@ public class User {
         this.lastName = ln;
         this.preferredFirstName = pfn;
         this.emailAddress = ea;
-        this.adminRole = r1;
-        this.role1 = r2;
-        this.role2 = r3;
+        this.roles = Role.ADMIN.set(0, r1) | Role.STUDENT.set(0, r2) | Role.STAFF.set(0, r3);
+    }
+
+    
+    /*****
+     * <p> Method: User(String userName, String password, String fn, String mn, String ln,
+     * 		String pfn, String ea, int roles) </p>
+     * 
+     * <p> Description: This constructor is used to establish user entity objects from a row of
+     * 		the database, whose roles are a bitmask. </p>
+     * 
+     * @param userName specifies the account userName for this user
+     * 
+     * @param password specifies the account password for this user
+     * 
+     * @param roles specifies the roles this user plays, as a Role bitmask
+     * 
+     */
+    public User(String userName, String password, String fn, String mn, String ln, String pfn, 
+    		String ea, int roles) {
+        this(userName, password, fn, mn, ln, pfn, ea, false, false, false);
+        this.roles = roles;
     }
 
     
@@ -87,7 +104,7 @@ public class User {
      */
     // Sets the role of the Admin user.
     public void setAdminRole(boolean role) {
-    	this.adminRole=role;
+    	roles = Role.ADMIN.set(roles, role);
     }
 
     
@@ -101,7 +118,7 @@ public class User {
      */
     // Sets the role1 user.
     public void setRole1User(boolean role) {
-    	this.role1=role;
+    	roles = Role.STUDENT.set(roles, role);
     }
 
     
@@ -115,7 +132,7 @@ public class User {
      */
     // Sets the role2 user.
     public void setRole2User(boolean role) {
-    	this.role2=role;
+    	roles = Role.STAFF.set(roles, role);
     }
 
     
@@ -220,7 +237,7 @@ public class User {
 	 *
      */
     // Gets the current value of the Admin role attribute.
-    public boolean getAdminRole() { return adminRole; }
+    public boolean getAdminRole() { return Role.ADMIN.in(roles); }
 
     
     /*****
@@ -232,7 +249,7 @@ public class User {
 	 *
      */
     // Gets the current value of the role1 attribute.
-	public boolean getNewRole1() { return role1; }
+	public boolean getNewRole1() { return Role.STUDENT.in(roles); }
 
     
     /*****
@@ -244,7 +261,7 @@ public class User {
 	 *
      */
     // Gets the current value of the role2 attribute.
-    public boolean getNewRole2() { return role2; }
+    public boolean getNewRole2() { return Role.STAFF.in(roles); }
 
         
     /*****
@@ -256,11 +273,40 @@ public class User {
 	 *
      */
     // Gets the current value of the Staff role attribute.
-    public int getNumRoles() {
-    	int numRoles = 0;
-    	if (adminRole) numRoles++;
-    	if (role1) numRoles++;
-    	if (role2) numRoles++;
-    	return numRoles;
-    }
+    public int getNumRoles() { return Role.count(roles); }
+
+    
+    /*****
+     * <p> Method: int getRoles() </p>
+     * 
+     * <p> Description: This getter returns the roles this user plays as a bitmask. </p>
+     * 
+     * @return the Role bitmask
+	 *
+     */
+    public int getRoles() { return roles; }
+
+    
+    /*****
+     * <p> Method: void setRoles(int roles) </p>
+     * 
+     * <p> Description: This setter replaces every role this user plays. </p>
+     * 
+     * @param roles the Role bitmask
+     * 
+     */
+    public void setRoles(int roles) { this.roles = roles; }
+
+    
+    /*****
+     * <p> Method: boolean hasRole(Role role) </p>
+     * 
+     * <p> Description: This getter tells whether this user plays a role. </p>
+     * 
+     * @param role the role
+     * 
+     * @return true if this user plays the role
+	 *
+     */
+    public boolean hasRole(Role role) { return role.in(roles); }
 }
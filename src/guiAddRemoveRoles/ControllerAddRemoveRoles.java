@@ -1,6 +1,7 @@
 package guiAddRemoveRoles;
 
 import database.Database;
+import entityClasses.Role;
 import javafx.collections.FXCollections;
 import javafx.geometry.Pos;
 import javafx.scene.control.ComboBox;
@@ -98,57 +99,21 @@ public class ControllerAddRemoveRoles {
 		System.out.println("*** Entering setupSelectedUser");
 		
 		// Create the list of roles that could be added for the currently selected user (e.g., Do
-		// not show a role to add that the user already has!)
+		// not show a role to add that the user already has!), and the list of roles that could be
+		// removed (e.g., Do not show a role to remove that the user does not have!)
+		int roles = theDatabase.getCurrentRoles();
 		ViewAddRemoveRoles.addList.clear();
 		ViewAddRemoveRoles.addList.add("<Select a role>");
-		if (!theDatabase.getCurrentAdminRole())
-			ViewAddRemoveRoles.addList.add("Admin");
-		if (!theDatabase.getCurrentNewRole1())
-			ViewAddRemoveRoles.addList.add("Student");
-		if (!theDatabase.getCurrentNewRole2())
-			ViewAddRemoveRoles.addList.add("Staff");
-
-		// Create the list of roles that could be removed for the currently selected user (e.g., Do
-		// not show a role to remove that the user does not have!)
 		ViewAddRemoveRoles.removeList.clear();
 		ViewAddRemoveRoles.removeList.add("<Select a role>");
-		if (theDatabase.getCurrentAdminRole())
-			ViewAddRemoveRoles.removeList.add("Admin");
-		if (theDatabase.getCurrentNewRole1())
-			ViewAddRemoveRoles.removeList.add("Student");
-		if (theDatabase.getCurrentNewRole2())
-			ViewAddRemoveRoles.removeList.add("Staff");
+		for (Role role : Role.values()) {
+			if (role.in(roles)) ViewAddRemoveRoles.removeList.add(role.getLabel());
+			else ViewAddRemoveRoles.addList.add(role.getLabel());
+		}
 		
 		// Create the list or roles that the user currently has with proper use of a comma between
 		// items
-		boolean notTheFirst = false;
-		String theCurrentRoles = "";
-		
-		// Admin role - It can only be at the head of a list
-		if (theDatabase.getCurrentAdminRole()) {
-			theCurrentRoles += "Admin";
-			notTheFirst = true;
-		}
-		
-		// Roles 1 - It could be at the head of the list or later in the list
-		if (theDatabase.getCurrentNewRole1()) {
-			if (notTheFirst)
-				theCurrentRoles += ", Student"; 
-			else {
-				theCurrentRoles += "Student";
-				notTheFirst = true;
-			}
-		}
-
-		// Roles 2 - It could be at the head of the list or later in the list
-		if (theDatabase.getCurrentNewRole2()) {
-			if (notTheFirst)
-				theCurrentRoles += ", Staff"; 
-			else {
-				theCurrentRoles += "Staff";
-				notTheFirst = true;
-			}
-		}
+		String theCurrentRoles = String.join(", ", Role.labels(roles));
 
 		// Given the above actions, populate the related widgets with the new values
 		ViewAddRemoveRoles.label_CurrentRoles.setText("This user's current roles: " + 
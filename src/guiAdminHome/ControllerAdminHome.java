@@ -1,7 +1,19 @@
 package guiAdminHome;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import database.BulkResult;
 import database.Database;
+import database.Invitation;
+import database.SearchMode;
+import guiTools.AsyncData;
 import inputValidation.inputValidator;
+import javafx.application.Platform;
+import javafx.stage.FileChooser;
 
 /*******
  * <p> Title: GUIAdminHomePage Class. </p>
@@ -82,6 +94,127 @@ public class ControllerAdminHome {
 						theDatabase.getNumberOfInvitations());
 			}
 	
+	/**********
+	 * <p> 
+	 * 
+	 * Title: inviteRoster () Method. </p>
+	 * 
+	 * <p> Description: Protected method that invites every email address of a CSV class roster
+	 * to establish an account in the role selected for single invitations.  The roster is read
+	 * and the invitations are stored in the background while a label shows how many rows have
+	 * been handled.  The codes are written to a CSV file next to the roster, named after it with
+	 * "-invitations" added, so they can be mailed out. </p>
+	 */
+	protected static void inviteRoster() {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Select a Class Roster");
+		chooser.getExtensionFilters().addAll(
+				new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"),
+				new FileChooser.ExtensionFilter("All files", "*.*"));
+		File roster = chooser.showOpenDialog(ViewAdminHome.theStage);
+		if (roster == null) return;
+		
+		String role = ViewAdminHome.combobox_SelectRole.getValue();
+		File codes = new File(roster.getParentFile(),
+				roster.getName().replaceFirst("\\.[^.]*$", "") + "-invitations.csv");
+		ViewAdminHome.button_InviteRoster.setDisable(true);
+		ViewAdminHome.label_RosterProgress.setText("Reading " + roster.getName() + "...");
+		
+		AsyncData.load(() -> {
+			BulkResult<Invitation> result;
+			try {
+				result = theDatabase.inviteRoster(
+						Files.newBufferedReader(roster.toPath(), StandardCharsets.UTF_8), role,
+						Database.ROSTER_INVITATION_TTL_MINUTES,
+						rows -> Platform.runLater(() ->
+								ViewAdminHome.label_RosterProgress.setText(rows + " rows handled")));
+			} catch (IOException e) {
+				throw new java.io.UncheckedIOException(e);
+			}
+			if (!result.getCreated().isEmpty()) writeInvitationCodes(codes, result);
+			return result;
+		}, result -> showRosterResult(result, codes)).whenComplete((result, e) -> {
+			// The roster could not be opened; the error has been printed
+			if (e != null) Platform.runLater(() -> {
+				ViewAdminHome.button_InviteRoster.setDisable(false);
+				ViewAdminHome.label_RosterProgress.setText(roster.getName() + " could not be read");
+			});
+		});
+	}
+	
+	// Save the codes the admin has to send out, one "email,role,code" line each
+	private static void writeInvitationCodes(File codes, BulkResult<Invitation> result) {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(codes.toPath(), StandardCharsets.UTF_8))) {
+			out.println("email,role,code");
+			for (Invitation i : result.getCreated())
+				out.println(i.getEmailAddress() + "," + i.getRole() + "," + i.getCode());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	// Report the outcome of a roster invitation and refresh the invitation count
+	private static void showRosterResult(BulkResult<Invitation> result, File codes) {
+		ViewAdminHome.button_InviteRoster.setDisable(false);
+		ViewAdminHome.label_RosterProgress.setText(result.getCreated().size() + " of " +
+				result.getRowsRead() + " invited");
+		StringBuilder msg = new StringBuilder();
+		msg.append(result.getCreated().size()).append(" invitations created (valid for ")
+			.append(Database.ROSTER_INVITATION_TTL_MINUTES / (24 * 60)).append(" days).");
+		if (!result.getCreated().isEmpty()) msg.append("\nCodes saved to ").append(codes.getPath());
+		if (!result.getErrors().isEmpty()) {
+			msg.append("\n\n").append(result.getErrors().size()).append(" rows skipped:");
+			int shown = 0;
+			for (BulkResult.RowError e : result.getErrors()) {
+				if (shown++ == 10) {
+					msg.append("\n...");
+					break;
+				}
+				msg.append("\n").append(e);
+			}
+		}
+		System.out.println("** Roster invitations: " + msg);
+		ViewAdminHome.alertRosterInvited.setContentText(msg.toString());
+		ViewAdminHome.alertRosterInvited.showAndWait();
+		ViewAdminHome.label_NumberOfInvitations.setText("Number of outstanding invitations: " + 
+				theDatabase.getNumberOfInvitations());
+	}
+	
+	/**********
+	 * <p> 
+	 * 
+	 * Title: changeSearchMode () Method. </p>
+	 * 
+	 * <p> Description: Protected method that switches the back end the post search uses to the
+	 * one selected.  Switching to whole-word search builds its indexes the first time, which can
+	 * take a while on a large board, so it is done in the background with the selector disabled.
+	 * The database keeps the choice for the next time it is opened.  If the switch fails, the
+	 * selector goes back to the back end still in use. </p>
+	 */
+	protected static void changeSearchMode() {
+		int selected = ViewAdminHome.combobox_SearchMode.getSelectionModel().getSelectedIndex();
+		if (selected < 0) return;
+		SearchMode mode = SearchMode.values()[selected];
+		if (mode == theDatabase.getSearchMode()) return;	// also the reset after a failure
+		
+		ViewAdminHome.combobox_SearchMode.setDisable(true);
+		AsyncData.load(() -> theDatabase.setSearchMode(mode), changed -> {
+			ViewAdminHome.combobox_SearchMode.setDisable(false);
+			if (changed) return;
+			ViewAdminHome.combobox_SearchMode.getSelectionModel().select(
+					theDatabase.getSearchMode().ordinal());
+			ViewAdminHome.alertSearchMode.setContentText(
+					"The full-text indexes could not be created; see the console for details.");
+			ViewAdminHome.alertSearchMode.showAndWait();
+		}).whenComplete((changed, e) -> {
+			if (e != null) Platform.runLater(() -> {
+				ViewAdminHome.combobox_SearchMode.setDisable(false);
+				ViewAdminHome.combobox_SearchMode.getSelectionModel().select(
+						theDatabase.getSearchMode().ordinal());
+			});
+		});
+	}
+	
 	/**********
 	 * <p> 
 	 * 
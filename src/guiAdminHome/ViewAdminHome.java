@@ -118,6 +118,13 @@ public class ViewAdminHome {
 	protected static Button button_DeleteUser = new Button("Delete a User");
 	protected static Button button_ListUsers = new Button("List All Users");
 	protected static Button button_AddRemoveRoles = new Button("Add/Remove Roles");
+	protected static Button button_InviteRoster = new Button("Invite a Class Roster");
+	protected static Label label_RosterProgress = new Label("");
+	protected static Label label_SearchMode = new Label("Post Search");
+	protected static ComboBox <String> combobox_SearchMode = new ComboBox <String>();
+	protected static String [] searchModes = {"Word prefixes", "Whole words, ranked"};	// SearchMode order
+	protected static Alert alertSearchMode = new Alert(AlertType.INFORMATION);
+	protected static Alert alertRosterInvited = new Alert(AlertType.INFORMATION);
 	protected static Alert alertNotImplemented = new Alert(AlertType.INFORMATION);
 
 	// This is a separator and it is used to partition the GUI for various tasks
@@ -196,6 +203,7 @@ public class ViewAdminHome {
 		
 		// Set the role for potential users to the default (No role selected)
 		combobox_SelectRole.getSelectionModel().select(0);
+		combobox_SearchMode.getSelectionModel().select(theDatabase.getSearchMode().ordinal());
 
 		// Set the title for the window, display the page, and wait for the Admin to do something
 		theStage.setTitle("CSE 360 Foundation Code: Admin Home Page");
@@ -324,6 +332,20 @@ public class ViewAdminHome {
 		setupButtonUI(button_AddRemoveRoles, "Dialog", 16, 250, Pos.CENTER, 20, 470);
 		button_AddRemoveRoles.setOnAction((event) -> { ControllerAdminHome.addRemoveRoles(); });
 
+		setupButtonUI(button_InviteRoster, "Dialog", 16, 250, Pos.CENTER, 300, 270);
+		button_InviteRoster.setOnAction((event) -> { ControllerAdminHome.inviteRoster(); });
+		setupLabelUI(label_RosterProgress, "Arial", 14, 250, Pos.BASELINE_LEFT, 300, 310);
+		alertRosterInvited.setTitle("Roster Invitations");
+		alertRosterInvited.setHeaderText("Roster invitations");
+
+		setupLabelUI(label_SearchMode, "Arial", 16, 250, Pos.BASELINE_LEFT, 300, 370);
+		setupComboBoxUI(combobox_SearchMode, "Dialog", 16, 250, 300, 395);
+		combobox_SearchMode.setItems(FXCollections.observableArrayList(searchModes));
+		combobox_SearchMode.getSelectionModel().select(theDatabase.getSearchMode().ordinal());
+		combobox_SearchMode.setOnAction((event) -> { ControllerAdminHome.changeSearchMode(); });
+		alertSearchMode.setTitle("Post Search");
+		alertSearchMode.setHeaderText("The search back end was not changed");
+
 		// GUI Area 5
 		setupButtonUI(button_Logout, "Dialog", 18, 250, Pos.CENTER, 20, 540);
 		button_Logout.setOnAction((event) -> { ControllerAdminHome.performLogout(); });
@@ -346,6 +368,8 @@ public class ViewAdminHome {
     		button_DeleteUser,
     		button_ListUsers,
     		button_AddRemoveRoles,
+    		button_InviteRoster, label_RosterProgress,
+    		label_SearchMode, combobox_SearchMode,
     		line_Separator4,
     		button_Logout,
     		button_Quit
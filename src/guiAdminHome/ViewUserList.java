@@ -1,83 +1,157 @@
 package guiAdminHome;
 
 
+import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TableRow;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import database.UserPage;
+import database.UserSort;
 import entityClasses.User;
-import java.util.List;
-import guiAdminHome.ViewUserList;
+import guiTools.AsyncData;
+import javafx.scene.control.Label;
 
 
 
 
 //This public class creates the popup window for viewing the user list, similar to that of the ViewAdminHome.java file.
+//The list is read from the database a page at a time: the next page is fetched as the admin scrolls
+//toward the end of the rows loaded so far, and clicking a column heading or typing in the filter
+//field asks the database for the first page in the new order rather than sorting the loaded rows.
 public class ViewUserList {
-    @SuppressWarnings("unchecked")
-	public static void displayUserList() {
-        Stage popupStage = new Stage();
-        TableView<User> table = new TableView<>();
-
-
-        TableColumn<User, String> usernameCol = new TableColumn<>("Username");
-        usernameCol.setCellValueFactory(new PropertyValueFactory<>("userName"));
-
-
-        TableColumn<User, String> firstNameCol = new TableColumn<>("First Name");
-        firstNameCol.setCellValueFactory(new PropertyValueFactory<>("firstName"));
 
+    private static final int PAGE_SIZE = 100;           // Users fetched per page
+    private static final int PREFETCH_DISTANCE = 20;    // Fetch the next page this many rows early
 
-        TableColumn<User, String> middleNameCol = new TableColumn<>("Middle Name");
-        middleNameCol.setCellValueFactory(new PropertyValueFactory<>("middleName"));
+    private final TableView<User> table = new TableView<>();
+    private final ObservableList<User> data = FXCollections.observableArrayList();
 
+    // The list being paged, and the cursor of the last page shown
+    private UserSort pageSort = UserSort.USER_NAME;
+    private boolean pageDescending = false;
+    private String pageFilter = "";
+    private String lastSortValue;
+    private String lastUserName;
+    private boolean hasMoreUsers = false;
 
-        TableColumn<User, String> lastNameCol = new TableColumn<>("Last Name");
-        lastNameCol.setCellValueFactory(new PropertyValueFactory<>("lastName"));
+    // Loads of this window's list; a new load supersedes any that is still running
+    private final AsyncData.Channel userRequests = new AsyncData.Channel();
 
+	public static void displayUserList() {
+        new ViewUserList().show();
+    }
 
-        TableColumn<User, String> emailCol = new TableColumn<>("Email");
-        emailCol.setCellValueFactory(new PropertyValueFactory<>("emailAddress"));
+    @SuppressWarnings("unchecked")
+    private void show() {
+        Stage popupStage = new Stage();
 
 
-        TableColumn<User, String> rolesCol = new TableColumn<>("Roles");
-        rolesCol.setCellValueFactory(new PropertyValueFactory<>("rolesString"));
+        TableColumn<User, String> usernameCol = column("Username", "userName", UserSort.USER_NAME);
+        TableColumn<User, String> firstNameCol = column("First Name", "firstName", UserSort.FIRST_NAME);
+        TableColumn<User, String> middleNameCol = column("Middle Name", "middleName", UserSort.MIDDLE_NAME);
+        TableColumn<User, String> lastNameCol = column("Last Name", "lastName", UserSort.LAST_NAME);
+        TableColumn<User, String> emailCol = column("Email", "emailAddress", UserSort.EMAIL_ADDRESS);
+        TableColumn<User, String> rolesCol = column("Roles", "rolesString", null);
 
 
         table.getColumns().addAll(usernameCol, firstNameCol, middleNameCol, lastNameCol, emailCol, rolesCol);
-
-
-        List<User> users = applicationMain.FoundationsMain.database.getAllUsers();
-        
-        // Debug code to help identify the warning issue
-        System.out.println("=== TableView Debug Info ===");
-        System.out.println("Number of users: " + (users != null ? users.size() : "null"));
-        
-        if (users != null && !users.isEmpty()) {
-            System.out.println("First user details:");
-            User firstUser = users.get(0);
-            System.out.println("  - Username: " + firstUser.getUserName());
-            System.out.println("  - First Name: " + firstUser.getFirstName());
-            System.out.println("  - Middle Name: " + firstUser.getMiddleName());
-            System.out.println("  - Last Name: " + firstUser.getLastName());
-            System.out.println("  - Email: " + firstUser.getEmailAddress());
-            System.out.println("  - Roles String: " + firstUser.getRolesString());
-        } else {
-            System.out.println("No users found or users list is null!");
-        }
-        System.out.println("=== End Debug Info ===");
-        
-        ObservableList<User> data = FXCollections.observableArrayList(users);
         table.setItems(data);
-
-
-        Scene scene = new Scene(table, 800, 400);
+        table.setPlaceholder(new Label("Loading users..."));
+
+        // The database does the sorting: a new sort order reloads the list from page one
+        table.setSortPolicy(t -> {
+            TableColumn<User, ?> sortColumn = t.getSortOrder().isEmpty() ? null : t.getSortOrder().get(0);
+            UserSort sort = sortColumn == null ? UserSort.USER_NAME : (UserSort) sortColumn.getUserData();
+            boolean descending = sortColumn != null && sortColumn.getSortType() == TableColumn.SortType.DESCENDING;
+            if (sort != pageSort || descending != pageDescending) loadUsers(sort, descending, pageFilter);
+            return true;
+        });
+
+        // Showing one of the last loaded rows pulls in the next page.  The fetch is deferred so
+        // the table is not modified while it is laying out its rows.
+        table.setRowFactory(t -> new TableRow<User>() {
+            @Override
+            protected void updateItem(User user, boolean empty) {
+                super.updateItem(user, empty);
+                if (!empty && hasMoreUsers && getIndex() >= data.size() - PREFETCH_DISTANCE) {
+                    Platform.runLater(ViewUserList.this::loadMoreUsers);
+                }
+            }
+        });
+
+        TextField filterField = new TextField();
+        filterField.setPromptText("Filter by username, name, or email");
+        filterField.textProperty().addListener((obs, oldText, newText) ->
+                loadUsers(pageSort, pageDescending, newText.trim()));
+
+        VBox layout = new VBox(5, filterField, table);
+        layout.setPadding(new Insets(5));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        loadUsers(UserSort.USER_NAME, false, "");
+
+
+        Scene scene = new Scene(layout, 800, 400);
         popupStage.setScene(scene);
         popupStage.setTitle("User List");
         popupStage.initOwner(ViewAdminHome.theStage);
+        popupStage.setOnHidden(e -> userRequests.cancel());
         popupStage.show();
     }
+
+    // A column showing one User property; sort is the order it stands for, or null if the
+    // database cannot sort by it
+    private static TableColumn<User, String> column(String heading, String property, UserSort sort) {
+        TableColumn<User, String> col = new TableColumn<>(heading);
+        col.setCellValueFactory(new PropertyValueFactory<>(property));
+        col.setUserData(sort);
+        col.setSortable(sort != null);
+        return col;
+    }
+
+    // Replace the list with the first page in the given order and filter.  The query runs in the
+    // background; if the order or filter changes again before it finishes, its result is dropped.
+    private void loadUsers(UserSort sort, boolean descending, String filter) {
+        pageSort = sort;
+        pageDescending = descending;
+        pageFilter = filter;
+        hasMoreUsers = false;       // no paging from the old cursor while the new list loads
+        userRequests.load(() -> applicationMain.FoundationsMain.database
+                .getUsers(sort, descending, filter, null, null, PAGE_SIZE), page -> {
+            table.setPlaceholder(new Label("No users found"));
+            data.setAll(page.getUsers());
+            rememberCursor(page);
+        });
+    }
+
+    // Append the page after the last one shown, unless every page is loaded
+    private void loadMoreUsers() {
+        if (!hasMoreUsers || userRequests.isLoading()) return;
+        UserSort sort = pageSort;
+        boolean descending = pageDescending;
+        String filter = pageFilter, afterSortValue = lastSortValue, afterUserName = lastUserName;
+        userRequests.load(() -> applicationMain.FoundationsMain.database
+                .getUsers(sort, descending, filter, afterSortValue, afterUserName, PAGE_SIZE), page -> {
+            data.addAll(page.getUsers());
+            rememberCursor(page);
+        });
+    }
+
+    // Keep the cursor of the page just shown so the next page starts after it
+    private void rememberCursor(UserPage page) {
+        if (page.getLastUserName() != null) {
+            lastSortValue = page.getLastSortValue();
+            lastUserName = page.getLastUserName();
+        }
+        hasMoreUsers = page.hasMore();
+    }
 }
@@ -1,10 +1,12 @@
 package guiFirstAdmin;
 
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 import database.Database;
 import entityClasses.User;
+import javafx.application.Platform;
 import javafx.stage.Stage;
-import passwordPopUpWindow.Model;
+import passwordPopUpWindow.PasswordEvaluator;
 import userNameRecognizerTestbed.UserNameRecognizer;
 
 public class ControllerFirstAdmin {
@@ -21,6 +23,10 @@ public class ControllerFirstAdmin {
 	private static String adminUsername = "";
 	private static String adminPassword1 = "";
 	private static String adminPassword2 = "";		
+	private static PasswordEvaluator adminPasswordEvaluator = new PasswordEvaluator();
+	
+	// True while the account is being stored in the background; only touched on the FX thread
+	private static boolean setupPending = false;
 	protected static Database theDatabase = applicationMain.FoundationsMain.database;		
 
 	/*-********************************************************************************************
@@ -43,17 +49,21 @@ public class ControllerFirstAdmin {
 	
 	
 	/**********
-	 * <p> Method: setAdminPassword1() </p>
+	 * <p> Method: setAdminPassword1(String oldValue, String newValue) </p>
 	 * 
 	 * <p> Description: This method is called when the user adds text to the password 1 field in
-	 * the View.  A private local copy of what was last entered is kept here.</p>
+	 * the View.  A private local copy of what was last entered is kept here, and the password
+	 * evaluator is told of the change so the requirements not met yet are shown as the user
+	 * types.</p>
 	 * 
+	 * @param oldValue	The text of the field before the change
+	 * @param newValue	The text of the field after the change
 	 */
-	protected static void setAdminPassword1() {
+	protected static void setAdminPassword1(String oldValue, String newValue) {
 		adminPassword1 = ViewFirstAdmin.text_AdminPassword1.getText();
-		ViewFirstAdmin.label_PasswordsDoNotMatch.setText("");
-		
-		
+		adminPasswordEvaluator.changed(oldValue, newValue);
+		ViewFirstAdmin.label_PasswordsDoNotMatch.setText(
+				adminPasswordEvaluator.length() == 0 ? "" : adminPasswordEvaluator.getMessage());
 	}
 	
 	
@@ -75,10 +85,13 @@ public class ControllerFirstAdmin {
 	 * 
 	 * <p> Description: This method is called when the user presses the button to set up the Admin
 	 * account.  It start by trying to establish a new user and placing that user into the
-	 * database.  If that is successful, we proceed to the UserUpdate page.</p>
+	 * database.  If that is successful, we proceed to the UserUpdate page.  Storing the user
+	 * means hashing the password, which is deliberately slow, so it runs in the background and
+	 * clicks while it runs are ignored.</p>
 	 * 
 	 */
 	protected static void doSetupAdmin(Stage ps, int r) {
+		if (setupPending) return;
 		
 		// Make sure the two passwords are the same
 		if (adminPassword1.compareTo(adminPassword2) == 0) {
@@ -90,7 +103,7 @@ public class ControllerFirstAdmin {
 			}
 			
 			
-			String evaluated_pwd = Model.evaluatePassword(adminPassword1);
+			String evaluated_pwd = adminPasswordEvaluator.getMessage();
 			if (!evaluated_pwd.isEmpty()) {
 	            ViewFirstAdmin.label_PasswordsDoNotMatch.setText("Invalid password: " + evaluated_pwd);
 				return;
@@ -101,19 +114,28 @@ public class ControllerFirstAdmin {
         	// Create the passwords and proceed to the user home page
         	User user = new User(adminUsername, adminPassword1, "", "", "", "", "", true, false, 
         			false);
-            try {
-            	// Create a new User object with admin role and register in the database
-            	theDatabase.register(user);
-            	}
-            catch (SQLException e) {
-                System.err.println("*** ERROR *** Database error trying to register a user: " + 
-                		e.getMessage());
-                e.printStackTrace();
-                System.exit(0);
-            }
+        	setupPending = true;
+        	CompletableFuture<Void> registered = guiTools.AsyncData.run(() -> {
+        		try {
+        			// Create a new User object with admin role and register in the database
+        			theDatabase.register(user);
+        		}
+        		catch (SQLException e) {
+        			System.err.println("*** ERROR *** Database error trying to register a user: " + 
+        					e.getMessage());
+        			e.printStackTrace();
+        			System.exit(0);
+        		}
+        	});
+        	registered.whenComplete((v, e) -> {
+        		if (e != null) Platform.runLater(() -> setupPending = false);
+        	});
             
             // User was established in the database, so navigate to the User Update Page
-        	guiUserUpdate.ViewUserUpdate.displayUserUpdate(ViewFirstAdmin.theStage, user);
+        	guiTools.AsyncData.then(registered, () -> {
+        		setupPending = false;
+        		guiUserUpdate.ViewUserUpdate.displayUserUpdate(ViewFirstAdmin.theStage, user);
+        	});
 		}
 		else {
 			// The two passwords are NOT the same, so clear the passwords, explain the passwords
@@ -165,7 +165,7 @@ public class ViewFirstAdmin {
 				true);
 		text_AdminPassword1.setPromptText("Enter Admin Password");
 		text_AdminPassword1.textProperty().addListener((observable, oldValue, newValue)
-				-> {ControllerFirstAdmin.setAdminPassword1(); });
+				-> {ControllerFirstAdmin.setAdminPassword1(oldValue, newValue); });
 
 		// Establish the text input operand field for the password
 		setupTextUI(text_AdminPassword2, "Arial", 18, 300, Pos.BASELINE_LEFT, 50, 260, 
@@ -13,6 +13,7 @@ import javafx.scene.shape.Line;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import database.Database;
+import entityClasses.Role;
 import entityClasses.User;
 
 /*******
@@ -148,9 +149,7 @@ public class ViewMultipleRoleDispatch {
 		System.out.println("*** Getting multiple role details for user: " + theUser.getUserName());
 		list = new ArrayList<String>();
 		list.add("<Select a role>");
-		if (theDatabase.getCurrentAdminRole()) list.add("Admin");
-		if (theDatabase.getCurrentNewRole1()) list.add("Student");
-		if (theDatabase.getCurrentNewRole2()) list.add("Staff");
+		list.addAll(Role.labels(theDatabase.getCurrentRoles()));
 		combobox_SelectRole.setItems(FXCollections.observableArrayList(list));
 
 		setupButtonUI(button_PerformRole, "Dialog", 16, 100, Pos.CENTER, 495, 105);
@@ -1,9 +1,11 @@
 package guiNewAccount;
 
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 import database.Database;
 import entityClasses.User;
+import javafx.application.Platform;
 import passwordPopUpWindow.Model;
 import userNameRecognizerTestbed.UserNameRecognizer;
 
@@ -23,6 +25,9 @@ public class ControllerNewAccount {
 	// Reference for the in-memory database so this package has access
 	private static Database theDatabase = applicationMain.FoundationsMain.database;
 	
+	// True while the account is being stored in the background; only touched on the FX thread
+	private static boolean createPending = false;
+	
 	/**********
 	 * <p> Method: public doCreateUser() </p>
 	 * 
@@ -33,8 +38,12 @@ public class ControllerNewAccount {
 	 * The method reaches batch to the view page and to fetch the information needed rather than
 	 * passing that information as parameters.
 	 * 
+	 * Storing the account means hashing the password, which is deliberately slow, so it runs in
+	 * the background and clicks while it runs are ignored.
+	 * 
 	 */	
 	protected static void doCreateUser() {
+		if (createPending) return;
 		
 		// Fetch the username and password. (We use the first of the two here, but we will validate
 		// that the two password fields are the same before we do anything with it.)
@@ -112,25 +121,35 @@ public class ControllerNewAccount {
 			applicationMain.FoundationsMain.activeHomePage = roleCode;
 			
         	// Create the account based on user and proceed to the user account update page
-            try {
-            	// Create a new User object with the pre-set role and register in the database
-            	theDatabase.register(user);
-            	applicationMain.FoundationsMain.isFirstAdminSetup = true; //Invited users go to login
-            } catch (SQLException e) {
-                System.err.println("*** ERROR *** Database error: " + e.getMessage());
-                e.printStackTrace();
-                System.exit(0);
-            }
-            
-            // The account has been set, so remove the invitation from the system
-            theDatabase.removeInvitationAfterUse(
-            		ViewNewAccount.text_Invitation.getText());
-            
-            // Set the database so it has this user and the current user
-            theDatabase.getUserAccountDetails(username);
+			User newUser = user;
+			String invitationCode = ViewNewAccount.text_Invitation.getText();
+			createPending = true;
+			CompletableFuture<Void> created = guiTools.AsyncData.run(() -> {
+	            try {
+	            	// Create a new User object with the pre-set role and register in the database
+	            	theDatabase.register(newUser);
+	            } catch (SQLException e) {
+	                System.err.println("*** ERROR *** Database error: " + e.getMessage());
+	                e.printStackTrace();
+	                System.exit(0);
+	            }
+	            
+	            // The account has been set, so remove the invitation from the system
+	            theDatabase.removeInvitationAfterUse(invitationCode);
+	            
+	            // Set the database so it has this user and the current user
+	            theDatabase.getUserAccountDetails(username);
+			});
+			created.whenComplete((v, e) -> {
+				if (e != null) Platform.runLater(() -> createPending = false);
+			});
             
             // Navigate to the Welcome Login Page
-            guiUserUpdate.ViewUserUpdate.displayUserUpdate(ViewNewAccount.theStage, user);
+			guiTools.AsyncData.then(created, () -> {
+				createPending = false;
+				applicationMain.FoundationsMain.isFirstAdminSetup = true; //Invited users go to login
+				guiUserUpdate.ViewUserUpdate.displayUserUpdate(ViewNewAccount.theStage, newUser);
+			});
 		}
 		else {
 			// The two passwords are NOT the same, so clear the passwords, explain the passwords
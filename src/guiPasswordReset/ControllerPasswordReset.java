@@ -1,7 +1,10 @@
 package guiPasswordReset;
 
+import java.util.concurrent.CompletableFuture;
+
 import database.Database;
 import entityClasses.User;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 import passwordPopUpWindow.Model;
 
@@ -10,7 +13,13 @@ public class ControllerPasswordReset {
 	  // DB singleton used across the app
     private static Database theDatabase = applicationMain.FoundationsMain.database;
 
+    // True while a new password is being stored in the background; only touched on the FX thread
+    private static boolean resetPending = false;
+
     protected static void doSubmitNewPassword(Stage theStage, User theUser) {
+        // A click while the last one is still being stored is ignored
+        if (resetPending) return;
+
         String p1 = ViewPasswordReset.text_NewPassword1.getText();
         String p2 = ViewPasswordReset.text_NewPassword2.getText();
 
@@ -33,24 +42,30 @@ public class ControllerPasswordReset {
             return;
         }
 
-        // 3) persist new password
-        theDatabase.updatePassword(theUser.getUserName(), p1);
+        // 3) persist new password; hashing it is slow, so it is stored in the background
+        resetPending = true;
+        CompletableFuture<Void> stored = guiTools.AsyncData.run(
+                () -> theDatabase.updatePassword(theUser.getUserName(), p1));
+        stored.whenComplete((v, e) -> {
+            if (e != null) Platform.runLater(() -> resetPending = false);
+        });
+        guiTools.AsyncData.then(stored, () -> {
+            resetPending = false;
 
-        // 4) read-back for your console to verify the DB now returns the new value
-        theDatabase.getUserAccountDetails(theUser.getUserName());
-        System.out.println("** Password reset read-back for " + theUser.getUserName()
-                + " | currentPassword now = " + theDatabase.getCurrentPassword());
+            // 4) the database keeps only a hash, so there is no value to read back
+            System.out.println("** Password reset stored for " + theUser.getUserName());
 
-        // keep in-memory User in sync 
-        theUser.setPassword(p1);
+            // keep in-memory User in sync 
+            theUser.setPassword(p1);
 
-        // 5) Notify success and return to login
-        ViewPasswordReset.success.setTitle("Password Reset");
-        ViewPasswordReset.success.setHeaderText("Your password has been updated.");
-        ViewPasswordReset.success.setContentText("Please log in with your new password.");
-        ViewPasswordReset.success.showAndWait();
+            // 5) Notify success and return to login
+            ViewPasswordReset.success.setTitle("Password Reset");
+            ViewPasswordReset.success.setHeaderText("Your password has been updated.");
+            ViewPasswordReset.success.setContentText("Please log in with your new password.");
+            ViewPasswordReset.success.showAndWait();
 
-        guiUserLogin.ViewUserLogin.displayUserLogin(theStage);
+            guiUserLogin.ViewUserLogin.displayUserLogin(theStage);
+        });
     }
 
     protected static void performCancel(Stage theStage) {
@@ -23,6 +23,9 @@ import javafx.scene.layout.HBox;
 import java.util.List;
 import java.util.Map;
 import entityClasses.Post;
+import database.Database;
+import database.PostPage;
+import guiTools.AsyncData;
 import javafx.scene.control.ComboBox;
 import guiSearchPosts.ViewSearchPosts;
 
@@ -60,6 +63,12 @@ public class ControllerRole1Home {
 	 */
 	
 	protected static void performLogout() {
+		Database database = applicationMain.FoundationsMain.database;
+		String user = currentUser();
+		AsyncData.run(() -> {
+			database.flushPostReads();
+			database.releaseReadState(user);
+		});
 		guiUserLogin.ViewUserLogin.displayUserLogin(ViewRole1Home.theStage);
 	}
 	
@@ -74,6 +83,7 @@ public class ControllerRole1Home {
 	 */
 	
 	protected static void performQuit() {
+		applicationMain.FoundationsMain.database.flushPostReads();
 		System.exit(0);
 	}
 
@@ -83,6 +93,18 @@ public class ControllerRole1Home {
 	
 	 */
 
+	// The post list is loaded a page at a time; these remember where the last page ended
+	private static final int PAGE_SIZE = 50;			// Posts fetched per page
+	private static final int PREFETCH_DISTANCE = 10;	// Fetch the next page this many rows early
+	private static String pageFilter;					// Filter of the list being paged
+	private static String pageThread;					// Thread of the list being paged
+	private static java.sql.Timestamp lastUpdatedAt;	// Cursor: updatedAt of the last post shown
+	private static int lastId;							// Cursor: id of the last post shown
+	private static boolean hasMorePosts = false;		// Is there a page after the last one?
+	
+	// Loads of the post list; a new load supersedes any that is still running
+	private static final AsyncData.Channel postRequests = new AsyncData.Channel();
+
 	/*****
 	 * Convenience accessor for the username of the currently logged-in user.
 	 *
@@ -135,31 +157,88 @@ public class ControllerRole1Home {
 	 */
 	
 	protected static void reloadRepliesForPost(int postId, ObservableList<Map<String,Object>> repliesUI) {
-	    List<Map<String,Object>> repl = Post.fetchRepliesForPost(postId);
-	    repliesUI.setAll(repl);
+	    AsyncData.load(() -> Post.fetchRepliesForPost(postId), repliesUI::setAll);
 	}
 
 	/**********
 	 * <p> Method: loadPosts(String filter, String thread) </p>
 	 * 
-	 * <p> Description: Loads posts from the database based on the specified filters.
-	 * Updates the UI list with the retrieved posts. </p>
+	 * <p> Description: Loads the first page of posts from the database based on the specified
+	 * filters and replaces the UI list with it.  Further pages are appended by loadMorePosts as
+	 * the user scrolls toward the end of the list.  The query runs in the background; if the
+	 * filters change again before it finishes, its result is dropped in favour of the newer one. </p>
 	 * 
 	 * @param filter filter type ("My posts", "All posts", "Read", "Unread")
 	 * @param thread the thread type to filter by ("All Threads" shows all threads)
 	 */
 	
 	public static void loadPosts(String filter, String thread) {
+	    pageFilter = filter;
+	    pageThread = thread;
+	    hasMorePosts = false;		// no paging from the old cursor while the new list loads
+	    String user = ViewRole1Home.theUser.getUserName();
+	    postRequests.load(() -> fetchPage(filter, thread, user, null, 0), page -> {
+	        ViewRole1Home.postsUI.setAll(page.getRows());
+	        rememberCursor(page);
+	    });
+	}
+	
+	/**********
+	 * <p> Method: loadMorePosts() </p>
+	 * 
+	 * <p> Description: Appends the next page of posts, for the filters of the last loadPosts,
+	 * to the UI list.  Does nothing when every page has been loaded. </p>
+	 */
+	
+	protected static void loadMorePosts() {
+	    if (!hasMorePosts || postRequests.isLoading()) return;
+	    String filter = pageFilter, thread = pageThread;
+	    String user = ViewRole1Home.theUser.getUserName();
+	    java.sql.Timestamp afterUpdatedAt = lastUpdatedAt;
+	    int afterId = lastId;
+	    postRequests.load(() -> fetchPage(filter, thread, user, afterUpdatedAt, afterId), page -> {
+	        ViewRole1Home.postsUI.addAll(page.getRows());
+	        rememberCursor(page);
+	    });
+	}
+	
+	/**********
+	 * <p> Method: needsMorePosts(int index) </p>
+	 * 
+	 * <p> Description: Tells the list view whether showing the row at the given index brings the
+	 * user close enough to the end of the loaded posts that the next page should be fetched. </p>
+	 * 
+	 * @param index the index of the row being shown
+	 * @return true if another page exists and should be fetched now
+	 */
+	
+	protected static boolean needsMorePosts(int index) {
+	    return hasMorePosts && index >= ViewRole1Home.postsUI.size() - PREFETCH_DISTANCE;
+	}
+	
+	// Fetch one page of posts after the given cursor (runs in the background, so it only uses
+	// its arguments and never touches the GUI)
+	private static PostPage fetchPage(String filter, String thread, String user,
+	        java.sql.Timestamp afterUpdatedAt, int afterId) {
 	    boolean mineOnly  = "My posts".equals(filter);
 	    String readFilter = ("Read".equals(filter) || "Unread".equals(filter)) ? filter : null;
 
-	    var rows = applicationMain.FoundationsMain.database
-	            .fetchPosts(mineOnly,
-	                        ViewRole1Home.theUser.getUserName(),
+	    return applicationMain.FoundationsMain.database
+	            .fetchPostsPage(mineOnly,
+	                        user,
 	                        false,                 // includeDeleted: keep as before
 	                        thread,
-	                        readFilter);           // NEW
-	    ViewRole1Home.postsUI.setAll(rows);
+	                        readFilter,
+	                        afterUpdatedAt, afterId, PAGE_SIZE);
+	}
+	
+	// Keep the cursor of the page just shown so the next page starts after it
+	private static void rememberCursor(PostPage page) {
+	    if (page.getLastUpdatedAt() != null) {
+	        lastUpdatedAt = page.getLastUpdatedAt();
+	        lastId = page.getLastId();
+	    }
+	    hasMorePosts = page.hasMore();
 	}
 	
 	/**
@@ -186,13 +265,7 @@ public class ControllerRole1Home {
 	 */
 	
 	protected static String getString(Map<String,Object> row, String key) {
-	    for (String k : row.keySet()) {
-	        if (k.equalsIgnoreCase(key)) {
-	            Object v = row.get(k);
-	            return v == null ? "" : v.toString();
-	        }
-	    }
-	    return "";
+	    return Post.getStringCI(row, key);
 	}
 
 	/**********
@@ -207,14 +280,7 @@ public class ControllerRole1Home {
 	 */
 	
 	protected static int getInt(Map<String,Object> row, String key) {
-	    for (String k : row.keySet()) {
-	        if (k.equalsIgnoreCase(key)) {
-	            Object v = row.get(k);
-	            if (v instanceof Number) return ((Number)v).intValue();
-	            try { return Integer.parseInt(String.valueOf(v)); } catch (Exception ignored) {}
-	        }
-	    }
-	    return -1;
+	    return Post.getIntCI(row, key);
 	}
 
 	/*-*******************************************************************************************
@@ -252,8 +318,9 @@ public class ControllerRole1Home {
 	    String filter = ViewRole1Home.cbFilter.getValue();
 	    String thread = ViewRole1Home.cbThread.getValue();
 
+	    // queued in memory and written in a batch later; lists loaded from now on include it
 	    applicationMain.FoundationsMain.database
-	            .markPostRead(ViewRole1Home.theUser.getUserName(), postId);
+	            .queuePostRead(ViewRole1Home.theUser.getUserName(), postId);
 
 	    openReader(row);
 
@@ -1,5 +1,6 @@
 package guiRole1;
 
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -11,7 +12,6 @@ import javafx.stage.Stage;
 import database.Database;
 import entityClasses.User;
 import guiUserUpdate.ViewUserUpdate;
-import entityClasses.Post;
 import java.util.Map;
 import javafx.collections.ObservableList;
 import javafx.collections.FXCollections;
@@ -264,12 +264,13 @@ public class ViewRole1Home {
 		        super.updateItem(row, empty);
 		        if (empty || row == null) { setText(null); setGraphic(null); return; }
 
-		        String idStr    = Integer.toString(ControllerRole1Home.getInt(row, "id"));
-		        String title    = ControllerRole1Home.getString(row, "title");
-		        String author   = ControllerRole1Home.getString(row, "authorUsername");
-		        String thread   = ControllerRole1Home.getString(row, "thread");
-		        boolean deleted = Post.getBoolCI(row, "isDeleted");
-		        int isRead      = ControllerRole1Home.getInt(row, "isRead"); // 0/1 from DB
+		        // the rows are typed PostRows, so every value is a plain field read
+		        Database.PostRow post = Database.PostRow.from(row);
+		        String idStr    = Integer.toString(post.id);
+		        String title    = post.title;
+		        String author   = post.author;
+		        String thread   = post.thread;
+		        boolean deleted = post.deleted;
 
 		        // LEFT
 		        TextFlow leftFlow = new TextFlow();
@@ -279,14 +280,14 @@ public class ViewRole1Home {
 		        } else {
 		            titleText = new Text("#" + idStr + "  " + title + " — " + author + " — ");
 		        }
-		        if (isRead == 0) titleText.setStyle("-fx-font-weight: bold;");
+		        if (!post.read) titleText.setStyle("-fx-font-weight: bold;");
 
 		        Text threadText = new Text(thread);
 		        threadText.setFill(getThreadColor(thread));
 		        leftFlow.getChildren().addAll(titleText, threadText);
 
 		        // RIGHT (right-aligned)
-		        int replies = ControllerRole1Home.getInt(row, "replyCount");
+		        int replies = post.replyCount;
 		        TextFlow rightFlow = new TextFlow(new Text("Replies: " + replies));
 
 		        HBox hBox = new HBox(10);
@@ -297,6 +298,12 @@ public class ViewRole1Home {
 
 		        setGraphic(hBox);
 		        setText(null);
+
+		        // Showing one of the last loaded rows pulls in the next page.  The fetch is
+		        // deferred so the list is not modified while it is laying out its cells.
+		        if (ControllerRole1Home.needsMorePosts(getIndex())) {
+		            Platform.runLater(ControllerRole1Home::loadMorePosts);
+		        }
 		    }
 		});
 
@@ -4,9 +4,10 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import java.util.List;
 import java.util.Map;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Set;
+import database.SearchIndex;
 import entityClasses.Post;
+import guiTools.AsyncData;
 
 /**
  * Controller class for the search posts functionality in the MVC architecture.
@@ -30,6 +31,9 @@ public class ControllerSearchPosts {
      */
     private ControllerSearchPosts() {}
 
+    /** Searches in progress; a new search supersedes one that is still running */
+    private static final AsyncData.Channel searches = new AsyncData.Channel();
+
     /**
      * Performs a search operation based on the keyword and thread selected in the View.
      * 
@@ -40,6 +44,9 @@ public class ControllerSearchPosts {
      *   <li>Reply content within posts</li>
      * </ul>
      * 
+     * <p>The lookup is served by the database's inverted keyword index: every word of the
+     * keyword must match the start of a word in the post or in one of its replies.
+     * 
      * <p>Matches are collected in a list and displayed in the View's results ListView.
      * Each match includes:
      * <ul>
@@ -60,48 +67,40 @@ public class ControllerSearchPosts {
         }
 
         keyword = keyword.trim();
-        String kl = keyword.toLowerCase();
 
     if (thread == null || thread.trim().isEmpty()) thread = "All Threads";
 
-        // This fetches posts across the chosen thread 
-        List<Map<String,Object>> rows = Post.fetchPosts(false, "", true, thread);
-
-        List<Map<String,Object>> matches = new ArrayList<>();
-
-        for (Map<String,Object> row : rows) {
-            boolean matched = false;
-            String title = Post.getStringCI(row, "title");
-            String body = Post.getStringCI(row, "body");
-            if ((title != null && title.toLowerCase().contains(kl)) || (body != null && body.toLowerCase().contains(kl))) {
-                Map<String,Object> copy = new HashMap<>(row);
-                copy.put("matchType", "post");
-                copy.put("matchSnippet", makeSnippet(title + "\n" + body, kl));
-                matches.add(copy);
-                matched = true;
+        // The search runs in the background; a newer search drops the results of an older one
+        String query = keyword, inThread = thread;
+        searches.load(() -> findMatches(query, inThread), matches -> {
+            ViewSearchPosts.resultsUI.setAll(matches);
+            if (matches.isEmpty()) {
+                new Alert(AlertType.INFORMATION, "No posts matched the search.").showAndWait();
             }
+        });
+    }
 
-            if (!matched) {
-                int postId = Post.getIntCI(row, "id");
-                List<Map<String,Object>> replies = Post.fetchRepliesForPost(postId);
-                for (Map<String,Object> rr : replies) {
-                    String rbody = Post.getStringCI(rr, "body");
-                    if (rbody != null && rbody.toLowerCase().contains(kl)) {
-                        Map<String,Object> copy = new HashMap<>(row);
-                        copy.put("matchType", "reply");
-                        copy.put("matchSnippet", makeSnippet(rbody, kl));
-                        matches.add(copy);
-                        matched = true;
-                        break;
-                    }
-                }
-            }
-        }
+    /**
+     * Runs the search and adds a snippet to every match.  Called off the JavaFX Application
+     * Thread, so it must not touch the View.
+     * 
+     * @param keyword The trimmed keyword text
+     * @param thread The thread to search, or "All Threads"
+     * @return The matching posts, each with a "matchSnippet"
+     */
+    private static List<Map<String,Object>> findMatches(String keyword, String thread) {
+        // The inverted keyword index returns one row per matching post (post match preferred
+        // over reply match), so only the matches are ever read from the database
+        List<Map<String,Object>> matches = Post.searchPosts(keyword, thread);
 
-        ViewSearchPosts.resultsUI.setAll(matches);
-        if (matches.isEmpty()) {
-            new Alert(AlertType.INFORMATION, "No posts matched the search.").showAndWait();
+        // The snippet is centred on the first word of the keyword, which every match contains
+        Set<String> words = SearchIndex.tokenize(keyword);
+        String kl = words.isEmpty() ? keyword.toLowerCase() : words.iterator().next();
+        for (Map<String,Object> row : matches) {
+            Object text = row.remove("matchText");
+            row.put("matchSnippet", makeSnippet(text == null ? "" : text.toString(), kl));
         }
+        return matches;
     }
 
     /**
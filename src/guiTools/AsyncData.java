@@ -0,0 +1,183 @@
+package guiTools;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javafx.application.Platform;
+
+
+/*******
+ * <p> Title: AsyncData Class. </p>
+ *
+ * <p> Description: Runs database work for the GUI controllers away from the JavaFX Application
+ * Thread, so a slow query no longer freezes the window.  Each call runs the work on its own
+ * virtual thread and returns a CompletableFuture; the variants that take a Consumer hand the
+ * result back on the JavaFX Application Thread, where it is safe to change the GUI.</p>
+ *
+ * <p> A GUI list that is reloaded whenever a filter changes uses a Channel: each new request on
+ * a channel supersedes the ones before it, and the result of a superseded request is dropped
+ * rather than shown, so a slow old query can never overwrite the list with stale rows.</p>
+ *
+ * <p> An exception thrown by the work is printed and its Consumer is not called, matching how
+ * the Database methods report their own errors.</p>
+ *
+ */
+
+public final class AsyncData {
+
+	// One virtual thread per request; JDBC blocking calls park the virtual thread, not a carrier
+	private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+	// no instances
+	private AsyncData() {}
+
+	/**********
+	 * <p> Method: supply(Supplier&lt;T&gt; work) </p>
+	 *
+	 * <p> Description: Run the work in the background. </p>
+	 *
+	 * @param <T> the type of the result
+	 * @param work the database work to run
+	 * @return a future that completes with the result of the work
+	 */
+
+	public static <T> CompletableFuture<T> supply(Supplier<T> work) {
+		return CompletableFuture.supplyAsync(work, EXECUTOR);
+	}
+
+	/**********
+	 * <p> Method: run(Runnable work) </p>
+	 *
+	 * <p> Description: Run work that has no result in the background. </p>
+	 *
+	 * @param work the database work to run
+	 * @return a future that completes when the work is done
+	 */
+
+	public static CompletableFuture<Void> run(Runnable work) {
+		return CompletableFuture.runAsync(work, EXECUTOR).whenComplete((v, e) -> report(e));
+	}
+
+	/**********
+	 * <p> Method: load(Supplier&lt;T&gt; work, Consumer&lt;T&gt; onFxThread) </p>
+	 *
+	 * <p> Description: Run the work in the background, then hand its result to the consumer on
+	 * the JavaFX Application Thread. </p>
+	 *
+	 * @param <T> the type of the result
+	 * @param work the database work to run
+	 * @param onFxThread receives the result on the JavaFX Application Thread
+	 * @return a future that completes with the result of the work
+	 */
+
+	public static <T> CompletableFuture<T> load(Supplier<T> work, Consumer<T> onFxThread) {
+		CompletableFuture<T> future = supply(work);
+		future.whenComplete((result, e) -> {
+			if (e != null) report(e);
+			else Platform.runLater(() -> onFxThread.accept(result));
+		});
+		return future;
+	}
+
+	/**********
+	 * <p> Method: then(CompletableFuture&lt;?&gt; future, Runnable onFxThread) </p>
+	 *
+	 * <p> Description: Run a GUI update on the JavaFX Application Thread once some background
+	 * work has finished successfully. </p>
+	 *
+	 * @param future the background work to wait for
+	 * @param onFxThread the GUI update
+	 */
+
+	public static void then(CompletableFuture<?> future, Runnable onFxThread) {
+		future.whenComplete((result, e) -> {
+			if (e == null) Platform.runLater(onFxThread);
+		});
+	}
+
+	// Print a failure of background work the way the rest of the application does
+	private static void report(Throwable e) {
+		if (e == null || e instanceof CancellationException) return;	// superseded, not failed
+		Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+		cause.printStackTrace();
+	}
+
+
+	/*******
+	 * <p> Title: Channel Class. </p>
+	 *
+	 * <p> Description: A stream of requests for the same piece of the GUI, of which only the
+	 * latest may change it.  Starting a request, or calling cancel(), makes every earlier
+	 * request of the channel stale: its future is cancelled and, should its query still finish,
+	 * its result is dropped.  Channels are used from the JavaFX Application Thread.</p>
+	 */
+
+	public static final class Channel {
+		private final AtomicLong generation = new AtomicLong();
+		private long settled = 0;				// the latest request whose result has been handled
+		private CompletableFuture<?> pending = null;
+
+		/**********
+		 * <p> Method: load(Supplier&lt;T&gt; work, Consumer&lt;T&gt; onFxThread) </p>
+		 *
+		 * <p> Description: Supersede any earlier request of this channel, run the work in the
+		 * background, and hand its result to the consumer on the JavaFX Application Thread
+		 * unless a later request has superseded this one by then. </p>
+		 *
+		 * @param <T> the type of the result
+		 * @param work the database work to run
+		 * @param onFxThread receives the result on the JavaFX Application Thread
+		 * @return a future that completes with the result of the work
+		 */
+
+		public <T> CompletableFuture<T> load(Supplier<T> work, Consumer<T> onFxThread) {
+			long mine = supersede();
+			CompletableFuture<T> future = supply(work);
+			future.whenComplete((result, e) -> {
+				report(e);
+				Platform.runLater(() -> {
+					if (generation.get() != mine) return;	// superseded while it ran
+					settled = mine;
+					if (e == null) onFxThread.accept(result);
+				});
+			});
+			pending = future;
+			return future;
+		}
+
+		/**********
+		 * <p> Method: cancel() </p>
+		 *
+		 * <p> Description: Make every outstanding request of this channel stale. </p>
+		 */
+
+		public void cancel() {
+			settled = supersede();
+		}
+
+		/**********
+		 * <p> Method: isLoading() </p>
+		 *
+		 * <p> Description: Tells whether the latest request of this channel has yet to be handed
+		 * to its consumer. </p>
+		 *
+		 * @return true if a request is outstanding
+		 */
+
+		public boolean isLoading() {
+			return settled != generation.get();
+		}
+
+		private long supersede() {
+			if (pending != null) pending.cancel(false);
+			pending = null;
+			return generation.incrementAndGet();
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package guiUserLogin;
 
 import database.Database;
+import database.LoginResult;
+import entityClasses.Role;
 import entityClasses.User;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
 public class ControllerUserLogin {
@@ -22,6 +25,9 @@ public class ControllerUserLogin {
 
 	private static Stage theStage;	
 	
+	// True while a login is being checked in the background; only touched on the FX thread
+	private static boolean loginPending = false;
+	
 	/**********
 	 * <p> Method: public doLogin() </p>
 	 * 
@@ -32,15 +38,30 @@ public class ControllerUserLogin {
 	 * The method reaches batch to the view page and to fetch the information needed rather than
 	 * passing that information as parameters.
 	 * 
+	 * Checking the password means hashing it, which is deliberately slow, so the check runs in
+	 * the background and the page is updated when it is done.  Clicks while a check is running
+	 * are ignored.
+	 * 
 	 */	
 	protected static void doLogin(Stage ts) {
+		if (loginPending) return;
 		theStage = ts;
 		String username = ViewUserLogin.text_Username.getText();
 		String password = ViewUserLogin.text_Password.getText();
-    	boolean loginResult = false;
     	
-		// Fetch the user and verify the username
-     	if (theDatabase.getUserAccountDetails(username) == false) {
+		// One lookup checks the pair (or a one-time password) and returns the user and roles
+		loginPending = true;
+		guiTools.AsyncData.load(() -> theDatabase.authenticate(username, password), login -> {
+			loginPending = false;
+			finishLogin(username, login);
+		}).whenComplete((login, e) -> {
+			if (e != null) Platform.runLater(() -> loginPending = false);
+		});
+	}
+	
+	// Show the outcome of a login check; runs on the JavaFX Application Thread
+	private static void finishLogin(String username, LoginResult login) {
+     	if (login == null) {
      		// Don't provide too much information.  Don't say the username is invalid or the
      		// password is invalid.  Just say the pair is invalid.
     		ViewUserLogin.alertUsernamePasswordError.setContentText(
@@ -48,79 +69,37 @@ public class ControllerUserLogin {
     		ViewUserLogin.alertUsernamePasswordError.showAndWait();
     		return;
     	}
-		System.out.println("*** Username is valid");
-		
-		// Check to see that the login password matches the account password
-    	String actualPassword = theDatabase.getCurrentPassword();
+     	if (login.isBusy()) {
+     		// The login could not be checked (too many at once, or userDB could not be read); the pair may well be right
+    		ViewUserLogin.alertLoginBusy.showAndWait();
+    		return;
+     	}
+    	User user = login.getUser();
     	
-    	System.out.println("** Login fetch for " + username + " | DB says currentPassword = " + actualPassword);
-
-    	// If the typed password doesn't match, try the OTP path
-    	if (password.compareTo(actualPassword) != 0) {
-    		
-    		// Treat the input as an OTP; consume it on success (single-use)
-    		 if (theDatabase.checkAndConsumeOtp(username, password)) {
-    			// Build a minimal User for the reset page 
-    		        User userForReset = new User(
-    		            username,
-    		            "", // password not needed for the reset page
-    		            theDatabase.getCurrentFirstName(),
-    		            theDatabase.getCurrentMiddleName(),
-    		            theDatabase.getCurrentLastName(),
-    		            theDatabase.getCurrentPreferredFirstName(),
-    		            theDatabase.getCurrentEmailAddress(),
-    		            theDatabase.getCurrentAdminRole(),
-    		            theDatabase.getCurrentNewRole1(),
-    		            theDatabase.getCurrentNewRole2()
-    		        );
-    		        // Go to password reset page and stop the normal login flow
-    		        guiPasswordReset.ViewPasswordReset.displayPasswordReset(theStage, userForReset);
-    		        return;
-    		    }
-    		
-    		
-    		
-    		
-    		// Neither password nor OTP matched → show generic error and stop
-    		ViewUserLogin.alertUsernamePasswordError.setContentText(
-    				"Incorrect username/password. Try again!");
-    		ViewUserLogin.alertUsernamePasswordError.showAndWait();
+    	// A one-time password was used (and consumed): go to the password reset page and stop
+    	// the normal login flow
+    	if (login.isOneTimePassword()) {
+    		guiPasswordReset.ViewPasswordReset.displayPasswordReset(theStage, user);
     		return;
     	}
 		System.out.println("*** Password is valid for this user");
 		
-		// Establish this user's details
-    	User user = new User(username, password, theDatabase.getCurrentFirstName(), 
-    			theDatabase.getCurrentMiddleName(), theDatabase.getCurrentLastName(), 
-    			theDatabase.getCurrentPreferredFirstName(), theDatabase.getCurrentEmailAddress(), 
-    			theDatabase.getCurrentAdminRole(), 
-    			theDatabase.getCurrentNewRole1(), theDatabase.getCurrentNewRole2());
+		// Read the user's read posts into memory while the home page is set up
+		guiTools.AsyncData.run(() -> theDatabase.loadReadState(username));
     	
     	// See which home page dispatch to use
-		int numberOfRoles = theDatabase.getNumberOfRoles(user);		
+		int numberOfRoles = login.getNumberOfRoles();
 		System.out.println("*** The number of roles: "+ numberOfRoles);
 		if (numberOfRoles == 1) {
 			// Single Account Home Page - The user has no choice here
 			
 			// Admin role
-			if (user.getAdminRole()) {
-				loginResult = theDatabase.loginAdmin(user);
-				if (loginResult) {
-					guiAdminHome.ViewAdminHome.displayAdminHome(theStage, user);
-				}
-			} else if (user.getNewRole1()) {
-				loginResult = theDatabase.loginRole1(user);
-				if (loginResult) {
-					guiRole1.ViewRole1Home.displayRole1Home(theStage, user);
-				}
-			} else if (user.getNewRole2()) {
-				loginResult = theDatabase.loginRole2(user);
-				if (loginResult) {
-					guiRole2.ViewRole2Home.displayRole2Home(theStage, user);
-				}
-				// Other roles
+			if (login.hasRole(Role.ADMIN)) {
+				guiAdminHome.ViewAdminHome.displayAdminHome(theStage, user);
+			} else if (login.hasRole(Role.STUDENT)) {
+				guiRole1.ViewRole1Home.displayRole1Home(theStage, user);
 			} else {
-				System.out.println("***** UserLogin goToUserHome request has an invalid role");
+				guiRole2.ViewRole2Home.displayRole2Home(theStage, user);
 			}
 		} else if (numberOfRoles > 1) {
 			// Multiple Account Home Page - The user chooses which role to play
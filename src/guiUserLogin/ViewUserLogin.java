@@ -46,6 +46,7 @@ public class ViewUserLogin {
 	private static Label label_LogInInsrtuctions = new Label("Enter your user name and password and "+	
 			"then click on the LogIn button");
 	protected static Alert alertUsernamePasswordError = new Alert(AlertType.INFORMATION);
+	protected static Alert alertLoginBusy = new Alert(AlertType.INFORMATION);
 
 
 	//	private User user;
@@ -146,6 +147,10 @@ public class ViewUserLogin {
 
 		alertUsernamePasswordError.setTitle("Invalid username/password!");
 		alertUsernamePasswordError.setHeaderText(null);
+		alertLoginBusy.setTitle("Login not checked");
+		alertLoginBusy.setHeaderText(null);
+		alertLoginBusy.setContentText("The system is busy and could not check your login. "
+				+ "Please try again.");
 
 
 		// The invitation to setup an account portion of the page
@@ -331,18 +331,14 @@ public class ViewUserUpdate {
                 }
                 
                 // Update the database
-                theDatabase.updatePassword(theUser.getUserName(), password);
-                theDatabase.getUserAccountDetails(theUser.getUserName());
-                String newPassword = theDatabase.getCurrentPassword();
-                theUser.setPassword(newPassword);
-                if (newPassword == null || newPassword.length() < 1) {
-                    label_CurrentPassword.setText("<none>");
-                } else {
-                	// Show actual password
-                    label_CurrentPassword.setText(newPassword);
-                }
-                
-                validateAndUpdateButtonState();
+                // Hashing the password is slow, so it is stored in the background.  The
+                // database then holds only the hash, so show the password that was typed.
+                guiTools.AsyncData.then(guiTools.AsyncData.run(
+                        () -> theDatabase.updatePassword(theUser.getUserName(), password)), () -> {
+                    theUser.setPassword(password);
+                    label_CurrentPassword.setText(password);
+                    validateAndUpdateButtonState();
+                });
             });
         });
                 
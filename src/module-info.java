@@ -11,6 +11,7 @@ module FoundationsF25 {
 	
 	// Restoring the related opens statement for JUnit
 	opens inputValidation;
+	opens database;
 	 
 	opens applicationMain to javafx.graphics, javafx.fxml;
 	//Extra module for reading from the database and storing user information
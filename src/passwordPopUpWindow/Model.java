@@ -14,7 +14,9 @@ package passwordPopUpWindow;
  * the requirements specified by a graphical representation of a finite state machine.
  * 
  * This is a purely static component of the MVC implementation.  There is no need to instantiate
- * the class.
+ * the class.  The checking itself is done by PasswordEvaluator, which keeps no static state, so
+ * the pages may call evaluatePassword from any thread; a page that checks the password as it is
+ * typed keeps a PasswordEvaluator of its own.
  *
  * <p> Copyright: Lynn Robert Carter © 2025 </p>
  *
@@ -22,170 +24,24 @@ package passwordPopUpWindow;
  *
  * @version 2.00	2025-07-30 Rewrite of this application for the Fall 2025 offering of CSE 360
  * and other ASU courses.
+ * @version 2.01	2026-10-18 Delegate to the stateless PasswordEvaluator; no console trace
  */
 
 public class Model {
-		
-	/*******
-	 * <p> Title: updatePassword - Protected Method </p>
-	 * 
-	 * <p> Description: This method is called every time the user changes the password (e.g., with 
-	 * every key pressed) using the GUI from the PasswordEvaluationGUITestbed.  It resets the 
-	 * messages associated with each of the requirements and then evaluates the current password
-	 * with respect to those requirements.  The results of that evaluation are display via the View
-	 * to the user and via the console.</p>
-	 */
-
-	
-	/*-********************************************************************************************
-	 * 
-	 * Attributes used by the Finite State Machine to inform the user about what was and was not
-	 * valid and point to the character of the error.  This will enhance the user experience.
-	 * 
-	 */
-
-	public static String passwordErrorMessage = "";		// The error message text
-	public static String passwordInput = "";			// The input being processed
-	public static int passwordIndexofError = -1;		// The index where the error was located
-	public static boolean foundUpperCase = false;
-	public static boolean foundLowerCase = false;
-	public static boolean foundNumericDigit = false;
-	public static boolean foundSpecialChar = false;
-	public static boolean foundLongEnough = false;
-	private static String inputLine = "";				// The input line
-	private static char currentChar;					// The current character in the line
-	private static int currentCharNdx;					// The index of the current character
-	private static boolean running;						// The flag that specifies if the FSM is 
-														// running
-
-	/*
-	 * This private method displays the input line and then on a line under it displays the input
-	 * up to the point of the error.  At that point, a question mark is place and the rest of the 
-	 * input is ignored. This method is designed to be used to display information to make it clear
-	 * to the user where the error in the input can be found, and show that on the console 
-	 * terminal.
-	 * 
-	 */
-
-	private static void displayInputState() {
-		// Display the entire input line
-		System.out.println(inputLine);
-		System.out.println(inputLine.substring(0,currentCharNdx) + "?");
-		System.out.println("The password size: " + inputLine.length() + "  |  The currentCharNdx: " + 
-				currentCharNdx + "  |  The currentChar: \"" + currentChar + "\"");
-	}
-		
 
 	/**********
 	 * <p> Title: evaluatePassword - Public Method </p>
 	 * 
-	 * <p> Description: This method is a mechanical transformation of a Directed Graph diagram 
-	 * into a Java method. This method is used by both the GUI version of the application as well
-	 * as the testing automation version.
+	 * <p> Description: This method checks the input against every password requirement with
+	 * PasswordEvaluator.evaluate. This method is used by both the GUI version of the application
+	 * as well as the testing automation version.</p>
 	 * 
-	 * @param input		The input string evaluated by the directed graph processing
+	 * @param input		The password to be evaluated
 	 * @return			An output string that is empty if every things is okay or it will be
-	 * 						a string with a helpful description of the error follow by two lines
-	 * 						that shows the input line follow by a line with an up arrow at the
-	 *						point where the error was found.
+	 * 						a string with a helpful description of the error
 	 */
 	
 	public static String evaluatePassword(String input) {
-		// The following are the local variable used to perform the Directed Graph simulation
-		passwordErrorMessage = "";
-		passwordIndexofError = 0;			// Initialize the IndexofError
-		inputLine = input;					// Save the reference to the input line as a global
-		currentCharNdx = 0;					// The index of the current character
-		
-		if(input.length() <= 0) {
-			return "*** Error *** The password is empty!";
-		}
-		
-		// Check and make sure password length does not go more that 32 characters.
-		if(input.length() > 32) {
-		    passwordIndexofError = 32;                  // Point at 33rd char if more than 32 characters are entered
-		    return "*** Error *** The password is too long! It must be at most 32 characters.";
-		}
-		
-		// The input is not empty, so we can access the first character
-		currentChar = input.charAt(0);		// The current character from the above indexed position
-
-		// The Directed Graph simulation continues until the end of the input is reached or at some 
-		// state the current character does not match any valid transition to a next state.  This
-		// local variable is a working copy of the input.
-		passwordInput = input;				// Save a copy of the input
-		
-		// The following are the attributes associated with each of the requirements
-		foundUpperCase = false;				// Reset the Boolean flag
-		foundLowerCase = false;				// Reset the Boolean flag
-		foundNumericDigit = false;			// Reset the Boolean flag
-		foundSpecialChar = false;			// Reset the Boolean flag
-		foundNumericDigit = false;			// Reset the Boolean flag
-		foundLongEnough = false;			// Reset the Boolean flag
-		
-		// This flag determines whether the directed graph (FSM) loop is operating or not
-		running = true;						// Start the loop
-
-		// The Directed Graph simulation continues until the end of the input is reached or at some
-		// state the current character does not match any valid transition
-		while (running) {
-			displayInputState();
-			// The cascading if statement sequentially tries the current character against all of
-			// the valid transitions, each associated with one of the requirements
-			if (currentChar >= 'A' && currentChar <= 'Z') {
-				System.out.println("Upper case letter found");
-				foundUpperCase = true;
-			} else if (currentChar >= 'a' && currentChar <= 'z') {
-				System.out.println("Lower case letter found");
-				foundLowerCase = true;
-			} else if (currentChar >= '0' && currentChar <= '9') {
-				System.out.println("Digit found");
-				foundNumericDigit = true;
-			} else if ("~`!@#$%^&*()_-+={}[]|\\:;\"'<>,.?/".indexOf(currentChar) >= 0) {
-				System.out.println("Special character found");
-				foundSpecialChar = true;
-			} else {
-				passwordIndexofError = currentCharNdx;
-				return "*** Error *** An invalid character has been found!";
-			}
-			if (currentCharNdx >= 7) {
-				System.out.println("At least 8 characters found");
-				foundLongEnough = true;
-			}
-			
-			// Go to the next character if there is one
-			currentCharNdx++;
-			if (currentCharNdx >= inputLine.length())
-				running = false;
-			else
-				currentChar = input.charAt(currentCharNdx);
-			
-			System.out.println();
-		}
-		
-		// Construct a String with a list of the requirement elements that were found.
-		String errMessage = "";
-		if (!foundUpperCase)
-			errMessage += "Upper case; ";
-		
-		if (!foundLowerCase)
-			errMessage += "Lower case; ";
-		
-		if (!foundNumericDigit)
-			errMessage += "Numeric digits; ";
-			
-		if (!foundSpecialChar)
-			errMessage += "Special character; ";
-			
-		if (!foundLongEnough)
-			errMessage += "Long Enough; ";
-		
-		if (errMessage.isEmpty())
-			return "";
-		
-		// If it gets here, there something was not found, so return an appropriate message
-		passwordIndexofError = currentCharNdx;
-		return errMessage + "conditions were not satisfied";
+		return PasswordEvaluator.evaluate(input);
 	}
 }
- 
\ No newline at end of file
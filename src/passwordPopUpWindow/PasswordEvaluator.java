@@ -0,0 +1,240 @@
+package passwordPopUpWindow;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/*******
+ * <p> Title: PasswordEvaluator Class - checks a password against the password requirements as it
+ * is typed.
+ * </p>
+ *
+ * <p> Description: A password must be 8 to 32 characters long, hold only letters, digits, and the
+ * special characters in SPECIAL_CHARACTERS, and include at least one upper case letter, one lower
+ * case letter, one digit, and one special character.  An evaluator keeps a count of each kind of
+ * character in the text it has been given, so each character inserted or deleted updates the
+ * counts in constant time and the requirements can be read back after every key press without
+ * scanning the password again.  Only when the text holds a character that is not allowed is it
+ * scanned, to find where that character is.</p>
+ *
+ * <p> An evaluator belongs to one input field and is not shared between threads.  The static
+ * methods keep no state, so any number of threads may call them at once; evaluateAll uses that to
+ * check a batch of passwords in parallel.</p>
+ *
+ */
+
+public final class PasswordEvaluator {
+
+	/** The fewest and most characters a password may have */
+	public static final int MIN_LENGTH = 8;
+	public static final int MAX_LENGTH = 32;
+
+	/** The special characters a password may hold */
+	public static final String SPECIAL_CHARACTERS = "~`!@#$%^&*()_-+={}[]|\\:;\"'<>,.?/";
+
+	// The kinds of character that are counted; anything beyond ASCII is INVALID
+	private static final int UPPER = 0;
+	private static final int LOWER = 1;
+	private static final int DIGIT = 2;
+	private static final int SPECIAL = 3;
+	private static final int INVALID = 4;
+	private static final byte[] KIND = new byte[128];
+
+	static {
+		java.util.Arrays.fill(KIND, (byte) INVALID);
+		for (char c = 'A'; c <= 'Z'; c++) KIND[c] = UPPER;
+		for (char c = 'a'; c <= 'z'; c++) KIND[c] = LOWER;
+		for (char c = '0'; c <= '9'; c++) KIND[c] = DIGIT;
+		for (char c : SPECIAL_CHARACTERS.toCharArray()) KIND[c] = SPECIAL;
+	}
+
+	private final StringBuilder text = new StringBuilder();	// The password so far
+	private final int[] counts = new int[INVALID + 1];			// Characters of each kind in it
+
+	/*******
+	 * <p> Method: insert </p>
+	 *
+	 * <p> Description: Record a character typed into the password.</p>
+	 *
+	 * @param offset where the character goes
+	 * @param c the character
+	 */
+
+	public void insert(int offset, char c) {
+		text.insert(offset, c);
+		counts[kind(c)]++;
+	}
+
+	/*******
+	 * <p> Method: delete </p>
+	 *
+	 * <p> Description: Record a character removed from the password.</p>
+	 *
+	 * @param offset where the character was
+	 */
+
+	public void delete(int offset) {
+		counts[kind(text.charAt(offset))]--;
+		text.deleteCharAt(offset);
+	}
+
+	/*******
+	 * <p> Method: replace </p>
+	 *
+	 * <p> Description: Record an edit that replaces a range of the password, such as a paste over
+	 * a selection.  Only the characters removed and inserted are counted.</p>
+	 *
+	 * @param start the first character replaced
+	 * @param end the character after the last one replaced
+	 * @param inserted the characters that take their place
+	 */
+
+	public void replace(int start, int end, CharSequence inserted) {
+		for (int i = start; i < end; i++) counts[kind(text.charAt(i))]--;
+		for (int i = 0; i < inserted.length(); i++) counts[kind(inserted.charAt(i))]++;
+		text.replace(start, end, inserted.toString());
+	}
+
+	/*******
+	 * <p> Method: changed </p>
+	 *
+	 * <p> Description: Record a change reported by a text field's listener, which gives the old
+	 * and new text but not the edit.  The edit is what lies between the ends the two have in
+	 * common, so a key press still only recounts the one character.  If the old text is not the
+	 * one this evaluator holds, the new text is counted afresh.</p>
+	 *
+	 * @param oldValue the text before the change
+	 * @param newValue the text after the change
+	 */
+
+	public void changed(String oldValue, String newValue) {
+		if (newValue == null) newValue = "";
+		if (oldValue == null || !oldValue.contentEquals(text)) {
+			replace(0, text.length(), newValue);
+			return;
+		}
+		int oldLength = oldValue.length(), newLength = newValue.length();
+		int start = 0;
+		int shorter = Math.min(oldLength, newLength);
+		while (start < shorter && oldValue.charAt(start) == newValue.charAt(start)) start++;
+		int oldEnd = oldLength, newEnd = newLength;
+		while (oldEnd > start && newEnd > start && oldValue.charAt(oldEnd - 1) == newValue.charAt(newEnd - 1)) {
+			oldEnd--;
+			newEnd--;
+		}
+		replace(start, oldEnd, newValue.subSequence(start, newEnd));
+	}
+
+	/** @return the number of characters in the password */
+	public int length() { return text.length(); }
+
+	/** @return true if the password has an upper case letter */
+	public boolean hasUpperCase() { return counts[UPPER] > 0; }
+
+	/** @return true if the password has a lower case letter */
+	public boolean hasLowerCase() { return counts[LOWER] > 0; }
+
+	/** @return true if the password has a digit */
+	public boolean hasNumericDigit() { return counts[DIGIT] > 0; }
+
+	/** @return true if the password has a special character */
+	public boolean hasSpecialChar() { return counts[SPECIAL] > 0; }
+
+	/** @return true if the password has at least MIN_LENGTH characters */
+	public boolean isLongEnough() { return text.length() >= MIN_LENGTH; }
+
+	/** @return true if the password meets every requirement */
+	public boolean isValid() { return message(text.length(), counts).isEmpty(); }
+
+	/*******
+	 * <p> Method: getMessage </p>
+	 *
+	 * <p> Description: Describe what is wrong with the password so far, exactly as
+	 * Model.evaluatePassword does.</p>
+	 *
+	 * @return "" if the password meets every requirement, otherwise a description of the error
+	 */
+
+	public String getMessage() { return message(text.length(), counts); }
+
+	/*******
+	 * <p> Method: getIndexOfError </p>
+	 *
+	 * <p> Description: Point at the character where the error was found: the first character past
+	 * MAX_LENGTH, the first character that is not allowed, or the end of a password that misses
+	 * a requirement.</p>
+	 *
+	 * @return the index of the error, or -1 if the password meets every requirement
+	 */
+
+	public int getIndexOfError() {
+		int length = text.length();
+		if (length == 0) return 0;
+		if (length > MAX_LENGTH) return MAX_LENGTH;
+		if (counts[INVALID] > 0) {
+			for (int i = 0; i < length; i++) if (kind(text.charAt(i)) == INVALID) return i;
+		}
+		return isValid() ? -1 : length;
+	}
+
+	/*******
+	 * <p> Method: evaluate </p>
+	 *
+	 * <p> Description: Check a whole password at once.  This keeps no state, so it may be called
+	 * from any number of threads.</p>
+	 *
+	 * @param password the password (null is treated as empty)
+	 *
+	 * @return "" if the password meets every requirement, otherwise a description of the error
+	 */
+
+	public static String evaluate(CharSequence password) {
+		if (password == null) password = "";
+		int[] counts = new int[INVALID + 1];
+		int length = password.length();
+		if (length <= MAX_LENGTH) {
+			for (int i = 0; i < length; i++) counts[kind(password.charAt(i))]++;
+		}
+		return message(length, counts);
+	}
+
+	/*******
+	 * <p> Method: evaluateAll </p>
+	 *
+	 * <p> Description: Check a batch of passwords, such as those of imported accounts, in
+	 * parallel.</p>
+	 *
+	 * @param passwords the passwords
+	 *
+	 * @return for each password, in the same order, "" or a description of its error
+	 */
+
+	public static String[] evaluateAll(List<? extends CharSequence> passwords) {
+		String[] messages = new String[passwords.size()];
+		IntStream.range(0, messages.length).parallel().forEach(i -> messages[i] = evaluate(passwords.get(i)));
+		return messages;
+	}
+
+	private static int kind(char c) {
+		return c < 128 ? KIND[c] : INVALID;
+	}
+
+	// The message for a password of this length with these counts, in the order
+	// Model.evaluatePassword has always checked the requirements
+	private static String message(int length, int[] counts) {
+		if (length <= 0) return "*** Error *** The password is empty!";
+		if (length > MAX_LENGTH)
+			return "*** Error *** The password is too long! It must be at most 32 characters.";
+		if (counts[INVALID] > 0) return "*** Error *** An invalid character has been found!";
+		if (counts[UPPER] > 0 && counts[LOWER] > 0 && counts[DIGIT] > 0 && counts[SPECIAL] > 0
+				&& length >= MIN_LENGTH) return "";
+
+		// Construct a String with a list of the requirement elements that were not found.
+		StringBuilder errMessage = new StringBuilder();
+		if (counts[UPPER] == 0) errMessage.append("Upper case; ");
+		if (counts[LOWER] == 0) errMessage.append("Lower case; ");
+		if (counts[DIGIT] == 0) errMessage.append("Numeric digits; ");
+		if (counts[SPECIAL] == 0) errMessage.append("Special character; ");
+		if (length < MIN_LENGTH) errMessage.append("Long Enough; ");
+		return errMessage.append("conditions were not satisfied").toString();
+	}
+}
@@ -0,0 +1,216 @@
+package passwordPopUpWindow;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PasswordEvaluator}: the message and error index for each way a password can
+ * fail, the counts kept through inserts, deletes, and replaced ranges, and the batch check.
+ */
+public class PasswordEvaluatorTest {
+
+    private static final String EMPTY = "*** Error *** The password is empty!";
+    private static final String TOO_LONG =
+            "*** Error *** The password is too long! It must be at most 32 characters.";
+    private static final String INVALID = "*** Error *** An invalid character has been found!";
+
+    private static PasswordEvaluator evaluatorFor(String password) {
+        PasswordEvaluator evaluator = new PasswordEvaluator();
+        for (int i = 0; i < password.length(); i++) evaluator.insert(i, password.charAt(i));
+        return evaluator;
+    }
+
+    private static void assertEvaluates(String password, String message, int index) {
+        PasswordEvaluator evaluator = evaluatorFor(password);
+        assertEquals(password, message, evaluator.getMessage());
+        assertEquals(password, message, PasswordEvaluator.evaluate(password));
+        assertEquals(password, message, Model.evaluatePassword(password));
+        assertEquals(password, index, evaluator.getIndexOfError());
+        assertEquals(password, message.isEmpty(), evaluator.isValid());
+    }
+
+    /**
+     * Tests the message and index for each error, checked in the order Model.evaluatePassword
+     * has always checked them.
+     */
+    @Test
+    public void testMessagesAndIndexes() {
+        assertEvaluates("", EMPTY, 0);
+        assertEvaluates("Abcdef1!", "", -1);
+        assertEvaluates("Abcdefghijklmnopqrstuvwxyz12345!", "", -1);
+        assertEvaluates("Abcdefghijklmnopqrstuvwxyz123456!", TOO_LONG, 32);
+        assertEvaluates("Abcdefghijklmnopqrstuvwxyz123456é", TOO_LONG, 32);
+        assertEvaluates("Abc def1!", INVALID, 3);
+        assertEvaluates("Abcdef1!é", INVALID, 8);
+        assertEvaluates("é", INVALID, 0);
+        assertEvaluates("Abc!", "Numeric digits; Long Enough; conditions were not satisfied", 4);
+        assertEvaluates("abcdefg1!", "Upper case; conditions were not satisfied", 9);
+        assertEvaluates("ABCDEFG1!", "Lower case; conditions were not satisfied", 9);
+        assertEvaluates("Abcdefgh!", "Numeric digits; conditions were not satisfied", 9);
+        assertEvaluates("Abcdefgh1", "Special character; conditions were not satisfied", 9);
+        assertEvaluates("Ab1!", "Long Enough; conditions were not satisfied", 4);
+        assertEvaluates("1", "Upper case; Lower case; Special character; Long Enough; "
+                + "conditions were not satisfied", 1);
+        assertEquals(EMPTY, PasswordEvaluator.evaluate(null));
+    }
+
+    /**
+     * Tests that each requirement is met as soon as its first character is typed, and unmet
+     * again when the last such character is deleted.
+     */
+    @Test
+    public void testRequirementsFollowInsertsAndDeletes() {
+        PasswordEvaluator evaluator = new PasswordEvaluator();
+        evaluator.insert(0, 'b');
+        assertTrue(evaluator.hasLowerCase());
+        assertFalse(evaluator.hasUpperCase());
+        evaluator.insert(0, 'A');
+        evaluator.insert(2, '1');
+        evaluator.insert(3, '!');
+        assertTrue(evaluator.hasUpperCase() && evaluator.hasNumericDigit() && evaluator.hasSpecialChar());
+        assertFalse(evaluator.isLongEnough());
+        for (char c : "cdef".toCharArray()) evaluator.insert(evaluator.length(), c);
+        assertTrue(evaluator.isLongEnough());
+        assertEquals("", evaluator.getMessage());
+
+        // "Ab1!cdef": delete the first character, the middle one, and the last one
+        evaluator.delete(0);
+        assertFalse(evaluator.hasUpperCase());
+        assertEquals("Upper case; Long Enough; conditions were not satisfied", evaluator.getMessage());
+        evaluator.insert(0, 'A');
+        evaluator.delete(3);
+        assertFalse(evaluator.hasSpecialChar());
+        evaluator.delete(evaluator.length() - 1);
+        assertEquals(6, evaluator.length());
+        assertEquals("Special character; Long Enough; conditions were not satisfied",
+                evaluator.getMessage());
+        while (evaluator.length() > 0) evaluator.delete(0);
+        assertEquals(EMPTY, evaluator.getMessage());
+        assertFalse(evaluator.hasLowerCase() || evaluator.hasUpperCase() || evaluator.hasNumericDigit());
+    }
+
+    /**
+     * Tests that an invalid character is found wherever it is, that inserting before it moves
+     * the index, and that deleting it makes the password valid again.
+     */
+    @Test
+    public void testInvalidCharacterIsTrackedThroughEdits() {
+        PasswordEvaluator evaluator = evaluatorFor("Abcdef1!");
+        evaluator.insert(4, 'é');
+        assertEquals(INVALID, evaluator.getMessage());
+        assertEquals(4, evaluator.getIndexOfError());
+        evaluator.insert(0, 'Z');
+        assertEquals(5, evaluator.getIndexOfError());
+        evaluator.delete(5);
+        assertEquals("", evaluator.getMessage());
+        assertEquals(-1, evaluator.getIndexOfError());
+    }
+
+    /**
+     * Tests a paste over a selection, a selection deleted without a paste, and a paste at the
+     * end that makes the password too long.
+     */
+    @Test
+    public void testReplaceCountsOnlyTheEditedRange() {
+        PasswordEvaluator evaluator = evaluatorFor("Abcdef1!");
+        evaluator.replace(1, 7, "XYZ");
+        assertEquals(PasswordEvaluator.evaluate("AXYZ!"), evaluator.getMessage());
+        assertFalse(evaluator.hasLowerCase());
+        assertFalse(evaluator.hasNumericDigit());
+        evaluator.replace(1, 4, "");
+        assertEquals(2, evaluator.length());
+        assertEquals(PasswordEvaluator.evaluate("A!"), evaluator.getMessage());
+        evaluator.replace(2, 2, "bcdefghijklmnopqrstuvwxyz1234567");
+        assertEquals(34, evaluator.length());
+        assertEquals(TOO_LONG, evaluator.getMessage());
+        assertEquals(32, evaluator.getIndexOfError());
+        evaluator.replace(0, 34, "Abcdef1!");
+        assertEquals("", evaluator.getMessage());
+    }
+
+    /**
+     * Tests that a listener's old and new values are turned into the edit between them, and that
+     * an old value the evaluator does not hold, even one of the same length, or a null one, is
+     * recounted from the new value.
+     */
+    @Test
+    public void testChangedFindsTheEditOrRecounts() {
+        PasswordEvaluator evaluator = new PasswordEvaluator();
+        evaluator.changed(null, "Abcdef1!");
+        assertEquals("", evaluator.getMessage());
+        evaluator.changed("Abcdef1!", "Abcdef1!!");
+        assertEquals(9, evaluator.length());
+        evaluator.changed("Abcdef1!!", "Abc1!!");
+        assertEquals(PasswordEvaluator.evaluate("Abc1!!"), evaluator.getMessage());
+        evaluator.changed("Abc1!!", "Aaaabc1!!");
+        assertEquals("", evaluator.getMessage());
+        // a repeated character, where the common prefix and suffix overlap
+        evaluator.changed("Aaaabc1!!", "Aaabc1!!");
+        assertEquals(8, evaluator.length());
+        assertEquals("", evaluator.getMessage());
+        // a stale old value of another length: the new value is counted afresh
+        evaluator.changed("something else", "abc");
+        assertEquals(3, evaluator.length());
+        assertEquals(PasswordEvaluator.evaluate("abc"), evaluator.getMessage());
+        // a stale old value of the same length: also counted afresh, not diffed against
+        evaluator.changed("xyz", "Abcdef1!");
+        evaluator.changed("abcdef1!", "abcdef1!x");
+        assertEquals(9, evaluator.length());
+        assertEquals(PasswordEvaluator.evaluate("abcdef1!x"), evaluator.getMessage());
+        assertNotEquals("", evaluator.getMessage());
+        evaluator.changed("abcdef1!x", "Abc");
+        assertEquals(3, evaluator.length());
+        assertEquals(PasswordEvaluator.evaluate("Abc"), evaluator.getMessage());
+        evaluator.changed("abc", null);
+        assertEquals(EMPTY, evaluator.getMessage());
+    }
+
+    /**
+     * Tests that an evaluator fed random keystrokes, some through changed, agrees with
+     * evaluating the whole password after every one.
+     */
+    @Test
+    public void testRandomEditsAgreeWithEvaluate() {
+        java.util.Random random = new java.util.Random(7);
+        String alphabet = "aZ9!. é";
+        PasswordEvaluator evaluator = new PasswordEvaluator();
+        StringBuilder typed = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            String before = typed.toString();
+            if (typed.length() > 0 && random.nextInt(3) == 0) {
+                int at = random.nextInt(typed.length());
+                evaluator.delete(at);
+                typed.deleteCharAt(at);
+            } else if (typed.length() < 40) {
+                int at = random.nextInt(typed.length() + 1);
+                char c = alphabet.charAt(random.nextInt(alphabet.length()));
+                if (random.nextBoolean()) evaluator.insert(at, c);
+                typed.insert(at, c);
+                if (evaluator.length() != typed.length()) evaluator.changed(before, typed.toString());
+            }
+            assertEquals(typed.toString(), PasswordEvaluator.evaluate(typed), evaluator.getMessage());
+        }
+    }
+
+    /**
+     * Tests that the parallel batch gives each password its own message, in order.
+     */
+    @Test
+    public void testEvaluateAllKeepsOrder() {
+        List<String> passwords = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            passwords.add(i % 3 == 0 ? "Abcdef" + i + "!" : i % 3 == 1 ? "abc" + i : "");
+        }
+        String[] messages = PasswordEvaluator.evaluateAll(passwords);
+        assertEquals(passwords.size(), messages.length);
+        for (int i = 0; i < messages.length; i++) {
+            assertEquals(passwords.get(i), PasswordEvaluator.evaluate(passwords.get(i)), messages[i]);
+        }
+        assertEquals(0, PasswordEvaluator.evaluateAll(Arrays.asList()).length);
+    }
+}
@@ -4,263 +4,187 @@ package userNameRecognizerTestbed;
 public class UserNameRecognizer {
 	/**
 	 * <p> Title: FSM-translated UserNameRecognizer. </p>
-	 * 
-	 * <p> Description: A demonstration of the mechanical translation of Finite State Machine 
-	 * diagram into an executable Java program using the UserName Recognizer. The code 
-	 * detailed design is based on a while loop with a select list</p>
-	 * 
+	 *
+	 * <p> Description: A demonstration of the mechanical translation of Finite State Machine
+	 * diagram into an executable Java program using the UserName Recognizer. The Finite State
+	 * Machine is compiled into an immutable transition table, indexed by the current state and
+	 * the class of the current character, and a short loop walks the input through it.  The
+	 * recognizer keeps no state between calls, so any number of threads may use it at once, and
+	 * recognizing a valid UserName allocates nothing.</p>
+	 *
+	 * <p> The Finite State Machine: </p>
+	 * <pre>
+	 *   State 0 (start):  A-Z, a-z             -&gt; State 1
+	 *   State 1 (final):  A-Z, a-z, 0-9        -&gt; State 1
+	 *                     '.', '-', '_'        -&gt; State 2
+	 *   State 2:          A-Z, a-z, 0-9        -&gt; State 1
+	 * </pre>
+	 * <p> Every character taken counts toward the size of the UserName, which must be 4 to 16
+	 * characters; the machine halts as soon as the size passes 16.</p>
+	 *
 	 * <p> Copyright: Lynn Robert Carter © 2024 </p>
-	 * 
+	 *
 	 * @author Lynn Robert Carter
-	 * 
+	 *
 	 * @version 1.00		2024-09-13	Initial baseline derived from the Even Recognizer
 	 * @version 1.01		2024-09-17	Correction to address UNChar coding error, improper error
 	 * 									message, and improve internal documentation
-	 * 
+	 * @version 2.00		2026-10-18	Table-driven and reentrant, with structured results
+	 *
 	 */
 
 	/**********************************************************************************************
-	 * 
-	 * Result attributes to be used for GUI applications where a detailed error message and a 
-	 * pointer to the character of the error will enhance the user experience.
-	 * 
+	 *
+	 * The reasons a UserName can be rejected, each with the message the pages show for it.
+	 *
 	 */
 
-	public static String userNameRecognizerErrorMessage = "";	// The error message text
-	public static String userNameRecognizerInput = "";			// The input being processed
-	public static int userNameRecognizerIndexofError = -1;		// The index of error location
-	private static int state = 0;						// The current state value
-	private static int nextState = 0;					// The next state value
-	private static boolean finalState = false;			// Is this state a final state?
-	private static String inputLine = "";				// The input line
-	private static char currentChar;					// The current character in the line
-	private static int currentCharNdx;					// The index of the current character
-	private static boolean running;						// The flag that specifies if the FSM is 
-														// running
-	private static int userNameSize = 0;			// A numeric value may not exceed 16 characters
-
-	// Private method to display debugging data
-	private static void displayDebuggingInfo() {
-		// Display the current state of the FSM as part of an execution trace
-		if (currentCharNdx >= inputLine.length())
-			// display the line with the current state numbers aligned
-			System.out.println(((state > 99) ? " " : (state > 9) ? "  " : "   ") + state + 
-					((finalState) ? "       F   " : "           ") + "None");
-		else
-			System.out.println(((state > 99) ? " " : (state > 9) ? "  " : "   ") + state + 
-				((finalState) ? "       F   " : "           ") + "  " + currentChar + " " + 
-				((nextState > 99) ? "" : (nextState > 9) || (nextState == -1) ? "   " : "    ") + 
-				nextState + "     " + userNameSize);
-	}
-	
-	// Private method to move to the next character within the limits of the input line
-	private static void moveToNextCharacter() {
-		currentCharNdx++;
-		if (currentCharNdx < inputLine.length())
-			currentChar = inputLine.charAt(currentCharNdx);
-		else {
-			currentChar = ' ';
-			running = false;
+	public enum Error {
+		/** There is no input */
+		EMPTY("The input is empty"),
+		/** The first character is not a letter */
+		START("A UserName must start with A-Z, a-z."),
+		/** Fewer than 4 characters were accepted */
+		TOO_SHORT("A UserName must have at least 4 characters."),
+		/** More than 16 characters */
+		TOO_LONG("A UserName must have no more than 16 characters."),
+		/** A character outside A-Z, a-z, 0-9, '.', '-', and '_' */
+		INVALID_CHARACTER("A UserName character may only contain the characters A-Z, a-z, 0-9, '.', '-', and '_'"),
+		/** A separator is not followed by a letter or digit */
+		AFTER_SEPARATOR("A UserName character after a period, minus sign, or underscore must be A-Z, a-z, 0-9.");
+
+		private final String message;
+
+		Error(String message) {
+			this.message = message;
 		}
+
+		/** @return the message describing the error */
+		public String getMessage() { return message; }
 	}
 
-	/**********
-	 * This method is a mechanical transformation of a Finite State Machine diagram into a Java
-	 * method.
-	 * 
-	 * @param input		The input string for the Finite State Machine
-	 * @return			An output string that is empty if every things is okay or it is a String
-	 * 						with a helpful description of the error
+	/**********************************************************************************************
+	 *
+	 * The result of recognizing one input, for GUI applications where a detailed error message
+	 * and a pointer to the character of the error will enhance the user experience.  Results are
+	 * immutable; every valid input shares the one VALID result.
+	 *
 	 */
-	public static String checkForValidUserName(String input) {
-		// Check to ensure that there is input to process
-		if(input.length() <= 0) {
-			userNameRecognizerIndexofError = 0;	// Error at first character;
-			return "\n*** ERROR *** The input is empty";
+
+	public static final class Result {
+		private final Error error;
+		private final int index;
+
+		private Result(Error error, int index) {
+			this.error = error;
+			this.index = index;
 		}
-		
-		// The local variables used to perform the Finite State Machine simulation
-		state = 0;							// This is the FSM state number
-		inputLine = input;					// Save the reference to the input line as a global
-		currentCharNdx = 0;					// The index of the current character
-		currentChar = input.charAt(0);		// The current character from above indexed position
 
-		// The Finite State Machines continues until the end of the input is reached or at some 
-		// state the current character does not match any valid transition to a next state
+		/** @return true if the input is a valid UserName */
+		public boolean isValid() { return error == null; }
 
-		userNameRecognizerInput = input;	// Save a copy of the input
-		running = true;						// Start the loop
-		nextState = -1;						// There is no next state
-		System.out.println("\nCurrent Final Input  Next  Date\nState   State Char  State  Size");
-		
-		// This is the place where semantic actions for a transition to the initial state occur
-		
-		userNameSize = 0;					// Initialize the UserName size
+		/** @return the reason the input was rejected, or null if it is valid */
+		public Error getError() { return error; }
 
-		// The Finite State Machines continues until the end of the input is reached or at some 
-		// state the current character does not match any valid transition to a next state
-		while (running) {
-			// The switch statement takes the execution to the code for the current state, where
-			// that code sees whether or not the current character is valid to transition to a
-			// next state
-			switch (state) {
-			case 0: 
-				// State 0 has 1 valid transition that is addressed by an if statement.
-				
-				// The current character is checked against A-Z, a-z, 0-9. If any are matched
-				// the FSM goes to state 1
-				
-				// A-Z, a-z, 0-9 -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z' ) ||		// Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z' )){	// Check for a-z 	
-					nextState = 1;
-					
-					// Count the character 
-					userNameSize++;
-					
-					// This only occurs once, so there is no need to check for the size getting
-					// too large.
-				}
-				// If it is none of those characters, the FSM halts
-				else 
-					running = false;
-				
-				// The execution of this state is finished
-				break;
-			
-			case 1: 
-				// State 1 has two valid transitions, 
-				//	1: a A-Z, a-z, 0-9 that transitions back to state 1
-				//  2: a period that transitions to state 2 
+		/** @return the message describing the error, or "" if the input is valid */
+		public String getMessage() { return error == null ? "" : error.getMessage(); }
 
-				
-				// A-Z, a-z, 0-9 -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z' ) ||		// Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z' ) ||	// Check for a-z
-						(currentChar >= '0' && currentChar <= '9' )) {	// Check for 0-9
-					nextState = 1;
-					
-					// Count the character
-					userNameSize++;
-				}
-				// . -> State 2
-				else if ((currentChar == '.') || (currentChar == '_') || (currentChar == '-')) {							// Check for /
-					nextState = 2;
-					
-					// Count the .
-					userNameSize++;
-				}				
-				// If it is none of those characters, the FSM halts
-				else
-					running = false;
-				
-				// The execution of this state is finished
-				// If the size is larger than 16, the loop must stop
-				if (userNameSize > 16)
-					running = false;
-				break;			
-				
-			case 2: 
-				// State 2 deals with a character after a period in the name.
-				
-				// A-Z, a-z, 0-9 -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z' ) ||		// Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z' ) ||	// Check for a-z
-						(currentChar >= '0' && currentChar <= '9' )) {	// Check for 0-9
-					nextState = 1;
-					
-					// Count the odd digit
-					userNameSize++;
-					
-				}
-				// If it is none of those characters, the FSM halts
-				else 
-					running = false;
+		/** @return the index of the character where the error was found, or -1 if valid */
+		public int getIndex() { return index; }
+	}
 
-				// The execution of this state is finished
-				// If the size is larger than 16, the loop must stop
-				if (userNameSize > 16)
-					running = false;
-				break;			
-			}
-			
-			if (running) {
-				displayDebuggingInfo();
-				// When the processing of a state has finished, the FSM proceeds to the next
-				// character in the input and if there is one, it fetches that character and
-				// updates the currentChar.  If there is no next character the currentChar is
-				// set to a blank.
-				moveToNextCharacter();
+	/** The result of every valid UserName */
+	public static final Result VALID = new Result(null, -1);
+
+	/** The fewest and most characters a UserName may have */
+	public static final int MIN_SIZE = 4;
+	public static final int MAX_SIZE = 16;
+
+	// The character classes: the columns of the transition table
+	private static final int LETTER = 0;
+	private static final int DIGIT = 1;
+	private static final int SEPARATOR = 2;
+	private static final int OTHER = 3;
+	private static final int CLASSES = 4;
+
+	// The class of every ASCII character; anything beyond ASCII is OTHER
+	private static final byte[] CHAR_CLASS = new byte[128];
+
+	// TRANSITIONS[state * CLASSES + class] is the next state, or -1 where the machine halts
+	private static final int HALT = -1;
+	private static final byte[] TRANSITIONS = {
+		//	LETTER	DIGIT	SEPARATOR	OTHER
+			1,		HALT,	HALT,		HALT,	// State 0: the first character
+			1,		1,		2,			HALT,	// State 1: a final state
+			1,		1,		HALT,		HALT,	// State 2: just after a separator
+	};
+
+	static {
+		java.util.Arrays.fill(CHAR_CLASS, (byte) OTHER);
+		for (char c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = LETTER;
+		for (char c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = LETTER;
+		for (char c = '0'; c <= '9'; c++) CHAR_CLASS[c] = DIGIT;
+		CHAR_CLASS['.'] = SEPARATOR;
+		CHAR_CLASS['-'] = SEPARATOR;
+		CHAR_CLASS['_'] = SEPARATOR;
+	}
 
-				// Move to the next state
-				state = nextState;
-				
-				// Is the new state a final state?  If so, signal this fact.
-				if (state == 1) finalState = true;
+	// no instances
+	private UserNameRecognizer() {}
 
-				// Ensure that one of the cases sets this to a valid value
-				nextState = -1;
-			}
-			// Should the FSM get here, the loop starts again
-	
+	/**********
+	 * This method runs the Finite State Machine over the input.
+	 *
+	 * @param input		The input string for the Finite State Machine (null is treated as empty)
+	 * @return			VALID, or the error and the index of the character where it was found
+	 */
+	public static Result recognize(CharSequence input) {
+		// Check to ensure that there is input to process
+		if (input == null || input.length() == 0) return new Result(Error.EMPTY, 0);
+
+		int length = input.length();
+		int state = 0;						// This is the FSM state number
+		int size = 0;						// The number of characters taken
+		int ndx = 0;						// The index of the current character
+
+		// The machine continues until the end of the input is reached, the current character
+		// has no transition from the current state, or the UserName has grown too long.  In the
+		// last two cases it halts on the current character without leaving the current state.
+		while (ndx < length) {
+			char c = input.charAt(ndx);
+			int next = TRANSITIONS[state * CLASSES + (c < 128 ? CHAR_CLASS[c] : OTHER)];
+			if (next == HALT) break;
+			if (++size > MAX_SIZE) break;
+			state = next;
+			ndx++;
 		}
-		displayDebuggingInfo();
-		
-		System.out.println("The loop has ended.");
-		
-		// When the FSM halts, we must determine if the situation is an error or not.  That depends
-		// of the current state of the FSM and whether or not the whole string has been consumed.
-		// This switch directs the execution to separate code for each of the FSM states and that
-		// makes it possible for this code to display a very specific error message to improve the
-		// user experience.
-		userNameRecognizerIndexofError = currentCharNdx;	// Set index of a possible error;
-		userNameRecognizerErrorMessage = "\n*** ERROR *** ";
-		
-		// The following code is a slight variation to support just console output.
+
+		// When the machine halts, the state it halted in and whether the whole input has been
+		// consumed determine the specific error message
 		switch (state) {
 		case 0:
-			// State 0 is not a final state, so we can return a very specific error message
-			userNameRecognizerErrorMessage += "A UserName must start with A-Z, a-z.\n";
-			return userNameRecognizerErrorMessage;
-
+			return new Result(Error.START, ndx);
 		case 1:
-			// State 1 is a final state.  Check to see if the UserName length is valid.  If so we
-			// we must ensure the whole string has been consumed.
-
-			if (userNameSize < 4) {
-				// UserName is too small
-				userNameRecognizerErrorMessage += "A UserName must have at least 4 characters.\n";
-				return userNameRecognizerErrorMessage;
-			}
-			else if (userNameSize > 16) {
-				// UserName is too long
-				userNameRecognizerErrorMessage += 
-					"A UserName must have no more than 16 characters.\n";
-				return userNameRecognizerErrorMessage;
-			}
-			else if (currentCharNdx < input.length()) {
-				// There are characters remaining in the input, so the input is not valid
-				userNameRecognizerErrorMessage += 
-					"A UserName character may only contain the characters A-Z, a-z, 0-9, '.', '-', and '_'\n";
-				return userNameRecognizerErrorMessage;
-			}
-			else {
-					// UserName is valid
-					userNameRecognizerIndexofError = -1;
-					userNameRecognizerErrorMessage = "";
-					return userNameRecognizerErrorMessage;
-			}
-
-		case 2:
-			// State 2 is not a final state, so we can return a very specific error message
-			userNameRecognizerErrorMessage +=
-				"A UserName character after a period, minus sign, or underscore must be A-Z, a-z, 0-9.\n";
-			return userNameRecognizerErrorMessage;
-			
+			if (size < MIN_SIZE) return new Result(Error.TOO_SHORT, ndx);
+			if (size > MAX_SIZE) return new Result(Error.TOO_LONG, ndx);
+			if (ndx < length) return new Result(Error.INVALID_CHARACTER, ndx);
+			return VALID;
 		default:
-			// This is for the case where we have a state that is outside of the valid range.
-			// This should not happen
-			return "";
+			return new Result(Error.AFTER_SEPARATOR, ndx);
 		}
 	}
+
+	/**********
+	 * This method checks a UserName and reports the result in the form the account pages show.
+	 *
+	 * @param input		The input string for the Finite State Machine
+	 * @return			An output string that is empty if every things is okay or it is a String
+	 * 						with a helpful description of the error
+	 */
+	public static String checkForValidUserName(String input) {
+		Result result = recognize(input);
+		if (result.isValid()) return "";
+		if (result.getError() == Error.EMPTY) return "\n*** ERROR *** " + result.getMessage();
+		return "\n*** ERROR *** " + result.getMessage() + "\n";
+	}
 }
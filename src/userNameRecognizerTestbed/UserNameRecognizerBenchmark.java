@@ -0,0 +1,124 @@
+package userNameRecognizerTestbed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*******
+ * <p> Title: UserNameRecognizerBenchmark Class. </p>
+ *
+ * <p> Description: A stand-alone program that measures how many usernames per second
+ * UserNameRecognizer checks, with one thread and with one thread per processor, as a bulk import
+ * of user accounts would.  It generates a set of usernames, most of them valid and the rest
+ * broken in each of the ways the recognizer reports, has every thread check them over and over
+ * for a while so the JIT settles, and then has them do so for a fixed time.</p>
+ *
+ * <p> Run it with the same class path as the application:
+ * <code>java userNameRecognizerTestbed.UserNameRecognizerBenchmark [seconds] [usernames]</code>.
+ * It prints, for each thread count, the usernames checked per second in millions and the same
+ * per thread, which stays level while each thread has a processor of its own.</p>
+ *
+ */
+
+public class UserNameRecognizerBenchmark {
+
+	private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final String TAIL = LETTERS + "0123456789";
+	private static final String SEPARATORS = "._-";
+
+	/*******
+	 * <p> Method: main </p>
+	 *
+	 * <p> Description: Generate the usernames, then print the rate with one thread and with one
+	 * thread per processor.</p>
+	 *
+	 * @param args optionally, the seconds each run lasts (default 5) and the number of usernames
+	 * 	(default 100000)
+	 *
+	 * @throws Exception when a checking thread fails
+	 */
+
+	public static void main(String[] args) throws Exception {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+		int processors = Runtime.getRuntime().availableProcessors();
+		String[] userNames = generate(count, new Random(42));
+
+		run(userNames, processors, seconds);			// warm up the JIT
+		System.out.printf("Processors: %d, usernames: %d%n", processors, count);
+		System.out.printf("%-10s %14s %14s%n", "threads", "M names/s", "per thread");
+		for (int threads : new int[] { 1, processors }) {
+			double perSecond = run(userNames, threads, seconds) / 1e6;
+			System.out.printf("%-10d %14.2f %14.2f%n", threads, perSecond, perSecond / threads);
+		}
+	}
+
+	/*
+	 * Have the threads check the usernames, each starting at a different place, for the given
+	 * time.  Returns the usernames checked per second.
+	 */
+
+	private static double run(String[] userNames, int threads, int seconds) throws Exception {
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<long[]>> done = new ArrayList<>();
+		for (int s = 0; s < threads; s++) {
+			int first = s * (userNames.length / threads);
+			done.add(workers.submit(() -> {
+				long checked = 0, valid = 0;
+				start.await();
+				long end = System.nanoTime() + seconds * 1_000_000_000L;
+				int i = first;
+				while (System.nanoTime() < end) {
+					for (int k = 0; k < 1024; k++) {	// read the clock once per 1024 names
+						if (UserNameRecognizer.recognize(userNames[i]).isValid()) valid++;
+						if (++i == userNames.length) i = 0;
+					}
+					checked += 1024;
+				}
+				return new long[] { checked, valid };
+			}));
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		long checked = 0, valid = 0;
+		for (Future<long[]> f : done) {
+			long[] counts = f.get();
+			checked += counts[0];
+			valid += counts[1];
+		}
+		long elapsed = System.nanoTime() - begin;
+		workers.shutdown();
+		if (valid == 0) throw new IllegalStateException("No username was valid");
+		return checked / (elapsed / 1e9);
+	}
+
+	// Nine in ten usernames are valid; the rest are broken at a random place
+	private static String[] generate(int count, Random random) {
+		String[] userNames = new String[count];
+		for (int n = 0; n < count; n++) {
+			int length = 4 + random.nextInt(13);
+			StringBuilder name = new StringBuilder(length + 1);
+			name.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+			while (name.length() < length) {
+				if (name.length() < length - 1 && random.nextInt(6) == 0)
+					name.append(SEPARATORS.charAt(random.nextInt(SEPARATORS.length())));
+				name.append(TAIL.charAt(random.nextInt(TAIL.length())));
+			}
+			if (random.nextInt(10) == 0) {
+				switch (random.nextInt(4)) {
+				case 0: name.setCharAt(0, '7'); break;				// must start with a letter
+				case 1: name.setLength(2); break;					// too short
+				case 2: name.append("abcdefghijklmnop"); break;		// too long
+				default: name.insert(random.nextInt(name.length()), '!');	// not allowed
+				}
+			}
+			userNames[n] = name.toString();
+		}
+		return userNames;
+	}
+}
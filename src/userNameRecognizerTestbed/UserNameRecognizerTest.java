@@ -0,0 +1,125 @@
+package userNameRecognizerTestbed;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import userNameRecognizerTestbed.UserNameRecognizer.Error;
+import userNameRecognizerTestbed.UserNameRecognizer.Result;
+
+/**
+ * Tests for {@link UserNameRecognizer}: each way a UserName can be rejected, with the index of
+ * the character where the machine halted, the strings the account pages show, and the same
+ * answers from many threads at once.
+ */
+public class UserNameRecognizerTest {
+
+    private static void assertRejected(String input, Error error, int index) {
+        Result result = UserNameRecognizer.recognize(input);
+        assertFalse(input, result.isValid());
+        assertEquals(input, error, result.getError());
+        assertEquals(input, error.getMessage(), result.getMessage());
+        assertEquals(input, index, result.getIndex());
+    }
+
+    /**
+     * Tests names at the edges of the rules, which are accepted with the shared VALID result.
+     */
+    @Test
+    public void testValidNames() {
+        for (String name : new String[] { "abcd", "abcdefghijklmnop", "A1b2", "a.b-c_d", "Zz9.9" }) {
+            Result result = UserNameRecognizer.recognize(name);
+            assertSame(name, UserNameRecognizer.VALID, result);
+            assertTrue(result.isValid());
+            assertNull(result.getError());
+            assertEquals("", result.getMessage());
+            assertEquals(-1, result.getIndex());
+            assertEquals("", UserNameRecognizer.checkForValidUserName(name));
+        }
+    }
+
+    /**
+     * Tests that each error is reported at the character where the machine halted.
+     */
+    @Test
+    public void testErrorsAndTheirIndexes() {
+        assertRejected("", Error.EMPTY, 0);
+        assertRejected(null, Error.EMPTY, 0);
+        assertRejected("9bad", Error.START, 0);
+        assertRejected("_abc", Error.START, 0);
+        assertRejected("abc", Error.TOO_SHORT, 3);
+        assertRejected("a", Error.TOO_SHORT, 1);
+        // the size is checked before the rest of the input, as it always was
+        assertRejected("ab!cd", Error.TOO_SHORT, 2);
+        assertRejected("abcd!e", Error.INVALID_CHARACTER, 4);
+        assertRejected("abcdé", Error.INVALID_CHARACTER, 4);
+        assertRejected("abcd e", Error.INVALID_CHARACTER, 4);
+        assertRejected("abcdefghijklmnopq", Error.TOO_LONG, 16);
+        assertRejected("abcdefghijklmnopqrstuvwxyz", Error.TOO_LONG, 16);
+        assertRejected("abc._d", Error.AFTER_SEPARATOR, 4);
+        assertRejected("abcd.", Error.AFTER_SEPARATOR, 5);
+        assertRejected("ab--cd", Error.AFTER_SEPARATOR, 3);
+    }
+
+    /**
+     * Tests the strings the account pages show: the message between the error banner and a
+     * newline, except for empty input, which has no newline.
+     */
+    @Test
+    public void testCheckForValidUserNameKeepsThePageStrings() {
+        assertEquals("\n*** ERROR *** The input is empty", UserNameRecognizer.checkForValidUserName(""));
+        assertEquals("\n*** ERROR *** A UserName must start with A-Z, a-z.\n",
+                UserNameRecognizer.checkForValidUserName("9bad"));
+        assertEquals("\n*** ERROR *** A UserName must have at least 4 characters.\n",
+                UserNameRecognizer.checkForValidUserName("abc"));
+        assertEquals("\n*** ERROR *** A UserName must have no more than 16 characters.\n",
+                UserNameRecognizer.checkForValidUserName("abcdefghijklmnopq"));
+        assertEquals("\n*** ERROR *** A UserName character may only contain the characters A-Z, "
+                + "a-z, 0-9, '.', '-', and '_'\n", UserNameRecognizer.checkForValidUserName("abcd!"));
+        assertEquals("\n*** ERROR *** A UserName character after a period, minus sign, or "
+                + "underscore must be A-Z, a-z, 0-9.\n", UserNameRecognizer.checkForValidUserName("abc.."));
+    }
+
+    /**
+     * Tests that threads checking names at the same time, as a bulk import does, each get the
+     * right error and index.
+     *
+     * @throws Exception if a checking thread fails
+     */
+    @Test
+    public void testRecognizerIsReentrant() throws Exception {
+        String[] names = { "goodname", "9bad", "abc", "abcdefghijklmnopq", "abcd!e", "abc._d", "",
+                "a.b-c_d" };
+        Error[] errors = { null, Error.START, Error.TOO_SHORT, Error.TOO_LONG,
+                Error.INVALID_CHARACTER, Error.AFTER_SEPARATOR, Error.EMPTY, null };
+        int[] indexes = { -1, 0, 3, 16, 4, 4, 0, -1 };
+        int threads = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int s = 0; s < threads; s++) {
+            int first = s;
+            done.add(pool.submit(() -> {
+                start.await();
+                for (int i = first; i < first + 100_000; i++) {
+                    int k = i % names.length;
+                    Result result = UserNameRecognizer.recognize(names[k]);
+                    assertEquals(names[k], errors[k], result.getError());
+                    assertEquals(names[k], indexes[k], result.getIndex());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : done) f.get();
+        pool.shutdown();
+    }
+}